@@ -708,7 +708,11 @@ int TunerStudio::handleCrcCommand(TsChannelBase* tsChannel, char *data, int inco
 #if ENABLE_PERF_TRACE
 	case TS_PERF_TRACE_BEGIN:
 		perfTraceEnable();
-		sendOkResponse(tsChannel, TS_CRC);
+		{
+			// trace timestamps are CPU cycles, let the console know how to convert them
+			uint32_t tickRate = CORE_CLOCK;
+			tsChannel->sendResponse(TS_CRC, reinterpret_cast<const uint8_t*>(&tickRate), sizeof(tickRate), true);
+		}
 		break;
 	case TS_PERF_TRACE_GET_BUFFER:
 		{
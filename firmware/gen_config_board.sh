@@ -36,10 +36,13 @@ if [ "" = "$BOARD_SPECIFIC_URL" ]; then
 fi
 echo "BOARD_SPECIFIC_URL=[$BOARD_SPECIFIC_URL]"
 
+# talks to GeneratorDaemon if gen_with_daemon.sh has started one, otherwise runs the generator right away
+GENERATOR="java -cp ../java_tools/ConfigDefinition.jar com.rusefi.daemon.GeneratorClient"
+
 # work in progress: migrating to fome_${BUNDLE_NAME}.txt
-java \
+$GENERATOR \
 	-DSystemOut.name=logs/gen_config_${SHORT_BOARDNAME} \
-	-jar ../java_tools/ConfigDefinition.jar \
+	com.rusefi.ConfigDefinition \
 	-readfile OUTPUTS_SECTION_FROM_FILE generated/output_channels.ini \
 	-readfile DATALOG_SECTION_FROM_FILE generated/data_logs.ini \
 	-readfile LIVE_DATA_MENU_FROM_FILE generated/fancy_menu.ini \
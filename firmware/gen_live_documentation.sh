@@ -2,12 +2,15 @@
 
 rm gen_live_documentation.log
 
-java -DSystemOut.name=logs/gen_live_documentation \
- -cp ../java_tools/ConfigDefinition.jar \
+# talks to GeneratorDaemon if gen_with_daemon.sh has started one, otherwise runs the generator right away
+GENERATOR="java -cp ../java_tools/ConfigDefinition.jar com.rusefi.daemon.GeneratorClient"
+
+$GENERATOR -DSystemOut.name=logs/gen_live_documentation \
+ -DLiveDataProcessor.cached_inputs=true \
  com.rusefi.ldmp.LiveDataProcessor integration/LiveData.yaml
 [ $? -eq 0 ] || { echo "ERROR generating"; exit 1; }
 
-java -DSystemOut.name=logs/gen_java_enum -cp ../java_tools/enum2string.jar com.rusefi.ToJavaEnum -enumInputFile generated/live_data_ids.h -outputPath ../java_console/io/src/main/java/com/rusefi/enums
+$GENERATOR -DSystemOut.name=logs/gen_java_enum com.rusefi.ToJavaEnum -enumInputFile generated/live_data_ids.h -outputPath ../java_console/io/src/main/java/com/rusefi/enums
 [ $? -eq 0 ] || { echo "ERROR generating live data ids"; exit 1; }
 
 # live_data_ids.h is generated above, so order of operations is important here!
@@ -0,0 +1,33 @@
+#!/bin/bash
+
+# Runs given command with GeneratorDaemon serving all generator invocations it makes, so that JVM startup, class
+# loading and JIT warmup are paid once per build instead of once per generator.
+# for example ./gen_with_daemon.sh ./gen_config_board.sh hellen/hellen128 hellen128
+#
+# Each invocation starts its own daemon on an ephemeral port, port and a random token reach GeneratorClient through the
+# environment so concurrent builds never talk to, or stop, each other's daemon.
+
+mkdir -p logs
+DAEMON_DIR=$(mktemp -d)
+PORT_FILE=${DAEMON_DIR}/port
+export GENERATOR_DAEMON_TOKEN=$(head -c 16 /dev/urandom | od -An -tx1 | tr -d ' \n')
+
+java -cp ../java_tools/ConfigDefinition.jar com.rusefi.daemon.GeneratorDaemon ${PORT_FILE} > logs/gen_daemon.log 2>&1 &
+DAEMON_PID=$!
+trap "kill ${DAEMON_PID} 2> /dev/null; rm -rf ${DAEMON_DIR}" EXIT
+
+# wait up to ten seconds for the daemon to start listening
+for i in $(seq 100); do
+	[ -s ${PORT_FILE} ] && break
+	kill -0 ${DAEMON_PID} 2> /dev/null || break
+	sleep 0.1
+done
+
+if [ -s ${PORT_FILE} ]; then
+	export GENERATOR_DAEMON_PORT=$(cat ${PORT_FILE})
+else
+	# without the port generators simply run in their own JVM
+	echo "Generator daemon did not start, see logs/gen_daemon.log"
+fi
+
+"$@"
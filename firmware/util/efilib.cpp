@@ -232,10 +232,14 @@ int mytolower(const char c) {
 }
 
 int djb2lowerCase(const char *str) {
+	return djb2lowerCase(str, 33);
+}
+
+int djb2lowerCase(const char *str, int multiplier) {
 	unsigned long hash = 5381;
 
 	while (char c = *str++) {
-		hash = 33 * hash + mytolower(c);
+		hash = multiplier * hash + mytolower(c);
 	}
 
 	return hash;
@@ -11,6 +11,10 @@
 #include <rusefi/arrays.h>
 
 int djb2lowerCase(const char *str);
+/**
+ * djb2 with a custom multiplier, generated lookup code picks one which has no collisions
+ */
+int djb2lowerCase(const char *str, int multiplier);
 
 #define _MAX_FILLER 11
 
@@ -0,0 +1,78 @@
+package com.rusefi;
+
+import com.rusefi.benchmark.BenchmarkScenario;
+import com.rusefi.benchmark.ProtocolBenchmark;
+import com.rusefi.benchmark.ScenarioResult;
+import com.rusefi.binaryprotocol.BinaryProtocol;
+import com.rusefi.io.LinkManager;
+
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures console/protocol throughput and latency against rusEFI simulator over TCP
+ * <p>
+ * Usage: SimulatorBenchmark [start] [output.json]
+ * <p>
+ * -Dbenchmark.scenarios=output_polling,tune_read limits scenarios, -Dbenchmark.iterations overrides iteration count of
+ * every scenario, -Dbenchmark.warmup sets warmup iterations
+ */
+public class SimulatorBenchmark {
+    private static final int DEFAULT_WARMUP = 20;
+
+    public static void main(String[] args) {
+        Thread.setDefaultUncaughtExceptionHandler((t, e) -> {
+            e.printStackTrace();
+            System.exit(-1);
+        });
+        boolean startSimulator = args.length > 0 && args[0].equalsIgnoreCase("start");
+        String outputFile = args.length > (startSimulator ? 1 : 0) ? args[args.length - 1] : null;
+
+        FileLog.MAIN.start();
+
+        boolean failed = false;
+        try {
+            LinkManager linkManager = new LinkManager();
+            IoUtil.connectToSimulator(linkManager, startSimulator);
+            BinaryProtocol bp = linkManager.getBinaryProtocol();
+            if (bp == null)
+                throw new IllegalStateException("Not connected to simulator");
+
+            ProtocolBenchmark benchmark = new ProtocolBenchmark(linkManager, Integer.getInteger("benchmark.warmup", DEFAULT_WARMUP));
+            Integer iterations = Integer.getInteger("benchmark.iterations");
+            List<ScenarioResult> results = new ArrayList<>();
+            for (BenchmarkScenario scenario : getScenarios()) {
+                FileLog.MAIN.logLine("Running " + scenario.getName());
+                results.add(benchmark.run(scenario, iterations == null ? scenario.getDefaultIterations() : iterations));
+            }
+
+            String json = ProtocolBenchmark.toJson(bp.signature, results);
+            System.out.print(json);
+            if (outputFile != null) {
+                try (Writer writer = new FileWriter(outputFile)) {
+                    writer.write(json);
+                }
+                FileLog.MAIN.logLine("Benchmark results written to " + outputFile);
+            }
+        } catch (Throwable e) {
+            e.printStackTrace();
+            failed = true;
+        } finally {
+            SimulatorExecHelper.destroy();
+        }
+        System.exit(failed ? -1 : 0);
+    }
+
+    private static List<BenchmarkScenario> getScenarios() {
+        String property = System.getProperty("benchmark.scenarios");
+        if (property == null)
+            return Arrays.asList(BenchmarkScenario.values());
+        List<BenchmarkScenario> scenarios = new ArrayList<>();
+        for (String name : property.split(","))
+            scenarios.add(BenchmarkScenario.lookup(name.trim()));
+        return scenarios;
+    }
+}
@@ -0,0 +1,52 @@
+package com.rusefi.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bytes allocated by all live threads since creation: protocol stack allocates both on the calling thread and on
+ * stream reader thread. Allocations of threads which have ended in between are not counted.
+ */
+public class AllocationCounter {
+    private final com.sun.management.ThreadMXBean bean = getBean();
+    private final Map<Long, Long> start = bean == null ? null : snapshot(bean);
+
+    /**
+     * @return null if JVM does not support per-thread allocation counters
+     */
+    private static com.sun.management.ThreadMXBean getBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return null;
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported() || !sunBean.isThreadAllocatedMemoryEnabled())
+            return null;
+        return sunBean;
+    }
+
+    private static Map<Long, Long> snapshot(com.sun.management.ThreadMXBean bean) {
+        long[] ids = bean.getAllThreadIds();
+        long[] allocated = bean.getThreadAllocatedBytes(ids);
+        Map<Long, Long> result = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            // -1 for threads which have ended since getAllThreadIds
+            if (allocated[i] >= 0)
+                result.put(ids[i], allocated[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return -1 if not supported by this JVM
+     */
+    public long getAllocatedBytes() {
+        if (bean == null)
+            return -1;
+        long total = 0;
+        for (Map.Entry<Long, Long> e : snapshot(bean).entrySet())
+            total += e.getValue() - start.getOrDefault(e.getKey(), 0L);
+        return total;
+    }
+}
@@ -0,0 +1,107 @@
+package com.rusefi.benchmark;
+
+import com.opensr5.ConfigurationImage;
+import com.rusefi.binaryprotocol.BinaryProtocol;
+import com.rusefi.config.generated.Fields;
+import com.rusefi.io.commands.ByteRange;
+
+import static com.rusefi.binaryprotocol.IoHelper.checkResponseCode;
+
+/**
+ * Scripted workloads, each {@link #runOnce} is one measured operation executed on communication thread
+ */
+public enum BenchmarkScenario {
+    /**
+     * Same request console issues continuously while connected
+     */
+    OUTPUT_POLLING("output_polling", 2000) {
+        @Override
+        int runOnce(BinaryProtocol bp, int iteration) {
+            if (!bp.requestOutputChannels())
+                throw new IllegalStateException("Output channels request failed");
+            return Fields.TS_TOTAL_OUTPUT_SIZE;
+        }
+    },
+    /**
+     * Whole configuration image in {@link Fields#BLOCKING_FACTOR} chunks, same as on connect
+     */
+    TUNE_READ("tune_read", 50) {
+        @Override
+        int runOnce(BinaryProtocol bp, int iteration) {
+            byte[] packet = new byte[4];
+            for (int offset = 0; offset < Fields.TOTAL_CONFIG_SIZE; offset += Fields.BLOCKING_FACTOR) {
+                int size = Math.min(Fields.BLOCKING_FACTOR, Fields.TOTAL_CONFIG_SIZE - offset);
+                ByteRange.packOffsetAndSize(offset, size, packet);
+                byte[] response = bp.executeCommand(Fields.TS_READ_COMMAND, packet, "benchmark read");
+                if (!checkResponseCode(response, (byte) Fields.TS_RESPONSE_OK) || response.length != size + 1)
+                    throw new IllegalStateException("Read failed at offset " + offset);
+            }
+            return Fields.TOTAL_CONFIG_SIZE;
+        }
+    },
+    /**
+     * Writes current controller content back chunk by chunk so that tune stays unchanged. No burn.
+     */
+    CHUNK_WRITE("chunk_write", 500) {
+        @Override
+        int runOnce(BinaryProtocol bp, int iteration) {
+            ConfigurationImage image = bp.getControllerConfiguration();
+            if (image == null)
+                throw new IllegalStateException("Configuration not read yet");
+            int chunks = (image.getSize() + Fields.BLOCKING_FACTOR - 1) / Fields.BLOCKING_FACTOR;
+            int offset = (iteration % chunks) * Fields.BLOCKING_FACTOR;
+            int size = Math.min(Fields.BLOCKING_FACTOR, image.getSize() - offset);
+
+            byte[] packet = new byte[4 + size];
+            ByteRange.packOffsetAndSize(offset, size, packet);
+            System.arraycopy(image.getContent(), offset, packet, 4, size);
+            byte[] response = bp.executeCommand(Fields.TS_CHUNK_WRITE_COMMAND, packet, "benchmark write");
+            if (!checkResponseCode(response, (byte) Fields.TS_RESPONSE_OK) || response.length != 1)
+                throw new IllegalStateException("Write failed at offset " + offset);
+            return size;
+        }
+    },
+    /**
+     * Back-to-back text commands, firmware console output is drained by regular text pull afterwards
+     */
+    TEXT_COMMANDS("text_commands", 2000) {
+        @Override
+        int runOnce(BinaryProtocol bp, int iteration) {
+            byte[] command = BinaryProtocol.getTextCommandBytesOnlyText("echo " + iteration);
+            byte[] response = bp.executeCommand(Fields.TS_EXECUTE, command, "benchmark execute");
+            if (!checkResponseCode(response, (byte) Fields.TS_RESPONSE_COMMAND_OK) || response.length != 1)
+                throw new IllegalStateException("Command not confirmed");
+            return command.length;
+        }
+    };
+
+    private final String name;
+    private final int defaultIterations;
+
+    BenchmarkScenario(String name, int defaultIterations) {
+        this.name = name;
+        this.defaultIterations = defaultIterations;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getDefaultIterations() {
+        return defaultIterations;
+    }
+
+    /**
+     * @return payload bytes transferred
+     * @throws IllegalStateException if ECU did not respond as expected
+     */
+    abstract int runOnce(BinaryProtocol bp, int iteration);
+
+    public static BenchmarkScenario lookup(String name) {
+        for (BenchmarkScenario scenario : values()) {
+            if (scenario.name.equalsIgnoreCase(name))
+                return scenario;
+        }
+        throw new IllegalStateException("Unknown scenario " + name);
+    }
+}
@@ -0,0 +1,74 @@
+package com.rusefi.benchmark;
+
+import com.devexperts.logging.Logging;
+import com.rusefi.binaryprotocol.BinaryProtocol;
+import com.rusefi.io.LinkManager;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static com.devexperts.logging.Logging.getLogging;
+
+/**
+ * Runs {@link BenchmarkScenario} as a single task on communication thread so that background output polling cannot
+ * interleave with measured operations. Allocations are counted over all threads since responses are buffered on
+ * stream reader thread.
+ */
+public class ProtocolBenchmark {
+    private static final Logging log = getLogging(ProtocolBenchmark.class);
+
+    private final LinkManager linkManager;
+    private final int warmupIterations;
+
+    public ProtocolBenchmark(LinkManager linkManager, int warmupIterations) {
+        this.linkManager = linkManager;
+        this.warmupIterations = warmupIterations;
+    }
+
+    public ScenarioResult run(BenchmarkScenario scenario, int iterations) {
+        ScenarioResult result = new ScenarioResult(scenario);
+        try {
+            linkManager.submit(() -> measure(scenario, iterations, result)).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(scenario.getName() + " failed", e);
+        }
+        log.info(scenario.getName() + ": " + result.getLatency().getCount() + " operations, " +
+                Math.round(result.getOperationsPerSecond()) + " ops/s");
+        return result;
+    }
+
+    private void measure(BenchmarkScenario scenario, int iterations, ScenarioResult result) {
+        BinaryProtocol bp = linkManager.getBinaryProtocol();
+        if (bp == null)
+            throw new IllegalStateException("Not connected");
+        for (int i = 0; i < warmupIterations; i++)
+            scenario.runOnce(bp, i);
+
+        AllocationCounter allocationCounter = new AllocationCounter();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            long operationStart = System.nanoTime();
+            int bytes = scenario.runOnce(bp, i);
+            result.onOperation(System.nanoTime() - operationStart, bytes);
+        }
+        result.setElapsedNanos(System.nanoTime() - start);
+        result.setAllocatedBytes(allocationCounter.getAllocatedBytes());
+    }
+
+    public static String toJson(String version, List<ScenarioResult> results) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"version\":\"").append(version).append('"');
+        sb.append(",\"timestamp\":").append(System.currentTimeMillis());
+        sb.append(",\"java\":\"").append(System.getProperty("java.version")).append('"');
+        sb.append(",\"os\":\"").append(System.getProperty("os.name")).append('"');
+        sb.append(",\"scenarios\":[");
+        for (int i = 0; i < results.size(); i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append('\n');
+            results.get(i).appendJson(sb);
+        }
+        sb.append("\n]}\n");
+        return sb.toString();
+    }
+}
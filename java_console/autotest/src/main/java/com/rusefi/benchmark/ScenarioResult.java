@@ -0,0 +1,83 @@
+package com.rusefi.benchmark;
+
+import com.rusefi.tracing.DurationHistogram;
+
+/**
+ * Measurements of one {@link BenchmarkScenario} run, latencies are in microseconds
+ */
+public class ScenarioResult {
+    private final BenchmarkScenario scenario;
+    private final DurationHistogram latency = new DurationHistogram();
+    private long bytes;
+    private long elapsedNanos;
+    /**
+     * all threads, -1 if JVM does not support per-thread allocation counters
+     */
+    private long allocatedBytes = -1;
+
+    public ScenarioResult(BenchmarkScenario scenario) {
+        this.scenario = scenario;
+    }
+
+    void onOperation(long durationNanos, int payloadBytes) {
+        latency.record(durationNanos / 1000.0);
+        bytes += payloadBytes;
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    void setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public BenchmarkScenario getScenario() {
+        return scenario;
+    }
+
+    public DurationHistogram getLatency() {
+        return latency;
+    }
+
+    public double getOperationsPerSecond() {
+        return perSecond(latency.getCount());
+    }
+
+    public double getBytesPerSecond() {
+        return perSecond(bytes);
+    }
+
+    public double getAllocatedBytesPerSecond() {
+        return allocatedBytes < 0 ? -1 : perSecond(allocatedBytes);
+    }
+
+    private double perSecond(long value) {
+        return elapsedNanos == 0 ? 0 : value * 1e9 / elapsedNanos;
+    }
+
+    public void appendJson(StringBuilder sb) {
+        long count = latency.getCount();
+        sb.append("{\"scenario\":\"").append(scenario.getName()).append('"');
+        sb.append(",\"operations\":").append(count);
+        sb.append(",\"bytes\":").append(bytes);
+        sb.append(",\"elapsedMs\":").append(round(elapsedNanos / 1e6));
+        sb.append(",\"opsPerSecond\":").append(round(getOperationsPerSecond()));
+        sb.append(",\"bytesPerSecond\":").append(round(getBytesPerSecond()));
+        sb.append(",\"latencyUs\":{");
+        sb.append("\"p50\":").append(round(latency.getPercentile(0.5)));
+        sb.append(",\"p99\":").append(round(latency.getPercentile(0.99)));
+        sb.append(",\"p999\":").append(round(latency.getPercentile(0.999)));
+        sb.append(",\"max\":").append(round(latency.getMax()));
+        sb.append(",\"mean\":").append(round(count == 0 ? 0 : latency.getTotal() / count));
+        sb.append('}');
+        sb.append(",\"allocatedBytes\":").append(allocatedBytes);
+        sb.append(",\"allocatedBytesPerOp\":").append(allocatedBytes < 0 || count == 0 ? -1 : round((double) allocatedBytes / count));
+        sb.append(",\"allocatedBytesPerSecond\":").append(round(getAllocatedBytesPerSecond()));
+        sb.append('}');
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
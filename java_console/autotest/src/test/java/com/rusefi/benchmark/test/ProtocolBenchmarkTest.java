@@ -0,0 +1,89 @@
+package com.rusefi.benchmark.test;
+
+import com.opensr5.ConfigurationImage;
+import com.rusefi.TestHelper;
+import com.rusefi.benchmark.AllocationCounter;
+import com.rusefi.benchmark.BenchmarkScenario;
+import com.rusefi.benchmark.ProtocolBenchmark;
+import com.rusefi.benchmark.ScenarioResult;
+import com.rusefi.config.generated.Fields;
+import com.rusefi.io.ConnectionStateListener;
+import com.rusefi.io.LinkManager;
+import com.rusefi.io.tcp.BinaryProtocolServer;
+import com.rusefi.io.tcp.TcpConnector;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import static com.rusefi.TestHelper.assertLatch;
+import static org.junit.Assert.*;
+
+/**
+ * {@link ProtocolBenchmark} against in-process virtual controller
+ */
+public class ProtocolBenchmarkTest {
+    @Test
+    public void allocationOnOtherThreadIsCounted() throws InterruptedException {
+        AllocationCounter counter = new AllocationCounter();
+        Thread thread = new Thread(() -> {
+            byte[][] garbage = new byte[16][];
+            for (int i = 0; i < garbage.length; i++)
+                garbage[i] = new byte[64 * 1024];
+            // keep thread alive so that its counter is still visible
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        thread.start();
+        Thread.sleep(100);
+        long allocated = counter.getAllocatedBytes();
+        thread.join();
+        if (allocated != -1)
+            assertTrue(allocated + " bytes", allocated >= 16 * 64 * 1024);
+    }
+
+    @Test
+    public void outputPollingAndTuneRead() throws InterruptedException {
+        int port = 6111;
+        ConfigurationImage image = new ConfigurationImage(Fields.TOTAL_CONFIG_SIZE);
+        BinaryProtocolServer server = TestHelper.createVirtualController(port, image, new BinaryProtocolServer.Context());
+
+        CountDownLatch connected = new CountDownLatch(1);
+        LinkManager linkManager = new LinkManager();
+        try {
+            linkManager.startAndConnect(TcpConnector.LOCALHOST + ":" + port, new ConnectionStateListener() {
+                @Override
+                public void onConnectionEstablished() {
+                    connected.countDown();
+                }
+
+                @Override
+                public void onConnectionFailed(String s) {
+                }
+            });
+            assertLatch("Connection established", connected);
+
+            ProtocolBenchmark benchmark = new ProtocolBenchmark(linkManager, 5);
+            ScenarioResult polling = benchmark.run(BenchmarkScenario.OUTPUT_POLLING, 50);
+            assertEquals(50, polling.getLatency().getCount());
+            assertTrue(polling.getOperationsPerSecond() > 0);
+            assertTrue(polling.getBytesPerSecond() > 0);
+
+            ScenarioResult tuneRead = benchmark.run(BenchmarkScenario.TUNE_READ, 2);
+            assertEquals(2, tuneRead.getLatency().getCount());
+            double allocated = tuneRead.getAllocatedBytesPerSecond();
+            if (allocated != -1) {
+                // at least the response buffers of every read
+                assertTrue(allocated > 0);
+            }
+            String json = ProtocolBenchmark.toJson("test", Collections.singletonList(tuneRead));
+            assertTrue(json, json.contains("\"scenario\":\"tune_read\""));
+            assertEquals(0, server.unknownCommands.get());
+        } finally {
+            linkManager.close();
+            server.close();
+        }
+    }
+}
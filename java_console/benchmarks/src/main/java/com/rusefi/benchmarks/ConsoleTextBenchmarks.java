@@ -0,0 +1,50 @@
+package com.rusefi.benchmarks;
+
+import com.rusefi.config.generated.Fields;
+import com.rusefi.core.EngineState;
+import com.rusefi.io.LinkDecoder;
+import com.rusefi.waves.EngineChart;
+import com.rusefi.waves.EngineChartParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text protocol path: text pull payload split into lines and key/value pairs, engine sniffer chart split by channel
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConsoleTextBenchmarks {
+    private String consoleText;
+    private String engineSnifferChart;
+    private EngineState engineState;
+    private int chartsCount;
+
+    @Setup
+    public void setup() {
+        consoleText = Fixtures.createConsoleText();
+        engineSnifferChart = Fixtures.createEngineSnifferChart();
+        engineState = new EngineState(new EngineState.EngineStateListenerImpl());
+        // same keys console registers
+        engineState.registerValueAction(Fields.PROTOCOL_ENGINE_SNIFFER, value -> chartsCount++);
+        engineState.registerStringValueAction(Fields.PROTOCOL_OUTPIN, value -> {
+        });
+        engineState.registerStringValueAction(Fields.PROTOCOL_VERSION_TAG, value -> {
+        });
+    }
+
+    @Benchmark
+    public int processNewData() {
+        engineState.processNewData(consoleText, LinkDecoder.VOID);
+        return chartsCount;
+    }
+
+    @Benchmark
+    public EngineChart unpackToMap() {
+        return EngineChartParser.unpackToMap(engineSnifferChart);
+    }
+}
@@ -0,0 +1,115 @@
+package com.rusefi.benchmarks;
+
+import com.rusefi.config.generated.Fields;
+import com.rusefi.waves.EngineChartParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark inputs: generated files are taken from the source tree, live data is shaped like simulator output
+ * <p>
+ * -Dbenchmarks.root points at repository root, by default benchmarks are expected to run from java_console/benchmarks
+ */
+public class Fixtures {
+    private static final String ROOT = System.getProperty("benchmarks.root", "../..");
+
+    public static final String INI_FILE = "/firmware/tunerstudio/generated/fome_f407-discovery.ini";
+    public static final String CONFIG_DEFINITION = "/firmware/integration/rusefi_config.txt";
+    public static final String INI_TEMPLATE = "/firmware/tunerstudio/tunerstudio.template.ini";
+
+    /**
+     * default engineChartSize in simulator
+     */
+    public static final int ENGINE_SNIFFER_EVENTS = 400;
+    private static final int RPM = 1200;
+    private static final int TEETH = 60;
+    private static final int MISSING_TEETH = 2;
+    private static final int CYLINDERS = 4;
+
+    private Fixtures() {
+    }
+
+    public static byte[] readBytes(String repoPath) throws IOException {
+        return Files.readAllBytes(Paths.get(ROOT + repoPath));
+    }
+
+    public static List<String> readLines(String repoPath) throws IOException {
+        return Files.readAllLines(Paths.get(ROOT + repoPath));
+    }
+
+    /**
+     * Same event sequence firmware engine sniffer produces for a 60-2 four cylinder engine: crank teeth with tooth
+     * index, coil and injector edges, times in {@link Fields#ENGINE_SNIFFER_UNIT_US} units from chart start
+     */
+    public static String createEngineSnifferChart() {
+        StringBuilder sb = new StringBuilder();
+        double revolutionUnits = 60e6 / RPM / Fields.ENGINE_SNIFFER_UNIT_US;
+        double toothUnits = revolutionUnits / TEETH;
+        int events = 0;
+        int toothIndex = 0;
+        for (int revolution = 0; events < ENGINE_SNIFFER_EVENTS; revolution++) {
+            double revolutionStart = revolution * revolutionUnits;
+            for (int tooth = 0; tooth < TEETH - MISSING_TEETH && events < ENGINE_SNIFFER_EVENTS; tooth++) {
+                double toothStart = revolutionStart + tooth * toothUnits;
+                appendEvent(sb, Fields.PROTOCOL_CRANK1, Fields.PROTOCOL_ES_UP + "_" + toothIndex, toothStart);
+                appendEvent(sb, Fields.PROTOCOL_CRANK1, Fields.PROTOCOL_ES_DOWN + "_" + toothIndex, toothStart + toothUnits / 2);
+                events += 2;
+                toothIndex++;
+
+                // two cylinders fire per revolution
+                if (tooth % (TEETH / 2) == 10) {
+                    int cylinder = (revolution * 2 + tooth / (TEETH / 2)) % CYLINDERS + 1;
+                    appendEvent(sb, "c" + cylinder, Fields.PROTOCOL_ES_UP, toothStart);
+                    appendEvent(sb, "c" + cylinder, Fields.PROTOCOL_ES_DOWN, toothStart + 3 * toothUnits);
+                    appendEvent(sb, "i" + cylinder, Fields.PROTOCOL_ES_UP, toothStart - 20 * toothUnits);
+                    appendEvent(sb, "i" + cylinder, Fields.PROTOCOL_ES_DOWN, toothStart - 8 * toothUnits);
+                    events += 4;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendEvent(StringBuilder sb, String name, String signal, double time) {
+        sb.append(name).append(EngineChartParser.DELI)
+                .append(signal).append(EngineChartParser.DELI)
+                .append(Math.max(0, (int) time)).append(EngineChartParser.DELI);
+    }
+
+    /**
+     * Text pull payload: engine sniffer chart and a few plain messages, each line terminated like in
+     * {@link com.rusefi.binaryprotocol.BinaryProtocol} text pull
+     */
+    public static String createConsoleText() {
+        return Fields.PROTOCOL_MSG + Fields.LOG_DELIMITER + "engine sniffer size=" + ENGINE_SNIFFER_EVENTS + Fields.LOG_DELIMITER + "\r\n" +
+                Fields.PROTOCOL_ENGINE_SNIFFER + Fields.LOG_DELIMITER + createEngineSnifferChart() + Fields.LOG_DELIMITER + "\r\n" +
+                Fields.PROTOCOL_OUTPIN + Fields.LOG_DELIMITER + "c1@PC9" + Fields.LOG_DELIMITER + "\r\n" +
+                Fields.PROTOCOL_MSG + Fields.LOG_DELIMITER + "Running main trigger: 60/2" + Fields.LOG_DELIMITER + "\r\n";
+    }
+
+    /**
+     * @return tune-sized image with reproducible content
+     */
+    public static byte[] createImage() {
+        byte[] content = new byte[Fields.TOTAL_CONFIG_SIZE];
+        new Random(Fields.TOTAL_CONFIG_SIZE).nextBytes(content);
+        return content;
+    }
+
+    /**
+     * Copy of image with a few single-field edits and one table region edit, typical for a tune change
+     */
+    public static byte[] createEditedImage(byte[] image) {
+        byte[] copy = image.clone();
+        for (int offset : new int[]{100, 104, 2000, 9000}) {
+            copy[offset]++;
+        }
+        for (int offset = 15000; offset < 15256; offset += 2)
+            copy[offset]++;
+        return copy;
+    }
+}
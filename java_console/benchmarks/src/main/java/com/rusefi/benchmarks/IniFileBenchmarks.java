@@ -0,0 +1,40 @@
+package com.rusefi.benchmarks;
+
+import com.opensr5.ini.IniFileModel;
+import com.opensr5.ini.IniFileReader;
+import com.opensr5.ini.RawIniFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Console startup: generated .ini is read into raw lines and then into {@link IniFileModel}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IniFileBenchmarks {
+    private byte[] iniFile;
+    private RawIniFile rawIniFile;
+
+    @Setup
+    public void setup() throws IOException {
+        iniFile = Fixtures.readBytes(Fixtures.INI_FILE);
+        rawIniFile = readRaw();
+    }
+
+    @Benchmark
+    public RawIniFile readRaw() {
+        return IniFileReader.read(new ByteArrayInputStream(iniFile));
+    }
+
+    @Benchmark
+    public IniFileModel parseModel() {
+        return new IniFileModel().readIniFile(rawIniFile);
+    }
+}
@@ -0,0 +1,35 @@
+package com.rusefi.benchmarks;
+
+import com.opensr5.io.DataListener;
+import com.rusefi.binaryprotocol.IncomingDataBuffer;
+import com.rusefi.io.serial.AbstractIoStream;
+
+import java.io.IOException;
+
+/**
+ * Everything written is delivered back into own {@link IncomingDataBuffer} on caller thread
+ */
+class LoopbackIoStream extends AbstractIoStream {
+    private final IncomingDataBuffer dataBuffer;
+    private DataListener listener;
+
+    LoopbackIoStream() {
+        dataBuffer = createDataBuffer("[loopback] ");
+    }
+
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        super.write(bytes);
+        listener.onDataArrived(bytes);
+    }
+
+    @Override
+    public void setInputListener(DataListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public IncomingDataBuffer getDataBuffer() {
+        return dataBuffer;
+    }
+}
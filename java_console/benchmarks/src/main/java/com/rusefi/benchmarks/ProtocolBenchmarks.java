@@ -0,0 +1,78 @@
+package com.rusefi.benchmarks;
+
+import com.opensr5.ConfigurationImage;
+import com.rusefi.ConfigurationImageDiff;
+import com.rusefi.binaryprotocol.IncomingDataBuffer;
+import com.rusefi.binaryprotocol.IoHelper;
+import com.rusefi.config.generated.Fields;
+import com.rusefi.core.Pair;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary protocol hot paths: each output channels poll goes through packet framing and CRC, each tune write through
+ * image diff
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocolBenchmarks {
+    /**
+     * Output channels response: response code followed by one {@link Fields#BLOCKING_FACTOR} chunk
+     */
+    private final byte[] outputsResponse = new byte[Fields.BLOCKING_FACTOR + 1];
+    private byte[] framedResponse;
+    private LoopbackIoStream stream;
+    private ConfigurationImage image;
+    private ConfigurationImage editedImage;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < outputsResponse.length; i++)
+            outputsResponse[i] = (byte) (i * 7);
+        outputsResponse[0] = Fields.TS_RESPONSE_OK;
+        framedResponse = IoHelper.makeCrc32Packet(outputsResponse);
+        stream = new LoopbackIoStream();
+
+        byte[] content = Fixtures.createImage();
+        image = new ConfigurationImage(content);
+        editedImage = new ConfigurationImage(Fixtures.createEditedImage(content));
+    }
+
+    @Benchmark
+    public int crc32() {
+        return IoHelper.getCrc32(outputsResponse);
+    }
+
+    @Benchmark
+    public byte[] getPacket() throws IOException {
+        stream.write(framedResponse);
+        IncomingDataBuffer dataBuffer = stream.getDataBuffer();
+        byte[] packet = dataBuffer.getPacket("benchmark");
+        if (packet == null)
+            throw new EOFException("Packet not decoded");
+        return packet;
+    }
+
+    /**
+     * Same loop as tune upload: all changed ranges from start to end
+     */
+    @Benchmark
+    public void findDifferences(Blackhole blackhole) {
+        int position = 0;
+        while (true) {
+            Pair<Integer, Integer> range = ConfigurationImageDiff.findDifferences(image, editedImage, position);
+            if (range == null)
+                break;
+            blackhole.consume(range);
+            position = range.second;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.rusefi.benchmarks;
+
+import com.rusefi.VariableRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Code generator template expansion: @@var@@ references of tunerstudio template resolved against config definitions
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VariableRegistryBenchmarks {
+    private final VariableRegistry registry = new VariableRegistry();
+    private final List<String> lines = new ArrayList<>();
+    private String template;
+
+    @Setup
+    public void setup() throws IOException {
+        registry.readPrependValues(new StringReader(String.join("\n", Fixtures.readLines(Fixtures.CONFIG_DEFINITION))));
+        StringBuilder sb = new StringBuilder();
+        for (String line : Fixtures.readLines(Fixtures.INI_TEMPLATE)) {
+            try {
+                registry.applyVariables(line);
+            } catch (IllegalStateException e) {
+                // references to values which only full config definition processing would produce
+                continue;
+            }
+            lines.add(line);
+            sb.append(line).append('\n');
+        }
+        template = sb.toString();
+    }
+
+    @Benchmark
+    public void applyVariablesPerLine(Blackhole blackhole) {
+        for (String line : lines)
+            blackhole.consume(registry.applyVariables(line));
+    }
+
+    @Benchmark
+    public StringBuilder applyVariablesBulk() {
+        StringBuilder result = new StringBuilder(template.length());
+        registry.applyVariables(template, result);
+        return result;
+    }
+}
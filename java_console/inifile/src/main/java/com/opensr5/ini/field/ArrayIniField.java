@@ -27,6 +27,10 @@ public class ArrayIniField extends IniField {
         return type;
     }
 
+    public double getMultiplier() {
+        return multiplier;
+    }
+
     public int getCols() {
         return cols;
     }
@@ -39,6 +39,10 @@ public class ScalarIniField extends IniField {
         return type;
     }
 
+    public double getMultiplier() {
+        return multiplier;
+    }
+
     @Override
     public int getSize() {
         return type.getStorageSize();
@@ -0,0 +1,362 @@
+package com.opensr5.io;
+
+import com.devexperts.logging.Logging;
+import com.opensr5.ConfigurationImage;
+import com.opensr5.ini.IniFileModel;
+import com.opensr5.ini.field.*;
+import com.rusefi.NamedThreadFactory;
+import com.rusefi.config.FieldType;
+import com.rusefi.tools.tune.MsqFile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.devexperts.logging.Logging.getLogging;
+
+/**
+ * Converts {@link ConfigurationImage} binaries to TunerStudio .msq and back using {@link IniFileModel} field layout
+ * <p>
+ * Each field is read or written with absolute {@link ByteBuffer} access on the whole image, no {@link com.rusefi.config.Field}
+ * or value String is created per table cell.
+ *
+ * @see MsqFile
+ */
+public class MsqConverter {
+    private static final Logging log = getLogging(MsqConverter.class);
+
+    public static final String BIN = ".bin";
+    public static final String MSQ = ".msq";
+
+    private final IniFileModel model;
+
+    public MsqConverter(IniFileModel model) {
+        this.model = model;
+    }
+
+    public void writeMsq(ConfigurationImage image, Writer writer) throws IOException {
+        ByteBuffer content = ByteBuffer.wrap(image.getContent()).order(ByteOrder.LITTLE_ENDIAN);
+        StringBuilder sb = new StringBuilder(64 * 1024);
+        sb.append("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n");
+        sb.append("<msq xmlns=\"http://www.msefi.com/:msq\">\n");
+        sb.append("<bibliography author=\"").append(MsqConverter.class.getSimpleName())
+                .append("\" writeDate=\"").append(new Date()).append("\"/>\n");
+        sb.append("<versionInfo fileFormat=\"5.0\" nPages=\"1\"/>\n");
+        sb.append("<page number=\"0\" size=\"").append(image.getSize()).append("\">\n");
+        for (IniField field : model.allIniFields.values()) {
+            if (field.getOffset() + field.getSize() > image.getSize())
+                throw new IllegalStateException(field.getName() + " does not fit into " + image.getSize() + " byte(s) image");
+            appendConstant(sb, content, field);
+            if (sb.length() > 32 * 1024) {
+                writer.append(sb);
+                sb.setLength(0);
+            }
+        }
+        sb.append("</page>\n");
+        sb.append("</msq>\n");
+        writer.append(sb);
+        writer.flush();
+    }
+
+    private void appendConstant(StringBuilder sb, ByteBuffer content, IniField field) {
+        sb.append("<constant");
+        if (field instanceof ArrayIniField) {
+            ArrayIniField array = (ArrayIniField) field;
+            sb.append(" cols=\"").append(array.getCols()).append("\" rows=\"").append(array.getRows()).append('"');
+        }
+        if (field.getDigits() != null)
+            sb.append(" digits=\"").append(field.getDigits()).append('"');
+        sb.append(" name=\"");
+        escape(sb, field.getName());
+        sb.append('"');
+        if (field.getUnits() != null) {
+            sb.append(" units=\"");
+            escape(sb, field.getUnits());
+            sb.append('"');
+        }
+        sb.append('>');
+
+        if (field instanceof ScalarIniField) {
+            ScalarIniField scalar = (ScalarIniField) field;
+            appendValue(sb, content, field.getOffset(), scalar.getType(), scalar.getMultiplier());
+        } else if (field instanceof ArrayIniField) {
+            ArrayIniField array = (ArrayIniField) field;
+            int storageSize = array.getType().getStorageSize();
+            int offset = array.getOffset();
+            for (int row = 0; row < array.getRows(); row++) {
+                sb.append("\n         ");
+                for (int col = 0; col < array.getCols(); col++) {
+                    appendValue(sb, content, offset, array.getType(), array.getMultiplier());
+                    sb.append(' ');
+                    offset += storageSize;
+                }
+            }
+            sb.append("\n      ");
+        } else if (field instanceof EnumIniField) {
+            EnumIniField enumField = (EnumIniField) field;
+            int ordinal = EnumIniField.getBitRange(readInt(content, field.getOffset(), enumField.getType()),
+                    enumField.getBitPosition(), enumField.getBitSize0() + 1);
+            if (ordinal >= enumField.getEnums().size())
+                throw new IllegalStateException(ordinal + " in " + field.getName());
+            sb.append('"');
+            escape(sb, enumField.getEnums().get(ordinal));
+            sb.append('"');
+        } else if (field instanceof StringIniField) {
+            sb.append('"');
+            int end = field.getOffset() + field.getSize();
+            for (int i = field.getOffset(); i < end; i++) {
+                char c = (char) (content.get(i) & 0xFF);
+                if (c == 0)
+                    break;
+                escape(sb, c);
+            }
+            sb.append('"');
+        }
+        sb.append("</constant>\n");
+    }
+
+    static void appendValue(StringBuilder sb, ByteBuffer content, int offset, FieldType type, double multiplier) {
+        if (type == FieldType.FLOAT) {
+            float value = content.getFloat(offset);
+            if (multiplier == 1) {
+                sb.append(value);
+            } else {
+                sb.append(value * multiplier);
+            }
+            return;
+        }
+        int raw = readInt(content, offset, type);
+        double divider = 1 / multiplier;
+        if (Math.abs(divider - Math.rint(divider)) < 1e-9) {
+            // 0.1 scale: 3 / 10 prints as 0.3 while 3 * 0.1 does not
+            sb.append(raw / Math.rint(divider));
+        } else {
+            sb.append(raw * multiplier);
+        }
+    }
+
+    static int readInt(ByteBuffer content, int offset, FieldType type) {
+        switch (type) {
+            case INT8:
+                return content.get(offset);
+            case UINT8:
+                return content.get(offset) & 0xFF;
+            case INT16:
+                return content.getShort(offset);
+            case UINT16:
+                return content.getShort(offset) & 0xFFFF;
+            default:
+                return content.getInt(offset);
+        }
+    }
+
+    private static void writeInt(ByteBuffer content, int offset, FieldType type, int value) {
+        switch (type) {
+            case INT8:
+            case UINT8:
+                content.put(offset, (byte) value);
+                break;
+            case INT16:
+            case UINT16:
+                content.putShort(offset, (short) value);
+                break;
+            default:
+                content.putInt(offset, value);
+        }
+    }
+
+    private static void escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++)
+            escape(sb, value.charAt(i));
+    }
+
+    private static void escape(StringBuilder sb, char c) {
+        switch (c) {
+            case '<':
+                sb.append("&lt;");
+                break;
+            case '>':
+                sb.append("&gt;");
+                break;
+            case '&':
+                sb.append("&amp;");
+                break;
+            case '"':
+                sb.append("&quot;");
+                break;
+            default:
+                sb.append(c);
+        }
+    }
+
+    /**
+     * Fields missing from the tune keep zero bytes
+     *
+     * @param imageSize size of resulting image, 0 to use msq page size
+     */
+    public ConfigurationImage toImage(MsqFile msq, int imageSize) {
+        int size = imageSize != 0 ? imageSize : msq.getPageSize();
+        if (size == 0)
+            throw new IllegalStateException("Image size unknown");
+        ConfigurationImage image = new ConfigurationImage(size);
+        ByteBuffer content = ByteBuffer.wrap(image.getContent()).order(ByteOrder.LITTLE_ENDIAN);
+        for (IniField field : model.allIniFields.values()) {
+            MsqFile.Constant constant = msq.get(field.getName());
+            if (constant == null)
+                continue;
+            if (field.getOffset() + field.getSize() > size)
+                throw new IllegalStateException(field.getName() + " does not fit into " + size + " byte(s) image");
+            readConstant(content, field, constant);
+        }
+        return image;
+    }
+
+    private static void readConstant(ByteBuffer content, IniField field, MsqFile.Constant constant) {
+        if (field instanceof ScalarIniField) {
+            ScalarIniField scalar = (ScalarIniField) field;
+            double[] values = getNumbers(field, constant, 1);
+            writeValue(content, field.getOffset(), scalar.getType(), scalar.getMultiplier(), values[0]);
+        } else if (field instanceof ArrayIniField) {
+            ArrayIniField array = (ArrayIniField) field;
+            double[] values = getNumbers(field, constant, array.getRows() * array.getCols());
+            int storageSize = array.getType().getStorageSize();
+            for (int i = 0; i < values.length; i++)
+                writeValue(content, array.getOffset() + i * storageSize, array.getType(), array.getMultiplier(), values[i]);
+        } else if (field instanceof EnumIniField) {
+            EnumIniField enumField = (EnumIniField) field;
+            String value = unquote(constant.getText());
+            int ordinal = enumField.getEnums().indexOf(value);
+            if (ordinal == -1)
+                throw new IllegalStateException(field.getName() + ": unexpected value " + constant.getText());
+            int packed = readInt(content, field.getOffset(), enumField.getType());
+            packed = EnumIniField.setBitRange(packed, ordinal, enumField.getBitPosition(), enumField.getBitSize0() + 1);
+            writeInt(content, field.getOffset(), enumField.getType(), packed);
+        } else if (field instanceof StringIniField) {
+            byte[] bytes = unquote(constant.getText()).getBytes(StandardCharsets.ISO_8859_1);
+            int length = Math.min(bytes.length, field.getSize());
+            for (int i = 0; i < length; i++)
+                content.put(field.getOffset() + i, bytes[i]);
+        }
+    }
+
+    private static double[] getNumbers(IniField field, MsqFile.Constant constant, int expected) {
+        double[] values = constant.getDoubleValues();
+        if (values == null)
+            throw new IllegalStateException("Not numeric: " + field.getName() + " " + constant.getText());
+        if (values.length != expected)
+            throw new IllegalStateException(field.getName() + ": expected " + expected + " value(s) but got " + values.length);
+        return values;
+    }
+
+    private static void writeValue(ByteBuffer content, int offset, FieldType type, double multiplier, double value) {
+        if (type == FieldType.FLOAT) {
+            content.putFloat(offset, (float) (value / multiplier));
+        } else {
+            writeInt(content, offset, type, (int) Math.round(value / multiplier));
+        }
+    }
+
+    private static String unquote(String text) {
+        return EnumIniField.isQuoted(text) ? text.substring(1, text.length() - 1) : text;
+    }
+
+    /**
+     * @return file which {@link #convert} writes for given input, null if input is ignored
+     */
+    public static File getOutputFile(File input, File outputFolder) {
+        String name = input.getName();
+        if (name.endsWith(BIN))
+            return new File(outputFolder, name.substring(0, name.length() - BIN.length()) + MSQ);
+        if (name.endsWith(MSQ))
+            return new File(outputFolder, name.substring(0, name.length() - MSQ.length()) + BIN);
+        return null;
+    }
+
+    /**
+     * .bin into .msq or .msq into .bin by file extension, other files are ignored
+     *
+     * @return output file, null if input was ignored
+     */
+    public File convert(File input, File outputFolder, int imageSize) throws IOException {
+        File output = getOutputFile(input, outputFolder);
+        if (output == null)
+            return null;
+        if (input.getName().endsWith(BIN)) {
+            ConfigurationImage image = ConfigurationImageFile.readFromFile(input.getPath());
+            if (image == null)
+                throw new IOException("Not a tune binary: " + input);
+            try (Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(output)), StandardCharsets.ISO_8859_1)) {
+                writeMsq(image, writer);
+            }
+        } else {
+            ConfigurationImage image = toImage(MsqFile.read(input.getPath()), imageSize);
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(output))) {
+                os.write(ConfigurationImageFile.getFileContent(image));
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Converts every .bin and .msq file of a folder on a worker pool
+     * <p>
+     * When the output of an input is itself an input, like X.bin next to X.msq converted in place, only the newer
+     * file of the pair is converted and the other one is skipped as up to date. Otherwise a second in-place run would
+     * convert nothing, and two tasks could write each other's inputs while those are still being read.
+     *
+     * @return number of converted files
+     */
+    public int convertFolder(File inputFolder, File outputFolder, int imageSize, int threads) throws IOException, InterruptedException {
+        File[] files = inputFolder.listFiles();
+        if (files == null)
+            throw new IOException("Not a folder: " + inputFolder);
+        outputFolder.mkdirs();
+
+        Set<File> inputs = new HashSet<>();
+        for (File file : files)
+            inputs.add(file.getCanonicalFile());
+
+        // decide before the first task writes anything, a fresh output would look newer than its input
+        List<File> toConvert = new ArrayList<>();
+        int skipped = 0;
+        for (File file : files) {
+            if (!file.isFile())
+                continue;
+            File output = getOutputFile(file, outputFolder);
+            if (output != null && inputs.contains(output.getCanonicalFile())
+                    && file.lastModified() <= output.lastModified()) {
+                log.info("Skipping " + file + ": " + output + " is up to date");
+                skipped++;
+                continue;
+            }
+            toConvert.add(file);
+        }
+        if (skipped > 0)
+            log.info("Skipped " + skipped + " file(s) with up to date output in " + outputFolder);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new NamedThreadFactory("MsqConverter"));
+        List<Future<File>> results = new ArrayList<>();
+        for (File file : toConvert)
+            results.add(pool.submit(() -> convert(file, outputFolder, imageSize)));
+        pool.shutdown();
+
+        int count = 0;
+        try {
+            for (Future<File> result : results) {
+                if (result.get() != null)
+                    count++;
+            }
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return count;
+    }
+}
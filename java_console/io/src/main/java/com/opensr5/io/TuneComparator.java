@@ -0,0 +1,260 @@
+package com.opensr5.io;
+
+import com.opensr5.ConfigurationImage;
+import com.opensr5.ini.IniFileModel;
+import com.opensr5.ini.field.*;
+import com.rusefi.NamedThreadFactory;
+import com.rusefi.config.FieldType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Field by field comparison of {@link ConfigurationImage}s, reporting changed scalars, table cells and enum labels
+ * <p>
+ * Byte to field lookup is precomputed once per {@link IniFileModel} so that comparing one base tune against many others
+ * costs a byte scan plus work proportional to the number of changed fields.
+ *
+ * @see com.rusefi.ConfigurationImageDiff for raw byte ranges
+ */
+public class TuneComparator {
+    /**
+     * fields ordered by offset
+     */
+    private final IniField[] fields;
+    private final int[] offsets;
+    private final int[] ends;
+    /**
+     * index in {@link #fields} of first field covering given byte, -1 for bytes not covered by any field
+     */
+    private final int[] firstField;
+
+    public TuneComparator(IniFileModel model) {
+        List<IniField> sorted = new ArrayList<>(model.allIniFields.values());
+        sorted.sort(Comparator.comparingInt(IniField::getOffset));
+        fields = sorted.toArray(new IniField[0]);
+        offsets = new int[fields.length];
+        ends = new int[fields.length];
+        int size = 0;
+        for (int i = 0; i < fields.length; i++) {
+            offsets[i] = fields[i].getOffset();
+            ends[i] = offsets[i] + fields[i].getSize();
+            size = Math.max(size, ends[i]);
+        }
+        firstField = new int[size];
+        Arrays.fill(firstField, -1);
+        // walking backwards leaves smallest index for each byte
+        for (int i = fields.length - 1; i >= 0; i--)
+            Arrays.fill(firstField, offsets[i], ends[i], i);
+    }
+
+    /**
+     * @return differences in offset order, empty if images are equal
+     */
+    public List<Difference> compare(ConfigurationImage base, ConfigurationImage other) {
+        byte[] c1 = base.getContent();
+        byte[] c2 = other.getContent();
+        if (c1.length != c2.length)
+            throw new IllegalArgumentException("Length mismatch " + c1.length + " vs " + c2.length);
+        List<Difference> result = new ArrayList<>();
+        if (Arrays.equals(c1, c2))
+            return result;
+
+        ByteBuffer b1 = ByteBuffer.wrap(c1).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer b2 = ByteBuffer.wrap(c2).order(ByteOrder.LITTLE_ENDIAN);
+        boolean[] compared = new boolean[fields.length];
+        int lastUnmapped = -2;
+        for (int position = 0; position < c1.length; position++) {
+            if (c1[position] == c2[position])
+                continue;
+            int first = position < firstField.length ? firstField[position] : -1;
+            if (first == -1) {
+                // one entry per run of changed bytes outside of .ini fields
+                if (position != lastUnmapped + 1)
+                    result.add(new Difference(null, position, -1, -1, null, null));
+                lastUnmapped = position;
+                continue;
+            }
+            for (int i = first; i < fields.length && offsets[i] <= position; i++) {
+                if (ends[i] > position && !compared[i]) {
+                    compared[i] = true;
+                    compareField(fields[i], b1, b2, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void compareField(IniField field, ByteBuffer b1, ByteBuffer b2, List<Difference> result) {
+        if (field instanceof ScalarIniField) {
+            ScalarIniField scalar = (ScalarIniField) field;
+            if (!isEqual(b1, b2, field.getOffset(), field.getSize()))
+                result.add(new Difference(field, field.getOffset(), -1, -1,
+                        toString(b1, field.getOffset(), scalar.getType(), scalar.getMultiplier()),
+                        toString(b2, field.getOffset(), scalar.getType(), scalar.getMultiplier())));
+        } else if (field instanceof ArrayIniField) {
+            ArrayIniField array = (ArrayIniField) field;
+            int storageSize = array.getType().getStorageSize();
+            int offset = array.getOffset();
+            for (int row = 0; row < array.getRows(); row++) {
+                for (int col = 0; col < array.getCols(); col++) {
+                    if (!isEqual(b1, b2, offset, storageSize))
+                        result.add(new Difference(field, offset, row, col, toString(b1, offset, array.getType(), array.getMultiplier()),
+                                toString(b2, offset, array.getType(), array.getMultiplier())));
+                    offset += storageSize;
+                }
+            }
+        } else if (field instanceof EnumIniField) {
+            EnumIniField enumField = (EnumIniField) field;
+            String label1 = getLabel(b1, enumField);
+            String label2 = getLabel(b2, enumField);
+            if (!label1.equals(label2))
+                result.add(new Difference(field, field.getOffset(), -1, -1, label1, label2));
+        } else if (field instanceof StringIniField) {
+            // bytes after terminating zero do not matter
+            String text1 = getText(b1, field);
+            String text2 = getText(b2, field);
+            if (!text1.equals(text2))
+                result.add(new Difference(field, field.getOffset(), -1, -1, text1, text2));
+        }
+    }
+
+    private static boolean isEqual(ByteBuffer b1, ByteBuffer b2, int offset, int size) {
+        for (int i = offset; i < offset + size; i++) {
+            if (b1.get(i) != b2.get(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static String toString(ByteBuffer content, int offset, FieldType type, double multiplier) {
+        StringBuilder sb = new StringBuilder();
+        MsqConverter.appendValue(sb, content, offset, type, multiplier);
+        return sb.toString();
+    }
+
+    /**
+     * @return enum label or raw ordinal if it is out of range
+     */
+    private static String getLabel(ByteBuffer content, EnumIniField field) {
+        int ordinal = EnumIniField.getBitRange(MsqConverter.readInt(content, field.getOffset(), field.getType()),
+                field.getBitPosition(), field.getBitSize0() + 1);
+        return ordinal < field.getEnums().size() ? field.getEnums().get(ordinal) : Integer.toString(ordinal);
+    }
+
+    private static String getText(ByteBuffer content, IniField field) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = field.getOffset(); i < field.getOffset() + field.getSize(); i++) {
+            char c = (char) (content.get(i) & 0xFF);
+            if (c == 0)
+                break;
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compares base tune against every .bin file of a folder on a worker pool
+     *
+     * @return file name to differences, identical tunes are included with empty list
+     */
+    public SortedMap<String, List<Difference>> compareFolder(ConfigurationImage base, File folder, int threads) throws IOException, InterruptedException {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(MsqConverter.BIN));
+        if (files == null)
+            throw new IOException("Not a folder: " + folder);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new NamedThreadFactory("TuneComparator"));
+        Map<String, Future<List<Difference>>> futures = new TreeMap<>();
+        for (File file : files) {
+            futures.put(file.getName(), pool.submit(() -> {
+                ConfigurationImage image = ConfigurationImageFile.readFromFile(file.getPath());
+                if (image == null)
+                    throw new IOException("Not a tune binary: " + file);
+                return compare(base, image);
+            }));
+        }
+        pool.shutdown();
+
+        SortedMap<String, List<Difference>> result = new TreeMap<>();
+        try {
+            for (Map.Entry<String, Future<List<Difference>>> e : futures.entrySet())
+                result.put(e.getKey(), e.getValue().get());
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return result;
+    }
+
+    public static class Difference {
+        private final IniField field;
+        private final int offset;
+        private final int row;
+        private final int col;
+        private final String baseValue;
+        private final String otherValue;
+
+        Difference(IniField field, int offset, int row, int col, String baseValue, String otherValue) {
+            this.field = field;
+            this.offset = offset;
+            this.row = row;
+            this.col = col;
+            this.baseValue = baseValue;
+            this.otherValue = otherValue;
+        }
+
+        /**
+         * @return null for change outside of any .ini field
+         */
+        public IniField getField() {
+            return field;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return table row, -1 unless field is an array
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * @return table column, -1 unless field is an array
+         */
+        public int getCol() {
+            return col;
+        }
+
+        /**
+         * @return formatted value or enum label, null for change outside of any .ini field
+         */
+        public String getBaseValue() {
+            return baseValue;
+        }
+
+        public String getOtherValue() {
+            return otherValue;
+        }
+
+        @Override
+        public String toString() {
+            if (field == null)
+                return "unknown field at offset " + offset;
+            String name = field.getName();
+            if (row != -1)
+                name += "[" + row + "][" + col + "]";
+            return name + ": " + baseValue + " -> " + otherValue;
+        }
+    }
+}
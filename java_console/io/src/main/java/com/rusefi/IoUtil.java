@@ -143,7 +143,7 @@ public class IoUtil {
          * TCP connector is blocking
          */
         linkManager.startAndConnect("" + TcpConnector.DEFAULT_PORT, ConnectionStateListener.VOID);
-        linkManager.getEngineState().registerStringValueAction(Fields.PROTOCOL_VERSION_TAG, (s) -> { });
+        linkManager.getEngineState().registerValueAction(Fields.PROTOCOL_VERSION_TAG, (s) -> { });
         waitForFirstResponse();
     }
 
@@ -158,8 +158,8 @@ public class IoUtil {
     }
 
     public static void realHardwareConnect(LinkManager linkManager, String port) {
-        linkManager.getEngineState().registerStringValueAction(Fields.PROTOCOL_OUTPIN, (s) -> { });
-        linkManager.getEngineState().registerStringValueAction(AverageAnglesUtil.KEY, (s) -> { });
+        linkManager.getEngineState().registerValueAction(Fields.PROTOCOL_OUTPIN, (s) -> { });
+        linkManager.getEngineState().registerValueAction(AverageAnglesUtil.KEY, (s) -> { });
 
         try {
             linkManager.connect(port).await(60, TimeUnit.SECONDS);
@@ -2,15 +2,19 @@ package com.rusefi.autodetect;
 
 import com.devexperts.logging.Logging;
 import com.rusefi.NamedThreadFactory;
+import com.rusefi.io.IoStream;
 import com.rusefi.io.LinkManager;
+import com.rusefi.io.serial.BaudRateHolder;
+import com.rusefi.io.serial.BufferedSerialIoStream;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+
+import static com.rusefi.core.preferences.storage.PersistentConfiguration.getConfig;
 
 /**
  * Andrey Belomutskiy, (c) 2013-2020
@@ -19,17 +23,45 @@ public class PortDetector {
     private final static Logging log = Logging.getLogging(PortDetector.class);
 
     private static final NamedThreadFactory AUTO_DETECT_PORT = new NamedThreadFactory("ECU AutoDetectPort", true);
+    /**
+     * last known good port is probed alone for this long before all other ports are opened
+     */
+    private static final int LAST_KNOWN_PORT_HEAD_START_MS = Integer.getInteger("autodetect.head_start", 300);
+    public static final int DETECT_TIMEOUT_MS = Integer.getInteger("autodetect.timeout", 5000);
+
+    private static final String CACHE_NODE = "autodetect";
+    private static final String CACHE_PORT = "port";
+
+    public interface PortOpener {
+        @Nullable
+        IoStream open(String port, int baudRate);
+    }
 
     /**
      * Connect to all serial ports and find out which one respond first
-     * @param callback
      * @return port name on which rusEFI was detected or null if none
      */
     @NotNull
     public static SerialAutoChecker.AutoDetectResult autoDetectSerial() {
+        SerialAutoChecker.AutoDetectResult result = autoDetectAndOpen();
+        IoStream stream = result.getStream();
+        if (stream == null)
+            return result;
+        stream.close();
+        return new SerialAutoChecker.AutoDetectResult(result.getSerialPort(), result.getSignature(), result.getBaudRate(), null);
+    }
+
+    /**
+     * Same as {@link #autoDetectSerial()} but stream which has answered is handed over instead of being closed, this
+     * saves reopening the port and one more hello.
+     * @return result with open {@link SerialAutoChecker.AutoDetectResult#getStream()} which caller has to close, or
+     * result without port if none
+     */
+    @NotNull
+    public static SerialAutoChecker.AutoDetectResult autoDetectAndOpen() {
         String rusEfiAddress = System.getProperty("rusefi.address");
         if (rusEfiAddress != null) {
-            return getSignatureFromPorts(new String[] {rusEfiAddress});
+            return detect(new String[]{rusEfiAddress}, BufferedSerialIoStream::openPort, null, DETECT_TIMEOUT_MS);
         }
         String[] serialPorts = LinkManager.getCommPorts();
         if (serialPorts.length == 0) {
@@ -37,55 +69,135 @@ public class PortDetector {
             return new SerialAutoChecker.AutoDetectResult(null, null);
         }
         log.info("Trying " + Arrays.toString(serialPorts));
-        return getSignatureFromPorts(serialPorts);
+        String lastKnownGood = loadLastKnownGood();
+        SerialAutoChecker.AutoDetectResult result = detect(serialPorts, BufferedSerialIoStream::openPort, lastKnownGood, DETECT_TIMEOUT_MS);
+        if (result.getSerialPort() != null && !result.getSerialPort().equals(lastKnownGood))
+            saveLastKnownGood(result.getSerialPort());
+        return result;
     }
 
+    /**
+     * Probes all ports concurrently, last known good port gets a head start so that usually no other port is even
+     * opened. Remaining probes are cancelled as soon as one port answers.
+     * <p>
+     * All ports are probed at {@link BaudRateHolder} rate, the same rate {@link LinkManager} uses to reopen the port.
+     * Last known good port is not probed twice since the first probe keeps it open.
+     *
+     * @param lastKnownGood port to try first, ignored if not in the list
+     */
     @NotNull
-    private static SerialAutoChecker.AutoDetectResult getSignatureFromPorts(String[] serialPorts) {
-        List<Thread> serialFinder = new ArrayList<>();
-        CountDownLatch portFound = new CountDownLatch(1);
-        AtomicReference<SerialAutoChecker.AutoDetectResult> result = new AtomicReference<>();
-        for (String serialPort : serialPorts) {
-            Thread thread = AUTO_DETECT_PORT.newThread(new Runnable() {
-                @Override
-                public void run() {
-                    SerialAutoChecker.AutoDetectResult checkResult = SerialAutoChecker.openAndCheckResponse(serialPort);
-
-                    if (checkResult != null) {
-                        result.set(checkResult);
-                        portFound.countDown();
-                    }
-                }
-
-                @Override
-                public String toString() {
-                    return serialPort + " " + super.toString();
+    public static SerialAutoChecker.AutoDetectResult detect(String[] serialPorts, PortOpener opener,
+                                                            @Nullable String lastKnownGood, int timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        int baudRate = BaudRateHolder.INSTANCE.baudRate;
+        Detection detection = new Detection();
+        ExecutorService executor = Executors.newCachedThreadPool(AUTO_DETECT_PORT);
+        SerialAutoChecker.AutoDetectResult result;
+        try {
+            boolean withLastPort = lastKnownGood != null && Arrays.asList(serialPorts).contains(lastKnownGood);
+            if (withLastPort) {
+                log.info("Trying last known good " + lastKnownGood + " first");
+                submitProbe(executor, detection, opener, lastKnownGood, baudRate);
+                detection.await(Math.min(deadline, System.currentTimeMillis() + LAST_KNOWN_PORT_HEAD_START_MS));
+            }
+            if (!detection.hasWinner()) {
+                for (String serialPort : serialPorts) {
+                    if (withLastPort && serialPort.equals(lastKnownGood))
+                        continue;
+                    submitProbe(executor, detection, opener, serialPort, baudRate);
                 }
-            });
-            serialFinder.add(thread);
-            thread.start();
+                detection.await(deadline);
+            }
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            result = detection.finish();
+            // interrupted probes give up waiting for hello response and close their ports
+            executor.shutdownNow();
         }
         try {
-            portFound.await(5, TimeUnit.SECONDS);
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS))
+                log.error("Some port probes are still running");
         } catch (InterruptedException e) {
             throw new IllegalStateException(e);
         }
-        log.info("Now interrupting " + serialFinder);
-        try {
-            for (Thread thread : serialFinder) {
-                log.info("Interrupting " + thread);
-                thread.interrupt();
+        if (result == null)
+            result = new SerialAutoChecker.AutoDetectResult(null, null);
+        log.info("Found " + result);
+        return result;
+    }
+
+    private static void submitProbe(ExecutorService executor, Detection detection, PortOpener opener, String serialPort, int baudRate) {
+        detection.onStarted();
+        executor.execute(() -> {
+            IoStream stream = null;
+            try {
+                stream = opener.open(serialPort, baudRate);
+                String signature = SerialAutoChecker.checkResponse(stream);
+                log.info("Got signature=" + signature + " from " + serialPort + " at " + baudRate);
+                if (signature != null && detection.offer(new SerialAutoChecker.AutoDetectResult(serialPort, signature, baudRate, stream)))
+                    return;
+            } catch (RuntimeException e) {
+                log.error("Error probing " + serialPort, e);
             }
-        } catch (RuntimeException e) {
-            log.error("Unexpected runtime", e);
+            if (stream != null)
+                stream.close();
+            detection.onFailed();
+        });
+    }
+
+    @Nullable
+    private static String loadLastKnownGood() {
+        return getConfig().getRoot().getChild(CACHE_NODE).getProperty(CACHE_PORT, null);
+    }
+
+    private static void saveLastKnownGood(String port) {
+        getConfig().getRoot().getChild(CACHE_NODE).setProperty(CACHE_PORT, port);
+        getConfig().save();
+    }
+
+    /**
+     * First successful probe wins, once finished any later answer is rejected so that its stream gets closed
+     */
+    private static class Detection {
+        private SerialAutoChecker.AutoDetectResult winner;
+        private int running;
+        private boolean isFinished;
+
+        synchronized void onStarted() {
+            running++;
+        }
+
+        synchronized void onFailed() {
+            running--;
+            notifyAll();
+        }
+
+        synchronized boolean offer(SerialAutoChecker.AutoDetectResult result) {
+            if (isFinished)
+                return false;
+            winner = result;
+            isFinished = true;
+            notifyAll();
+            return true;
+        }
+
+        synchronized boolean hasWinner() {
+            return winner != null;
+        }
+
+        /**
+         * Waits for a winner, until all started probes have failed or until deadline
+         */
+        synchronized void await(long deadline) throws InterruptedException {
+            long remaining;
+            while (winner == null && running > 0 && (remaining = deadline - System.currentTimeMillis()) > 0)
+                wait(remaining);
+        }
+
+        synchronized SerialAutoChecker.AutoDetectResult finish() {
+            isFinished = true;
+            return winner;
         }
-        log.info("Done interrupting!");
-
-        SerialAutoChecker.AutoDetectResult autoDetectResult = result.get();
-        if (autoDetectResult == null)
-            autoDetectResult = new SerialAutoChecker.AutoDetectResult(null, null);
-        log.debug("Found " + autoDetectResult + " now stopping threads");
-//        log.info("Returning " + result.get());
-        return autoDetectResult;
     }
 }
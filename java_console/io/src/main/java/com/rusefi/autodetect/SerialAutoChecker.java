@@ -5,6 +5,7 @@ import com.rusefi.binaryprotocol.IncomingDataBuffer;
 import com.rusefi.config.generated.Fields;
 import com.rusefi.io.IoStream;
 import com.rusefi.io.commands.HelloCommand;
+import com.rusefi.io.serial.BaudRateHolder;
 import com.rusefi.io.serial.BufferedSerialIoStream;
 import org.jetbrains.annotations.Nullable;
 
@@ -61,10 +62,21 @@ public final class SerialAutoChecker {
 
         private final String serialPort;
         private final String signature;
+        private final int baudRate;
+        private final IoStream stream;
 
         public AutoDetectResult(String serialPort, String signature) {
+            this(serialPort, signature, BaudRateHolder.INSTANCE.baudRate, null);
+        }
+
+        /**
+         * @param stream stream which got the signature, still open and owned by whoever receives this result
+         */
+        public AutoDetectResult(String serialPort, String signature, int baudRate, @Nullable IoStream stream) {
             this.serialPort = serialPort;
             this.signature = signature;
+            this.baudRate = baudRate;
+            this.stream = stream;
         }
 
         @Nullable
@@ -77,11 +89,24 @@ public final class SerialAutoChecker {
             return signature;
         }
 
+        public int getBaudRate() {
+            return baudRate;
+        }
+
+        /**
+         * @see PortDetector#autoDetectAndOpen()
+         */
+        @Nullable
+        public IoStream getStream() {
+            return stream;
+        }
+
         @Override
         public String toString() {
             return "AutoDetectResult{" +
                     "serialPort='" + serialPort + '\'' +
                     ", signature='" + signature + '\'' +
+                    ", baudRate=" + baudRate +
                     '}';
         }
     }
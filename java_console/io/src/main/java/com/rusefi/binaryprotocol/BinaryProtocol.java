@@ -18,6 +18,7 @@ import com.rusefi.core.FileUtil;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.*;
 
 import static com.devexperts.logging.Logging.getLogging;
@@ -52,7 +53,7 @@ public class BinaryProtocol {
     public String signature;
     public boolean isGoodOutputChannels;
 
-    private final BinaryProtocolState state = new BinaryProtocolState();
+    private final BinaryProtocolState state;
 
     // todo: this ioLock needs better documentation!
     private final Object ioLock = new Object();
@@ -91,8 +92,16 @@ public class BinaryProtocol {
     public final CommunicationLoggingListener communicationLoggingListener;
 
     public BinaryProtocol(LinkManager linkManager, IoStream stream) {
+        this(linkManager, stream, new BinaryProtocolState());
+    }
+
+    /**
+     * @param state state of previous connection to the same ECU, see {@link #resumeConnection}
+     */
+    public BinaryProtocol(LinkManager linkManager, IoStream stream, BinaryProtocolState state) {
         this.linkManager = linkManager;
         this.stream = stream;
+        this.state = state;
 
         communicationLoggingListener = linkManager.messageListener::postMessage;
 
@@ -170,6 +179,52 @@ public class BinaryProtocol {
         return null;
     }
 
+    /**
+     * Fast path after a brief loss of physical connection: configuration image from previous connection is kept unless
+     * ECU has a different signature or CRC of its configuration does not match
+     *
+     * @return null if everything fine, error message otherwise
+     */
+    public String resumeConnection(String previousSignature, DataListener listener) {
+        try {
+            signature = getSignature(stream);
+        } catch (IOException e) {
+            close();
+            return "Failed to read signature " + e;
+        }
+        if (signature == null || !signature.equals(previousSignature)) {
+            close();
+            return "Signature changed from " + previousSignature + " to " + signature;
+        }
+
+        ConfigurationImage image = getControllerConfiguration();
+        if (image != null && isSameConfiguration(image)) {
+            log.info("Resumed with same configuration");
+            ConnectionStatusLogic.INSTANCE.setValue(ConnectionStatusValue.CONNECTED);
+        } else {
+            if (isClosed)
+                return "Failed to check configuration CRC";
+            log.info("Configuration changed while disconnected");
+            readImage(Fields.TOTAL_CONFIG_SIZE);
+            if (isClosed)
+                return "Failed to read calibration";
+        }
+
+        startPullThread(listener);
+        return null;
+    }
+
+    private boolean isSameConfiguration(ConfigurationImage image) {
+        byte[] packet = new byte[4];
+        ByteRange.packOffsetAndSize(0, image.getSize(), packet);
+        byte[] response = executeCommand(Fields.TS_CRC_CHECK_COMMAND, packet, "crc check");
+        if (!checkResponseCode(response, (byte) Fields.TS_RESPONSE_OK) || response.length != 5)
+            return false;
+        // firmware sends CRC big endian
+        int ecuCrc = ByteBuffer.wrap(response, 1, 4).getInt();
+        return ecuCrc == getCrc32(image.getContent());
+    }
+
     /**
      * @return null if everything is good, error message otherwise
      */
@@ -1,59 +1,92 @@
 package com.rusefi.io;
 
 import com.devexperts.logging.Logging;
+import com.rusefi.NamedThreadFactory;
 import com.rusefi.Timeouts;
 
-import javax.swing.*;
-
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.devexperts.logging.Logging.getLogging;
 
 /**
- * todo: open question if it's OK to use AWT timer in headless cases?
+ * Once no data arrives for {@link Timeouts#CONNECTION_RESTART_DELAY} same port is re-opened with exponential backoff
+ * keeping configuration image, signature and listeners, see {@link LinkManager#reconnect()}. Only if that does not work
+ * for {@link #FAST_RECONNECT_PERIOD_MS} or is not supported by connector connection is fully restarted.
  */
 public class ConnectionWatchdog {
     private static final Logging log = getLogging(ConnectionWatchdog.class);
 
-    private final Timer reconnectTimer;
+    private static final int CHECK_PERIOD_MS = 100;
+    private static final int FIRST_RETRY_DELAY_MS = 50;
+    private static final int FAST_RECONNECT_PERIOD_MS = Integer.getInteger("watchdog.fast_reconnect_period", 10 * Timeouts.SECOND);
+
     private static boolean isCreated;
 
-    private ConnectionWatchdog(int timeoutMs, Runnable restartAction) {
-        reconnectTimer = new Timer(timeoutMs, e -> {
-            restartAction.run();
-            // mark alive right after restart attempt
-            onDataArrived();
-        });
+    private final LinkManager linkManager;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("ConnectionWatchdog", true));
+    private final AtomicBoolean isRecovering = new AtomicBoolean();
+    private volatile long lastDataArrived;
+
+    private ConnectionWatchdog(LinkManager linkManager) {
+        this.linkManager = linkManager;
     }
 
     public synchronized static void init(LinkManager linkManager) {
-        final AtomicBoolean isRestartPending = new AtomicBoolean();
-
         if (isCreated)
             return; // only one instance is needed
         isCreated = true;
-        new ConnectionWatchdog(Timeouts.CONNECTION_RESTART_DELAY, () -> {
-            if (isRestartPending.compareAndSet(false, true)) {
-                linkManager.execute(() -> {
-                    log.info("ConnectionWatchdog.reconnectTimer restarting: " + Timeouts.CONNECTION_RESTART_DELAY);
-                    linkManager.restart();
-                    isRestartPending.set(false);
-                });
-            } else {
-                log.info("restart already pending...");
-            }
-        }).start();
+        new ConnectionWatchdog(linkManager).start();
     }
 
     void start() {
         HeartBeatListeners.INSTANCE.addListener(this::onDataArrived);
         onDataArrived();
+        scheduler.scheduleWithFixedDelay(this::checkAlive, CHECK_PERIOD_MS, CHECK_PERIOD_MS, TimeUnit.MILLISECONDS);
     }
 
     private void onDataArrived() {
-        /**
-         * this timer will reconnect
-         */
-        reconnectTimer.restart();
+        lastDataArrived = System.currentTimeMillis();
+    }
+
+    private void checkAlive() {
+        if (System.currentTimeMillis() - lastDataArrived < Timeouts.CONNECTION_RESTART_DELAY)
+            return;
+        if (!isRecovering.compareAndSet(false, true)) {
+            return;
+        }
+        log.info("No data for " + Timeouts.CONNECTION_RESTART_DELAY + "ms");
+        recover(System.currentTimeMillis(), FIRST_RETRY_DELAY_MS);
+    }
+
+    /**
+     * @param retryDelayMs delay before next attempt if this one fails
+     */
+    private void recover(long recoveryStart, int retryDelayMs) {
+        linkManager.execute(() -> {
+            if (linkManager.getConnector().canReconnect()) {
+                if (linkManager.reconnect()) {
+                    log.info("Reconnected in " + (System.currentTimeMillis() - recoveryStart) + "ms");
+                    onRecovered();
+                    return;
+                }
+                if (System.currentTimeMillis() - recoveryStart < FAST_RECONNECT_PERIOD_MS) {
+                    scheduler.schedule(() -> recover(recoveryStart, Math.min(2 * retryDelayMs, Timeouts.CONNECTION_RESTART_DELAY)),
+                            retryDelayMs, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                log.info("Reconnect did not work, restarting");
+            }
+            linkManager.restart();
+            onRecovered();
+        });
+    }
+
+    private void onRecovered() {
+        // mark alive right after recovery attempt
+        onDataArrived();
+        isRecovering.set(false);
     }
-}
\ No newline at end of file
+}
@@ -61,4 +61,17 @@ public interface LinkConnector extends LinkDecoder {
 
     default void stop() {
     }
+
+    default boolean canReconnect() {
+        return false;
+    }
+
+    /**
+     * Re-opens same physical connection keeping configuration image and signature, invoked on communication thread
+     *
+     * @return true if connection was resumed
+     */
+    default boolean reconnect() {
+        return false;
+    }
 }
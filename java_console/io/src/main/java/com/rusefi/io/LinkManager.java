@@ -7,12 +7,15 @@ import com.rusefi.NamedThreadFactory;
 import com.rusefi.binaryprotocol.BinaryProtocol;
 import com.rusefi.binaryprotocol.BinaryProtocolState;
 import com.rusefi.core.EngineState;
+import com.rusefi.io.can.IsoTpIoStream;
+import com.rusefi.io.replay.ReplayIoStream;
 import com.rusefi.io.serial.BufferedSerialIoStream;
 import com.rusefi.io.serial.StreamConnector;
 import com.rusefi.io.tcp.TcpConnector;
 import com.rusefi.io.tcp.TcpIoStream;
 import com.rusefi.util.IoUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -20,6 +23,7 @@ import java.util.Arrays;
 import java.util.Objects;
 import java.util.TreeSet;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.devexperts.logging.Logging.getLogging;
 
@@ -35,12 +39,7 @@ public class LinkManager implements Closeable {
     @NotNull
     public static final LogLevel LOG_LEVEL = LogLevel.INFO;
 
-    public static final LinkDecoder ENCODER = new LinkDecoder() {
-        @Override
-        public String unpack(String packedLine) {
-            return packedLine;
-        }
-    };
+    public static final LinkDecoder ENCODER = LinkDecoder.VOID;
 
     private final CommandQueue commandQueue;
 
@@ -66,7 +65,7 @@ public class LinkManager implements Closeable {
 
         engineState = new EngineState(new EngineState.EngineStateListenerImpl() {
             @Override
-            public void beforeLine(String fullLine) {
+            public void beforeLine(CharSequence fullLine) {
                 //log.info(fullLine);
                 HeartBeatListeners.onDataArrived();
             }
@@ -76,6 +75,10 @@ public class LinkManager implements Closeable {
 
     @NotNull
     public static IoStream open(String port) throws IOException {
+        if (ReplayIoStream.isReplayPort(port))
+            return ReplayIoStream.open(port);
+        if (IsoTpIoStream.isCanPort(port))
+            return IsoTpIoStream.open(port);
         if (TcpConnector.isTcpPort(port))
             return TcpIoStream.open(port);
         return BufferedSerialIoStream.openPort(port);
@@ -195,8 +198,16 @@ public class LinkManager implements Closeable {
     public static boolean isSimulationMode;
 
     public void startAndConnect(String port, ConnectionStateListener stateListener) {
+        startAndConnect(port, null, stateListener);
+    }
+
+    /**
+     * @param openedStream already open serial stream for this port, for instance from
+     *                     {@link com.rusefi.autodetect.PortDetector#autoDetectAndOpen()}, used for first connection
+     */
+    public void startAndConnect(String port, @Nullable IoStream openedStream, ConnectionStateListener stateListener) {
         Objects.requireNonNull(port, "port");
-        start(port, stateListener);
+        start(port, openedStream, stateListener);
         connector.connectAndReadConfiguration(stateListener);
     }
 
@@ -206,10 +217,37 @@ public class LinkManager implements Closeable {
     }
 
     public void start(String port, ConnectionFailedListener stateListener) {
+        start(port, null, stateListener);
+    }
+
+    private void start(String port, @Nullable IoStream openedStream, ConnectionFailedListener stateListener) {
         Objects.requireNonNull(port, "port");
         log.info("LinkManager: Starting " + port);
         lastTriedPort = port; // Save port before connection attempt
-        if (TcpConnector.isTcpPort(port)) {
+        if (ReplayIoStream.isReplayPort(port)) {
+            Callable<IoStream> streamFactory = () -> {
+                messageListener.postMessage(getClass(), "Opening recording: " + port);
+                try {
+                    return ReplayIoStream.open(port);
+                } catch (Throwable e) {
+                    stateListener.onConnectionFailed("Error " + e);
+                    return null;
+                }
+            };
+            setConnector(new StreamConnector(this, streamFactory));
+        } else if (IsoTpIoStream.isCanPort(port)) {
+            Callable<IoStream> streamFactory = () -> {
+                messageListener.postMessage(getClass(), "Opening CAN-over-TCP port: " + port);
+                try {
+                    return IsoTpIoStream.open(port);
+                } catch (Throwable e) {
+                    stateListener.onConnectionFailed("Error " + e);
+                    return null;
+                }
+            };
+            setConnector(new StreamConnector(this, streamFactory));
+            isSimulationMode = true;
+        } else if (TcpConnector.isTcpPort(port)) {
             Callable<IoStream> streamFactory = new Callable<IoStream>() {
                 @Override
                 public IoStream call() {
@@ -226,14 +264,20 @@ public class LinkManager implements Closeable {
             setConnector(new StreamConnector(this, streamFactory));
             isSimulationMode = true;
         } else {
+            AtomicReference<IoStream> handedOver = new AtomicReference<>(openedStream);
             Callable<IoStream> ioStreamCallable = new Callable<IoStream>() {
                 @Override
                 public IoStream call() {
+                    IoStream stream = handedOver.getAndSet(null);
+                    if (stream != null && !stream.isClosed()) {
+                        messageListener.postMessage(getClass(), "Using detected port: " + port);
+                        return stream;
+                    }
                     messageListener.postMessage(getClass(), "Opening port: " + port);
                     return BufferedSerialIoStream.openPort(port);
                 }
             };
-            setConnector(new StreamConnector(this, ioStreamCallable));
+            setConnector(new StreamConnector(this, ioStreamCallable, () -> BufferedSerialIoStream.openPort(port)));
         }
     }
 
@@ -251,6 +295,18 @@ public class LinkManager implements Closeable {
         this.connector.send(command, fireEvent);
     }
 
+    /**
+     * Faster than {@link #restart()}: same port is opened again without port enumeration while configuration image,
+     * signature and all listeners are kept. Has to be invoked on communication thread.
+     *
+     * @return true if connection was resumed
+     * @see LinkConnector#canReconnect()
+     */
+    public boolean reconnect() {
+        assertCommunicationThread();
+        return connector.reconnect();
+    }
+
     public void restart() {
         ConnectionStatusLogic.INSTANCE.setValue(ConnectionStatusValue.NOT_CONNECTED);
         close(); // Explicitly kill the connection (call connectors destructor??????)
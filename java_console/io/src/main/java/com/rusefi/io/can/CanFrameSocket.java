@@ -0,0 +1,92 @@
+package com.rusefi.io.can;
+
+import com.rusefi.core.FileUtil;
+
+import java.io.*;
+import java.net.Socket;
+
+/**
+ * Raw CAN frames over TCP, stand-in for a CAN bus between two processes on one machine
+ * <p>
+ * Each frame is SocketCAN can_frame header followed by payload only: can_id as 32 bit little endian, payload length,
+ * flags, two reserved bytes, then 0 to 64 payload bytes.
+ *
+ * @see IsoTpEndpoint
+ */
+public class CanFrameSocket implements Closeable {
+    public static final int DEFAULT_PORT = 29010;
+    public static final int MAX_PAYLOAD = 64;
+    private static final int HEADER_SIZE = 8;
+
+    private final Socket socket;
+    private final DataInputStream input;
+    private final OutputStream output;
+    private final byte[] outHeader = new byte[HEADER_SIZE];
+    private final byte[] inHeader = new byte[HEADER_SIZE];
+    /**
+     * last frame read by {@link #readFrame()}, reused between frames
+     */
+    private final byte[] frameData = new byte[MAX_PAYLOAD];
+    private int frameId;
+    private int frameLength;
+
+    public CanFrameSocket(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        output = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /**
+     * Sends header and payload parts as one frame
+     */
+    public synchronized void write(int id, byte[] hdr, byte[] data, int dataOffset, int dataLength) throws IOException {
+        int length = hdr.length + dataLength;
+        if (length > MAX_PAYLOAD)
+            throw new IllegalArgumentException("Frame too long: " + length);
+        outHeader[0] = (byte) id;
+        outHeader[1] = (byte) (id >> 8);
+        outHeader[2] = (byte) (id >> 16);
+        outHeader[3] = (byte) (id >> 24);
+        outHeader[4] = (byte) length;
+        output.write(outHeader);
+        output.write(hdr);
+        output.write(data, dataOffset, dataLength);
+        output.flush();
+    }
+
+    /**
+     * Blocks until next frame, only one thread is expected to read
+     *
+     * @throws EOFException once peer closes connection
+     */
+    public void readFrame() throws IOException {
+        input.readFully(inHeader);
+        frameId = (inHeader[0] & 0xff) | ((inHeader[1] & 0xff) << 8) | ((inHeader[2] & 0xff) << 16) | ((inHeader[3] & 0xff) << 24);
+        frameLength = inHeader[4] & 0xff;
+        if (frameLength > MAX_PAYLOAD)
+            throw new IOException("Unexpected frame length " + frameLength);
+        input.readFully(frameData, 0, frameLength);
+    }
+
+    public int getFrameId() {
+        return frameId;
+    }
+
+    public byte[] getFrameData() {
+        return frameData;
+    }
+
+    public int getFrameLength() {
+        return frameLength;
+    }
+
+    public boolean isClosed() {
+        return socket.isClosed();
+    }
+
+    @Override
+    public void close() {
+        FileUtil.close(socket);
+    }
+}
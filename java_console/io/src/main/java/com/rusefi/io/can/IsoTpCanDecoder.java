@@ -7,6 +7,10 @@ import java.util.Arrays;
 
 /**
  * ISO 15765-2 or ISO-TP (Transport Layer) CAN multi-frame decoder state
+ * <p>
+ * Message is reassembled into a buffer which is reused between messages, see {@link #decodeFrame}. Both classic CAN
+ * and CAN-FD frame lengths are supported including escape sequences for long single and first frames.
+ *
  * @see IsoTpConnector
  */
 public class IsoTpCanDecoder {
@@ -17,67 +21,172 @@ public class IsoTpCanDecoder {
         log.configureDebugEnabled(false);
     }
 
-    private final static int ISO_TP_FRAME_FLOW_CONTROL = 3;
+    final static int ISO_TP_FRAME_FLOW_CONTROL = 3;
     final static int ISO_TP_FRAME_SINGLE = 0;
     final static int ISO_TP_FRAME_FIRST = 1;
     final static int ISO_TP_FRAME_CONSECUTIVE = 2;
 
-    private final static int FC_ContinueToSend = 0;
+    final static int FC_ContinueToSend = 0;
+    final static int FC_Wait = 1;
+    final static int FC_Overflow = 2;
 
-    private int waitingForNumBytes = 0;
-    private int waitingForFrameIndex = 0;
+    /**
+     * longest message which fits into 12 bit first frame length
+     */
+    public static final int MAX_SHORT_MESSAGE = 0xfff;
 
+    private final int blockSize;
+    private final byte[] flowControl;
+
+    private byte[] buffer;
+    private int messageLength;
+    private int received;
+    private int waitingForFrameIndex;
+    private int framesInBlock;
+    /**
+     * part of {@link #buffer} which arrived with last frame
+     */
+    private int lastFrameOffset;
+    private int lastFrameLength;
+
+    public IsoTpCanDecoder() {
+        this(0, 0);
+    }
+
+    /**
+     * @param blockSize      consecutive frames peer may send before waiting for next flow control, 0 for no limit
+     * @param separationTime minimum gap between consecutive frames peer should keep, STmin encoding
+     */
+    public IsoTpCanDecoder(int blockSize, int separationTime) {
+        this(blockSize, separationTime, MAX_SHORT_MESSAGE);
+    }
+
+    /**
+     * @param initialCapacity reassembly buffer size, grows if a longer message arrives
+     */
+    public IsoTpCanDecoder(int blockSize, int separationTime, int initialCapacity) {
+        if (blockSize < 0 || blockSize > 0xff || separationTime < 0 || separationTime > 0xff)
+            throw new IllegalArgumentException("BS=" + blockSize + " STmin=" + separationTime);
+        this.blockSize = blockSize;
+        flowControl = FLOW_CONTROL.clone();
+        flowControl[0] = (byte) ((ISO_TP_FRAME_FLOW_CONTROL << 4) | FC_ContinueToSend);
+        flowControl[1] = (byte) blockSize;
+        flowControl[2] = (byte) separationTime;
+        buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * @return payload bytes which arrived in this frame, empty array for flow control frame
+     */
     public byte[] decodePacket(byte[] data) {
-        int frameType = (data[0] >> 4) & 0xf;
-        int numBytesAvailable;
-        int frameIdx;
-        int dataOffset;
+        decodeFrame(data, 0, data.length);
+        byte[] bytes = Arrays.copyOfRange(buffer, lastFrameOffset, lastFrameOffset + lastFrameLength);
+        if (log.debugEnabled())
+            log.debug(lastFrameLength + " bytes(s) arrived in this packet: " + IoStream.printByteArray(bytes));
+        return bytes;
+    }
+
+    /**
+     * Adds frame payload to the message being reassembled, flow control frames are ignored
+     *
+     * @return true once message is complete, see {@link #getMessage()}
+     */
+    public boolean decodeFrame(byte[] frame, int offset, int length) {
+        int frameType = (frame[offset] >> 4) & 0xf;
+        lastFrameLength = 0;
         switch (frameType) {
-            case ISO_TP_FRAME_SINGLE:
-                numBytesAvailable = data[0] & 0xf;
-                dataOffset = 1;
-                this.waitingForNumBytes = 0;
+            case ISO_TP_FRAME_SINGLE: {
+                int numBytes = frame[offset] & 0xf;
+                int dataOffset = 1;
+                if (numBytes == 0) {
+                    // CAN-FD escape sequence
+                    numBytes = frame[offset + 1] & 0xff;
+                    dataOffset = 2;
+                }
+                if (numBytes > length - dataOffset)
+                    throw new IllegalStateException("ISO_TP_FRAME_SINGLE: " + numBytes + " byte(s) do not fit into " + length + " byte(s) frame");
+                startMessage(numBytes);
+                append(frame, offset + dataOffset, numBytes);
                 if (log.debugEnabled())
-                    log.debug("ISO_TP_FRAME_SINGLE " + numBytesAvailable);
-                break;
-            case ISO_TP_FRAME_FIRST:
-                this.waitingForNumBytes = ((data[0] & 0xf) << 8) | data[1];
+                    log.debug("ISO_TP_FRAME_SINGLE " + numBytes);
+                return true;
+            }
+            case ISO_TP_FRAME_FIRST: {
+                int total = ((frame[offset] & 0xf) << 8) | (frame[offset + 1] & 0xff);
+                int dataOffset = 2;
+                if (total == 0) {
+                    // escape sequence for messages longer than 4095 bytes
+                    total = ((frame[offset + 2] & 0xff) << 24) | ((frame[offset + 3] & 0xff) << 16)
+                            | ((frame[offset + 4] & 0xff) << 8) | (frame[offset + 5] & 0xff);
+                    dataOffset = 6;
+                }
                 if (log.debugEnabled())
-                    log.debug("Total expected: " + waitingForNumBytes);
-                this.waitingForFrameIndex = 1;
-                numBytesAvailable = Math.min(this.waitingForNumBytes, 6);
-                waitingForNumBytes -= numBytesAvailable;
-                dataOffset = 2;
+                    log.debug("Total expected: " + total);
+                startMessage(total);
+                waitingForFrameIndex = 1;
+                framesInBlock = 0;
+                append(frame, offset + dataOffset, Math.min(total, length - dataOffset));
                 onTpFirstFrame();
-                break;
-            case ISO_TP_FRAME_CONSECUTIVE:
-                frameIdx = data[0] & 0xf;
-                if (this.waitingForNumBytes < 0 || this.waitingForFrameIndex != frameIdx) {
-                    throw new IllegalStateException("ISO_TP_FRAME_CONSECUTIVE: That's an abnormal situation, and we probably should react? waitingForNumBytes=" + waitingForNumBytes + " waitingForFrameIndex=" + waitingForFrameIndex + " frameIdx=" + frameIdx);
+                sendFlowControl(flowControl);
+                return received == messageLength;
+            }
+            case ISO_TP_FRAME_CONSECUTIVE: {
+                int frameIdx = frame[offset] & 0xf;
+                if (received >= messageLength || waitingForFrameIndex != frameIdx) {
+                    throw new IllegalStateException("ISO_TP_FRAME_CONSECUTIVE: That's an abnormal situation, and we probably should react? remaining=" + (messageLength - received) + " waitingForFrameIndex=" + waitingForFrameIndex + " frameIdx=" + frameIdx);
                 }
-                this.waitingForFrameIndex = (this.waitingForFrameIndex + 1) & 0xf;
-                numBytesAvailable = Math.min(this.waitingForNumBytes, 7);
-                dataOffset = 1;
-                waitingForNumBytes -= numBytesAvailable;
+                waitingForFrameIndex = (waitingForFrameIndex + 1) & 0xf;
+                append(frame, offset + 1, Math.min(messageLength - received, length - 1));
                 if (log.debugEnabled())
-                    log.debug("ISO_TP_FRAME_CONSECUTIVE Got " + numBytesAvailable + " byte(s), still expecting: " + waitingForNumBytes + " byte(s)");
-                break;
+                    log.debug("ISO_TP_FRAME_CONSECUTIVE Got " + lastFrameLength + " byte(s), still expecting: " + (messageLength - received) + " byte(s)");
+                if (received == messageLength)
+                    return true;
+                if (blockSize != 0 && ++framesInBlock == blockSize) {
+                    framesInBlock = 0;
+                    sendFlowControl(flowControl);
+                }
+                return false;
+            }
             case ISO_TP_FRAME_FLOW_CONTROL:
-                int flowStatus = data[0] & 0xf;
-                int blockSize = data[1];
-                int separationTime = data[2];
-                if (flowStatus == FC_ContinueToSend && blockSize == 0 && separationTime == 0)
-                    return new byte[0];
-                throw new IllegalStateException("ISO_TP_FRAME_FLOW_CONTROL: should we just ignore the FC frame? " + flowStatus + " " + blockSize + " " + separationTime);
+                // addressed to our sending side, see IsoTpConnector
+                return false;
             default:
-                throw new IllegalStateException("Unknown frame type");
+                throw new IllegalStateException("Unknown frame type " + frameType);
         }
-        byte[] bytes = Arrays.copyOfRange(data, dataOffset, dataOffset + numBytesAvailable);
-        if (log.debugEnabled())
-            log.debug(numBytesAvailable + " bytes(s) arrived in this packet: " + IoStream.printByteArray(bytes));
-        return bytes;
+    }
+
+    private void startMessage(int length) {
+        if (length > buffer.length)
+            buffer = new byte[length];
+        messageLength = length;
+        received = 0;
+    }
+
+    private void append(byte[] frame, int offset, int length) {
+        System.arraycopy(frame, offset, buffer, received, length);
+        lastFrameOffset = received;
+        lastFrameLength = length;
+        received += length;
+    }
+
+    /**
+     * @return reassembly buffer, valid up to {@link #getMessageLength()} until next frame is decoded
+     */
+    public byte[] getMessage() {
+        return buffer;
+    }
+
+    public int getMessageLength() {
+        return messageLength;
     }
 
     protected void onTpFirstFrame() {
     }
+
+    /**
+     * Invoked after first frame and after each block of consecutive frames, implementation is expected to send given
+     * frame to the peer
+     */
+    protected void sendFlowControl(byte[] flowControlFrame) {
+    }
 }
@@ -4,42 +4,123 @@ import com.devexperts.logging.Logging;
 import com.rusefi.io.IoStream;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.rusefi.io.can.IsoTpCanDecoder.*;
+
 /**
+ * Sending side of ISO 15765-2, block size and separation time requested by peer flow control frames are honored
+ *
  * @see IsoTpCanDecoder
  */
 public abstract class IsoTpConnector {
     private final static Logging log = Logging.getLogging(IsoTpConnector.class);
+    public static final int CLASSIC_FRAME_LENGTH = 8;
+    public static final int FD_FRAME_LENGTH = 64;
+    /**
+     * N_WFTmax: how many flow control frames in a row could ask us to wait
+     */
+    private static final int MAX_WAIT_FRAMES = 16;
+    /**
+     * reserved STmin values shall be treated as the longest one
+     */
+    private static final int MAX_SEPARATION_TIME_MS = 0x7f;
 
     public static void sendStrategy(byte[] bytes, IsoTpConnector connector) {
         log.info("-------sendBytesToCan " + bytes.length + " byte(s):");
 
         log.info(IoStream.printHexBinary(bytes));
 
+        int frameLength = connector.getMaxFrameLength();
+        byte[] header = new byte[1];
 
         // 1 frame
         if (bytes.length <= 7) {
-            connector.sendCanFrame((IsoTpCanDecoder.ISO_TP_FRAME_SINGLE << 4) | bytes.length, bytes, 0, bytes.length);
+            header[0] = (byte) ((ISO_TP_FRAME_SINGLE << 4) | bytes.length);
+            connector.sendCanData(header, bytes, 0, bytes.length);
+            return;
+        }
+        if (bytes.length <= frameLength - 2) {
+            // CAN-FD escape sequence
+            connector.sendCanData(new byte[]{(byte) (ISO_TP_FRAME_SINGLE << 4), (byte) bytes.length}, bytes, 0, bytes.length);
             return;
         }
 
         // multiple frames
         // send the first header frame
-        connector.sendCanFrame((IsoTpCanDecoder.ISO_TP_FRAME_FIRST << 4) | ((bytes.length >> 8) & 0x0f), bytes.length & 0xff, bytes, 0, 6);
-        // get a flow control frame
-        connector.receiveData();
+        int offset;
+        if (bytes.length <= MAX_SHORT_MESSAGE) {
+            offset = frameLength - 2;
+            connector.sendCanData(new byte[]{(byte) ((ISO_TP_FRAME_FIRST << 4) | ((bytes.length >> 8) & 0x0f)), (byte) bytes.length},
+                    bytes, 0, offset);
+        } else {
+            offset = frameLength - 6;
+            connector.sendCanData(new byte[]{(byte) (ISO_TP_FRAME_FIRST << 4), 0,
+                    (byte) (bytes.length >> 24), (byte) (bytes.length >> 16), (byte) (bytes.length >> 8), (byte) bytes.length},
+                    bytes, 0, offset);
+        }
 
         // send the rest of the data
-        int idx = 1, offset = 6;
-        int remaining = bytes.length - 6;
+        int idx = 1;
+        int remaining = bytes.length - offset;
         while (remaining > 0) {
-            int len = Math.min(remaining, 7);
-            // send the consecutive frames
-            connector.sendCanFrame((IsoTpCanDecoder.ISO_TP_FRAME_CONSECUTIVE << 4) | ((idx++) & 0x0f), bytes, offset, len);
-            offset += len;
-            remaining -= len;
+            // get a flow control frame
+            byte[] flowControl = receiveFlowControl(connector);
+            int blockSize = flowControl[1] & 0xff;
+            long separationTimeNanos = getSeparationTimeNanos(flowControl[2] & 0xff);
+
+            for (int inBlock = 0; remaining > 0 && (blockSize == 0 || inBlock < blockSize); inBlock++) {
+                if (inBlock > 0 && separationTimeNanos > 0)
+                    connector.pause(separationTimeNanos);
+                int len = Math.min(remaining, frameLength - 1);
+                // send the consecutive frames
+                header[0] = (byte) ((ISO_TP_FRAME_CONSECUTIVE << 4) | ((idx++) & 0x0f));
+                connector.sendCanData(header, bytes, offset, len);
+                offset += len;
+                remaining -= len;
+            }
+            // separation time applies to the first frame of next block as well
+            if (remaining > 0 && separationTimeNanos > 0)
+                connector.pause(separationTimeNanos);
         }
     }
 
+    /**
+     * @return continue to send flow control frame
+     */
+    private static byte[] receiveFlowControl(IsoTpConnector connector) {
+        for (int i = 0; i < MAX_WAIT_FRAMES; i++) {
+            byte[] frame = connector.receiveData();
+            int frameType = (frame[0] >> 4) & 0xf;
+            if (frameType != ISO_TP_FRAME_FLOW_CONTROL)
+                throw new IllegalStateException("Flow control frame expected, got " + IoStream.printHexBinary(frame));
+            int flowStatus = frame[0] & 0xf;
+            switch (flowStatus) {
+                case FC_ContinueToSend:
+                    return frame;
+                case FC_Wait:
+                    continue;
+                case FC_Overflow:
+                    throw new IllegalStateException("ISO_TP_FRAME_FLOW_CONTROL: receiver overflow");
+                default:
+                    throw new IllegalStateException("ISO_TP_FRAME_FLOW_CONTROL: unexpected flow status " + flowStatus);
+            }
+        }
+        throw new IllegalStateException("ISO_TP_FRAME_FLOW_CONTROL: waited for " + MAX_WAIT_FRAMES + " frames");
+    }
+
+    /**
+     * @param separationTime STmin byte of flow control frame
+     */
+    static long getSeparationTimeNanos(int separationTime) {
+        if (separationTime <= MAX_SEPARATION_TIME_MS)
+            return TimeUnit.MILLISECONDS.toNanos(separationTime);
+        if (separationTime >= 0xf1 && separationTime <= 0xf9)
+            return TimeUnit.MICROSECONDS.toNanos(100 * (separationTime - 0xf0));
+        return TimeUnit.MILLISECONDS.toNanos(MAX_SEPARATION_TIME_MS);
+    }
+
     @NotNull
     public static byte[] combineArrays(byte[] hdr, byte[] data, int dataOffset, int dataLength) {
         byte[] total = new byte[hdr.length + dataLength];
@@ -56,7 +137,31 @@ public abstract class IsoTpConnector {
         sendCanData(new byte[]{(byte) hdr0, (byte) hdr1}, data, dataOffset, dataLength);
     }
 
+    /**
+     * @return {@link #CLASSIC_FRAME_LENGTH} or {@link #FD_FRAME_LENGTH} for CAN-FD, frames shorter than that are padded
+     * by {@link #sendCanData} implementation as needed
+     */
+    public int getMaxFrameLength() {
+        return CLASSIC_FRAME_LENGTH;
+    }
+
+    /**
+     * Blocks between consecutive frames as requested by peer
+     */
+    protected void pause(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0)
+            LockSupport.parkNanos(left);
+    }
+
+    /**
+     * @param hdr header array is reused between frames, implementation should not keep a reference to it
+     */
     public abstract void sendCanData(byte[] hdr, byte[] data, int dataOffset, int dataLength);
 
-    public abstract void receiveData();
+    /**
+     * @return next frame from peer, flow control frame expected
+     */
+    public abstract byte[] receiveData();
 }
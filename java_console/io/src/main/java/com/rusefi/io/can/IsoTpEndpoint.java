@@ -0,0 +1,136 @@
+package com.rusefi.io.can;
+
+import com.devexperts.logging.Logging;
+import com.rusefi.NamedThreadFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.devexperts.logging.Logging.getLogging;
+
+/**
+ * One side of ISO-TP conversation over {@link CanFrameSocket}: messages are sent with {@link IsoTpConnector} and
+ * received frames are reassembled by {@link IsoTpCanDecoder}, flow control frames from peer are handed over to the
+ * sending side.
+ */
+public class IsoTpEndpoint implements Closeable {
+    private static final Logging log = getLogging(IsoTpEndpoint.class);
+    /**
+     * N_Bs: how long sender waits for flow control
+     */
+    private static final int FLOW_CONTROL_TIMEOUT_MS = 1000;
+
+    private final CanFrameSocket socket;
+    private final int txId;
+    private final int rxId;
+    private final BlockingQueue<byte[]> flowControlFrames = new LinkedBlockingQueue<>();
+    private final IsoTpCanDecoder decoder;
+    private final IsoTpConnector connector;
+
+    /**
+     * @param txId           CAN id of our frames
+     * @param rxId           CAN id of peer frames, anything else is ignored
+     * @param blockSize      flow control block size we ask peer for
+     * @param separationTime flow control STmin we ask peer for
+     * @param frameLength    {@link IsoTpConnector#CLASSIC_FRAME_LENGTH} or {@link IsoTpConnector#FD_FRAME_LENGTH}
+     */
+    public IsoTpEndpoint(CanFrameSocket socket, int txId, int rxId, int blockSize, int separationTime, int frameLength) {
+        this.socket = socket;
+        this.txId = txId;
+        this.rxId = rxId;
+        decoder = new IsoTpCanDecoder(blockSize, separationTime) {
+            @Override
+            protected void sendFlowControl(byte[] flowControlFrame) {
+                sendFrame(new byte[0], flowControlFrame, 0, flowControlFrame.length);
+            }
+        };
+        connector = new IsoTpConnector() {
+            @Override
+            public int getMaxFrameLength() {
+                return frameLength;
+            }
+
+            @Override
+            public void sendCanData(byte[] hdr, byte[] data, int dataOffset, int dataLength) {
+                sendFrame(hdr, data, dataOffset, dataLength);
+            }
+
+            @Override
+            public byte[] receiveData() {
+                try {
+                    byte[] frame = flowControlFrames.poll(FLOW_CONTROL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    if (frame == null)
+                        throw new IllegalStateException("No flow control from 0x" + Integer.toHexString(rxId));
+                    return frame;
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    private void sendFrame(byte[] hdr, byte[] data, int dataOffset, int dataLength) {
+        try {
+            socket.write(txId, hdr, data, dataOffset, dataLength);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Blocks until whole message is sent, one message at a time
+     */
+    public synchronized void send(byte[] message) throws IOException {
+        flowControlFrames.clear();
+        try {
+            IsoTpConnector.sendStrategy(message, connector);
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Starts reader thread which runs until socket is closed
+     *
+     * @param messageListener invoked on reader thread with each complete message
+     * @param onClose         invoked on reader thread once connection is lost
+     */
+    public void start(String threadName, Consumer<byte[]> messageListener, Runnable onClose) {
+        new NamedThreadFactory(threadName, true).newThread(() -> {
+            try {
+                while (true) {
+                    socket.readFrame();
+                    if (socket.getFrameId() != rxId)
+                        continue;
+                    byte[] data = socket.getFrameData();
+                    int length = socket.getFrameLength();
+                    if (length == 0)
+                        continue;
+                    if (((data[0] >> 4) & 0xf) == IsoTpCanDecoder.ISO_TP_FRAME_FLOW_CONTROL) {
+                        flowControlFrames.add(Arrays.copyOf(data, length));
+                    } else if (decoder.decodeFrame(data, 0, length)) {
+                        messageListener.accept(Arrays.copyOf(decoder.getMessage(), decoder.getMessageLength()));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                if (!socket.isClosed())
+                    log.error("ISO-TP connection lost: " + e);
+            } finally {
+                socket.close();
+                onClose.run();
+            }
+        }).start();
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+    }
+}
@@ -0,0 +1,87 @@
+package com.rusefi.io.can;
+
+import com.opensr5.io.DataListener;
+import com.rusefi.binaryprotocol.IncomingDataBuffer;
+import com.rusefi.config.generated.Fields;
+import com.rusefi.io.serial.AbstractIoStream;
+import com.rusefi.io.tcp.TcpConnector;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * TS protocol encapsulated into ISO-TP over {@link CanFrameSocket}, each flush is one ISO-TP message
+ * <p>
+ * Port name is {@link #PORT_PREFIX} followed by optional host and port, for example "can:localhost:29010"
+ *
+ * @see IsoTpTcpBridge for the ECU side
+ */
+public class IsoTpIoStream extends AbstractIoStream {
+    public static final String PORT_PREFIX = "can:";
+    private static final int BLOCK_SIZE = Integer.getInteger("isotp.block_size", 0);
+    private static final int SEPARATION_TIME = Integer.getInteger("isotp.st_min", 0);
+    private static final int FRAME_LENGTH = Integer.getInteger("isotp.frame_length", IsoTpConnector.CLASSIC_FRAME_LENGTH);
+
+    private final IsoTpEndpoint endpoint;
+    private final String loggingPrefix;
+    private final IncomingDataBuffer dataBuffer;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    public IsoTpIoStream(String loggingPrefix, CanFrameSocket socket) {
+        this.loggingPrefix = loggingPrefix;
+        endpoint = new IsoTpEndpoint(socket, Fields.CAN_ECU_SERIAL_RX_ID, Fields.CAN_ECU_SERIAL_TX_ID,
+                BLOCK_SIZE, SEPARATION_TIME, FRAME_LENGTH);
+        dataBuffer = createDataBuffer(loggingPrefix);
+    }
+
+    public static boolean isCanPort(String port) {
+        return port.startsWith(PORT_PREFIX);
+    }
+
+    @NotNull
+    public static IsoTpIoStream open(String port) throws IOException {
+        String address = port.substring(PORT_PREFIX.length());
+        String hostname = address.isEmpty() ? TcpConnector.LOCALHOST : TcpConnector.getHostname(address);
+        int portPart = address.isEmpty() ? CanFrameSocket.DEFAULT_PORT : TcpConnector.getTcpPort(address);
+        return new IsoTpIoStream("[can] ", new CanFrameSocket(new Socket(hostname, portPart)));
+    }
+
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        super.write(bytes);
+        synchronized (pending) {
+            pending.write(bytes);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        super.flush();
+        byte[] message;
+        synchronized (pending) {
+            if (pending.size() == 0)
+                return;
+            message = pending.toByteArray();
+            pending.reset();
+        }
+        endpoint.send(message);
+    }
+
+    @Override
+    public void setInputListener(DataListener listener) {
+        endpoint.start(loggingPrefix + "ISO-TP reader", listener::onDataArrived, this::close);
+    }
+
+    @Override
+    public IncomingDataBuffer getDataBuffer() {
+        return dataBuffer;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        endpoint.close();
+    }
+}
@@ -0,0 +1,75 @@
+package com.rusefi.io.can;
+
+import com.devexperts.logging.Logging;
+import com.rusefi.config.generated.Fields;
+import com.rusefi.core.FileUtil;
+import com.rusefi.io.tcp.BinaryProtocolServer;
+import com.rusefi.io.tcp.ServerSocketReference;
+import com.rusefi.io.tcp.TcpConnector;
+import com.rusefi.ui.StatusConsumer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+
+import static com.devexperts.logging.Logging.getLogging;
+
+/**
+ * ECU side of {@link IsoTpIoStream}: accepts CAN-over-TCP connections and relays ISO-TP payload to and from plain TS
+ * protocol TCP port of simulator, this way full TS protocol runs ISO-TP encapsulated on one machine.
+ * <p>
+ * Usage: IsoTpTcpBridge [CAN port] [simulator port]
+ */
+public class IsoTpTcpBridge {
+    private static final Logging log = getLogging(IsoTpTcpBridge.class);
+    private static final int BLOCK_SIZE = Integer.getInteger("isotp.block_size", 0);
+    private static final int SEPARATION_TIME = Integer.getInteger("isotp.st_min", 0);
+    private static final int FRAME_LENGTH = Integer.getInteger("isotp.frame_length", IsoTpConnector.CLASSIC_FRAME_LENGTH);
+
+    public static void main(String[] args) throws IOException {
+        int canPort = args.length > 0 ? Integer.parseInt(args[0]) : CanFrameSocket.DEFAULT_PORT;
+        int simulatorPort = args.length > 1 ? Integer.parseInt(args[1]) : TcpConnector.DEFAULT_PORT;
+        start(canPort, TcpConnector.LOCALHOST, simulatorPort, StatusConsumer.ANONYMOUS);
+    }
+
+    public static ServerSocketReference start(int canPort, String simulatorHost, int simulatorPort, StatusConsumer statusConsumer) throws IOException {
+        return BinaryProtocolServer.tcpServerSocket(canPort, "IsoTpTcpBridge", clientSocket -> () -> {
+            try {
+                bridge(new CanFrameSocket(clientSocket), new Socket(simulatorHost, simulatorPort));
+            } catch (IOException e) {
+                log.error("Bridge failed: " + e);
+                FileUtil.close(clientSocket);
+            }
+        }, statusConsumer);
+    }
+
+    private static void bridge(CanFrameSocket can, Socket simulator) throws IOException {
+        log.info("Bridging CAN client to " + simulator);
+        InputStream fromSimulator = simulator.getInputStream();
+        OutputStream toSimulator = simulator.getOutputStream();
+        IsoTpEndpoint endpoint = new IsoTpEndpoint(can, Fields.CAN_ECU_SERIAL_TX_ID, Fields.CAN_ECU_SERIAL_RX_ID,
+                BLOCK_SIZE, SEPARATION_TIME, FRAME_LENGTH);
+        endpoint.start("IsoTpTcpBridge reader", message -> {
+            try {
+                toSimulator.write(message);
+                toSimulator.flush();
+            } catch (IOException e) {
+                log.error("Simulator write failed: " + e);
+                FileUtil.close(simulator);
+            }
+        }, () -> FileUtil.close(simulator));
+
+        // same thread relays responses until either side disconnects
+        byte[] buffer = new byte[Fields.BLOCKING_FACTOR * 2];
+        try {
+            int length;
+            while ((length = fromSimulator.read(buffer)) != -1)
+                endpoint.send(Arrays.copyOf(buffer, length));
+        } finally {
+            endpoint.close();
+            FileUtil.close(simulator);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.rusefi.io.composite;
+
+import com.rusefi.config.generated.Fields;
+
+import java.util.Arrays;
+
+/**
+ * Decoded composite (tooth) logger entries kept in primitive arrays, see firmware tooth_logger.h composite_logger_s
+ * <p>
+ * Each packet is big endian 32 bit microsecond timestamp followed by one byte of flags. Timestamp roll-over is
+ * unwrapped so that {@link #getTimestampUs(int)} keeps growing across {@link #clear()} calls.
+ */
+public class CompositeLogBuffer {
+    public static final int PRI_LEVEL = 1;
+    public static final int SEC_LEVEL = 1 << 1;
+    public static final int TRIGGER = 1 << 2;
+    public static final int SYNC = 1 << 3;
+    public static final int COIL = 1 << 4;
+    public static final int INJECTOR = 1 << 5;
+
+    private static final long WRAP = 1L << 32;
+
+    private long[] timestamps;
+    private byte[] states;
+    private int size;
+
+    private long wrapOffset;
+    private long lastRawTimestamp = -1;
+
+    public CompositeLogBuffer() {
+        this(256);
+    }
+
+    public CompositeLogBuffer(int initialCapacity) {
+        timestamps = new long[initialCapacity];
+        states = new byte[initialCapacity];
+    }
+
+    /**
+     * @param packet raw ECU response
+     * @param offset position of first entry, usually right after response code
+     * @return number of entries added
+     */
+    public int decode(byte[] packet, int offset) {
+        int count = (packet.length - offset) / Fields.COMPOSITE_PACKET_SIZE;
+        ensureCapacity(size + count);
+        for (int i = 0; i < count; i++) {
+            int p = offset + i * Fields.COMPOSITE_PACKET_SIZE;
+            long raw = ((packet[p] & 0xFFL) << 24) | ((packet[p + 1] & 0xFF) << 16) | ((packet[p + 2] & 0xFF) << 8) | (packet[p + 3] & 0xFF);
+            if (raw < lastRawTimestamp)
+                wrapOffset += WRAP;
+            lastRawTimestamp = raw;
+            timestamps[size] = wrapOffset + raw;
+            states[size] = packet[p + 4];
+            size++;
+        }
+        return count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= timestamps.length)
+            return;
+        int newCapacity = Math.max(capacity, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, newCapacity);
+        states = Arrays.copyOf(states, newCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimestampUs(int index) {
+        return timestamps[index];
+    }
+
+    public int getState(int index) {
+        return states[index] & 0xFF;
+    }
+
+    public boolean isSet(int index, int flag) {
+        return (states[index] & flag) != 0;
+    }
+
+    /**
+     * Drops entries but keeps roll-over state
+     */
+    public void clear() {
+        size = 0;
+    }
+}
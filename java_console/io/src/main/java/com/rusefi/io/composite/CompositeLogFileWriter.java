@@ -0,0 +1,48 @@
+package com.rusefi.io.composite;
+
+import java.io.*;
+
+/**
+ * Streams composite logger entries into a CSV file
+ */
+public class CompositeLogFileWriter implements CompositeLoggerCapture.Listener, Closeable {
+    static final String HEADER = "timeUs,priLevel,secLevel,trigger,sync,coil,injector\n";
+    private static final int[] FLAGS = {
+            CompositeLogBuffer.PRI_LEVEL,
+            CompositeLogBuffer.SEC_LEVEL,
+            CompositeLogBuffer.TRIGGER,
+            CompositeLogBuffer.SYNC,
+            CompositeLogBuffer.COIL,
+            CompositeLogBuffer.INJECTOR,
+    };
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder();
+
+    public CompositeLogFileWriter(String fileName) throws IOException {
+        this(new FileOutputStream(fileName));
+    }
+
+    public CompositeLogFileWriter(OutputStream stream) throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(stream), 64 * 1024);
+        writer.write(HEADER);
+    }
+
+    @Override
+    public void onEntries(CompositeLogBuffer buffer) throws IOException {
+        for (int i = 0; i < buffer.size(); i++) {
+            line.setLength(0);
+            line.append(buffer.getTimestampUs(i));
+            for (int flag : FLAGS)
+                line.append(buffer.isSet(i, flag) ? ",1" : ",0");
+            line.append('\n');
+            writer.append(line);
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
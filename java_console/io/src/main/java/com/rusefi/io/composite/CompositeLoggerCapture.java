@@ -0,0 +1,117 @@
+package com.rusefi.io.composite;
+
+import com.devexperts.logging.Logging;
+import com.rusefi.NamedThreadFactory;
+import com.rusefi.binaryprotocol.BinaryProtocol;
+import com.rusefi.config.generated.Fields;
+import com.rusefi.io.LinkManager;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import static com.devexperts.logging.Logging.getLogging;
+
+/**
+ * Headless composite (tooth) logger client: keeps firmware tooth buffers drained so that no trigger events are lost.
+ * <p>
+ * Read requests go through the same communication queue as output channel polling so they interleave with it. Once a
+ * filled buffer is received the next one is requested right away, while nothing is ready we poll every
+ * {@link #IDLE_POLL_MS}.
+ */
+public class CompositeLoggerCapture {
+    private static final Logging log = getLogging(CompositeLoggerCapture.class);
+    private static final ThreadFactory THREAD_FACTORY = new NamedThreadFactory("Composite logger drain", true);
+    private static final int IDLE_POLL_MS = 5;
+
+    public interface Listener {
+        /**
+         * Invoked on capture thread, buffer is reused once this method returns
+         */
+        void onEntries(CompositeLogBuffer buffer) throws IOException;
+    }
+
+    private final LinkManager linkManager;
+    private final Listener listener;
+    private final CompositeLogBuffer buffer = new CompositeLogBuffer();
+
+    private volatile boolean isRunning;
+    private Thread thread;
+
+    private volatile long entriesCount;
+    private volatile int buffersCount;
+
+    public CompositeLoggerCapture(LinkManager linkManager, Listener listener) {
+        this.linkManager = linkManager;
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (isRunning)
+            return;
+        isRunning = true;
+        thread = THREAD_FACTORY.newThread(this::drainLoop);
+        thread.start();
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (!isRunning)
+            return;
+        isRunning = false;
+        thread.join();
+        thread = null;
+    }
+
+    public long getEntriesCount() {
+        return entriesCount;
+    }
+
+    public int getBuffersCount() {
+        return buffersCount;
+    }
+
+    private void drainLoop() {
+        try {
+            runOnCommunicationThread(() -> sendSwitch(Fields.TS_COMPOSITE_ENABLE, "composite enable"));
+            while (isRunning) {
+                buffer.clear();
+                runOnCommunicationThread(this::readBuffer);
+                if (buffer.size() == 0) {
+                    BinaryProtocol.sleep(IDLE_POLL_MS);
+                    continue;
+                }
+                buffersCount++;
+                entriesCount += buffer.size();
+                listener.onEntries(buffer);
+            }
+            runOnCommunicationThread(() -> sendSwitch(Fields.TS_COMPOSITE_DISABLE, "composite disable"));
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            log.error("Composite logger capture stopped: " + e);
+            isRunning = false;
+        }
+        log.info("Composite logger captured " + entriesCount + " entries in " + buffersCount + " buffers");
+    }
+
+    private void runOnCommunicationThread(Runnable runnable) throws InterruptedException, ExecutionException {
+        linkManager.submit(runnable).get();
+    }
+
+    private void sendSwitch(int mode, String msg) {
+        BinaryProtocol bp = linkManager.getBinaryProtocol();
+        if (bp != null)
+            bp.executeCommand(Fields.TS_SET_LOGGER_SWITCH, new byte[]{(byte) mode}, msg);
+    }
+
+    /**
+     * Leaves {@link #buffer} empty if firmware has no filled buffer yet
+     */
+    private void readBuffer() {
+        BinaryProtocol bp = linkManager.getBinaryProtocol();
+        if (bp == null)
+            return;
+        byte[] response = bp.executeCommand(Fields.TS_SET_LOGGER_SWITCH, new byte[]{Fields.TS_COMPOSITE_READ}, "composite read");
+        if (response == null || response.length == 0 || response[0] != Fields.TS_RESPONSE_OK)
+            return;
+        buffer.decode(response, 1);
+    }
+}
@@ -0,0 +1,184 @@
+package com.rusefi.io.replay;
+
+import com.devexperts.logging.Logging;
+import com.opensr5.io.DataListener;
+import com.rusefi.NamedThreadFactory;
+import com.rusefi.binaryprotocol.IncomingDataBuffer;
+import com.rusefi.io.serial.AbstractIoStream;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.devexperts.logging.Logging.getLogging;
+
+/**
+ * Fake ECU which serves recorded {@link TrafficLog} back.
+ * <p>
+ * Every write consumes recorded outgoing bytes, once a whole recorded request is consumed the ECU chunks which followed
+ * it are delivered with recorded delays divided by speed. Request content is not interpreted, a different request only
+ * increments {@link #getMismatchCount()} so replay stays deterministic. Stream closes itself when client writes past
+ * the end of recording.
+ * <p>
+ * Port syntax for {@link com.rusefi.io.LinkManager}: replay:session.bin, replay:session.bin@4 or replay:session.bin@max
+ */
+public class ReplayIoStream extends AbstractIoStream {
+    private static final Logging log = getLogging(ReplayIoStream.class);
+    public static final String PORT_PREFIX = "replay:";
+    /**
+     * speed value for zero delays
+     */
+    public static final double AS_FAST_AS_POSSIBLE = 0;
+
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(new NamedThreadFactory("Replay delivery", true));
+    private final List<TrafficLog.Chunk> chunks;
+    private final double speed;
+    private final IncomingDataBuffer dataBuffer;
+    private DataListener listener;
+
+    /**
+     * index of next chunk to consume
+     */
+    private int cursor;
+    /**
+     * bytes of {@link #cursor} chunk consumed by writes so far
+     */
+    private int chunkOffset;
+    private int mismatchCount;
+
+    /**
+     * @param speed 1 for recorded timing, N for N times faster, {@link #AS_FAST_AS_POSSIBLE} for no delays
+     */
+    public ReplayIoStream(TrafficLog trafficLog, double speed) {
+        if (speed < 0)
+            throw new IllegalArgumentException("speed " + speed);
+        this.chunks = trafficLog.getChunks();
+        this.speed = speed;
+        dataBuffer = createDataBuffer("[replay] ");
+        // whatever ECU sent before the first request
+        scheduleResponses(System.nanoTime(), 0);
+    }
+
+    public static boolean isReplayPort(String port) {
+        return port.startsWith(PORT_PREFIX);
+    }
+
+    @NotNull
+    public static ReplayIoStream open(String port) throws IOException {
+        String fileName = port.substring(PORT_PREFIX.length());
+        double speed = 1;
+        int speedIndex = fileName.lastIndexOf('@');
+        if (speedIndex != -1) {
+            String speedValue = fileName.substring(speedIndex + 1);
+            speed = speedValue.equalsIgnoreCase("max") ? AS_FAST_AS_POSSIBLE : Double.parseDouble(speedValue);
+            fileName = fileName.substring(0, speedIndex);
+        }
+        log.info("Replaying " + fileName + " at speed " + speed);
+        return new ReplayIoStream(TrafficLog.read(fileName), speed);
+    }
+
+    @Override
+    public void setInputListener(DataListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public IncomingDataBuffer getDataBuffer() {
+        return dataBuffer;
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes) throws IOException {
+        if (isClosed())
+            throw new IOException("Replay stream closed");
+        super.write(bytes);
+        long writeNanos = System.nanoTime();
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (cursor == chunks.size()) {
+                log.info("End of recording");
+                close();
+                throw new IOException("End of recording");
+            }
+            // responses are always consumed by scheduleResponses so this is a request
+            TrafficLog.Chunk chunk = chunks.get(cursor);
+            int length = Math.min(bytes.length - offset, chunk.getData().length - chunkOffset);
+            if (!isSame(bytes, offset, chunk.getData(), chunkOffset, length))
+                mismatchCount++;
+            offset += length;
+            chunkOffset += length;
+            if (chunkOffset == chunk.getData().length) {
+                chunkOffset = 0;
+                cursor++;
+                scheduleResponses(writeNanos, chunk.getTimeNanos());
+            }
+        }
+    }
+
+    private static boolean isSame(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[aOffset + i] != b[bOffset + i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queues ECU chunks following {@link #cursor} up to next request
+     *
+     * @param requestTimeNanos recorded time of request which triggered these chunks
+     */
+    private void scheduleResponses(long writeNanos, long requestTimeNanos) {
+        while (cursor < chunks.size() && chunks.get(cursor).isFromEcu()) {
+            TrafficLog.Chunk chunk = chunks.get(cursor++);
+            long delay = speed == AS_FAST_AS_POSSIBLE ? 0 : (long) ((chunk.getTimeNanos() - requestTimeNanos) / speed);
+            long deadline = writeNanos + Math.max(0, delay);
+            try {
+                delivery.execute(() -> deliver(deadline, chunk.getData()));
+            } catch (RejectedExecutionException e) {
+                // closed
+                return;
+            }
+        }
+    }
+
+    private void deliver(long deadline, byte[] data) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (isClosed())
+                return;
+        }
+        if (!isClosed())
+            listener.onDataArrived(data);
+    }
+
+    /**
+     * @return number of written fragments which did not match recorded requests
+     */
+    public synchronized int getMismatchCount() {
+        return mismatchCount;
+    }
+
+    /**
+     * @return true once all recorded requests were consumed
+     */
+    public synchronized boolean isFinished() {
+        return cursor == chunks.size();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        delivery.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "replay " + chunks.size() + " chunk(s) at speed " + speed;
+    }
+}
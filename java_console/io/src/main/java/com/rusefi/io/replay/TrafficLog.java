@@ -0,0 +1,95 @@
+package com.rusefi.io.replay;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Raw framed traffic of one {@link com.rusefi.io.IoStream} session in the order it was seen on the wire
+ * <p>
+ * File format: {@link #MAGIC} followed by chunks, each chunk is direction byte, nanoseconds since recording start as
+ * long, length as int and then the bytes themselves. Big-endian. Incomplete last chunk of a recording cut short by a
+ * crash is dropped.
+ *
+ * @see TrafficRecorder
+ * @see ReplayIoStream
+ */
+public class TrafficLog {
+    static final int MAGIC = 0x46545231; // FTR1
+    static final byte TO_ECU = 0;
+    static final byte FROM_ECU = 1;
+
+    private final List<Chunk> chunks;
+
+    public TrafficLog(List<Chunk> chunks) {
+        this.chunks = Collections.unmodifiableList(chunks);
+    }
+
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    public static TrafficLog read(String fileName) throws IOException {
+        try (InputStream stream = new FileInputStream(fileName)) {
+            return read(stream);
+        }
+    }
+
+    public static TrafficLog read(InputStream stream) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(stream));
+        if (dis.readInt() != MAGIC)
+            throw new IOException("Not a traffic recording");
+        List<Chunk> chunks = new ArrayList<>();
+        while (true) {
+            int direction = dis.read();
+            if (direction == -1)
+                break;
+            try {
+                long timeNanos = dis.readLong();
+                byte[] data = new byte[dis.readInt()];
+                dis.readFully(data);
+                chunks.add(new Chunk(direction == FROM_ECU, timeNanos, data));
+            } catch (EOFException e) {
+                break;
+            }
+        }
+        return new TrafficLog(chunks);
+    }
+
+    public static class Chunk {
+        private final boolean fromEcu;
+        private final long timeNanos;
+        private final byte[] data;
+
+        public Chunk(boolean fromEcu, long timeNanos, byte[] data) {
+            this.fromEcu = fromEcu;
+            this.timeNanos = timeNanos;
+            this.data = data;
+        }
+
+        public boolean isFromEcu() {
+            return fromEcu;
+        }
+
+        /**
+         * @return time since recording start
+         */
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        @Override
+        public String toString() {
+            return "Chunk{" +
+                    (fromEcu ? "from ECU" : "to ECU") +
+                    ", timeNanos=" + timeNanos +
+                    ", length=" + data.length +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.rusefi.io.replay;
+
+import com.devexperts.logging.Logging;
+import com.rusefi.io.IoStream;
+import com.rusefi.io.serial.AbstractIoStream;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.devexperts.logging.Logging.getLogging;
+
+/**
+ * Captures raw traffic of an {@link AbstractIoStream} into {@link TrafficLog} format, invoked both from communication
+ * thread and from stream reader thread.
+ * <p>
+ * -Dio.record_file=session.bin records every stream opened by {@link com.rusefi.io.LinkManager}, each reconnect goes
+ * into its own file: session.bin, session_2.bin and so on. Recording is flushed every {@link #FLUSH_PERIOD_MS} so
+ * that a crash loses only the tail.
+ */
+public class TrafficRecorder implements Closeable {
+    private static final Logging log = getLogging(TrafficRecorder.class);
+    public static final String RECORD_FILE_PROPERTY = "io.record_file";
+    private static final int FLUSH_PERIOD_MS = 500;
+    private static final AtomicInteger sessionCounter = new AtomicInteger();
+
+    private final DataOutputStream output;
+    private final long startNanos = System.nanoTime();
+    private long lastFlushNanos = startNanos;
+    private boolean isClosed;
+
+    public TrafficRecorder(OutputStream stream) throws IOException {
+        output = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+        output.writeInt(TrafficLog.MAGIC);
+    }
+
+    /**
+     * Starts recording if {@link #RECORD_FILE_PROPERTY} is set, recording is closed together with the stream
+     */
+    public static void attachIfConfigured(IoStream stream) {
+        String fileName = System.getProperty(RECORD_FILE_PROPERTY);
+        if (fileName == null || !(stream instanceof AbstractIoStream))
+            return;
+        fileName = getSessionFileName(fileName, sessionCounter.incrementAndGet());
+        try {
+            ((AbstractIoStream) stream).setTrafficRecorder(new TrafficRecorder(new FileOutputStream(fileName)));
+            log.info("Recording traffic of " + stream + " into " + fileName);
+        } catch (IOException e) {
+            log.error("Failed to start recording into " + fileName + ": " + e);
+        }
+    }
+
+    /**
+     * @param session 1 for first stream of this process
+     */
+    public static String getSessionFileName(String fileName, int session) {
+        if (session == 1)
+            return fileName;
+        int dot = fileName.lastIndexOf('.');
+        if (dot <= Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf(File.separatorChar)))
+            return fileName + "_" + session;
+        return fileName.substring(0, dot) + "_" + session + fileName.substring(dot);
+    }
+
+    public void onOutgoing(byte[] data) {
+        append(TrafficLog.TO_ECU, data);
+    }
+
+    public void onIncoming(byte[] data) {
+        append(TrafficLog.FROM_ECU, data);
+    }
+
+    private synchronized void append(byte direction, byte[] data) {
+        if (isClosed)
+            return;
+        try {
+            long now = System.nanoTime();
+            output.writeByte(direction);
+            output.writeLong(now - startNanos);
+            output.writeInt(data.length);
+            output.write(data);
+            if (now - lastFlushNanos > TimeUnit.MILLISECONDS.toNanos(FLUSH_PERIOD_MS)) {
+                output.flush();
+                lastFlushNanos = now;
+            }
+        } catch (IOException e) {
+            log.error("Recording stopped: " + e);
+            isClosed = true;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (isClosed)
+            return;
+        isClosed = true;
+        try {
+            output.close();
+        } catch (IOException e) {
+            log.error("Error closing recording: " + e);
+        }
+    }
+}
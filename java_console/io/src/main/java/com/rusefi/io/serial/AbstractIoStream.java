@@ -2,6 +2,7 @@ package com.rusefi.io.serial;
 
 import com.rusefi.binaryprotocol.IncomingDataBuffer;
 import com.rusefi.io.IoStream;
+import com.rusefi.io.replay.TrafficRecorder;
 
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -12,13 +13,26 @@ public abstract class AbstractIoStream implements IoStream {
     protected final StreamStats streamStats = new StreamStats();
     private final AtomicInteger bytesOut = new AtomicInteger();
     private long latestActivity;
+    private volatile TrafficRecorder trafficRecorder;
 
     public IncomingDataBuffer createDataBuffer(String loggingPrefix) {
         IncomingDataBuffer incomingData = new IncomingDataBuffer(loggingPrefix, getStreamStats());
-        setInputListener(incomingData::addData);
+        setInputListener(freshData -> {
+            TrafficRecorder recorder = trafficRecorder;
+            if (recorder != null)
+                recorder.onIncoming(freshData);
+            incomingData.addData(freshData);
+        });
         return incomingData;
     }
 
+    /**
+     * @param trafficRecorder would be closed together with this stream
+     */
+    public void setTrafficRecorder(TrafficRecorder trafficRecorder) {
+        this.trafficRecorder = trafficRecorder;
+    }
+
     @Override
     public StreamStats getStreamStats() {
         return streamStats;
@@ -27,11 +41,17 @@ public abstract class AbstractIoStream implements IoStream {
     @Override
     public void close() {
         isClosed = true;
+        TrafficRecorder recorder = trafficRecorder;
+        if (recorder != null)
+            recorder.close();
     }
 
     @Override
     public void write(byte[] bytes) throws IOException {
         bytesOut.addAndGet(bytes.length);
+        TrafficRecorder recorder = trafficRecorder;
+        if (recorder != null)
+            recorder.onOutgoing(bytes);
     }
 
     @Override
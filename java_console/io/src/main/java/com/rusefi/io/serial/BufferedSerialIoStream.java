@@ -37,8 +37,13 @@ public class BufferedSerialIoStream extends SerialIoStream {
      */
     @Nullable
     public static IoStream openPort(String port) {
-        log.info("[BufferedSerialIoStream] openPort " + port);
-        SerialPort serialPort = openSerial(port);
+        return openPort(port, BaudRateHolder.INSTANCE.baudRate);
+    }
+
+    @Nullable
+    public static IoStream openPort(String port, int baudRate) {
+        log.info("[BufferedSerialIoStream] openPort " + port + " at " + baudRate);
+        SerialPort serialPort = openSerial(port, baudRate);
         if (serialPort == null)
             return null;
 //        FileLog.LOGGER.info("[SerialIoStreamJSerialComm] opened " + port);
@@ -0,0 +1,231 @@
+package com.rusefi.io.serial;
+
+import com.devexperts.logging.Logging;
+import com.rusefi.NamedThreadFactory;
+import com.rusefi.io.LinkManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static com.devexperts.logging.Logging.getLogging;
+
+/**
+ * Tells listeners which serial ports have appeared or disappeared.
+ * <p>
+ * On Linux device nodes in /dev are watched (inotify behind {@link WatchService}) so ports are only enumerated once
+ * something has changed, elsewhere ports are polled starting at {@link #MIN_POLL_MS} with interval doubling up to
+ * {@link #MAX_POLL_MS} while nothing changes.
+ *
+ * @see com.rusefi.io.LinkManager#getCommPorts()
+ */
+public class PortChangeMonitor {
+    private static final Logging log = getLogging(PortChangeMonitor.class);
+
+    public static final int MIN_POLL_MS = 300;
+    public static final int MAX_POLL_MS = Integer.getInteger("port_monitor.max_poll", 5000);
+    /**
+     * one USB device usually creates a burst of nodes, wait for the burst to settle before enumerating
+     */
+    private static final int SETTLE_MS = 100;
+    private static final Path DEV = Paths.get("/dev");
+
+    private final Supplier<String[]> portLister;
+    @Nullable
+    private final Path watchDirectory;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+    private boolean hasEvents;
+    private volatile boolean isRunning;
+    private WatchService watchService;
+
+    /**
+     * @param watchDirectory directory with device nodes, null to poll only
+     */
+    public PortChangeMonitor(Supplier<String[]> portLister, @Nullable Path watchDirectory) {
+        this.portLister = portLister;
+        this.watchDirectory = watchDirectory;
+    }
+
+    @NotNull
+    public static PortChangeMonitor create() {
+        boolean isLinux = System.getProperty("os.name").toLowerCase().contains("linux");
+        return new PortChangeMonitor(LinkManager::getCommPorts, isLinux && Files.isDirectory(DEV) ? DEV : null);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void start() {
+        isRunning = true;
+        watchService = startWatching();
+        new NamedThreadFactory("PortChangeMonitor", true).newThread(this::run).start();
+    }
+
+    public void stop() {
+        isRunning = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.error("Error closing watch service " + e);
+            }
+        }
+        wakeUp();
+    }
+
+    /**
+     * Re-enumerates ports right away
+     */
+    public void wakeUp() {
+        synchronized (lock) {
+            hasEvents = true;
+            lock.notifyAll();
+        }
+    }
+
+    public boolean isWatching() {
+        return watchService != null;
+    }
+
+    @Nullable
+    private WatchService startWatching() {
+        if (watchDirectory == null)
+            return null;
+        try {
+            WatchService service = watchDirectory.getFileSystem().newWatchService();
+            watchDirectory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+            new NamedThreadFactory("PortChangeMonitor watcher", true).newThread(() -> watch(service)).start();
+            log.info("Watching " + watchDirectory);
+            return service;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.error("Not watching " + watchDirectory + ", polling instead: " + e);
+            return null;
+        }
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (isRunning) {
+                WatchKey key = service.take();
+                boolean isRelevant = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // on overflow we do not know what has changed
+                    isRelevant |= event.kind() == StandardWatchEventKinds.OVERFLOW || isSerialDevice(event.context().toString());
+                }
+                key.reset();
+                if (isRelevant)
+                    wakeUp();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    /**
+     * @return true for names of device nodes which could be serial ports
+     */
+    static boolean isSerialDevice(String name) {
+        return name.startsWith("tty") || name.startsWith("cu.") || name.startsWith("rfcomm");
+    }
+
+    private void run() {
+        Set<String> known = null;
+        int pollMs = MIN_POLL_MS;
+        while (isRunning) {
+            Set<String> current = new TreeSet<>(Arrays.asList(portLister.get()));
+            PortDiff diff = PortDiff.create(known == null ? Collections.emptySet() : known, current);
+            boolean isFirst = known == null;
+            known = current;
+            if (diff.isEmpty() && !isFirst) {
+                pollMs = Math.min(pollMs * 2, MAX_POLL_MS);
+            } else {
+                pollMs = MIN_POLL_MS;
+                log.info("Ports changed: " + diff);
+                for (Listener listener : listeners)
+                    listener.onChange(diff);
+            }
+            try {
+                // with inotify periodic enumeration is only a safety net
+                waitForEvents(isWatching() ? MAX_POLL_MS : pollMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void waitForEvents(int timeoutMs) throws InterruptedException {
+        synchronized (lock) {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            long remaining;
+            while (!hasEvents && isRunning && (remaining = deadline - System.currentTimeMillis()) > 0)
+                lock.wait(remaining);
+            if (!hasEvents || !isRunning)
+                return;
+        }
+        Thread.sleep(SETTLE_MS);
+        synchronized (lock) {
+            hasEvents = false;
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Invoked on monitor thread, first invocation has all present ports as added and happens even without ports
+         */
+        void onChange(PortDiff diff);
+    }
+
+    public static class PortDiff {
+        private final List<String> added;
+        private final List<String> removed;
+        private final List<String> ports;
+
+        public PortDiff(List<String> added, List<String> removed, List<String> ports) {
+            this.added = added;
+            this.removed = removed;
+            this.ports = ports;
+        }
+
+        @NotNull
+        public static PortDiff create(Collection<String> before, Collection<String> after) {
+            List<String> added = new ArrayList<>(after);
+            added.removeAll(before);
+            List<String> removed = new ArrayList<>(before);
+            removed.removeAll(after);
+            return new PortDiff(added, removed, new ArrayList<>(after));
+        }
+
+        public List<String> getAdded() {
+            return added;
+        }
+
+        public List<String> getRemoved() {
+            return removed;
+        }
+
+        /**
+         * @return all ports present after this change
+         */
+        public List<String> getPorts() {
+            return ports;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "PortDiff{" +
+                    "added=" + added +
+                    ", removed=" + removed +
+                    '}';
+        }
+    }
+}
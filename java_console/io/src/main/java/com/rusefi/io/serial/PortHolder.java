@@ -7,6 +7,7 @@ import com.rusefi.io.ConnectionStateListener;
 import com.opensr5.io.DataListener;
 import com.rusefi.io.IoStream;
 import com.rusefi.io.LinkManager;
+import com.rusefi.io.replay.TrafficRecorder;
 import com.rusefi.util.IoUtils;
 import org.jetbrains.annotations.Nullable;
 
@@ -26,6 +27,8 @@ public class PortHolder {
 
     private final DataListener dataListener;
     private final Callable<IoStream> ioStreamFactory;
+    @Nullable
+    private final Callable<IoStream> reopenFactory;
     private final LinkManager linkManager;
 
     public ConnectionStateListener listener;
@@ -34,10 +37,14 @@ public class PortHolder {
     @Nullable
     private BinaryProtocol bp;
 
-    protected PortHolder(LinkManager linkManager, Callable<IoStream> ioStreamFactory) {
+    /**
+     * @param reopenFactory opens same port again without side effects, null if {@link #reconnect()} is not supported
+     */
+    protected PortHolder(LinkManager linkManager, Callable<IoStream> ioStreamFactory, @Nullable Callable<IoStream> reopenFactory) {
         this.linkManager = linkManager;
-        dataListener = freshData -> linkManager.getEngineState().processNewData(new String(freshData), LinkManager.ENCODER);
+        dataListener = freshData -> linkManager.getEngineState().processNewData(freshData, LinkManager.ENCODER);
         this.ioStreamFactory = ioStreamFactory;
+        this.reopenFactory = reopenFactory;
     }
 
     /**
@@ -49,6 +56,7 @@ public class PortHolder {
             // error already reported
             return;
         }
+        TrafficRecorder.attachIfConfigured(stream);
         synchronized (portLock) {
             bp = new BinaryProtocol(linkManager, stream);
             portLock.notifyAll();
@@ -64,6 +72,39 @@ public class PortHolder {
         }
     }
 
+    boolean canReconnect() {
+        return reopenFactory != null;
+    }
+
+    /**
+     * Opens same port again and resumes with configuration image and signature of previous connection, connection
+     * listener is not notified since nothing has changed from its point of view
+     *
+     * @return true if connection was resumed
+     */
+    boolean reconnect() {
+        BinaryProtocol previous = bp;
+        if (reopenFactory == null || previous == null || previous.signature == null)
+            return false;
+        previous.close();
+        IoStream stream = reopenFactory.call();
+        if (stream == null)
+            return false;
+        TrafficRecorder.attachIfConfigured(stream);
+        BinaryProtocol resumed = new BinaryProtocol(linkManager, stream, previous.getBinaryProtocolState());
+        String errorMessage = resumed.resumeConnection(previous.signature, dataListener);
+        if (errorMessage != null) {
+            log.info("Not resumed: " + errorMessage);
+            resumed.close();
+            return false;
+        }
+        synchronized (portLock) {
+            bp = resumed;
+            portLock.notifyAll();
+        }
+        return true;
+    }
+
     public void close() {
         synchronized (portLock) {
             if (bp != null) {
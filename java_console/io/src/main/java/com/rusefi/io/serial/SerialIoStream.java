@@ -37,8 +37,13 @@ public class SerialIoStream extends AbstractIoStream {
 
     @Nullable
     protected static SerialPort openSerial(String port) {
+        return openSerial(port, BaudRateHolder.INSTANCE.baudRate);
+    }
+
+    @Nullable
+    protected static SerialPort openSerial(String port, int baudRate) {
         SerialPort serialPort = SerialPort.getCommPort(port);
-        serialPort.setBaudRate(BaudRateHolder.INSTANCE.baudRate);
+        serialPort.setBaudRate(baudRate);
         boolean openedOk = serialPort.openPort(0);
         if (!openedOk) {
             log.error("Error opening " + port + " maybe no permissions?");
@@ -75,6 +80,7 @@ public class SerialIoStream extends AbstractIoStream {
         if (written != bytes.length) {
             throw new IOException("write failed: wrote " + written + " but expected " + bytes.length);
         }
+        super.write(bytes);
     }
 
     @Override
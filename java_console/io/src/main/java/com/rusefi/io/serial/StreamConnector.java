@@ -7,6 +7,7 @@ import com.rusefi.io.ConnectionStateListener;
 import com.rusefi.io.IoStream;
 import com.rusefi.io.LinkConnector;
 import com.rusefi.io.LinkManager;
+import org.jetbrains.annotations.Nullable;
 
 import static com.devexperts.logging.Logging.getLogging;
 
@@ -21,9 +22,16 @@ public class StreamConnector implements LinkConnector {
     private final LinkManager linkManager;
 
     public StreamConnector(LinkManager linkManager, Callable<IoStream> ioStreamCallable) {
+        this(linkManager, ioStreamCallable, null);
+    }
+
+    /**
+     * @param reopenCallable opens same port again for {@link #reconnect()}, null if not supported
+     */
+    public StreamConnector(LinkManager linkManager, Callable<IoStream> ioStreamCallable, @Nullable Callable<IoStream> reopenCallable) {
         this.linkManager = linkManager;
 
-        portHolder = new PortHolder(linkManager, ioStreamCallable);
+        portHolder = new PortHolder(linkManager, ioStreamCallable, reopenCallable);
     }
 
     @Override
@@ -47,6 +55,16 @@ public class StreamConnector implements LinkConnector {
         portHolder.close();
     }
 
+    @Override
+    public boolean canReconnect() {
+        return portHolder.canReconnect();
+    }
+
+    @Override
+    public boolean reconnect() {
+        return portHolder.reconnect();
+    }
+
     @Override
     public String unpack(String packet) {
         return packet;
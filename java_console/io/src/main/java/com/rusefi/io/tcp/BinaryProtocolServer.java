@@ -55,6 +55,8 @@ public class BinaryProtocolServer {
 
     public final AtomicInteger unknownCommands = new AtomicInteger();
 
+    private ServerSocketReference serverSocket;
+
     private final static ConcurrentHashMap<String, ThreadFactory> THREAD_FACTORIES_BY_NAME = new ConcurrentHashMap<>();
 
     public void start(LinkManager linkManager) {
@@ -76,7 +78,15 @@ public class BinaryProtocolServer {
             }
         };
 
-        tcpServerSocket(port, "BinaryProtocolServer", clientSocketRunnableFactory, StatusConsumer.ANONYMOUS);
+        serverSocket = tcpServerSocket(port, "BinaryProtocolServer", clientSocketRunnableFactory, StatusConsumer.ANONYMOUS);
+    }
+
+    /**
+     * Stops accepting new connections, already connected clients are not affected
+     */
+    public void close() {
+        if (serverSocket != null)
+            serverSocket.close();
     }
 
     /**
@@ -0,0 +1,129 @@
+package com.rusefi.binaryprotocol.test;
+
+import com.opensr5.ConfigurationImage;
+import com.rusefi.binaryprotocol.BinaryProtocol;
+import com.rusefi.binaryprotocol.BinaryProtocolState;
+import com.rusefi.binaryprotocol.IoHelper;
+import com.rusefi.config.generated.Fields;
+import com.rusefi.io.LinkManager;
+import com.rusefi.io.commands.ByteRange;
+import com.rusefi.io.replay.ReplayIoStream;
+import com.rusefi.io.replay.TrafficLog;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link BinaryProtocol#resumeConnection} against recorded ECU responses
+ */
+public class ResumeConnectionTest {
+    private static final String SIGNATURE = Fields.PROTOCOL_SIGNATURE_PREFIX + "test";
+
+    private final List<TrafficLog.Chunk> chunks = new ArrayList<>();
+
+    private void exchange(byte[] request, byte[] response) {
+        chunks.add(new TrafficLog.Chunk(false, 0, IoHelper.makeCrc32Packet(request)));
+        chunks.add(new TrafficLog.Chunk(true, 0, IoHelper.makeCrc32Packet(response)));
+    }
+
+    private static byte[] withOk(byte[] payload) {
+        byte[] response = new byte[payload.length + 1];
+        response[0] = Fields.TS_RESPONSE_OK;
+        System.arraycopy(payload, 0, response, 1, payload.length);
+        return response;
+    }
+
+    private static byte[] rangeRequest(char opcode, int offset, int size) {
+        byte[] request = new byte[5];
+        request[0] = (byte) opcode;
+        byte[] range = new byte[4];
+        ByteRange.packOffsetAndSize(offset, size, range);
+        System.arraycopy(range, 0, request, 1, range.length);
+        return request;
+    }
+
+    private void hello(String signature) {
+        exchange(new byte[]{Fields.TS_HELLO_COMMAND}, withOk(signature.getBytes()));
+    }
+
+    private void crcCheck(byte[] ecuConfiguration) throws IOException {
+        ByteArrayOutputStream crc = new ByteArrayOutputStream();
+        new DataOutputStream(crc).writeInt(IoHelper.getCrc32(ecuConfiguration));
+        exchange(rangeRequest(Fields.TS_CRC_CHECK_COMMAND, 0, ecuConfiguration.length), withOk(crc.toByteArray()));
+    }
+
+    private static ConfigurationImage createImage(int seed) {
+        ConfigurationImage image = new ConfigurationImage(Fields.TOTAL_CONFIG_SIZE);
+        new Random(seed).nextBytes(image.getContent());
+        return image;
+    }
+
+    private String resume(BinaryProtocolState state, ReplayIoStream stream) throws Exception {
+        LinkManager linkManager = new LinkManager();
+        try {
+            BinaryProtocol bp = new BinaryProtocol(linkManager, stream, state);
+            Future<?> result = linkManager.COMMUNICATION_EXECUTOR.submit(() -> bp.resumeConnection(SIGNATURE, data -> {
+            }));
+            String errorMessage = (String) result.get();
+            bp.close();
+            return errorMessage;
+        } finally {
+            linkManager.COMMUNICATION_EXECUTOR.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sameConfigurationIsNotReadAgain() throws Exception {
+        ConfigurationImage image = createImage(1);
+        BinaryProtocolState state = new BinaryProtocolState();
+        state.setController(image);
+        hello(SIGNATURE);
+        crcCheck(image.getContent());
+
+        ReplayIoStream stream = new ReplayIoStream(new TrafficLog(chunks), ReplayIoStream.AS_FAST_AS_POSSIBLE);
+        assertNull(resume(state, stream));
+        assertEquals(0, stream.getMismatchCount());
+        assertArrayEquals(image.getContent(), state.getControllerConfiguration().getContent());
+    }
+
+    @Test
+    public void changedConfigurationIsReadAgain() throws Exception {
+        BinaryProtocolState state = new BinaryProtocolState();
+        state.setController(createImage(1));
+        // changed while disconnected
+        byte[] ecuConfiguration = createImage(2).getContent();
+        hello(SIGNATURE);
+        crcCheck(ecuConfiguration);
+        for (int offset = 0; offset < ecuConfiguration.length; offset += Fields.BLOCKING_FACTOR) {
+            int size = Math.min(Fields.BLOCKING_FACTOR, ecuConfiguration.length - offset);
+            exchange(rangeRequest(Fields.TS_READ_COMMAND, offset, size), withOk(Arrays.copyOfRange(ecuConfiguration, offset, offset + size)));
+        }
+
+        ReplayIoStream stream = new ReplayIoStream(new TrafficLog(chunks), ReplayIoStream.AS_FAST_AS_POSSIBLE);
+        assertNull(resume(state, stream));
+        assertEquals(0, stream.getMismatchCount());
+        assertArrayEquals(ecuConfiguration, state.getControllerConfiguration().getContent());
+    }
+
+    @Test
+    public void differentEcu() throws Exception {
+        ConfigurationImage image = createImage(1);
+        BinaryProtocolState state = new BinaryProtocolState();
+        state.setController(image);
+        hello(Fields.PROTOCOL_SIGNATURE_PREFIX + "other");
+
+        ReplayIoStream stream = new ReplayIoStream(new TrafficLog(chunks), ReplayIoStream.AS_FAST_AS_POSSIBLE);
+        assertNotNull(resume(state, stream));
+        assertTrue(stream.isClosed());
+        assertArrayEquals(image.getContent(), state.getControllerConfiguration().getContent());
+    }
+}
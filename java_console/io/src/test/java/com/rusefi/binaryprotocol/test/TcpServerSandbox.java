@@ -1,6 +1,5 @@
 package com.rusefi.binaryprotocol.test;
 
-import com.macfaq.io.LittleEndianOutputStream;
 import com.rusefi.CompatibleFunction;
 import com.rusefi.binaryprotocol.BinaryProtocol;
 import com.rusefi.binaryprotocol.IncomingDataBuffer;
@@ -102,9 +101,8 @@ public class TcpServerSandbox {
             if (payload[1] == Fields.TS_COMPOSITE_READ) {
                 ByteArrayOutputStream baos = new ByteArrayOutputStream();
                 baos.write(TS_OK.charAt(0));
-                LittleEndianOutputStream dout = new LittleEndianOutputStream(baos);
-                int count = 256;
-                dout.writeShort(count * 5);
+                // same layout as firmware: no length prefix, just packets
+                int count = 250;
 
                 for (int i = 0; i < count; i++) {
                     baos.write(i);
@@ -0,0 +1,144 @@
+package com.rusefi.io.can.test;
+
+import com.rusefi.io.can.IsoTpCanDecoder;
+import com.rusefi.io.can.IsoTpConnector;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sender and receiver connected by in-process CAN loopback
+ */
+public class IsoTpLoopbackTest {
+    private static final int TIMEOUT_SECONDS = 5;
+
+    private final BlockingQueue<byte[]> toReceiver = new LinkedBlockingQueue<>();
+    private final BlockingQueue<byte[]> toSender = new LinkedBlockingQueue<>();
+    private final List<Long> pauses = new ArrayList<>();
+    private int flowControlCount;
+
+    private IsoTpConnector createSender(int frameLength) {
+        return new IsoTpConnector() {
+            @Override
+            public int getMaxFrameLength() {
+                return frameLength;
+            }
+
+            @Override
+            protected void pause(long nanos) {
+                pauses.add(nanos);
+            }
+
+            @Override
+            public void sendCanData(byte[] hdr, byte[] data, int dataOffset, int dataLength) {
+                byte[] frame = combineArrays(hdr, data, dataOffset, dataLength);
+                assertTrue(frame.length <= frameLength);
+                toReceiver.add(frame);
+            }
+
+            @Override
+            public byte[] receiveData() {
+                try {
+                    byte[] frame = toSender.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    if (frame == null)
+                        throw new IllegalStateException("No flow control");
+                    return frame;
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    private Future<byte[]> startReceiver(int blockSize, int separationTime) {
+        IsoTpCanDecoder decoder = new IsoTpCanDecoder(blockSize, separationTime, 16) {
+            @Override
+            protected void sendFlowControl(byte[] flowControlFrame) {
+                flowControlCount++;
+                toSender.add(flowControlFrame.clone());
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<byte[]> result = executor.submit(() -> {
+            while (true) {
+                byte[] frame = toReceiver.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (frame == null)
+                    throw new IllegalStateException("No frame");
+                if (decoder.decodeFrame(frame, 0, frame.length))
+                    return Arrays.copyOf(decoder.getMessage(), decoder.getMessageLength());
+            }
+        });
+        executor.shutdown();
+        return result;
+    }
+
+    private static byte[] createMessage(int length) {
+        byte[] message = new byte[length];
+        new Random(length).nextBytes(message);
+        return message;
+    }
+
+    private byte[] transfer(byte[] message, int frameLength, int blockSize, int separationTime) throws Exception {
+        Future<byte[]> received = startReceiver(blockSize, separationTime);
+        IsoTpConnector.sendStrategy(message, createSender(frameLength));
+        return received.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void singleFrame() throws Exception {
+        byte[] message = createMessage(5);
+        assertArrayEquals(message, transfer(message, IsoTpConnector.CLASSIC_FRAME_LENGTH, 0, 0));
+        assertEquals(0, flowControlCount);
+    }
+
+    @Test
+    public void noBlockLimit() throws Exception {
+        byte[] message = createMessage(100);
+        assertArrayEquals(message, transfer(message, IsoTpConnector.CLASSIC_FRAME_LENGTH, 0, 0));
+        assertEquals(1, flowControlCount);
+        assertTrue(pauses.isEmpty());
+    }
+
+    @Test
+    public void blockSizeAndSeparationTime() throws Exception {
+        // 6 bytes in first frame and 42 consecutive frames
+        byte[] message = createMessage(300);
+        // 0xF3 is 300 microseconds
+        assertArrayEquals(message, transfer(message, IsoTpConnector.CLASSIC_FRAME_LENGTH, 4, 0xF3));
+        assertEquals(11, flowControlCount);
+        assertEquals(41, pauses.size());
+        for (long pause : pauses)
+            assertEquals(300_000, pause);
+    }
+
+    @Test
+    public void canFdLongMessage() throws Exception {
+        // first frame length escape sequence
+        byte[] message = createMessage(5000);
+        assertArrayEquals(message, transfer(message, IsoTpConnector.FD_FRAME_LENGTH, 8, 1));
+        assertEquals(1_000_000, (long) pauses.get(0));
+    }
+
+    @Test
+    public void canFdSingleFrame() throws Exception {
+        byte[] message = createMessage(40);
+        assertArrayEquals(message, transfer(message, IsoTpConnector.FD_FRAME_LENGTH, 0, 0));
+        assertEquals(0, flowControlCount);
+    }
+
+    @Test
+    public void waitThenContinue() throws Exception {
+        toSender.add(new byte[]{0x31, 0, 0, 0, 0, 0, 0, 0});
+        byte[] message = createMessage(20);
+        assertArrayEquals(message, transfer(message, IsoTpConnector.CLASSIC_FRAME_LENGTH, 0, 0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void overflow() {
+        toSender.add(new byte[]{0x32, 0, 0, 0, 0, 0, 0, 0});
+        IsoTpConnector.sendStrategy(createMessage(20), createSender(IsoTpConnector.CLASSIC_FRAME_LENGTH));
+    }
+}
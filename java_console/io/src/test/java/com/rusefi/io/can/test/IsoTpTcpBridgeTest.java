@@ -0,0 +1,57 @@
+package com.rusefi.io.can.test;
+
+import com.rusefi.NamedThreadFactory;
+import com.rusefi.core.FileUtil;
+import com.rusefi.io.can.IsoTpIoStream;
+import com.rusefi.io.can.IsoTpTcpBridge;
+import com.rusefi.io.tcp.ServerSocketReference;
+import com.rusefi.io.tcp.TcpConnector;
+import com.rusefi.ui.StatusConsumer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * {@link IsoTpIoStream} talking to echo server through {@link IsoTpTcpBridge}
+ */
+public class IsoTpTcpBridgeTest {
+    private static final int CAN_PORT = 29011;
+
+    @Test
+    public void echoThroughBridge() throws IOException {
+        ServerSocket echoServer = new ServerSocket(0);
+        new NamedThreadFactory("echo", true).newThread(() -> {
+            try (Socket socket = echoServer.accept()) {
+                InputStream in = socket.getInputStream();
+                OutputStream out = socket.getOutputStream();
+                byte[] buffer = new byte[256];
+                int length;
+                while ((length = in.read(buffer)) != -1)
+                    out.write(buffer, 0, length);
+            } catch (IOException ignored) {
+            }
+        }).start();
+        ServerSocketReference bridge = IsoTpTcpBridge.start(CAN_PORT, TcpConnector.LOCALHOST, echoServer.getLocalPort(), StatusConsumer.ANONYMOUS);
+        IsoTpIoStream stream = IsoTpIoStream.open(IsoTpIoStream.PORT_PREFIX + CAN_PORT);
+        try {
+            for (int length : new int[]{3, 600}) {
+                // both single frame and multi-frame with flow control in each direction
+                byte[] payload = new byte[length];
+                new Random(length).nextBytes(payload);
+                stream.sendPacket(payload);
+                assertArrayEquals(payload, stream.getDataBuffer().getPacket(5000, "echo"));
+            }
+        } finally {
+            stream.close();
+            bridge.close();
+            FileUtil.close(echoServer);
+        }
+    }
+}
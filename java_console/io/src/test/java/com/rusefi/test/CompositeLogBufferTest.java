@@ -0,0 +1,53 @@
+package com.rusefi.test;
+
+import com.rusefi.io.composite.CompositeLogBuffer;
+import com.rusefi.io.composite.CompositeLogFileWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompositeLogBufferTest {
+    @Test
+    public void decodeAndRollOver() {
+        byte[] packet = {
+                0, // response code
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0, CompositeLogBuffer.PRI_LEVEL | CompositeLogBuffer.SYNC,
+                0, 0, 0, 0x10, CompositeLogBuffer.INJECTOR,
+        };
+        CompositeLogBuffer buffer = new CompositeLogBuffer(1);
+        assertEquals(2, buffer.decode(packet, 1));
+        assertEquals(2, buffer.size());
+
+        assertEquals(0xFFFFFFF0L, buffer.getTimestampUs(0));
+        assertEquals(CompositeLogBuffer.PRI_LEVEL | CompositeLogBuffer.SYNC, buffer.getState(0));
+        assertTrue(buffer.isSet(0, CompositeLogBuffer.SYNC));
+        assertFalse(buffer.isSet(0, CompositeLogBuffer.COIL));
+
+        assertEquals((1L << 32) + 0x10, buffer.getTimestampUs(1));
+        assertTrue(buffer.isSet(1, CompositeLogBuffer.INJECTOR));
+
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        buffer.decode(new byte[]{0, 0, 0, 0x20, 0}, 0);
+        assertEquals((1L << 32) + 0x20, buffer.getTimestampUs(0));
+    }
+
+    @Test
+    public void writeCsv() throws IOException {
+        CompositeLogBuffer buffer = new CompositeLogBuffer();
+        buffer.decode(new byte[]{0, 0, 1, 0, CompositeLogBuffer.SEC_LEVEL | CompositeLogBuffer.COIL}, 0);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        CompositeLogFileWriter writer = new CompositeLogFileWriter(baos);
+        writer.onEntries(buffer);
+        writer.close();
+
+        assertEquals("timeUs,priLevel,secLevel,trigger,sync,coil,injector\n" +
+                "256,0,1,0,0,1,0\n", baos.toString());
+    }
+}
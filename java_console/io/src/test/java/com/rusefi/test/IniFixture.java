@@ -0,0 +1,30 @@
+package com.rusefi.test;
+
+import com.opensr5.ini.IniFileModel;
+import com.opensr5.ini.IniFileReader;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Small .ini with one field of each kind for tune tests, byte 11 is not covered by any field
+ */
+public class IniFixture {
+    /**
+     * smallest image which fits all fields
+     */
+    public static final int IMAGE_SIZE = 36;
+
+    public static final String INI = "page = 1\n" +
+            "[Constants]\n" +
+            "engineType = bits, S32, 0, [0:6], \"DEFAULT\", \"MIATA\", \"NEON\"\n" +
+            "useFlag = bits, U32, 0, [8:8], \"false\", \"true\"\n" +
+            "rpmHardLimit = scalar, U16, 4, \"rpm\", 1, 0, 0, 20000, 0\n" +
+            "tps = scalar, S16, 6, \"%\", 0.01, 0, -100, 100, 2\n" +
+            "loadBins = array, U08, 8, [3], \"kPa\", 2, 0, 0, 500, 0\n" +
+            "table = array, F32, 12, [2x2], \"%\", 1, 0, 0, 100, 2\n" +
+            "vehicleName = string, ASCII, 28, 8\n";
+
+    public static IniFileModel readIni() {
+        return new IniFileModel().readIniFile(IniFileReader.read(new ByteArrayInputStream(INI.getBytes())));
+    }
+}
@@ -0,0 +1,109 @@
+package com.rusefi.test;
+
+import com.opensr5.ConfigurationImage;
+import com.opensr5.io.ConfigurationImageFile;
+import com.opensr5.io.MsqConverter;
+import com.rusefi.tools.tune.MsqFile;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.rusefi.test.IniFixture.IMAGE_SIZE;
+import static com.rusefi.test.IniFixture.readIni;
+import static org.junit.Assert.*;
+
+public class MsqConverterTest {
+    @Test
+    public void roundTrip() throws IOException {
+        ConfigurationImage image = new ConfigurationImage(IMAGE_SIZE);
+        ByteBuffer bb = ByteBuffer.wrap(image.getContent()).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(0, 2 + (1 << 8));
+        bb.putShort(4, (short) 7000);
+        bb.putShort(6, (short) -1234);
+        bb.put(8, (byte) 10).put(9, (byte) 200).put(10, (byte) 255);
+        bb.putFloat(12, 1.5f).putFloat(16, -2).putFloat(20, 0.1f).putFloat(24, 100);
+        bb.position(28);
+        bb.put("a<b&c".getBytes(StandardCharsets.ISO_8859_1));
+
+        MsqConverter converter = new MsqConverter(readIni());
+        StringWriter writer = new StringWriter();
+        converter.writeMsq(image, writer);
+
+        MsqFile msq = MsqFile.read(new ByteArrayInputStream(writer.toString().getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(IMAGE_SIZE, msq.getPageSize());
+        assertEquals("\"NEON\"", msq.get("engineType").getText());
+        assertEquals("\"true\"", msq.get("useFlag").getText());
+        assertEquals("\"a<b&c\"", msq.get("vehicleName").getText());
+        assertArrayEquals(new double[]{-12.34}, msq.get("tps").getDoubleValues(), 0);
+        assertArrayEquals(new double[]{20, 400, 510}, msq.get("loadBins").getDoubleValues(), 0);
+
+        ConfigurationImage restored = converter.toImage(msq, 0);
+        assertArrayEquals(image.getContent(), restored.getContent());
+    }
+
+    @Test
+    public void unknownEnumValue() throws IOException {
+        String msq = "<msq xmlns=\"http://www.msefi.com/:msq\">\n" +
+                "<page number=\"0\" size=\"36\">\n" +
+                "<constant name=\"engineType\">\"UNKNOWN\"</constant>\n" +
+                "</page>\n" +
+                "</msq>\n";
+        try {
+            new MsqConverter(readIni()).toImage(MsqFile.read(new ByteArrayInputStream(msq.getBytes())), 0);
+            fail("Unknown value");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void inPlaceFolderConversionConvertsNewerFileOfEachPair() throws IOException, InterruptedException {
+        Path folder = Files.createTempDirectory("tunes");
+        try {
+            byte[] binary = ConfigurationImageFile.getFileContent(new ConfigurationImage(IMAGE_SIZE));
+            Files.write(folder.resolve("a.bin"), binary);
+            Files.write(folder.resolve("b.bin"), binary);
+            File a = folder.resolve("a.bin").toFile();
+            File b = folder.resolve("b.bin").toFile();
+            File aMsq = folder.resolve("a.msq").toFile();
+            File bMsq = folder.resolve("b.msq").toFile();
+            long time = a.lastModified() - 20_000;
+
+            File dir = folder.toFile();
+            MsqConverter converter = new MsqConverter(readIni());
+            assertEquals(2, converter.convertFolder(dir, dir, IMAGE_SIZE, 2));
+            assertTrue(aMsq.exists());
+            assertTrue(bMsq.exists());
+
+            // outputs are not older than their inputs: nothing to do
+            for (File file : new File[]{a, b, aMsq, bMsq})
+                assertTrue(file.setLastModified(time));
+            byte[] msq = Files.readAllBytes(aMsq.toPath());
+            assertEquals(0, converter.convertFolder(dir, dir, IMAGE_SIZE, 2));
+            assertArrayEquals(binary, Files.readAllBytes(a.toPath()));
+            assertArrayEquals(msq, Files.readAllBytes(aMsq.toPath()));
+
+            // edited binary is converted into .msq, edited .msq is converted into binary, inputs stay intact
+            assertTrue(a.setLastModified(time + 10_000));
+            assertTrue(bMsq.setLastModified(time + 10_000));
+            byte[] bMsqContent = Files.readAllBytes(bMsq.toPath());
+            assertEquals(2, converter.convertFolder(dir, dir, IMAGE_SIZE, 2));
+            assertArrayEquals(binary, Files.readAllBytes(a.toPath()));
+            assertArrayEquals(bMsqContent, Files.readAllBytes(bMsq.toPath()));
+            assertArrayEquals(binary, Files.readAllBytes(b.toPath()));
+            assertTrue(aMsq.lastModified() >= a.lastModified());
+            assertTrue(b.lastModified() >= bMsq.lastModified());
+        } finally {
+            for (File file : folder.toFile().listFiles())
+                Files.delete(file.toPath());
+            Files.delete(folder);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.rusefi.test;
+
+import com.rusefi.io.serial.PortChangeMonitor;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class PortChangeMonitorTest {
+    private final BlockingQueue<PortChangeMonitor.PortDiff> diffs = new LinkedBlockingQueue<>();
+
+    private PortChangeMonitor.PortDiff nextDiff() throws InterruptedException {
+        PortChangeMonitor.PortDiff diff = diffs.poll(3, TimeUnit.SECONDS);
+        assertNotNull("diff expected", diff);
+        return diff;
+    }
+
+    @Test
+    public void pollingReportsDiff() throws InterruptedException {
+        AtomicReference<String[]> ports = new AtomicReference<>(new String[]{"COM3", "COM1"});
+        PortChangeMonitor monitor = new PortChangeMonitor(ports::get, null);
+        monitor.addListener(diffs::add);
+        monitor.start();
+        try {
+            assertFalse(monitor.isWatching());
+            PortChangeMonitor.PortDiff diff = nextDiff();
+            assertEquals(Arrays.asList("COM1", "COM3"), diff.getAdded());
+            assertTrue(diff.getRemoved().isEmpty());
+
+            ports.set(new String[]{"COM3", "COM4"});
+            monitor.wakeUp();
+            diff = nextDiff();
+            assertEquals(Collections.singletonList("COM4"), diff.getAdded());
+            assertEquals(Collections.singletonList("COM1"), diff.getRemoved());
+            assertEquals(Arrays.asList("COM3", "COM4"), diff.getPorts());
+            assertTrue(diffs.isEmpty());
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    @Test
+    public void firstListEvenWithoutPorts() throws InterruptedException {
+        PortChangeMonitor monitor = new PortChangeMonitor(() -> new String[0], null);
+        monitor.addListener(diffs::add);
+        monitor.start();
+        try {
+            PortChangeMonitor.PortDiff diff = nextDiff();
+            assertTrue(diff.isEmpty());
+            assertTrue(diff.getPorts().isEmpty());
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    @Test
+    public void deviceNodeTriggersEnumeration() throws IOException, InterruptedException {
+        Path devices = Files.createTempDirectory("dev");
+        File deviceFolder = devices.toFile();
+        PortChangeMonitor monitor = new PortChangeMonitor(deviceFolder::list, devices);
+        monitor.addListener(diffs::add);
+        monitor.start();
+        try {
+            assertTrue(nextDiff().getPorts().isEmpty());
+            // elsewhere watch service could be polling based and slow
+            if (!monitor.isWatching() || !System.getProperty("os.name").toLowerCase().contains("linux"))
+                return;
+            // no wake up call, this time change has to be noticed by watcher well before periodic enumeration
+            Path device = Files.createFile(devices.resolve("ttyACM7"));
+            assertEquals(Collections.singletonList("ttyACM7"), nextDiff().getAdded());
+            Files.delete(device);
+            assertEquals(Collections.singletonList("ttyACM7"), nextDiff().getRemoved());
+        } finally {
+            monitor.stop();
+            Files.deleteIfExists(devices);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.rusefi.test;
+
+import com.rusefi.autodetect.PortDetector;
+import com.rusefi.autodetect.SerialAutoChecker;
+import com.rusefi.binaryprotocol.IoHelper;
+import com.rusefi.config.generated.Fields;
+import com.rusefi.io.IoStream;
+import com.rusefi.io.serial.BaudRateHolder;
+import com.rusefi.io.replay.ReplayIoStream;
+import com.rusefi.io.replay.TrafficLog;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Fake ports are {@link ReplayIoStream} answering hello after given delay, or never
+ */
+public class PortDetectorTest {
+    private static final String SIGNATURE = Fields.PROTOCOL_SIGNATURE_PREFIX + "test";
+    private static final int SILENT = -1;
+
+    private final Map<String, Integer> responseDelays = new HashMap<>();
+    private final List<String> opened = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, IoStream> streams = Collections.synchronizedMap(new HashMap<>());
+
+    private IoStream open(String port, int baudRate) {
+        opened.add(port + "@" + baudRate);
+        byte[] hello = IoHelper.makeCrc32Packet(new byte[]{Fields.TS_HELLO_COMMAND});
+        List<TrafficLog.Chunk> chunks = new ArrayList<>();
+        chunks.add(new TrafficLog.Chunk(false, 0, hello));
+        int delay = responseDelays.get(port);
+        if (delay != SILENT) {
+            String response = (char) Fields.TS_RESPONSE_OK + SIGNATURE;
+            chunks.add(new TrafficLog.Chunk(true, TimeUnit.MILLISECONDS.toNanos(delay), IoHelper.makeCrc32Packet(response.getBytes())));
+        }
+        IoStream stream = new ReplayIoStream(new TrafficLog(chunks), 1);
+        streams.put(port, stream);
+        return stream;
+    }
+
+    private SerialAutoChecker.AutoDetectResult detect(String lastKnownGood, int timeoutMs) {
+        return PortDetector.detect(responseDelays.keySet().toArray(new String[0]), this::open, lastKnownGood, timeoutMs);
+    }
+
+    @Test
+    public void firstAnswerWinsOthersAreCancelled() {
+        responseDelays.put("silent", SILENT);
+        responseDelays.put("fast", 10);
+        responseDelays.put("slow", 3000);
+
+        long start = System.currentTimeMillis();
+        SerialAutoChecker.AutoDetectResult result = detect(null, 5000);
+        assertTrue(System.currentTimeMillis() - start < 2000);
+
+        assertEquals("fast", result.getSerialPort());
+        assertEquals(SIGNATURE, result.getSignature());
+        assertSame(streams.get("fast"), result.getStream());
+        assertFalse(result.getStream().isClosed());
+        assertTrue(streams.get("silent").isClosed());
+        assertTrue(streams.get("slow").isClosed());
+        result.getStream().close();
+    }
+
+    @Test
+    public void lastKnownGoodIsProbedAlone() {
+        responseDelays.put("a", 10);
+        responseDelays.put("b", 10);
+
+        SerialAutoChecker.AutoDetectResult result = detect("b", 5000);
+        assertEquals("b", result.getSerialPort());
+        assertEquals(BaudRateHolder.INSTANCE.baudRate, result.getBaudRate());
+        assertEquals(Collections.singletonList("b@" + BaudRateHolder.INSTANCE.baudRate), opened);
+        result.getStream().close();
+    }
+
+    @Test
+    public void lastKnownGoodGone() {
+        responseDelays.put("a", 10);
+
+        SerialAutoChecker.AutoDetectResult result = detect("b", 5000);
+        assertEquals("a", result.getSerialPort());
+        assertEquals(1, opened.size());
+        result.getStream().close();
+    }
+
+    @Test
+    public void slowLastKnownGoodIsNotOpenedTwice() {
+        responseDelays.put("a", SILENT);
+        responseDelays.put("b", 1000);
+
+        SerialAutoChecker.AutoDetectResult result = detect("b", 5000);
+        assertEquals("b", result.getSerialPort());
+        assertEquals(2, opened.size());
+        assertTrue(streams.get("a").isClosed());
+        result.getStream().close();
+    }
+
+    @Test
+    public void nothingAnswers() {
+        responseDelays.put("a", SILENT);
+        responseDelays.put("b", SILENT);
+
+        long start = System.currentTimeMillis();
+        SerialAutoChecker.AutoDetectResult result = detect(null, 200);
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertNull(result.getSerialPort());
+        assertNull(result.getStream());
+        assertTrue(streams.get("a").isClosed());
+        assertTrue(streams.get("b").isClosed());
+    }
+}
@@ -0,0 +1,112 @@
+package com.rusefi.test;
+
+import com.rusefi.binaryprotocol.IoHelper;
+import com.rusefi.io.replay.ReplayIoStream;
+import com.rusefi.io.replay.TrafficLog;
+import com.rusefi.io.replay.TrafficRecorder;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReplayIoStreamTest {
+    private static final byte[] REQUEST = {'O', 1};
+    private static final byte[] RESPONSE = {0, 10, 20, 30, 40};
+
+    @Test
+    public void recordAndReadBack() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        TrafficRecorder recorder = new TrafficRecorder(baos);
+        recorder.onOutgoing(REQUEST);
+        recorder.onIncoming(RESPONSE);
+        recorder.close();
+        // ignored once closed
+        recorder.onIncoming(RESPONSE);
+
+        TrafficLog log = TrafficLog.read(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals(2, log.getChunks().size());
+        TrafficLog.Chunk request = log.getChunks().get(0);
+        TrafficLog.Chunk response = log.getChunks().get(1);
+        assertFalse(request.isFromEcu());
+        assertArrayEquals(REQUEST, request.getData());
+        assertTrue(response.isFromEcu());
+        assertArrayEquals(RESPONSE, response.getData());
+        assertTrue(response.getTimeNanos() >= request.getTimeNanos());
+    }
+
+    @Test
+    public void truncatedRecording() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        TrafficRecorder recorder = new TrafficRecorder(baos);
+        recorder.onOutgoing(REQUEST);
+        recorder.onIncoming(RESPONSE);
+        recorder.close();
+        byte[] crashed = Arrays.copyOf(baos.toByteArray(), baos.size() - 2);
+
+        TrafficLog log = TrafficLog.read(new ByteArrayInputStream(crashed));
+        assertEquals(1, log.getChunks().size());
+        assertArrayEquals(REQUEST, log.getChunks().get(0).getData());
+    }
+
+    @Test
+    public void fileNamePerSession() {
+        assertEquals("session.bin", TrafficRecorder.getSessionFileName("session.bin", 1));
+        assertEquals("logs/session_2.bin", TrafficRecorder.getSessionFileName("logs/session.bin", 2));
+        assertEquals("logs.d/session_3", TrafficRecorder.getSessionFileName("logs.d/session", 3));
+    }
+
+    @Test
+    public void replayAsFastAsPossible() throws IOException {
+        byte[] framedResponse = IoHelper.makeCrc32Packet(RESPONSE);
+        TrafficLog log = new TrafficLog(Arrays.asList(
+                new TrafficLog.Chunk(false, 0, IoHelper.makeCrc32Packet(REQUEST)),
+                // response split over two reads
+                new TrafficLog.Chunk(true, ms(1), Arrays.copyOf(framedResponse, 3)),
+                new TrafficLog.Chunk(true, ms(2), Arrays.copyOfRange(framedResponse, 3, framedResponse.length)),
+                new TrafficLog.Chunk(false, ms(10), IoHelper.makeCrc32Packet(REQUEST)),
+                new TrafficLog.Chunk(true, ms(11), framedResponse)
+        ));
+        ReplayIoStream stream = new ReplayIoStream(log, ReplayIoStream.AS_FAST_AS_POSSIBLE);
+
+        stream.sendPacket(REQUEST);
+        assertArrayEquals(RESPONSE, stream.getDataBuffer().getPacket("first"));
+        assertEquals(0, stream.getMismatchCount());
+
+        // different request still gets recorded response
+        stream.sendPacket(new byte[]{'O', 2});
+        assertArrayEquals(RESPONSE, stream.getDataBuffer().getPacket("second"));
+        assertEquals(1, stream.getMismatchCount());
+        assertTrue(stream.isFinished());
+
+        try {
+            stream.sendPacket(REQUEST);
+            fail("End of recording expected");
+        } catch (IOException expected) {
+        }
+        assertTrue(stream.isClosed());
+    }
+
+    @Test
+    public void replayKeepsRecordedDelay() throws IOException {
+        TrafficLog log = new TrafficLog(Arrays.asList(
+                new TrafficLog.Chunk(false, ms(5), IoHelper.makeCrc32Packet(REQUEST)),
+                new TrafficLog.Chunk(true, ms(205), IoHelper.makeCrc32Packet(RESPONSE))
+        ));
+        ReplayIoStream stream = new ReplayIoStream(log, 2);
+
+        long start = System.nanoTime();
+        stream.sendPacket(REQUEST);
+        assertArrayEquals(RESPONSE, stream.getDataBuffer().getPacket("delayed"));
+        assertTrue(System.nanoTime() - start >= ms(100));
+        stream.close();
+    }
+
+    private static long ms(int value) {
+        return TimeUnit.MILLISECONDS.toNanos(value);
+    }
+}
@@ -0,0 +1,50 @@
+package com.rusefi.test;
+
+import com.opensr5.ConfigurationImage;
+import com.opensr5.io.TuneComparator;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import static com.rusefi.test.IniFixture.readIni;
+import static org.junit.Assert.*;
+
+public class TuneComparatorTest {
+    private static final int SIZE = IniFixture.IMAGE_SIZE + 4;
+
+    private final TuneComparator comparator = new TuneComparator(readIni());
+
+    @Test
+    public void sameTune() {
+        assertTrue(comparator.compare(new ConfigurationImage(SIZE), new ConfigurationImage(SIZE)).isEmpty());
+    }
+
+    @Test
+    public void reportFieldsCellsAndLabels() {
+        ConfigurationImage base = new ConfigurationImage(SIZE);
+        ConfigurationImage other = new ConfigurationImage(SIZE);
+        ByteBuffer bb = ByteBuffer.wrap(other.getContent()).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(0, 1 << 8);
+        bb.putShort(4, (short) 7000);
+        bb.putFloat(24, 60);
+        bb.put(SIZE - 2, (byte) 1).put(SIZE - 1, (byte) 1);
+
+        List<TuneComparator.Difference> differences = comparator.compare(base, other);
+        assertEquals(4, differences.size());
+
+        assertEquals("useFlag: false -> true", differences.get(0).toString());
+        assertEquals("rpmHardLimit: 0.0 -> 7000.0", differences.get(1).toString());
+
+        TuneComparator.Difference cell = differences.get(2);
+        assertEquals("table", cell.getField().getName());
+        assertEquals(1, cell.getRow());
+        assertEquals(1, cell.getCol());
+        assertEquals("60.0", cell.getOtherValue());
+
+        // bytes after the last field are not covered by any field
+        assertNull(differences.get(3).getField());
+        assertEquals(SIZE - 2, differences.get(3).getOffset());
+    }
+}
@@ -12,6 +12,10 @@ import java.io.PrintWriter;
 public class SystemOut {
     private static final String LOG = ".log";
     private static PrintWriter logFile;
+    /**
+     * log file is reopened after each {@link #close()} within long-running GeneratorDaemon, one hook is enough
+     */
+    private static boolean hookInstalled;
 
     public static void println(String line) {
         System.out.println(line);
@@ -32,11 +36,14 @@ public class SystemOut {
         if (parentFile != null)
             parentFile.mkdirs();
         logFile = new PrintWriter(new FileWriter(fileName, true));
+        if (hookInstalled)
+            return;
+        hookInstalled = true;
         Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
             @Override
             public void run() {
                 close();
-                System.out.println("SystemOut Hook done for " + fileName);
+                System.out.println("SystemOut Hook done");
             }
         }));
     }
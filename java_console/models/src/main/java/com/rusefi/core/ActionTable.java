@@ -0,0 +1,75 @@
+package com.rusefi.core;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Immutable open addressing hash table of {@link EngineState} actions, looked up by case-insensitive key slice
+ * without creating a String
+ */
+class ActionTable {
+    private final Entry[] entries;
+    private final int mask;
+
+    private ActionTable(int capacity) {
+        entries = new Entry[capacity];
+        mask = capacity - 1;
+    }
+
+    static ActionTable create(Map<String, Consumer<CharSequence>> actions) {
+        // at most half full
+        int capacity = Integer.highestOneBit(Math.max(1, actions.size()) * 4 - 1);
+        ActionTable table = new ActionTable(capacity);
+        for (Map.Entry<String, Consumer<CharSequence>> e : actions.entrySet()) {
+            String lowerKey = e.getKey().toLowerCase();
+            int index = hash(lowerKey, 0, lowerKey.length()) & table.mask;
+            while (table.entries[index] != null)
+                index = (index + 1) & table.mask;
+            table.entries[index] = new Entry(e.getKey(), lowerKey, e.getValue());
+        }
+        return table;
+    }
+
+    /**
+     * @return null if no action for key in [start, end) range of line
+     */
+    Entry find(CharSequence line, int start, int end) {
+        int index = hash(line, start, end) & mask;
+        Entry entry;
+        while ((entry = entries[index]) != null) {
+            if (entry.matches(line, start, end))
+                return entry;
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private static int hash(CharSequence s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++)
+            h = 31 * h + Character.toLowerCase(s.charAt(i));
+        return h ^ (h >>> 16);
+    }
+
+    static class Entry {
+        final String key;
+        private final String lowerKey;
+        final Consumer<CharSequence> action;
+
+        Entry(String key, String lowerKey, Consumer<CharSequence> action) {
+            this.key = key;
+            this.lowerKey = lowerKey;
+            this.action = action;
+        }
+
+        private boolean matches(CharSequence line, int start, int end) {
+            if (end - start != lowerKey.length())
+                return false;
+            for (int i = 0; i < lowerKey.length(); i++) {
+                if (Character.toLowerCase(line.charAt(start + i)) != lowerKey.charAt(i))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.rusefi.core;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reusable read-only view of a char array range, content is only valid until the owner moves on to next data.
+ * Use {@link #toString()} to keep a copy.
+ */
+public final class CharSlice implements CharSequence {
+    private char[] chars;
+    private int offset;
+    private int length;
+
+    public CharSlice() {
+        set(new char[0], 0, 0);
+    }
+
+    public CharSlice(String value) {
+        set(value.toCharArray(), 0, value.length());
+    }
+
+    public CharSlice set(char[] chars, int offset, int length) {
+        this.chars = chars;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Points this slice at a range of another slice
+     */
+    public CharSlice set(CharSlice source, int start, int end) {
+        return set(source.chars, source.offset + start, end - start);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return chars[offset + index];
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * @return index relative to this slice, -1 if not found
+     */
+    public int indexOf(char c, int from) {
+        for (int i = from; i < length; i++) {
+            if (chars[offset + i] == c)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return index relative to this slice, -1 if not found
+     */
+    public int indexOf(String s) {
+        int last = length - s.length();
+        for (int i = 0; i <= last; i++) {
+            if (regionMatches(i, s))
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(int from, String s) {
+        for (int j = 0; j < s.length(); j++) {
+            if (chars[offset + from + j] != s.charAt(j))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, offset + start, end - start);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return new String(chars, offset, length);
+    }
+}
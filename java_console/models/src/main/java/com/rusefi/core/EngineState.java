@@ -46,58 +46,77 @@ public class EngineState {
         }
     }
 
+    private static final char DELIMITER = Fields.LOG_DELIMITER.charAt(0);
+
     private final ResponseBuffer buffer;
-    private final List<StringActionPair> actions = new ArrayList<>();
-    private final Set<String> keys = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    private final EngineStateListener listener;
+    /**
+     * registered actions by key, source of {@link #actions}
+     */
+    private final Map<String, Consumer<CharSequence>> registered = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    /**
+     * immutable, rebuilt on every registration change so that parsing does not need {@link #lock}
+     */
+    private volatile ActionTable actions = ActionTable.create(registered);
+
+    private final Object parseLock = new Object();
+    private final CharSlice line = new CharSlice();
+    private final CharSlice value = new CharSlice();
 
     public EngineState(@NotNull final EngineStateListener listener) {
-        buffer = new ResponseBuffer(response -> {
-            if (response != null) {
-                // let's remove timestamp if we get content from a log file not controller
-                int i = response.indexOf(Logger.END_OF_TIMESTAND_TAG);
-                if (i != -1)
-                    response = response.substring(i + Logger.END_OF_TIMESTAND_TAG.length());
-                String copy = response;
-                listener.beforeLine(response);
-                while (!response.isEmpty())
-                    response = handleResponse(response, listener);
-                listener.afterLine(copy);
-            }
-        });
+        this.listener = listener;
+        buffer = new ResponseBuffer(this::onLine);
 
         registerStringValueAction(Fields.PROTOCOL_MSG, value -> MessagesCentral.getInstance().postMessage(ENGINE_STATE_CLASS, value));
     }
 
+    private void onLine(CharSlice response) {
+        // let's remove timestamp if we get content from a log file not controller
+        int i = response.indexOf(Logger.END_OF_TIMESTAND_TAG);
+        int start = i == -1 ? 0 : i + Logger.END_OF_TIMESTAND_TAG.length();
+        line.set(response, start, response.length());
+
+        listener.beforeLine(line);
+        ActionTable actions = this.actions;
+        int position = 0;
+        while (position < line.length())
+            position = handleResponse(actions, position);
+        listener.afterLine(line);
+    }
+
     /**
-     * @param response input string
-     * @param listener obviously
-     * @return unused part of the response
+     * Handles one key/value pair of {@link #line}
+     *
+     * @return position of the unused part of the line
      */
-    private String handleResponse(String response, EngineStateListener listener) {
-        String originalResponse = response;
-        synchronized (lock) {
-            for (StringActionPair pair : actions)
-                response = handleStringActionPair(response, pair, listener);
+    private int handleResponse(ActionTable actions, int position) {
+        int length = line.length();
+        int keyEnd = line.indexOf(DELIMITER, position);
+        ActionTable.Entry entry = keyEnd == -1 ? null : actions.find(line, position, keyEnd);
+        if (entry != null) {
+            int valueEnd = line.indexOf(DELIMITER, keyEnd + 1);
+            if (valueEnd == -1)
+                valueEnd = length;
+            value.set(line, keyEnd + 1, valueEnd);
+            entry.action.accept(value);
+            listener.onKeyValue(entry.key, value);
+            // skipping the Fields.LOG_DELIMITER
+            return Math.min(length, valueEnd + 1);
         }
-        if (originalResponse.length() == response.length()) {
-            log.info("EngineState.unknown: " + response);
-            int keyEnd = response.indexOf(Fields.LOG_DELIMITER);
-            if (keyEnd == -1) {
-                // discarding invalid line
-                return "";
-            }
-            String unknownKey = response.substring(0, keyEnd);
-            int valueEnd = response.indexOf(Fields.LOG_DELIMITER, keyEnd + 1);
-            if (valueEnd == -1) {
-                // discarding invalid line
-                return "";
-            }
-            String value = response.substring(keyEnd, valueEnd);
-            log.info("Invalid key [" + unknownKey + "] value [" + value + "]");
-            // trying to process the rest of the line
-            response = response.substring(valueEnd + Fields.LOG_DELIMITER.length());
+
+        log.info("EngineState.unknown: " + line.subSequence(position, length));
+        if (keyEnd == -1) {
+            // discarding invalid line
+            return length;
         }
-        return response;
+        int valueEnd = line.indexOf(DELIMITER, keyEnd + 1);
+        if (valueEnd == -1) {
+            // discarding invalid line
+            return length;
+        }
+        log.info("Invalid key [" + line.subSequence(position, keyEnd) + "] value [" + line.subSequence(keyEnd, valueEnd) + "]");
+        // trying to process the rest of the line
+        return valueEnd + 1;
     }
 
     public static String skipToken(String string) {
@@ -164,47 +183,62 @@ public class EngineState {
 //    }
 
     public void registerStringValueAction(String key, Consumer<String> callback) {
+        registerValueAction(key, value -> callback.accept(value.toString()));
+    }
+
+    /**
+     * Allocation-free flavor of {@link #registerStringValueAction}
+     *
+     * @param callback receives value which is only valid during the invocation
+     */
+    public void registerValueAction(String key, Consumer<CharSequence> callback) {
         synchronized (lock) {
-            if (keys.contains(key))
+            if (registered.containsKey(key))
                 throw new IllegalStateException("Already registered: " + key);
-            keys.add(key);
-            actions.add(new StringActionPair(key, callback));
+            registered.put(key, callback);
+            actions = ActionTable.create(registered);
         }
     }
 
     public void removeAction(String key) {
         synchronized (lock) {
-            keys.remove(key);
-            for (Iterator<StringActionPair> it = actions.iterator(); it.hasNext(); ) {
-                if (it.next().first.equals(key)) {
-                    it.remove();
-                    break;
-                }
-            }
+            registered.remove(key);
+            actions = ActionTable.create(registered);
         }
     }
 
     public void processNewData(String append, LinkDecoder decoder) {
-        buffer.append(append, decoder);
+        synchronized (parseLock) {
+            buffer.append(append, decoder);
+        }
+    }
+
+    public void processNewData(byte[] append, LinkDecoder decoder) {
+        synchronized (parseLock) {
+            buffer.append(append, decoder);
+        }
     }
 
+    /**
+     * All arguments are only valid during the invocation
+     */
     public interface EngineStateListener {
-        void beforeLine(String fullLine);
+        void beforeLine(CharSequence fullLine);
 
-        void onKeyValue(String key, String value);
+        void onKeyValue(String key, CharSequence value);
 
-        void afterLine(String fullLine);
+        void afterLine(CharSequence fullLine);
     }
 
     public static class EngineStateListenerImpl implements EngineStateListener {
-        public void beforeLine(String fullLine) {
+        public void beforeLine(CharSequence fullLine) {
         }
 
         @Override
-        public void onKeyValue(String key, String value) {
+        public void onKeyValue(String key, CharSequence value) {
         }
 
-        public void afterLine(String fullLine) {
+        public void afterLine(CharSequence fullLine) {
         }
     }
 }
@@ -3,8 +3,18 @@ package com.rusefi.core;
 import com.rusefi.io.LinkDecoder;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
 /**
  * this class takes buffers input characters and separates them into full response lines
+ * <p>
+ * Pending line is kept in a reusable char array and every input character is looked at only once, with
+ * {@link LineListener} and {@link LinkDecoder#VOID} no objects are created per line.
  * <p/>
  * Date: 12/25/12
  * Andrey Belomutskiy, (c) 2013-2020
@@ -12,50 +22,100 @@ import org.jetbrains.annotations.NotNull;
  * @see ResponseBufferTest
  */
 public class ResponseBuffer {
-    private final ResponseListener listener;
-    private final StringBuffer pending = new StringBuffer();
+    private final LineListener listener;
+    private char[] pending = new char[256];
+    private int pendingLength;
+    private final CharSlice line = new CharSlice();
+    /**
+     * same replacement behaviour as {@link String#String(byte[])}
+     */
+    private final CharsetDecoder charsetDecoder;
+    /**
+     * bytes of a character which is split between two chunks stay here until the next chunk
+     */
+    private final ByteBuffer undecoded = ByteBuffer.allocate(256);
+    private final CharBuffer decoded = CharBuffer.allocate(256);
 
     public ResponseBuffer(@NotNull ResponseListener listener) {
+        this((LineListener) fullLine -> listener.onResponse(fullLine.toString()));
+    }
+
+    public ResponseBuffer(@NotNull LineListener listener) {
+        this(listener, Charset.defaultCharset());
+    }
+
+    public ResponseBuffer(@NotNull LineListener listener, Charset charset) {
         this.listener = listener;
+        charsetDecoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
     }
 
     public void append(String append, LinkDecoder decoder) {
-        pending.append(append);
+        for (int i = 0; i < append.length(); i++)
+            append(append.charAt(i), decoder);
+    }
 
-        /**
-         * we might have anything between one unterminated line and numerous terminated lines
-         */
-        while (hasCRLF(pending)) {
-            int cr = pending.indexOf("\r");
-            int lf = pending.indexOf("\n");
-
-            if (cr != -1 && lf == -1)
-                lf = cr;
-
-            if (cr == -1 && lf != -1)
-                cr = lf;
-
-            if (cr != -1) {
-                int endOfLine = Math.min(cr, lf);
-                if (endOfLine > 0) {
-                    String fullLine = pending.substring(0, endOfLine);
-                    listener.onResponse(decoder.unpack(fullLine));
-                }
-                while (pending.length() > endOfLine && (pending.charAt(endOfLine) == '\r' || pending.charAt(endOfLine) == '\n'))
-                    endOfLine++;
-
-                pending.delete(0, endOfLine);
+    /**
+     * Bytes are decoded with platform default charset unless another one was given, same as
+     * {@link String#String(byte[])} used to do for each chunk, but with reusable buffers and also for characters
+     * which are split between chunks
+     */
+    public void append(byte[] append, LinkDecoder decoder) {
+        int offset = 0;
+        while (offset < append.length) {
+            int count = Math.min(undecoded.remaining(), append.length - offset);
+            undecoded.put(append, offset, count);
+            offset += count;
+            undecoded.flip();
+            CoderResult result;
+            do {
+                result = charsetDecoder.decode(undecoded, decoded, false);
+                decoded.flip();
+                while (decoded.hasRemaining())
+                    append(decoded.get(), decoder);
+                decoded.clear();
+            } while (result.isOverflow());
+            undecoded.compact();
+        }
+    }
+
+    private void append(char c, LinkDecoder decoder) {
+        if (c == '\r' || c == '\n') {
+            // empty lines are skipped
+            if (pendingLength > 0) {
+                // reset first so that a failing listener does not leave stale line behind
+                int length = pendingLength;
+                pendingLength = 0;
+                onLine(length, decoder);
             }
+            return;
         }
+        if (pendingLength == pending.length) {
+            char[] larger = new char[pending.length * 2];
+            System.arraycopy(pending, 0, larger, 0, pendingLength);
+            pending = larger;
+        }
+        pending[pendingLength++] = c;
     }
 
-    private static boolean hasCRLF(StringBuffer str) {
-        int cr = str.indexOf("\r");
-        int lf = str.indexOf("\n");
-        return cr != -1 || lf != -1;
+    private void onLine(int length, LinkDecoder decoder) {
+        line.set(pending, 0, length);
+        if (decoder == LinkDecoder.VOID) {
+            listener.onLine(line);
+        } else {
+            listener.onLine(new CharSlice(decoder.unpack(line.toString())));
+        }
     }
 
     public interface ResponseListener {
         void onResponse(String unpack);
     }
+
+    public interface LineListener {
+        /**
+         * @param line valid only during this invocation
+         */
+        void onLine(CharSlice line);
+    }
 }
@@ -1,9 +1,7 @@
 package com.rusefi.tools.tune;
 
 import com.opensr5.ini.IniFileModel;
-import com.opensr5.ini.field.ArrayIniField;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Arrays;
@@ -24,17 +22,14 @@ public class CurveData {
         System.out.println(countOfEqualElementsAtTheEnd + " equal elements at the end of the curve");
     }
 
-    static CurveData processCurve(String msqFileName, String loadSectionName, IniFileModel model, BufferedWriter w) throws IOException {
-        ArrayIniField field = (ArrayIniField) model.allIniFields.get(loadSectionName);
-        int curveSize = field.getRows();
-        BufferedReader r = TS2C.readAndScroll(msqFileName, loadSectionName + "\"");
-        float[] curve = new float[curveSize];
-        readAxle(curve, r);
+    static CurveData processCurve(MsqFile msq, String loadSectionName, IniFileModel model, BufferedWriter w) throws IOException {
+        float[] curve = msq.getArray(loadSectionName, model);
+        System.out.println("Got bins " + Arrays.toString(curve));
 
         CurveData curveData = new CurveData(curve);
 
 
-        w.write("static const float hardCoded" + loadSectionName + "[" + curveSize + "] = ");
+        w.write("static const float hardCoded" + loadSectionName + "[" + curve.length + "] = ");
         w.write(toString(curve));
         w.write(";\r\n\r\n");
         return curveData;
@@ -53,22 +48,6 @@ public class CurveData {
     }
 
 
-    private static void readAxle(float[] curve, BufferedReader r) throws IOException {
-        int index = 0;
-
-        while (index < curve.length) {
-            String line = r.readLine();
-            if (line == null)
-                throw new IOException("End of file?");
-            line = line.trim();
-            if (line.isEmpty())
-                continue;
-            curve[index++] = Float.parseFloat(line);
-        }
-
-        System.out.println("Got bins " + Arrays.toString(curve));
-    }
-
     public float[] getRawData() {
         return rawData;
     }
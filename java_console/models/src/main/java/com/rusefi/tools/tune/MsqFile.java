@@ -0,0 +1,228 @@
+package com.rusefi.tools.tune;
+
+import com.opensr5.ini.IniFileModel;
+import com.opensr5.ini.field.ArrayIniField;
+import com.opensr5.ini.field.IniField;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * All constants of a TunerStudio .msq tune, read in one streaming pass
+ * <p>
+ * Numeric values are kept as float arrays, array dimensions are checked against {@link IniFileModel} on access.
+ *
+ * @see TS2C
+ */
+public class MsqFile {
+    private static final String CONSTANT = "constant";
+    private static final String PC_VARIABLE = "pcVariable";
+    private static final String PAGE = "page";
+
+    private final Map<String, Constant> constants;
+    private final int pageSize;
+
+    private MsqFile(Map<String, Constant> constants, int pageSize) {
+        this.constants = constants;
+        this.pageSize = pageSize;
+    }
+
+    public static MsqFile read(String fileName) throws IOException {
+        System.out.println("Reading " + fileName);
+        try (InputStream is = new BufferedInputStream(new FileInputStream(fileName))) {
+            return read(is);
+        }
+    }
+
+    public static MsqFile read(InputStream is) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        Map<String, Constant> constants = new LinkedHashMap<>();
+        int pageSize = 0;
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(is);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT)
+                        continue;
+                    String element = reader.getLocalName();
+                    if (element.equals(PAGE)) {
+                        String size = reader.getAttributeValue(null, "size");
+                        if (size != null)
+                            pageSize = Integer.parseInt(size);
+                        continue;
+                    }
+                    if (!element.equals(CONSTANT) && !element.equals(PC_VARIABLE))
+                        continue;
+                    String name = reader.getAttributeValue(null, "name");
+                    int rows = parseDimension(reader.getAttributeValue(null, "rows"));
+                    int cols = parseDimension(reader.getAttributeValue(null, "cols"));
+                    String text = reader.getElementText().trim();
+                    constants.put(name, new Constant(name, rows, cols, text));
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        return new MsqFile(constants, pageSize);
+    }
+
+    private static int parseDimension(String value) {
+        return value == null ? 1 : Integer.parseInt(value);
+    }
+
+    /**
+     * @return size attribute of constants page, 0 if not specified
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return null if tune has no such constant
+     */
+    public Constant get(String name) {
+        return constants.get(name);
+    }
+
+    public Collection<Constant> getConstants() {
+        return Collections.unmodifiableCollection(constants.values());
+    }
+
+    /**
+     * @return all values of array constant, in file order
+     */
+    public float[] getArray(String name, IniFileModel model) {
+        ArrayIniField field = getArrayField(name, model);
+        Constant constant = getNumeric(name);
+        int expected = field.getRows() * field.getCols();
+        if (constant.values.length != expected)
+            throw new IllegalStateException(name + ": expected " + expected + " value(s) but got " + constant.values.length);
+        return toFloats(constant.values);
+    }
+
+    private static float[] toFloats(double[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++)
+            result[i] = (float) values[i];
+        return result;
+    }
+
+    /**
+     * @return [row][col] values of array constant
+     */
+    public float[][] getTable(String name, IniFileModel model) {
+        ArrayIniField field = getArrayField(name, model);
+        float[] values = getArray(name, model);
+        float[][] table = new float[field.getRows()][];
+        for (int row = 0; row < table.length; row++) {
+            table[row] = new float[field.getCols()];
+            System.arraycopy(values, row * field.getCols(), table[row], 0, field.getCols());
+        }
+        return table;
+    }
+
+    private static ArrayIniField getArrayField(String name, IniFileModel model) {
+        IniField field = model.allIniFields.get(name);
+        if (!(field instanceof ArrayIniField))
+            throw new IllegalStateException("Not an array in .ini: " + name);
+        return (ArrayIniField) field;
+    }
+
+    private Constant getNumeric(String name) {
+        Constant constant = constants.get(name);
+        if (constant == null)
+            throw new IllegalStateException("Not found in tune: " + name);
+        if (constant.values == null)
+            throw new IllegalStateException("Not numeric: " + name + " " + constant.text);
+        return constant;
+    }
+
+    public static class Constant {
+        private final String name;
+        private final int rows;
+        private final int cols;
+        private final String text;
+        /**
+         * null for string and bit values
+         */
+        private final double[] values;
+
+        Constant(String name, int rows, int cols, String text) {
+            this.name = name;
+            this.rows = rows;
+            this.cols = cols;
+            this.text = text;
+            values = parseValues(text);
+        }
+
+        private static double[] parseValues(String text) {
+            if (text.isEmpty() || text.startsWith("\""))
+                return null;
+            String[] tokens = text.split("\\s+");
+            double[] values = new double[tokens.length];
+            try {
+                for (int i = 0; i < tokens.length; i++)
+                    values[i] = Double.parseDouble(tokens[i]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            return values;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getCols() {
+            return cols;
+        }
+
+        /**
+         * @return trimmed element text, string values keep their quotes
+         */
+        public String getText() {
+            return text;
+        }
+
+        public boolean isNumeric() {
+            return values != null;
+        }
+
+        /**
+         * @return copy of numeric values, null unless {@link #isNumeric()}
+         */
+        public float[] getValues() {
+            return values == null ? null : toFloats(values);
+        }
+
+        /**
+         * @return numeric values without float rounding, null unless {@link #isNumeric()}
+         */
+        public double[] getDoubleValues() {
+            return values == null ? null : values.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "Constant{" +
+                    "name='" + name + '\'' +
+                    ", rows=" + rows +
+                    ", cols=" + cols +
+                    '}';
+        }
+    }
+}
@@ -22,14 +22,13 @@ public class TS2C {
     private CurveData loadBins;
     private CurveData rpmBins;
 
+    private final MsqFile msq;
+    private final IniFileModel model;
+
     /**
      * @see TS2CRunner
      */
     public static void main(String[] args) throws IOException {
-        new TS2C(args);
-    }
-
-    private TS2C(String[] args) throws IOException {
         System.out.println("This tool reads TS tune file and produces some C code for hardcoded base tunes");
         if (args.length != 3 && args.length != 4 && args.length != 5) {
             System.out.println("Three parameters expected: ");
@@ -44,8 +43,18 @@ public class TS2C {
         String rpmSectionName = args[2];
         String tableName = args.length == 3 ? "none" : args[3];
 
-        IniFileModel model = IniFileModel.getInstance();
+        new TS2C(MsqFile.read(msqFileName), IniFileModel.getInstance()).generate(loadSectionName, rpmSectionName, tableName);
+    }
 
+    /**
+     * @param msq tune which is read once and used for any number of {@link #generate} calls
+     */
+    public TS2C(MsqFile msq, IniFileModel model) {
+        this.msq = msq;
+        this.model = model;
+    }
+
+    public void generate(String loadSectionName, String rpmSectionName, String tableName) throws IOException {
         String methodName = tableName.equalsIgnoreCase("none") ? loadSectionName : tableName;
         methodName = methodName.toUpperCase().charAt(0) + methodName.substring(1);
 
@@ -53,11 +62,11 @@ public class TS2C {
 
 
         if (!loadSectionName.equalsIgnoreCase("none")) {
-            loadBins = CurveData.processCurve(msqFileName, loadSectionName, model, w);
+            loadBins = CurveData.processCurve(msq, loadSectionName, model, w);
         }
 
         if (!rpmSectionName.equalsIgnoreCase("none")) {
-            rpmBins = CurveData.processCurve(msqFileName, rpmSectionName, model, w);
+            rpmBins = CurveData.processCurve(msq, rpmSectionName, model, w);
         }
 
         if (!tableName.equalsIgnoreCase("none")) {
@@ -67,13 +76,9 @@ public class TS2C {
                 throw new UnsupportedOperationException("Not square table not supported yet");
             size = field.getRows();
 
-            float[][] table = new float[size][];
-            for (int i = 0; i < size; i++) {
-                table[i] = new float[size];
-            }
-
-            BufferedReader r = readAndScroll(msqFileName, tableName);
-            readTable(table, r);
+            float[][] table = msq.getTable(tableName, model);
+            for (int i = 0; i < size; i++)
+                System.out.println("Got line " + i + ": " + Arrays.toString(table[i]));
 
             w.write("static const float hardCoded" + tableName + "[" + size + "][" + size + "] = {\n");
 
@@ -102,24 +107,6 @@ public class TS2C {
             writeTableLine(valueSource, w, loadIndex);
     }
 
-    /**
-     * @param fileName       text file to open
-     * @param magicStringKey magic string content to scroll to
-     * @return Reader after the magicStringKey line
-     */
-    static BufferedReader readAndScroll(String fileName, String magicStringKey) throws IOException {
-        BufferedReader reader = new BufferedReader(new FileReader(fileName));
-        System.out.println("Reading from " + fileName + ", scrolling to " + magicStringKey);
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (line.contains(magicStringKey)) {
-                System.out.println("Found " + line);
-                break;
-            }
-        }
-        return reader;
-    }
-
     private void writeTableLine(ValueSource valueSource, BufferedWriter w, int loadIndex) throws IOException {
         StringBuilder sb = new StringBuilder("{");
 
@@ -136,32 +123,4 @@ public class TS2C {
         float getValue(int loadIndex, int rpmIndex);
     }
 
-    private void readTable(float[][] table, BufferedReader r) throws IOException {
-        int index = 0;
-
-        while (index < size) {
-            String line = r.readLine();
-            if (line == null)
-                throw new IOException("End of file?");
-            line = line.trim();
-            if (line.isEmpty())
-                continue;
-
-            String[] values = line.split("\\s");
-            if (values.length != size)
-                throw new IllegalStateException("Expected " + size + " but got " + Arrays.toString(values) + ". Unexpected line: " + line);
-
-            for (int i = 0; i < size; i++) {
-                String str = values[i];
-                try {
-                    table[index][i] = Float.parseFloat(str);
-                } catch (NumberFormatException e) {
-                    throw new IllegalStateException("While reading " + str, e);
-                }
-            }
-            System.out.println("Got line " + index + ": " + Arrays.toString(table[index]));
-            index++;
-        }
-    }
-
 }
@@ -1,30 +1,33 @@
 package com.rusefi.tools.tune;
 
+import com.opensr5.ini.IniFileModel;
+
 import java.io.IOException;
 
 public class TS2CRunner {
     public static void main(String[] args) throws IOException {
         String tuneFileName = "CurrentTune.msq";
 
+        // whole tune is parsed once for all tables
+        TS2C ts2c = new TS2C(MsqFile.read(tuneFileName), IniFileModel.getInstance());
 
+        ts2c.generate("mafDecodingBins", "mafDecoding", "none");
+        ts2c.generate("cltIdleRpmBins", "cltIdleRpm", "none");
+        ts2c.generate("cltIdleCorrBins", "cltIdleCorr", "none");
 
-        TS2C.main(new String[]{tuneFileName, "mafDecodingBins", "mafDecoding"});
-        TS2C.main(new String[]{tuneFileName, "cltIdleRpmBins", "cltIdleRpm"});
-        TS2C.main(new String[]{tuneFileName, "cltIdleCorrBins", "cltIdleCorr"});
-
-        TS2C.main(new String[]{tuneFileName, "etbBiasBins", "etbBiasValues"});
+        ts2c.generate("etbBiasBins", "etbBiasValues", "none");
 
-        TS2C.main(new String[]{tuneFileName, "crankingCycleBins", "crankingCycleCoef"});
-        TS2C.main(new String[]{tuneFileName, "crankingFuelBins", "crankingFuelCoef"});
+        ts2c.generate("crankingCycleBins", "crankingCycleCoef", "none");
+        ts2c.generate("crankingFuelBins", "crankingFuelCoef", "none");
 
-        TS2C.main(new String[]{tuneFileName, "iacCoastingBins", "iacCoasting"});
-        TS2C.main(new String[]{tuneFileName, "cltFuelCorrBins", "cltFuelCorr"});
+        ts2c.generate("iacCoastingBins", "iacCoasting", "none");
+        ts2c.generate("cltFuelCorrBins", "cltFuelCorr", "none");
 
-        TS2C.main(new String[]{tuneFileName, "veLoadBins", "veRpmBins", "veTable"});
-        TS2C.main(new String[]{tuneFileName, "ignitionLoadBins", "ignitionRpmBins", "ignitionTable"});
+        ts2c.generate("veLoadBins", "veRpmBins", "veTable");
+        ts2c.generate("ignitionLoadBins", "ignitionRpmBins", "ignitionTable");
 
-//        TS2C.main(new String[]{tuneFileName, "afrLoadBins", "afrRpmBins", "afrTable"});
-//        TS2C.main(new String[]{tuneFileName, "fuelLoadBins", "fuelRpmBins", "fuelTable"});
+//        ts2c.generate("afrLoadBins", "afrRpmBins", "afrTable");
+//        ts2c.generate("fuelLoadBins", "fuelRpmBins", "fuelTable");
 
     }
 }
@@ -0,0 +1,67 @@
+package com.rusefi.tracing;
+
+/**
+ * Constant memory histogram with logarithmic buckets, percentiles are accurate within {@link #GROWTH} relative error
+ */
+public class DurationHistogram {
+    /**
+     * anything below goes into first bucket
+     */
+    private static final double MIN_VALUE = 0.01;
+    private static final double GROWTH = 1.02;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+    /**
+     * last bucket starts at about 2.6 * 10^7
+     */
+    private static final int BUCKETS = 1100;
+
+    private final int[] counts = new int[BUCKETS];
+    private long count;
+    private double max;
+    private double total;
+
+    public void record(double value) {
+        counts[getBucket(value)]++;
+        count++;
+        total += value;
+        max = Math.max(max, value);
+    }
+
+    private static int getBucket(double value) {
+        if (value <= MIN_VALUE)
+            return 0;
+        return Math.min(BUCKETS - 1, 1 + (int) (Math.log(value / MIN_VALUE) / LOG_GROWTH));
+    }
+
+    private static double getUpperBound(int bucket) {
+        return MIN_VALUE * Math.pow(GROWTH, bucket);
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     */
+    public double getPercentile(double quantile) {
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(getUpperBound(i), max);
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+}
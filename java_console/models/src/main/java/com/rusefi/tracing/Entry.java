@@ -10,13 +10,15 @@ import java.util.List;
 import static com.rusefi.tracing.EnumNames.TypeNames;
 
 public class Entry {
-    // todo: maybe convert on firmware side so that CPU MHz are not accounted for on the java side?
-    private static final double MAGIC_NT = 168.0;
     private final String name;
     private final Phase phase;
     private final int isr;
     private final int thread;
-    private double timestampSeconds;
+    private final double timestampSeconds;
+
+    public interface EntryConsumer {
+        void onEntry(Entry entry) throws IOException;
+    }
 
     public Entry(String name, Phase phase, double timestampSeconds, int isr, int thread) {
         this.name = name;
@@ -60,63 +62,65 @@ public class Entry {
 
 
     public static List<Entry> parseBuffer(byte[] packet) {
+        return parseBuffer(packet, TraceCapture.LEGACY_TICKS_PER_US);
+    }
+
+    public static List<Entry> parseBuffer(byte[] packet, double ticksPerUs) {
         List<Entry> result = new ArrayList<>();
-        double minValue = Double.MAX_VALUE;
         try {
             DataInputStream is = new DataInputStream(new ByteArrayInputStream(packet));
             is.readByte(); // skip TS result code
-            int firstTimeStamp = 0;
-            for (int i = 0; i < packet.length - 1; i += 8) {
-                byte type = is.readByte();
-                byte phase = is.readByte();
-                byte isr = is.readByte();
-                byte thread = is.readByte();
-
-                int timestampNt = readInt(is);
-                if (i == 0) {
-                    firstTimeStamp = timestampNt;
-                } else {
-                    if (timestampNt < firstTimeStamp) {
-                        System.out.println("Dropping the remainder of the packet at " + i + " due to "
-                                + timestampNt + " below " + firstTimeStamp);
-                        break;
-                    }
-                }
-
-
-                double timestampSeconds = timestampNt / MAGIC_NT;
-                minValue = Math.min(minValue, timestampSeconds);
-                String name;
-                if (type == 1) {
-                    name = "ISR: " + thread;
-                }
-                else
-                {
-                    name = TypeNames[type];
-                }
-
-                Entry e = new Entry(name, Phase.decode(phase), timestampSeconds, isr, thread);
-                result.add(e);
-            }
-
-            for (Entry e : result)
-                e.adjustTimestamp(minValue);
-
-
+            decode(is, packet.length - 1, ticksPerUs, result::add);
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
         return result;
     }
 
-    private void adjustTimestamp(double minValue) {
-        timestampSeconds -= minValue;
-    }
+    /**
+     * Decodes entries one by one without holding whole buffer in memory, timestamps are relative to first entry
+     *
+     * @param size number of bytes with entries
+     * @param ticksPerUs rate of firmware timestamp counter, see {@link TraceCapture}
+     */
+    public static void decode(DataInputStream is, int size, double ticksPerUs, EntryConsumer consumer) throws IOException {
+        int firstTimeStamp = 0;
+        double firstTimestampSeconds = 0;
+        for (int i = 0; i < size; i += 8) {
+            byte type = is.readByte();
+            byte phase = is.readByte();
+            byte isr = is.readByte();
+            byte thread = is.readByte();
+
+            int timestampNt = readInt(is);
+            if (i == 0) {
+                firstTimeStamp = timestampNt;
+                firstTimestampSeconds = timestampNt / ticksPerUs;
+            } else {
+                if (timestampNt < firstTimeStamp) {
+                    System.out.println("Dropping the remainder of the packet at " + i + " due to "
+                            + timestampNt + " below " + firstTimeStamp);
+                    break;
+                }
+            }
 
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
+            String name;
+            if (type == 1) {
+                name = "ISR: " + thread;
+            }
+            else
+            {
+                name = TypeNames[type];
+            }
+
+            consumer.onEntry(new Entry(name, Phase.decode(phase), timestampNt / ticksPerUs - firstTimestampSeconds, isr, thread));
+        }
+    }
 
+    /**
+     * @param offset added to timestamp, for several captures within one file
+     */
+    public void appendJson(StringBuilder sb, double offset) {
         sb.append("{");
         AppendKeyValuePair(sb, "name", name);
 
@@ -127,9 +131,34 @@ public class Entry {
         sb.append(",");
         AppendKeyValuePair(sb, "pid", isr);
         sb.append(",");
-        AppendKeyValuePair(sb, "ts", timestampSeconds);
+        AppendKeyValuePair(sb, "ts", timestampSeconds + offset);
         sb.append("}");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
 
+    public int getIsr() {
+        return isr;
+    }
+
+    public int getThread() {
+        return thread;
+    }
+
+    public double getTimestampSeconds() {
+        return timestampSeconds;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendJson(sb, 0);
         return sb.toString();
     }
 }
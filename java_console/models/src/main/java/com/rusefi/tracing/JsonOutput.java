@@ -4,8 +4,6 @@ import com.rusefi.PerfTraceTool;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.util.List;
 
 /**
@@ -21,7 +19,7 @@ public class JsonOutput {
      * those set thread names and sort index based on those thread IDs
      * (those process IDs are interrupt numbers, and the name is the name of the interrupt handler)
      */
-    private static final String FORMATTING_SETTINGS =
+    static final String FORMATTING_SETTINGS =
             "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":-16,\"tid\":0,\"args\":{\"name\":\"Main\"}}," +
             "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":-1,\"tid\":0,\"args\":{\"name\":\"SysTick\"}}," +
             "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":18,\"tid\":0,\"args\":{\"name\":\"ADC\"}}," +
@@ -40,21 +38,15 @@ public class JsonOutput {
             "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":60,\"tid\":0,\"args\":{\"name\":\"DMA2s4\"}}," +
             "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":67,\"tid\":0,\"args\":{\"name\":\"USB\"}}"
             ;
-    private static final String EOL = "\n";
+    static final String EOL = "\n";
 
+    /**
+     * @see JsonTraceWriter for streaming version
+     */
     public static void writeToStream(List<Entry> testEntries, OutputStream outputStream) throws IOException {
-
-        Writer out = new OutputStreamWriter(outputStream);
-        out.write("{\"traceEvents\": [" + EOL);
-
-        out.write(FORMATTING_SETTINGS + EOL);
-
-        for (Entry e : testEntries) {
-            out.write(",");
-            out.write(e.toString() + EOL);
+        try (JsonTraceWriter writer = new JsonTraceWriter(outputStream)) {
+            for (Entry e : testEntries)
+                writer.write(e);
         }
-
-        out.write("]}");
-        out.close();
     }
 }
@@ -0,0 +1,80 @@
+package com.rusefi.tracing;
+
+import java.io.*;
+import java.util.zip.GZIPOutputStream;
+
+import static com.rusefi.tracing.JsonOutput.EOL;
+import static com.rusefi.tracing.JsonOutput.FORMATTING_SETTINGS;
+
+/**
+ * Streaming version of {@link JsonOutput}: entries are written as soon as they are decoded so memory usage does not
+ * depend on trace size, and any number of captures could be appended into one session file.
+ */
+public class JsonTraceWriter implements Closeable {
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * captures within one file are placed one after another with this gap, in trace time units
+     */
+    static final double CAPTURE_GAP = 1000;
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder();
+
+    private int capturesCount;
+    private int entriesCount;
+    private double offset;
+    private double lastTimestamp;
+
+    public JsonTraceWriter(OutputStream outputStream) throws IOException {
+        out = new BufferedWriter(new OutputStreamWriter(outputStream), BUFFER_SIZE);
+        out.write("{\"traceEvents\": [" + EOL);
+
+        out.write(FORMATTING_SETTINGS + EOL);
+    }
+
+    /**
+     * @param fileName output is gzip-compressed if name ends with .gz
+     */
+    public static JsonTraceWriter create(String fileName) throws IOException {
+        OutputStream stream = new FileOutputStream(fileName);
+        if (fileName.endsWith(GZIP_SUFFIX))
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        return new JsonTraceWriter(stream);
+    }
+
+    public void write(Entry e) throws IOException {
+        line.setLength(0);
+        line.append(',');
+        e.appendJson(line, offset);
+        line.append(EOL);
+        out.append(line);
+        lastTimestamp = Math.max(lastTimestamp, e.getTimestampSeconds() + offset);
+        entriesCount++;
+    }
+
+    /**
+     * @return number of entries written
+     */
+    public int appendCapture(TraceCapture capture) throws IOException {
+        offset = capturesCount == 0 ? 0 : lastTimestamp + CAPTURE_GAP;
+        capturesCount++;
+        int before = entriesCount;
+        capture.decode(this::write);
+        return entriesCount - before;
+    }
+
+    public int getCapturesCount() {
+        return capturesCount;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.write("]}");
+        out.close();
+    }
+}
@@ -0,0 +1,65 @@
+package com.rusefi.tracing;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * One perf trace buffer together with the rate of the counter which produced its timestamps.
+ * <p>
+ * Firmware reports tick rate in response to TS_PERF_TRACE_BEGIN, for targets which do not the rate could be
+ * specified via {@link #TICKS_PER_US_PROPERTY} system property.
+ */
+public class TraceCapture {
+    /**
+     * Firmware used to not report tick rate, those were 168MHz F4 boards
+     */
+    public static final double LEGACY_TICKS_PER_US = 168.0;
+    /**
+     * Overrides whatever firmware reports, for example '-Dperf_trace.ticks_per_us=216' for older F7 firmware
+     */
+    public static final String TICKS_PER_US_PROPERTY = "perf_trace.ticks_per_us";
+
+    private final byte[] packet;
+    private final double ticksPerUs;
+
+    /**
+     * @param packet TS_PERF_TRACE_GET_BUFFER response including result code
+     */
+    public TraceCapture(byte[] packet, double ticksPerUs) {
+        this.packet = packet;
+        this.ticksPerUs = ticksPerUs;
+    }
+
+    /**
+     * @param beginResponse TS_PERF_TRACE_BEGIN response: result code optionally followed by little endian tick rate in Hz
+     */
+    public static double getTicksPerUs(byte[] beginResponse) {
+        String override = System.getProperty(TICKS_PER_US_PROPERTY);
+        if (override != null)
+            return Double.parseDouble(override);
+        if (beginResponse == null || beginResponse.length < 5)
+            return LEGACY_TICKS_PER_US;
+        int tickRateHz = (beginResponse[1] & 0xFF)
+                | (beginResponse[2] & 0xFF) << 8
+                | (beginResponse[3] & 0xFF) << 16
+                | (beginResponse[4] & 0xFF) << 24;
+        if (tickRateHz <= 0)
+            return LEGACY_TICKS_PER_US;
+        return tickRateHz / 1e6;
+    }
+
+    public byte[] getPacket() {
+        return packet;
+    }
+
+    public double getTicksPerUs() {
+        return ticksPerUs;
+    }
+
+    public void decode(Entry.EntryConsumer consumer) throws IOException {
+        DataInputStream is = new DataInputStream(new ByteArrayInputStream(packet));
+        is.readByte(); // skip TS result code
+        Entry.decode(is, packet.length - 1, ticksPerUs, consumer);
+    }
+}
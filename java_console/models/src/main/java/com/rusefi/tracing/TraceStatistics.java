@@ -0,0 +1,149 @@
+package com.rusefi.tracing;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates begin/end pairs from any number of perf trace captures into per-event duration histograms. Memory usage
+ * depends on the number of distinct event names and ISR/thread contexts, not on the number of captures.
+ * <p>
+ * Durations are in trace time units, same as in Chrome trace files.
+ */
+public class TraceStatistics implements Entry.EntryConsumer {
+    /**
+     * IsrId reported by firmware when running in thread mode, see perf_trace.cpp
+     */
+    static final int THREAD_MODE = -16;
+    private static final int MAX_DEPTH = 64;
+
+    public static class EventStatistics {
+        private final String name;
+        private final DurationHistogram histogram = new DurationHistogram();
+        private double isrTime;
+
+        private EventStatistics(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DurationHistogram getHistogram() {
+            return histogram;
+        }
+
+        /**
+         * @return share of total time spent in interrupt handlers, from 0 to 1
+         */
+        public double getIsrShare() {
+            double total = histogram.getTotal();
+            return total == 0 ? 0 : isrTime / total;
+        }
+    }
+
+    /**
+     * Begin events still waiting for their end, one stack per ISR/thread
+     */
+    private static class Context {
+        private final String[] names = new String[MAX_DEPTH];
+        private final double[] starts = new double[MAX_DEPTH];
+        private int depth;
+    }
+
+    private final Map<String, EventStatistics> events = new HashMap<>();
+    private final Map<Integer, Context> contexts = new HashMap<>();
+    private int capturesCount;
+    private long unmatchedCount;
+
+    /**
+     * Events which began in previous capture would never end
+     */
+    public void startCapture() {
+        for (Context context : contexts.values())
+            context.depth = 0;
+        capturesCount++;
+    }
+
+    @Override
+    public void onEntry(Entry entry) {
+        if (entry.getPhase() == Phase.i)
+            return;
+        int key = ((entry.getIsr() & 0xFF) << 8) | (entry.getThread() & 0xFF);
+        Context context = contexts.computeIfAbsent(key, k -> new Context());
+
+        if (entry.getPhase() == Phase.B) {
+            if (context.depth == MAX_DEPTH) {
+                unmatchedCount++;
+                return;
+            }
+            context.names[context.depth] = entry.getName();
+            context.starts[context.depth] = entry.getTimestampSeconds();
+            context.depth++;
+            return;
+        }
+
+        if (context.depth == 0 || !context.names[context.depth - 1].equals(entry.getName())) {
+            // began before capture or something was lost
+            unmatchedCount++;
+            return;
+        }
+        context.depth--;
+        double duration = entry.getTimestampSeconds() - context.starts[context.depth];
+        EventStatistics statistics = events.computeIfAbsent(entry.getName(), EventStatistics::new);
+        statistics.histogram.record(duration);
+        if (entry.getIsr() != THREAD_MODE)
+            statistics.isrTime += duration;
+    }
+
+    public int getCapturesCount() {
+        return capturesCount;
+    }
+
+    public long getUnmatchedCount() {
+        return unmatchedCount;
+    }
+
+    public EventStatistics get(String name) {
+        return events.get(name);
+    }
+
+    /**
+     * @return statistics sorted by total time, biggest first
+     */
+    public List<EventStatistics> getSortedByTotal() {
+        List<EventStatistics> result = new ArrayList<>(events.values());
+        result.sort((o1, o2) -> Double.compare(o2.histogram.getTotal(), o1.histogram.getTotal()));
+        return result;
+    }
+
+    public String getReport(int limit) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d capture(s), %d unmatched%n", capturesCount, unmatchedCount));
+        sb.append(String.format("%-45s %9s %10s %10s %10s %12s %5s%n", "event", "count", "p50", "p99", "max", "total", "isr%"));
+        List<EventStatistics> sorted = getSortedByTotal();
+        for (int i = 0; i < Math.min(limit, sorted.size()); i++) {
+            EventStatistics e = sorted.get(i);
+            DurationHistogram h = e.histogram;
+            sb.append(String.format("%-45s %9d %10.2f %10.2f %10.2f %12.1f %5.1f%n", e.name, h.getCount(),
+                    h.getPercentile(0.5), h.getPercentile(0.99), h.getMax(), h.getTotal(), 100 * e.getIsrShare()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compact CSV summary
+     */
+    public void writeSummary(Writer writer) throws IOException {
+        writer.write("event,count,p50,p99,max,total,isrShare\n");
+        for (EventStatistics e : getSortedByTotal()) {
+            DurationHistogram h = e.histogram;
+            writer.write(e.name + "," + h.getCount() + "," + h.getPercentile(0.5) + "," + h.getPercentile(0.99) + ","
+                    + h.getMax() + "," + h.getTotal() + "," + e.getIsrShare() + "\n");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.rusefi.waves;
+
+import java.util.Arrays;
+
+import static com.rusefi.config.generated.Fields.PROTOCOL_ES_DOWN;
+import static com.rusefi.config.generated.Fields.PROTOCOL_ES_UP;
+
+/**
+ * Events of one Engine Sniffer channel kept in parallel primitive arrays, one entry per event in chart order
+ * <p>
+ * For {@link #UP} and {@link #DOWN} events index is trigger cycle index or -1, for {@link #OTHER} events index is
+ * numeric signal value, for example RPM of {@link com.rusefi.config.generated.Fields#TOP_DEAD_CENTER_MESSAGE}
+ *
+ * @see EngineChartParser#decode(CharSequence)
+ */
+public class ChannelEvents {
+    public static final byte DOWN = 0;
+    public static final byte UP = 1;
+    public static final byte OTHER = 2;
+
+    private final String name;
+    private int size;
+    private int[] times = new int[16];
+    private byte[] states = new byte[16];
+    private int[] indices = new int[16];
+
+    public ChannelEvents(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void add(int time, byte state, int index) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            states = Arrays.copyOf(states, capacity);
+            indices = Arrays.copyOf(indices, capacity);
+        }
+        times[size] = time;
+        states[size] = state;
+        indices[size] = index;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTime(int i) {
+        return times[i];
+    }
+
+    public byte getState(int i) {
+        return states[i];
+    }
+
+    public int getIndex(int i) {
+        return indices[i];
+    }
+
+    /**
+     * @return events in "signal!time!" text form as sent by firmware
+     */
+    public StringBuilder toText() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (states[i] == OTHER) {
+                sb.append(indices[i]);
+            } else {
+                sb.append(states[i] == UP ? PROTOCOL_ES_UP : PROTOCOL_ES_DOWN);
+                if (indices[i] != -1)
+                    sb.append('_').append(indices[i]);
+            }
+            sb.append(EngineChartParser.DELI).append(times[i]).append(EngineChartParser.DELI);
+        }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelEvents{" +
+                "name='" + name + '\'' +
+                ", size=" + size +
+                '}';
+    }
+}
@@ -3,6 +3,7 @@ package com.rusefi.waves;
 import com.rusefi.config.generated.Fields;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A collection of {@link EngineReport}
@@ -32,29 +33,42 @@ public class EngineChart {
     public static final String TRIGGER_2 = "t2";
     public static final String MAP_AVERAGING = "map";
 
-    public final Map<String, StringBuilder> map;
+    private final Map<String, ChannelEvents> channels;
 
-    public EngineChart(Map<String, StringBuilder> map) {
-        this.map = map;
+    public EngineChart(Map<String, ChannelEvents> channels) {
+        this.channels = channels;
     }
 
     public RevolutionLog getRevolutionsLog() {
-        StringBuilder revolutions = get(Fields.TOP_DEAD_CENTER_MESSAGE);
-        return RevolutionLog.parseRevolutions(revolutions);
+        return RevolutionLog.fromEvents(getEvents(Fields.TOP_DEAD_CENTER_MESSAGE));
     }
 
+    /**
+     * @return channel events in text form, null if no such channel
+     */
     public StringBuilder get(String key) {
-        return map.get(key);
+        ChannelEvents events = channels.get(key);
+        return events == null ? null : events.toText();
+    }
+
+    /**
+     * @return null if no such channel
+     */
+    public ChannelEvents getEvents(String key) {
+        return channels.get(key);
     }
 
     @Override
     public String toString() {
         return "EngineChart{" +
-                "size=" + map.size() +
+                "size=" + channels.size() +
                 '}';
     }
 
-    public Map<String, StringBuilder> getMap() {
-        return map;
+    /**
+     * @return channel names in order of first appearance
+     */
+    public Set<String> getChannelNames() {
+        return channels.keySet();
     }
 }
@@ -1,6 +1,8 @@
 package com.rusefi.waves;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -9,34 +11,142 @@ import java.util.Map;
  */
 public class EngineChartParser {
     public static final String DELI = "!";
+    private static final char DELI_CHAR = '!';
+    private static final long INVALID = Long.MIN_VALUE;
 
     /**
      * This method unpacks a mixed-key message into a Map of messages by key
+     *
+     * @see #decode(CharSequence)
      */
     public static EngineChart unpackToMap(String value) {
+        return decode(value);
+    }
+
+    /**
+     * Single pass over "name!signal!time!" triples straight into per-channel {@link ChannelEvents} arrays, no
+     * intermediate strings are created except one name per channel. Events with malformed signal or time are dropped.
+     */
+    public static EngineChart decode(CharSequence value) {
         if (value == null)
             throw new NullPointerException("value");
 
-        String[] array = value.split(DELI);
+        Map<String, ChannelEvents> channels = new LinkedHashMap<>();
+        List<ChannelEvents> lookup = new ArrayList<>();
 
-        Map<String, StringBuilder> map = new HashMap<>();
-
-        int index = 0;
-        while (index + 2 < array.length) {
-            String name = array[index];
+        int length = value.length();
+        int position = 0;
+        while (position < length) {
+            int nameEnd = tokenEnd(value, position);
+            int signalEnd = nameEnd < length ? tokenEnd(value, nameEnd + 1) : length;
+            if (signalEnd >= length)
+                break;
+            int timeEnd = tokenEnd(value, signalEnd + 1);
+            if (timeEnd == signalEnd + 1 && timeEnd >= length) {
+                // incomplete triple at the end
+                break;
+            }
 
-            StringBuilder sb = map.get(name);
-            if (sb == null) {
-                sb = new StringBuilder();
-                map.put(name, sb);
+            ChannelEvents channel = findChannel(lookup, value, position, nameEnd);
+            if (channel == null) {
+                String name = value.subSequence(position, nameEnd).toString();
+                channel = new ChannelEvents(name);
+                lookup.add(channel);
+                channels.put(name, channel);
             }
+            addEvent(channel, value, nameEnd + 1, signalEnd, signalEnd + 1, timeEnd);
+            position = timeEnd + 1;
+        }
+        return new EngineChart(channels);
+    }
 
-            String signal = array[index + 1];
-            String val = array[index + 2];
+    /**
+     * Decodes single channel "signal!time!" text
+     */
+    public static ChannelEvents decodeChannel(String name, CharSequence report) {
+        ChannelEvents channel = new ChannelEvents(name);
+        int length = report.length();
+        int position = 0;
+        while (position < length) {
+            int signalEnd = tokenEnd(report, position);
+            if (signalEnd >= length)
+                break;
+            int timeEnd = tokenEnd(report, signalEnd + 1);
+            addEvent(channel, report, position, signalEnd, signalEnd + 1, timeEnd);
+            position = timeEnd + 1;
+        }
+        return channel;
+    }
 
-            sb.append(signal).append(DELI).append(val).append(DELI);
-            index += 3;
+    private static int tokenEnd(CharSequence value, int from) {
+        int length = value.length();
+        for (int i = from; i < length; i++) {
+            if (value.charAt(i) == DELI_CHAR)
+                return i;
+        }
+        return length;
+    }
+
+    private static ChannelEvents findChannel(List<ChannelEvents> lookup, CharSequence value, int start, int end) {
+        for (int i = 0; i < lookup.size(); i++) {
+            ChannelEvents channel = lookup.get(i);
+            if (regionEquals(channel.getName(), value, start, end))
+                return channel;
+        }
+        return null;
+    }
+
+    private static boolean regionEquals(String name, CharSequence value, int start, int end) {
+        if (name.length() != end - start)
+            return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != value.charAt(start + i))
+                return false;
+        }
+        return true;
+    }
+
+    private static void addEvent(ChannelEvents channel, CharSequence value, int signalStart, int signalEnd, int timeStart, int timeEnd) {
+        long time = parseInt(value, timeStart, timeEnd);
+        if (time == INVALID || signalStart == signalEnd)
+            return;
+
+        char first = value.charAt(signalStart);
+        byte state;
+        long index;
+        if (first == 'u' || first == 'd') {
+            state = first == 'u' ? ChannelEvents.UP : ChannelEvents.DOWN;
+            int underscore = signalStart;
+            while (underscore < signalEnd && value.charAt(underscore) != '_')
+                underscore++;
+            index = underscore == signalEnd ? -1 : parseInt(value, underscore + 1, signalEnd);
+        } else {
+            state = ChannelEvents.OTHER;
+            index = parseInt(value, signalStart, signalEnd);
+        }
+        if (index == INVALID)
+            return;
+        channel.add((int) time, state, (int) index);
+    }
+
+    /**
+     * @return {@link #INVALID} unless [start, end) range is a decimal int
+     */
+    static long parseInt(CharSequence value, int start, int end) {
+        boolean negative = start < end && value.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end)
+            return INVALID;
+        long result = 0;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9')
+                return INVALID;
+            result = result * 10 + (c - '0');
+            if (result > Integer.MAX_VALUE + 1L)
+                return INVALID;
         }
-        return new EngineChart(map);
+        result = negative ? -result : result;
+        return result > Integer.MAX_VALUE ? INVALID : result;
     }
 }
@@ -4,13 +4,9 @@ import com.rusefi.config.generated.Fields;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
-import static com.rusefi.config.generated.Fields.PROTOCOL_ES_DOWN;
-import static com.rusefi.config.generated.Fields.PROTOCOL_ES_UP;
-
 /**
  * A model of a digital signal represented as a sequence of {@link UpDown}
  *
@@ -28,7 +24,23 @@ public class EngineReport {
     public static final double ENGINE_SNIFFER_TICKS_PER_MS = 1000.0 / Fields.ENGINE_SNIFFER_UNIT_US;
     public static final double RATIO = 0.05;
 
-    private final List<UpDown> list;
+    private final int size;
+    /**
+     * times in Engine Sniffer ticks, trigger cycle indices are -1 for non-trigger channels
+     */
+    private final int[] upTimes;
+    private final int[] upIndices;
+    private final int[] downTimes;
+    private final int[] downIndices;
+    /**
+     * null unless gaps were provided by {@link UpDown} list
+     */
+    private final double[] prevGaps;
+    private final double[] gaps;
+    /**
+     * lazily created view for {@link #getList()}
+     */
+    private List<UpDown> list;
     private int maxTime;
     /**
      * min timestamp on this chart, in Engine Sniffer ticks
@@ -36,11 +48,47 @@ public class EngineReport {
     private int minTime;
 
     public EngineReport(String report) {
-        this(parse(report));
+        this(EngineChartParser.decodeChannel("", report));
+    }
+
+    /**
+     * Pairs each up event with down event which immediately follows it, other events are ignored
+     */
+    public EngineReport(ChannelEvents events) {
+        int capacity = events.size() / 2;
+        int[] upTimes = new int[capacity];
+        int[] upIndices = new int[capacity];
+        int[] downTimes = new int[capacity];
+        int[] downIndices = new int[capacity];
+        int count = 0;
+        int i = 0;
+        while (i + 1 < events.size()) {
+            if (events.getState(i) != ChannelEvents.UP || events.getState(i + 1) != ChannelEvents.DOWN) {
+                i++;
+                continue;
+            }
+            upTimes[count] = events.getTime(i);
+            upIndices[count] = events.getIndex(i);
+            downTimes[count] = events.getTime(i + 1);
+            downIndices[count] = events.getIndex(i + 1);
+            count++;
+            i += 2;
+        }
+        this.size = count;
+        this.upTimes = upTimes;
+        this.upIndices = upIndices;
+        this.downTimes = downTimes;
+        this.downIndices = downIndices;
+        prevGaps = null;
+        gaps = null;
+        if (size > 0) {
+            minTime = upTimes[0];
+            maxTime = downTimes[size - 1];
+        }
     }
 
     public EngineReport(List<UpDown> list) {
-        this.list = list;
+        this(list, 0, 0);
         if (!list.isEmpty()) {
             minTime = list.get(0).upTime;
             maxTime = list.get(list.size() - 1).downTime;
@@ -49,6 +97,22 @@ public class EngineReport {
 
     public EngineReport(List<UpDown> list, int minTime, int maxTime) {
         this.list = list;
+        size = list.size();
+        upTimes = new int[size];
+        upIndices = new int[size];
+        downTimes = new int[size];
+        downIndices = new int[size];
+        prevGaps = new double[size];
+        gaps = new double[size];
+        for (int i = 0; i < size; i++) {
+            UpDown upDown = list.get(i);
+            upTimes[i] = upDown.upTime;
+            upIndices[i] = upDown.upTriggerCycleIndex;
+            downTimes[i] = upDown.downTime;
+            downIndices[i] = upDown.downTriggerCycleIndex;
+            prevGaps[i] = upDown.prevGap;
+            gaps[i] = upDown.gap;
+        }
         this.minTime = minTime;
         this.maxTime = maxTime;
     }
@@ -64,10 +128,69 @@ public class EngineReport {
         return Math.abs(1 - ratio) < th;
     }
 
-    public List<UpDown> getList() {
+    /**
+     * Array accessors below are preferred on hot paths, this list is created on first use
+     */
+    public synchronized List<UpDown> getList() {
+        if (list == null) {
+            List<UpDown> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++)
+                result.add(new UpDown(upTimes[i], upIndices[i], downTimes[i], downIndices[i], getPrevGap(i), getGap(i)));
+            list = result;
+        }
         return list;
     }
 
+    /**
+     * @return number of up/down pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getUpTime(int i) {
+        return upTimes[i];
+    }
+
+    public int getDownTime(int i) {
+        return downTimes[i];
+    }
+
+    public int getUpIndex(int i) {
+        return upIndices[i];
+    }
+
+    public int getDownIndex(int i) {
+        return downIndices[i];
+    }
+
+    public double getPrevGap(int i) {
+        return prevGaps == null ? Double.NaN : prevGaps[i];
+    }
+
+    public double getGap(int i) {
+        return gaps == null ? Double.NaN : gaps[i];
+    }
+
+    public int getDuration(int i) {
+        return downTimes[i] - upTimes[i];
+    }
+
+    /**
+     * @see RevolutionLog#getCrankAnglesByTime(int[], int)
+     */
+    public double[] getUpAngles(RevolutionLog revolutions) {
+        return revolutions.getCrankAnglesByTime(upTimes, size);
+    }
+
+    public double[] getDownAngles(RevolutionLog revolutions) {
+        return revolutions.getCrankAnglesByTime(downTimes, size);
+    }
+
     private final TimeAxisTranslator timeAxisTranslator = new TimeAxisTranslator() {
         @Override
         public int getMaxTime() {
@@ -103,46 +226,11 @@ public class EngineReport {
     }
 
     /**
-     * @see EngineChartParser#unpackToMap(String)
+     * @see EngineChartParser#decodeChannel(String, CharSequence)
      */
     @NotNull
     public static List<UpDown> parse(String report) {
-        String[] array = report.split("!");
-
-        List<UpDown> times = new ArrayList<>();
-
-        int index = 0;
-        if (array[0].equals(PROTOCOL_ES_DOWN))
-            index += 2;
-
-        while (index + 3 < array.length) {
-            if (!array[index].startsWith(PROTOCOL_ES_UP)) {
-                index += 2;
-                continue;
-            }
-            if (!array[index + 2].startsWith(PROTOCOL_ES_DOWN)) {
-                index += 2;
-                continue;
-            }
-
-            String[] upString = array[index].split("_");
-            String[] downString = array[index + 2].split("_");
-            try {
-                int upTime = Integer.parseInt(array[index + 1]);
-                int downTime = Integer.parseInt(array[index + 3]);
-
-                int upEventIndex = upString.length > 1 ? Integer.parseInt(upString[1]) : -1;
-                int downEventIndex = downString.length > 1 ? Integer.parseInt(downString[1]) : -1;
-
-
-                times.add(new UpDown(upTime, upEventIndex, downTime, downEventIndex, Double.NaN, Double.NaN));
-            } catch (NumberFormatException e) {
-                System.err.println("Invalid? [" + Arrays.toString(upString) + "][" + Arrays.toString(downString) + "]");
-            }
-
-            index += 4;
-        }
-        return times;
+        return new EngineReport(report).getList();
     }
 
     /**
@@ -155,7 +243,7 @@ public class EngineReport {
     @Override
     public String toString() {
         return "EngineReport{" +
-                "size=" + list.size() +
+                "size=" + size +
                 ", maxTime=" + maxTime +
                 ", minTime=" + minTime +
                 '}';
@@ -5,32 +5,109 @@ import java.util.*;
 import static com.rusefi.models.Utils.parseIntWithReason;
 
 /**
+ * Revolution start times with RPM at each start, kept in sorted primitive arrays so that angle lookup is a binary
+ * search and angles for a sorted batch of timestamps are a single merge walk
+ * <p>
  * 1/11/14.
  * Andrey Belomutskiy, (c) 2013-2020
  */
 public class RevolutionLog {
-    private final TreeMap<Integer, Integer> time2rpm;
+    /**
+     * strictly ascending revolution start times, in Engine Sniffer ticks
+     */
+    private final int[] times;
+    private final int[] rpms;
+    /**
+     * duration of one revolution at given RPM, in Engine Sniffer ticks
+     */
+    private final double[] periods;
 
     public RevolutionLog(TreeMap<Integer, Integer> time2rpm) {
-        this.time2rpm = time2rpm;
+        this(toTimes(time2rpm), toRpms(time2rpm), time2rpm.size());
+    }
+
+    private RevolutionLog(int[] times, int[] rpms, int size) {
+        this.times = Arrays.copyOf(times, size);
+        this.rpms = Arrays.copyOf(rpms, size);
+        periods = new double[size];
+        for (int i = 0; i < size; i++)
+            periods[i] = 60000 * EngineReport.ENGINE_SNIFFER_TICKS_PER_MS / rpms[i];
     }
 
     public static RevolutionLog parseRevolutions(CharSequence revolutions) {
-        TreeMap<Integer, Integer> time2rpm = new TreeMap<>();
         if (revolutions == null)
-            return new RevolutionLog(time2rpm);
+            return new RevolutionLog(new int[0], new int[0], 0);
 
         String[] r = revolutions.toString().split("!");
-        for (int i = 0; i < r.length - 1; i += 2) {
-            int rpm = parseIntWithReason(r[i], "RL rpm");
-            int time = parseIntWithReason(r[i + 1], "RL time");
-            time2rpm.put(time, rpm);
+        int count = r.length / 2;
+        int[] times = new int[count];
+        int[] rpms = new int[count];
+        for (int i = 0; i < count; i++) {
+            rpms[i] = parseIntWithReason(r[2 * i], "RL rpm");
+            times[i] = parseIntWithReason(r[2 * i + 1], "RL time");
+        }
+        return create(times, rpms, count);
+    }
+
+    /**
+     * @param revolutions {@link com.rusefi.config.generated.Fields#TOP_DEAD_CENTER_MESSAGE} channel, null for empty log
+     */
+    public static RevolutionLog fromEvents(ChannelEvents revolutions) {
+        int count = revolutions == null ? 0 : revolutions.size();
+        int[] times = new int[count];
+        int[] rpms = new int[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = revolutions.getTime(i);
+            rpms[i] = revolutions.getIndex(i);
         }
-        return new RevolutionLog(time2rpm);
+        return create(times, rpms, count);
+    }
+
+    /**
+     * Firmware sends revolutions in time order, anything else goes through a map to sort and drop duplicate times
+     * with last one winning
+     */
+    private static RevolutionLog create(int[] times, int[] rpms, int count) {
+        for (int i = 1; i < count; i++) {
+            if (times[i] <= times[i - 1]) {
+                TreeMap<Integer, Integer> time2rpm = new TreeMap<>();
+                for (int j = 0; j < count; j++)
+                    time2rpm.put(times[j], rpms[j]);
+                return new RevolutionLog(time2rpm);
+            }
+        }
+        return new RevolutionLog(times, rpms, count);
+    }
+
+    private static int[] toTimes(TreeMap<Integer, Integer> time2rpm) {
+        int[] result = new int[time2rpm.size()];
+        int i = 0;
+        for (Integer time : time2rpm.keySet())
+            result[i++] = time;
+        return result;
+    }
+
+    private static int[] toRpms(TreeMap<Integer, Integer> time2rpm) {
+        int[] result = new int[time2rpm.size()];
+        int i = 0;
+        for (Integer rpm : time2rpm.values())
+            result[i++] = rpm;
+        return result;
     }
 
     public int getSize() {
-        return time2rpm.size();
+        return times.length;
+    }
+
+    /**
+     * @return start time of revolution i, in Engine Sniffer ticks
+     */
+    public int getTime(int i) {
+        return times[i];
+    }
+
+    public int getRpm(int i) {
+        return rpms[i];
     }
 
     public String getCrankAngleByTimeString(double time) {
@@ -42,38 +119,72 @@ public class RevolutionLog {
     }
 
     public double getCrankAngleByTime(double time) {
-        return doGetAngle(time, true);
+        return angle(time, floorIndex(time));
     }
 
-    private double doGetAngle(double time, boolean tryNextRevolution) {
-        Map.Entry<Integer, Integer> entry = getTimeAndRpm(time);
-        if (entry == null) {
-            if (tryNextRevolution && time2rpm.size() >= 2) {
-                // we are here if the value is below the first revolution point
-                List<Map.Entry<Integer, Integer>> element = new ArrayList<>(time2rpm.entrySet());
-                Map.Entry<Integer, Integer> first = element.get(0);
-                Map.Entry<Integer, Integer> second = element.get(1);
-
-                int oneRevolutionDuration = second.getKey() - first.getKey();
-                return doGetAngle(time + oneRevolutionDuration, false);
+    /**
+     * Same as {@link #getCrankAngleByTime(double)} for each of first count times, ascending times are resolved with one
+     * merge walk and anything out of order falls back to binary search
+     *
+     * @return new array of count angles
+     */
+    public double[] getCrankAnglesByTime(int[] times, int count) {
+        double[] result = new double[count];
+        int index = -1;
+        for (int i = 0; i < count; i++) {
+            int time = times[i];
+            if (index >= 0 && time < this.times[index]) {
+                index = floorIndex(time);
             } else {
-                return Double.NaN;
+                while (index + 1 < this.times.length && this.times[index + 1] <= time)
+                    index++;
             }
-        } else {
-            double diff = time - entry.getKey();
-
-            Integer rpm = entry.getValue();
-            double timeForRevolution = 60000 * EngineReport.ENGINE_SNIFFER_TICKS_PER_MS / rpm;
+            result[i] = angle(time, index);
+        }
+        return result;
+    }
 
-            return 360.0 * diff / timeForRevolution;
+    /**
+     * @param index revolution containing time, -1 if time is before first revolution
+     */
+    private double angle(double time, int index) {
+        if (index == -1) {
+            if (times.length < 2)
+                return Double.NaN;
+            // we are here if the value is below the first revolution point
+            int oneRevolutionDuration = times[1] - times[0];
+            time += oneRevolutionDuration;
+            index = floorIndex(time);
+            if (index == -1)
+                return Double.NaN;
         }
+        double diff = time - times[index];
+        return 360.0 * diff / periods[index];
     }
 
-    public Map.Entry<Integer, Integer> getTimeAndRpm(double time) {
-        return time2rpm.floorEntry((int) time);
+    /**
+     * @return index of last revolution starting at or before time, -1 if none
+     */
+    private int floorIndex(double time) {
+        int key = (int) time;
+        int low = 0;
+        int high = times.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
     }
 
-    public Set<Integer> keySet() {
-        return time2rpm.keySet();
+    /**
+     * @return revolution start time and RPM, null if time is before first revolution
+     */
+    public Map.Entry<Integer, Integer> getTimeAndRpm(double time) {
+        int index = floorIndex(time);
+        return index == -1 ? null : new AbstractMap.SimpleImmutableEntry<>(times[index], rpms[index]);
     }
 }
@@ -1,8 +1,15 @@
 package com.rusefi.core.test;
 
+import com.opensr5.Logger;
+import com.rusefi.config.generated.Fields;
 import com.rusefi.core.EngineState;
+import com.rusefi.io.LinkDecoder;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
 
@@ -17,4 +24,50 @@ public class EngineStateTest {
         assertFalse(EngineState.startWithIgnoreCase("HELLO", "hellllll"));
         assertFalse(EngineState.startWithIgnoreCase("HELLO", "ha"));
     }
+
+    @Test
+    public void keyValuePairs() {
+        List<String> events = new ArrayList<>();
+        EngineState state = new EngineState(new EngineState.EngineStateListenerImpl() {
+            @Override
+            public void onKeyValue(String key, CharSequence value) {
+                events.add(key + "=" + value);
+            }
+
+            @Override
+            public void afterLine(CharSequence fullLine) {
+                events.add("line " + fullLine);
+            }
+        });
+        state.registerStringValueAction("wave_chart", value -> events.add("chart " + value));
+        StringBuilder outpins = new StringBuilder();
+        state.registerValueAction("outpin", outpins::append);
+
+        // line split across packets, key case does not matter, unknown pair is skipped
+        state.processNewData("unknown`1`WAVE_CHART`c1!u!0!`", LinkDecoder.VOID);
+        state.processNewData("outpin`c1@PC9", LinkDecoder.VOID);
+        assertTrue(events.isEmpty());
+        state.processNewData("\r\n\r\n", LinkDecoder.VOID);
+
+        assertEquals("chart c1!u!0!", events.get(0));
+        assertEquals("wave_chart=c1!u!0!", events.get(1));
+        assertEquals("outpin=c1@PC9", events.get(2));
+        assertEquals("line unknown`1`WAVE_CHART`c1!u!0!`outpin`c1@PC9", events.get(3));
+        assertEquals(4, events.size());
+        assertEquals("c1@PC9", outpins.toString());
+
+        events.clear();
+        state.removeAction("WAVE_CHART");
+        state.processNewData(("21:00:00" + Logger.END_OF_TIMESTAND_TAG + "wave_chart`c1!d!5!`outpin`i1@PD3`\n").getBytes(), LinkDecoder.VOID);
+        assertEquals("outpin=i1@PD3", events.get(0));
+        assertEquals("line wave_chart`c1!d!5!`outpin`i1@PD3`", events.get(1));
+        assertEquals(2, events.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void duplicateKey() {
+        EngineState state = new EngineState(new EngineState.EngineStateListenerImpl());
+        state.registerStringValueAction(Fields.PROTOCOL_MSG.toUpperCase(), value -> {
+        });
+    }
 }
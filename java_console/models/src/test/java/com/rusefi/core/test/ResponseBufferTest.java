@@ -4,6 +4,7 @@ import com.rusefi.core.ResponseBuffer;
 import com.rusefi.io.LinkDecoder;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
@@ -30,4 +31,26 @@ public class ResponseBufferTest {
         rb.append("\r\n\r\n\r\nhi2\n\n\n", LinkDecoder.VOID);
         assertEquals("hi2", currentReference.get());
     }
+
+    @Test
+    public void bytesUsePlatformCharset() {
+        final AtomicReference<String> currentReference = new AtomicReference<>();
+        ResponseBuffer rb = new ResponseBuffer(currentReference::set);
+
+        byte[] text = {'m', 's', 'g', ':', (byte) 0xB0, (byte) 0xC3, (byte) 0xA9, (byte) 0xFF, 'x'};
+        rb.append(text, LinkDecoder.VOID);
+        rb.append(new byte[]{'\n'}, LinkDecoder.VOID);
+        // same as console used to do with 'new String(freshData)'
+        assertEquals(new String(text), currentReference.get());
+    }
+
+    @Test
+    public void characterSplitBetweenChunks() {
+        final AtomicReference<String> currentReference = new AtomicReference<>();
+        ResponseBuffer rb = new ResponseBuffer(line -> currentReference.set(line.toString()), StandardCharsets.UTF_8);
+
+        for (byte b : "temp:20\u00b0C\n".getBytes(StandardCharsets.UTF_8))
+            rb.append(new byte[]{b}, LinkDecoder.VOID);
+        assertEquals("temp:20\u00b0C", currentReference.get());
+    }
 }
@@ -0,0 +1,91 @@
+package com.rusefi.tools.tune.test;
+
+import com.opensr5.ini.IniFileModel;
+import com.opensr5.ini.IniFileReader;
+import com.rusefi.tools.tune.MsqFile;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class MsqFileTest {
+    private static final String MSQ = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n" +
+            "<msq xmlns=\"http://www.msefi.com/:msq\">\n" +
+            "<page>\n" +
+            "<pcVariable name=\"tsCanId\">\"0\"</pcVariable>\n" +
+            "</page>\n" +
+            "<page number=\"0\" size=\"20000\">\n" +
+            "<constant name=\"engineType\">\"AUDI_AAN\"</constant>\n" +
+            "<constant digits=\"2\" name=\"injector_flow\" units=\"cm3/min\">200.0</constant>\n" +
+            "<constant cols=\"1\" digits=\"2\" name=\"loadBins\" rows=\"3\" units=\"kPa\">\n" +
+            "         10.0 \n" +
+            "         -20.5 \n" +
+            "         30.0 \n" +
+            "      </constant>\n" +
+            "<constant cols=\"2\" digits=\"2\" name=\"table\" rows=\"3\" units=\"%\">\n" +
+            "         1.0 2.0 \n" +
+            "         3.0 4.0 \n" +
+            "         5.0 6.0 \n" +
+            "      </constant>\n" +
+            "<constant cols=\"1\" digits=\"2\" name=\"shortBins\" rows=\"3\" units=\"kPa\">\n" +
+            "         1.0 \n" +
+            "         2.0 \n" +
+            "         3.0 \n" +
+            "      </constant>\n" +
+            "</page>\n" +
+            "</msq>\n";
+
+    private static final String INI = "page = 1\n" +
+            "[Constants]\n" +
+            "loadBins = array, F32, 0, [3], \"kPa\", 1, 0, 0, 100, 2\n" +
+            "table = array, F32, 12, [2x3], \"%\", 1, 0, 0, 100, 2\n" +
+            "shortBins = array, F32, 36, [2], \"kPa\", 1, 0, 0, 100, 2\n" +
+            "missingBins = array, F32, 44, [2], \"kPa\", 1, 0, 0, 100, 2\n";
+
+    @Test
+    public void readAllConstantsOnce() throws IOException {
+        MsqFile msq = MsqFile.read(new ByteArrayInputStream(MSQ.getBytes()));
+        assertEquals(6, msq.getConstants().size());
+
+        MsqFile.Constant engineType = msq.get("engineType");
+        assertFalse(engineType.isNumeric());
+        assertEquals("\"AUDI_AAN\"", engineType.getText());
+
+        assertArrayEquals(new float[]{200}, msq.get("injector_flow").getValues(), 0);
+        assertEquals(3, msq.get("loadBins").getRows());
+        assertNull(msq.get("missing"));
+    }
+
+    @Test
+    public void validateAgainstIni() throws IOException {
+        MsqFile msq = MsqFile.read(new ByteArrayInputStream(MSQ.getBytes()));
+        IniFileModel model = new IniFileModel().readIniFile(IniFileReader.read(new ByteArrayInputStream(INI.getBytes())));
+
+        assertArrayEquals(new float[]{10, -20.5f, 30}, msq.getArray("loadBins", model), 0);
+
+        float[][] table = msq.getTable("table", model);
+        assertEquals(3, table.length);
+        assertArrayEquals(new float[]{5, 6}, table[2], 0);
+
+        try {
+            // ini says two values
+            msq.getArray("shortBins", model);
+            fail("Dimension mismatch");
+        } catch (IllegalStateException expected) {
+            assertEquals("shortBins: expected 2 value(s) but got 3", expected.getMessage());
+        }
+        try {
+            msq.getArray("missingBins", model);
+            fail("Missing constant");
+        } catch (IllegalStateException expected) {
+            assertEquals("Not found in tune: missingBins", expected.getMessage());
+        }
+        try {
+            msq.getArray("injector_flow", model);
+            fail("Not an array");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -2,15 +2,18 @@ package com.rusefi.tracing.test;
 
 import com.rusefi.tracing.Entry;
 import com.rusefi.tracing.JsonOutput;
+import com.rusefi.tracing.JsonTraceWriter;
+import com.rusefi.tracing.TraceCapture;
 import com.rusefi.tracing.Phase;
 import org.junit.Test;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class PerfJsonOutputTest {
     @Test
@@ -34,4 +37,71 @@ public class PerfJsonOutputTest {
                 ",{\"name\":\"hello\",\"ph\":\"E\",\"tid\":0,\"pid\":0,\"ts\":0.4}\n" +
                 "]}", baos.toString());
     }
+
+    @Test
+    public void streamingSameAsInMemory() throws IOException {
+        byte[] packet = createPacket(1000, 1168, 1336);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        JsonOutput.writeToStream(Entry.parseBuffer(packet), expected);
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (JsonTraceWriter writer = new JsonTraceWriter(actual)) {
+            assertEquals(3, writer.appendCapture(new TraceCapture(packet, TraceCapture.LEGACY_TICKS_PER_US)));
+        }
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void appendCapturesCompressed() throws IOException {
+        File file = File.createTempFile("trace", ".json.gz");
+        file.deleteOnExit();
+        try (JsonTraceWriter writer = JsonTraceWriter.create(file.getPath())) {
+            writer.appendCapture(new TraceCapture(createPacket(1000, 1168), TraceCapture.LEGACY_TICKS_PER_US));
+            writer.appendCapture(new TraceCapture(createPacket(5000, 5216), 216));
+            assertEquals(2, writer.getCapturesCount());
+        }
+
+        String json;
+        try (InputStream is = new GZIPInputStream(new FileInputStream(file))) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int size;
+            while ((size = is.read(buffer)) > 0)
+                baos.write(buffer, 0, size);
+            json = baos.toString();
+        }
+        // second capture starts after the first one
+        assertTrue(json, json.endsWith(",{\"name\":\"INVALID\",\"ph\":\"B\",\"tid\":0,\"pid\":0,\"ts\":0.0}\n" +
+                ",{\"name\":\"INVALID\",\"ph\":\"B\",\"tid\":0,\"pid\":0,\"ts\":1.0}\n" +
+                ",{\"name\":\"INVALID\",\"ph\":\"B\",\"tid\":0,\"pid\":0,\"ts\":1001.0}\n" +
+                ",{\"name\":\"INVALID\",\"ph\":\"B\",\"tid\":0,\"pid\":0,\"ts\":1002.0}\n" +
+                "]}"));
+    }
+
+    @Test
+    public void tickRateFromBeginResponse() {
+        assertEquals(TraceCapture.LEGACY_TICKS_PER_US, TraceCapture.getTicksPerUs(new byte[]{0}), 0);
+        // 216MHz little endian
+        assertEquals(216, TraceCapture.getTicksPerUs(new byte[]{0, 0x00, (byte) 0xE6, (byte) 0xDF, 0x0C}), 0);
+        System.setProperty(TraceCapture.TICKS_PER_US_PROPERTY, "480");
+        try {
+            assertEquals(480, TraceCapture.getTicksPerUs(new byte[]{0, 0x00, (byte) 0xE6, (byte) 0xDF, 0x0C}), 0);
+        } finally {
+            System.clearProperty(TraceCapture.TICKS_PER_US_PROPERTY);
+        }
+    }
+
+    private static byte[] createPacket(int... timestamps) {
+        byte[] packet = new byte[1 + 8 * timestamps.length];
+        for (int i = 0; i < timestamps.length; i++) {
+            int offset = 1 + 8 * i;
+            // type 0, phase begin, isr 0, thread 0, little endian timestamp
+            packet[offset + 4] = (byte) timestamps[i];
+            packet[offset + 5] = (byte) (timestamps[i] >> 8);
+            packet[offset + 6] = (byte) (timestamps[i] >> 16);
+            packet[offset + 7] = (byte) (timestamps[i] >> 24);
+        }
+        return packet;
+    }
 }
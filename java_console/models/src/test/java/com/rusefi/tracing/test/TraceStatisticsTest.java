@@ -0,0 +1,72 @@
+package com.rusefi.tracing.test;
+
+import com.rusefi.tracing.DurationHistogram;
+import com.rusefi.tracing.Entry;
+import com.rusefi.tracing.Phase;
+import com.rusefi.tracing.TraceStatistics;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TraceStatisticsTest {
+    private static final int MAIN = -16;
+    private static final int ADC = 18;
+
+    @Test
+    public void histogramPercentiles() {
+        DurationHistogram histogram = new DurationHistogram();
+        for (int i = 1; i <= 100; i++)
+            histogram.record(i);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax(), 0);
+        assertEquals(50, histogram.getPercentile(0.5), 50 * 0.02);
+        assertEquals(99, histogram.getPercentile(0.99), 99 * 0.02);
+        assertEquals(100, histogram.getPercentile(1), 0);
+    }
+
+    @Test
+    public void nestedAndInterleavedContexts() throws IOException {
+        TraceStatistics statistics = new TraceStatistics();
+        statistics.startCapture();
+        statistics.onEntry(new Entry("outer", Phase.B, 0, MAIN, 1));
+        statistics.onEntry(new Entry("inner", Phase.B, 1, MAIN, 1));
+        // interrupt fires in the middle of thread work
+        statistics.onEntry(new Entry("ISR: 0", Phase.B, 2, ADC, 0));
+        statistics.onEntry(new Entry("inner", Phase.B, 3, ADC, 0));
+        statistics.onEntry(new Entry("inner", Phase.E, 4, ADC, 0));
+        statistics.onEntry(new Entry("ISR: 0", Phase.E, 5, ADC, 0));
+        statistics.onEntry(new Entry("inner", Phase.E, 6, MAIN, 1));
+        statistics.onEntry(new Entry("outer", Phase.E, 10, MAIN, 1));
+        // began before capture
+        statistics.onEntry(new Entry("other", Phase.E, 11, MAIN, 1));
+
+        assertEquals(1, statistics.getUnmatchedCount());
+        assertEquals(10, statistics.get("outer").getHistogram().getMax(), 0);
+        TraceStatistics.EventStatistics inner = statistics.get("inner");
+        assertEquals(2, inner.getHistogram().getCount());
+        assertEquals(5, inner.getHistogram().getMax(), 0);
+        assertEquals(1.0 / 6, inner.getIsrShare(), 1e-9);
+
+        // open begin events are dropped with new capture
+        statistics.onEntry(new Entry("outer", Phase.B, 20, MAIN, 1));
+        statistics.startCapture();
+        statistics.onEntry(new Entry("outer", Phase.E, 0, MAIN, 1));
+        assertEquals(2, statistics.getUnmatchedCount());
+        assertEquals(2, statistics.getCapturesCount());
+
+        StringWriter summary = new StringWriter();
+        statistics.writeSummary(summary);
+        String[] lines = summary.toString().split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("event,count,p50,p99,max,total,isrShare", lines[0]);
+        // sorted by total time
+        assertEquals("outer,1,10.0,10.0,10.0,10.0,0.0", lines[1]);
+        assertTrue(lines[2], lines[2].startsWith("inner,2,"));
+        assertEquals("ISR: 0,1,3.0,3.0,3.0,3.0,1.0", lines[3]);
+    }
+}
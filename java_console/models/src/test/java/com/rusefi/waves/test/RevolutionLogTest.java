@@ -18,4 +18,28 @@ public class RevolutionLogTest {
         // too back into the past
         Assert.assertEquals(Double.NaN, r.getCrankAngleByTime(140915));
     }
+
+    @Test
+    public void batchMatchesSingleLookup() {
+        RevolutionLog r = RevolutionLog.parseRevolutions("2000!148958!2000!154958!3000!160958!3000!164958!");
+
+        // ascending with an out of order tail
+        int[] times = {140915, 147915, 148958, 150000, 160958, 162958, 170000, 150001};
+        double[] angles = r.getCrankAnglesByTime(times, times.length);
+        for (int i = 0; i < times.length; i++)
+            Assert.assertEquals(r.getCrankAngleByTime(times[i]), angles[i]);
+        Assert.assertEquals(0.0, angles[2]);
+        Assert.assertEquals(360.0, angles[5], 0.001);
+    }
+
+    @Test
+    public void unsortedRevolutions() {
+        RevolutionLog r = RevolutionLog.parseRevolutions("2000!154958!1000!148958!2000!148958!");
+
+        Assert.assertEquals(2, r.getSize());
+        Assert.assertEquals(148958, r.getTime(0));
+        Assert.assertEquals(2000, r.getRpm(0));
+        Assert.assertEquals(154958, (int) r.getTimeAndRpm(160000).getKey());
+        Assert.assertNull(r.getTimeAndRpm(100));
+    }
 }
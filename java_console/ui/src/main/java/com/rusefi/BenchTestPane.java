@@ -1,6 +1,5 @@
 package com.rusefi;
 
-import com.rusefi.binaryprotocol.BinaryProtocol;
 import com.rusefi.config.generated.Fields;
 import com.rusefi.core.preferences.storage.PersistentConfiguration;
 import com.rusefi.ui.MessagesView;
@@ -50,10 +49,7 @@ public class BenchTestPane {
 
     private Component grabPerformanceTrace() {
         JButton button = new JButton("Grab PTrace");
-        ActionListener actionListener = e -> uiContext.getLinkManager().COMMUNICATION_EXECUTOR.execute(() -> {
-            BinaryProtocol bp = uiContext.getLinkManager().getCurrentStreamState();
-            PerformanceTraceHelper.grabPerformanceTrace(button, bp);
-        });
+        ActionListener actionListener = e -> PerformanceTraceHelper.grabPerformanceTrace(button, uiContext.getLinkManager());
         button.addActionListener(actionListener);
         return UiUtils.wrap(button);
     }
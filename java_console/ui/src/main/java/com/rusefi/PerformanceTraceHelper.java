@@ -2,50 +2,170 @@ package com.rusefi;
 
 import com.rusefi.binaryprotocol.BinaryProtocol;
 import com.rusefi.config.generated.Fields;
-import com.rusefi.tracing.Entry;
-import com.rusefi.tracing.JsonOutput;
+import com.rusefi.io.LinkManager;
+import com.rusefi.tracing.JsonTraceWriter;
+import com.rusefi.tracing.TraceCapture;
+import com.rusefi.tracing.TraceStatistics;
 import com.rusefi.ui.RpmModel;
 
 import javax.swing.*;
-import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
-import java.util.List;
+import java.io.Writer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 import static com.rusefi.binaryprotocol.IoHelper.checkResponseCode;
 import static com.rusefi.tools.ConsoleTools.startAndConnect;
 
 public class PerformanceTraceHelper {
-    public static void grabPerformanceTrace(JComponent parent, BinaryProtocol bp) {
-        if (bp == null) {
-            JOptionPane.showMessageDialog(parent, "Failed to locate serial ports");
-            return;
+    private static final int REPORT_SIZE = 20;
+
+    /**
+     * Capture itself happens on its own thread, see {@link #captureTrace(LinkManager)}
+     */
+    public static void grabPerformanceTrace(JComponent parent, LinkManager linkManager) {
+        startTraceThread(() -> {
+            BinaryProtocol bp = executeOnCommunicationThread(linkManager, linkManager::getCurrentStreamState);
+            if (bp == null) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(parent, "Failed to locate serial ports"));
+                return;
+            }
+            writeCapture(captureTrace(linkManager));
+        });
+    }
+
+    private static void writeCapture(TraceCapture capture) throws IOException {
+        int rpm = RpmModel.getInstance().getValue();
+        String fileName = FileLog.getDate() + "_rpm_" + rpm + "_rusEFI_trace" + ".json";
+
+        try (JsonTraceWriter writer = JsonTraceWriter.create(fileName)) {
+            writer.appendCapture(capture);
+        }
+    }
+
+    /**
+     * Captures traces back to back into one file, gzip-compressed if file name ends with .gz
+     */
+    public static void grabPerformanceTraceSession(LinkManager linkManager, int count, String fileName) throws IOException, InterruptedException {
+        try (JsonTraceWriter writer = JsonTraceWriter.create(fileName)) {
+            for (int i = 0; i < count; i++) {
+                int entries = writer.appendCapture(captureTrace(linkManager));
+                writer.flush();
+                System.out.println("Trace " + (i + 1) + "/" + count + ": " + entries + " entries");
+            }
         }
-        bp.executeCommand(Fields.TS_PERF_TRACE_BEGIN, "begin trace");
+        System.out.println("Saved " + fileName);
+    }
 
-        try {
-            Thread.sleep(500);
+    /**
+     * Captures traces until count is reached or stop is requested, prints rolling hotspot report and keeps summary
+     * file up to date. Each ECU request is a separate task on communication thread so that other commands and output
+     * polling go on between captures.
+     *
+     * @param count number of captures, 0 for no limit
+     */
+    public static TraceStatistics runContinuousTrace(LinkManager linkManager, int count, String summaryFileName,
+                                                     BooleanSupplier isStopRequested) throws IOException, InterruptedException {
+        TraceStatistics statistics = new TraceStatistics();
+        for (int i = 0; (count == 0 || i < count) && !isStopRequested.getAsBoolean(); i++) {
+            TraceCapture capture = captureTrace(linkManager);
+            statistics.startCapture();
+            capture.decode(statistics);
+
+            System.out.println(statistics.getReport(REPORT_SIZE));
+            try (Writer writer = new FileWriter(summaryFileName)) {
+                statistics.writeSummary(writer);
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Each ECU request is a separate task on communication thread, waiting for trace buffer to fill up happens on
+     * calling thread which therefore should not be communication thread
+     */
+    private static TraceCapture captureTrace(LinkManager linkManager) throws InterruptedException {
+        byte[] beginResponse = executeOnCommunicationThread(linkManager, () -> linkManager.getCurrentStreamState().executeCommand(Fields.TS_PERF_TRACE_BEGIN, "begin trace"));
+        double ticksPerUs = TraceCapture.getTicksPerUs(beginResponse);
+
+        Thread.sleep(500);
 
-            byte[] packet = bp.executeCommand(Fields.TS_PERF_TRACE_GET_BUFFER, "get trace");
-            if (!checkResponseCode(packet, (byte) Fields.TS_RESPONSE_OK) || ((packet.length - 1) % 8) != 0)
-                throw new IllegalStateException("Unexpected packet, length=" + (packet != null ? 0 : packet.length));
+        byte[] packet = executeOnCommunicationThread(linkManager, () -> linkManager.getCurrentStreamState().executeCommand(Fields.TS_PERF_TRACE_GET_BUFFER, "get trace"));
+        if (!checkResponseCode(packet, (byte) Fields.TS_RESPONSE_OK) || ((packet.length - 1) % 8) != 0)
+            throw new IllegalStateException("Unexpected packet, length=" + (packet == null ? 0 : packet.length));
+        return new TraceCapture(packet, ticksPerUs);
+    }
 
-            List<Entry> data = Entry.parseBuffer(packet);
+    private static <T> T executeOnCommunicationThread(LinkManager linkManager, Callable<T> request) throws InterruptedException {
+        try {
+            return linkManager.COMMUNICATION_EXECUTOR.submit(request).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
 
-            int rpm = RpmModel.getInstance().getValue();
-            String fileName = FileLog.getDate() + "_rpm_" + rpm + "_rusEFI_trace" + ".json";
+    private interface TraceJob {
+        void run() throws IOException, InterruptedException;
+    }
 
+    /**
+     * Connection callback and UI actions are invoked on communication thread which has to stay available for captures
+     */
+    private static void startTraceThread(TraceJob job) {
+        new Thread(() -> {
+            try {
+                job.run();
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "PerformanceTrace").start();
+    }
 
-            JsonOutput.writeToStream(data, new FileOutputStream(fileName));
-        } catch (IOException | InterruptedException e1) {
-            throw new IllegalStateException(e1);
+    /**
+     * @param args optional number of captures, 0 or none to capture until Enter is pressed, and summary file name
+     */
+    public static void runContinuousTrace(String[] args) {
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        String summaryFileName = args.length > 2 ? args[2] : FileLog.getDate() + "_rusEFI_trace_summary.csv";
+        AtomicBoolean isStopRequested = new AtomicBoolean();
+        startAndConnect(linkManager -> {
+            startTraceThread(() -> {
+                runContinuousTrace(linkManager, count, summaryFileName, isStopRequested::get);
+                System.out.println("Saved " + summaryFileName);
+                System.exit(0);
+            });
+            return null;
+        });
+        if (count == 0) {
+            System.out.println("Press Enter to stop");
+            try {
+                // without console keep going until killed
+                if (System.in.read() != -1)
+                    isStopRequested.set(true);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
         }
     }
 
-    public static void getPerformanceTune() {
+    /**
+     * @param args optional number of captures and file name
+     */
+    public static void getPerformanceTune(String[] args) {
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        String fileName = args.length > 2 ? args[2] : null;
         startAndConnect(linkManager -> {
-            BinaryProtocol binaryProtocol = linkManager.getConnector().getBinaryProtocol();
-            grabPerformanceTrace(null, binaryProtocol);
-            System.exit(0);
+            startTraceThread(() -> {
+                if (count == 1 && fileName == null) {
+                    writeCapture(captureTrace(linkManager));
+                } else {
+                    grabPerformanceTraceSession(linkManager, count, fileName == null ? FileLog.getDate() + "_rusEFI_trace_session.json.gz" : fileName);
+                }
+                System.exit(0);
+            });
             return null;
         });
     }
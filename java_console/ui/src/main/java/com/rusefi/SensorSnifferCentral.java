@@ -9,7 +9,11 @@ public class SensorSnifferCentral {
     private final List<AnalogChartListener> listeners = new CopyOnWriteArrayList<>();
 
     public SensorSnifferCentral(LinkManager linkManager) {
-        linkManager.getEngineState().registerStringValueAction(AverageAnglesUtil.KEY, (String message) -> {
+        linkManager.getEngineState().registerValueAction(AverageAnglesUtil.KEY, value -> {
+            // no copy of the value while nobody is listening
+            if (listeners.isEmpty())
+                return;
+            String message = value.toString();
             for (AnalogChartListener listener : listeners)
                 listener.onAnalogChart(message);
         });
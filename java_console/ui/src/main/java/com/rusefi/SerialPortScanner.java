@@ -8,16 +8,19 @@ import com.rusefi.config.generated.Fields;
 import com.rusefi.core.RusEfiSignature;
 import com.rusefi.core.SignatureHelper;
 import com.rusefi.io.IoStream;
-import com.rusefi.io.LinkManager;
 import com.rusefi.io.UpdateOperationCallbacks;
 import com.rusefi.io.serial.BufferedSerialIoStream;
+import com.rusefi.io.serial.PortChangeMonitor;
 import com.rusefi.io.tcp.TcpConnector;
 import com.rusefi.maintenance.DfuFlasher;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -91,7 +94,13 @@ public enum SerialPortScanner {
         }
     }
 
+    private static final int SLOW_LOOKUP_PERIOD_MS = 1000;
+
     private volatile boolean isRunning = false;
+    /**
+     * scanner thread stops once it is not the latest one, see {@link #startTimer()}
+     */
+    private volatile Object session;
 
     private final Object lock = new Object();
     private AvailableHardware knownHardware = null;
@@ -196,13 +205,11 @@ public enum SerialPortScanner {
     private final static Map<String, PortResult> portCache = new HashMap<>();
 
     /**
-     * Find all available serial ports and checks if simulator local TCP port is available
+     * Only ports which have just appeared are inspected, all others come from the port cache
      */
-    private void findAllAvailablePorts(boolean includeSlowLookup) {
+    private void findAllAvailablePorts(List<String> serialPorts, boolean includeSlowLookup) {
         List<PortResult> ports = new ArrayList<>();
 
-        String[] serialPorts = LinkManager.getCommPorts();
-
         List<String> portsToInspect = new ArrayList<>();
 
         for (String serialPort : serialPorts) {
@@ -224,24 +231,6 @@ public enum SerialPortScanner {
             portCache.put(p.port, p);
         }
 
-        {
-            // Clean the port cache of any entries that no longer exist
-            // If the same port appears later, we want to re-probe it at that time
-            // In any other scenario, auto could have unexpected behavior for the user
-            List<String> toRemove = new ArrayList<>();
-            for (String x : portCache.keySet()) {
-                if (Arrays.stream(serialPorts).noneMatch(x::equals)) {
-                    toRemove.add(x);
-                }
-            }
-
-            // two steps to avoid ConcurrentModificationException
-            toRemove.forEach(p -> {
-                portCache.remove(p);
-                log.info("Removing port " + p);
-            });
-        }
-
         // Sort ports by their type to put your ECU at the top
         ports.sort(Comparator.comparingInt(a -> a.type.sortOrder));
 
@@ -268,21 +257,48 @@ public enum SerialPortScanner {
         }
     }
 
+    private static void onPortsRemoved(List<String> removed) {
+        // If the same port appears later, we want to re-probe it at that time
+        // In any other scenario, auto could have unexpected behavior for the user
+        for (String port : removed) {
+            if (portCache.remove(port) != null)
+                log.info("Removing port " + port);
+        }
+    }
+
+    /**
+     * Serial ports come from {@link PortChangeMonitor}, simulator TCP port and DFU are not visible as device nodes so
+     * these are still looked up every {@link #SLOW_LOOKUP_PERIOD_MS}
+     */
     public void startTimer() {
         isRunning = true;
+        Object currentSession = new Object();
+        session = currentSession;
+        BlockingQueue<PortChangeMonitor.PortDiff> portChanges = new LinkedBlockingQueue<>();
+        PortChangeMonitor monitor = PortChangeMonitor.create();
+        monitor.addListener(portChanges::add);
+        monitor.start();
         Thread portsScanner = new Thread(() -> {
             boolean isFirstTime = true;
-            while (isRunning) {
-                findAllAvailablePorts(!isFirstTime);
-                isFirstTime = false;
-                try {
-                    //noinspection BusyWait
-                    Thread.sleep(300);
-                } catch (InterruptedException e) {
-                    throw new IllegalStateException(e);
+            List<String> serialPorts = new ArrayList<>();
+            try {
+                while (isRunning && session == currentSession) {
+                    PortChangeMonitor.PortDiff diff = portChanges.poll(SLOW_LOOKUP_PERIOD_MS, TimeUnit.MILLISECONDS);
+                    if (diff != null) {
+                        onPortsRemoved(diff.getRemoved());
+                        serialPorts = diff.getPorts();
+                    } else if (isFirstTime) {
+                        // initial port list not here yet
+                        continue;
+                    }
+                    findAllAvailablePorts(serialPorts, !isFirstTime);
+                    isFirstTime = false;
                 }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                monitor.stop();
             }
-
         }, "Ports Scanner");
         portsScanner.setDaemon(true);
         portsScanner.start();
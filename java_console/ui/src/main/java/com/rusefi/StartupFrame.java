@@ -190,7 +190,7 @@ public class StartupFrame {
     }
 
     @Nullable
-    private static ImageIcon getBundleIcon() {
+    public static ImageIcon getBundleIcon() {
         String bundle = BundleUtil.readBundleFullNameNotNull();
         String logoName;
         // these should be about 213px wide
@@ -1,7 +1,10 @@
 package com.rusefi.tools;
 
 import com.opensr5.ConfigurationImage;
+import com.opensr5.ini.IniFileModel;
 import com.opensr5.io.ConfigurationImageFile;
+import com.opensr5.io.MsqConverter;
+import com.opensr5.io.TuneComparator;
 import com.rusefi.*;
 import com.rusefi.autodetect.PortDetector;
 import com.rusefi.autodetect.SerialAutoChecker;
@@ -16,13 +19,16 @@ import com.rusefi.io.ConnectionStateListener;
 import com.rusefi.io.ConnectionStatusLogic;
 import com.rusefi.io.IoStream;
 import com.rusefi.io.LinkManager;
+import com.rusefi.io.composite.CompositeLogFileWriter;
+import com.rusefi.io.composite.CompositeLoggerCapture;
 import com.rusefi.io.tcp.BinaryProtocolServer;
 import com.rusefi.maintenance.ExecHelper;
-import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.function.Consumer;
@@ -42,11 +48,15 @@ public class ConsoleTools {
         registerTool("headless", ConsoleTools::runHeadless, "Connect to rusEFI controller and start saving logs.");
 
         registerTool("ptrace_enums", ConsoleTools::runPerfTraceTool, "NOT A USER TOOL. Development tool to process performance trace enums");
-        registerTool("convert_binary_configuration_to_xml", ConsoleTools::convertBinaryToXml, "NOT A USER TOOL. Development tool to convert binary configuration into XML form.");
+        registerTool("convert_binary_configuration_to_xml", ConsoleTools::convertBinaryToXml, "Convert binary tune into .msq or .msq into binary tune, argument is a file or a folder to convert all files in it. Optional second argument is output folder.");
+
+        registerTool("compare_tunes", ConsoleTools::compareTunes, "Compare binary tune with another binary tune or with every binary tune in a folder. Reports changed fields, table cells and enum labels.");
 
         registerTool("get_image_tune_crc", ConsoleTools::calcBinaryImageTuneCrc, "Calculate tune CRC for given binary tune");
 
-        registerTool("get_performance_trace", args -> PerformanceTraceHelper.getPerformanceTune(), "DEV TOOL: Get performance trace from ECU");
+        registerTool("get_performance_trace", PerformanceTraceHelper::getPerformanceTune, "DEV TOOL: Get performance trace from ECU, optional arguments: number of traces and file name (.gz for compressed)");
+        registerTool("performance_trace_stats", PerformanceTraceHelper::runContinuousTrace, "DEV TOOL: Capture performance traces continuously and report p50/p99/max per event, optional arguments: number of captures (0 to stop on Enter) and summary file name");
+        registerTool("composite_log", ConsoleTools::captureCompositeLog, "Stream trigger composite log into CSV file until stopped, optional second argument is file name");
 
         registerTool("version", ConsoleTools::version, "Only print version");
 
@@ -109,10 +119,11 @@ public class ConsoleTools {
     }
 
     private static void sendCommand(String command) throws IOException {
-        String autoDetectedPort = autoDetectPort();
-        if (autoDetectedPort == null)
+        IoStream stream = PortDetector.autoDetectAndOpen().getStream();
+        if (stream == null) {
+            System.err.println(RUS_EFI_NOT_DETECTED);
             return;
-        IoStream stream = LinkManager.open(autoDetectedPort);
+        }
         byte[] commandBytes = BinaryProtocol.getTextCommandBytes(command);
         stream.sendPacket(commandBytes);
     }
@@ -143,15 +154,40 @@ public class ConsoleTools {
         });
     }
 
+    private static void captureCompositeLog(String[] args) {
+        String fileName = args.length > 1 ? args[1] : FileLog.getDate() + "_composite.csv";
+
+        startAndConnect(linkManager -> {
+            try {
+                CompositeLogFileWriter writer = new CompositeLogFileWriter(fileName);
+                CompositeLoggerCapture capture = new CompositeLoggerCapture(linkManager, writer);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        capture.stop();
+                        writer.close();
+                    } catch (InterruptedException | IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+                System.out.println("Writing composite log to " + fileName + ", press Ctrl-C to stop");
+                capture.start();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+    }
+
     public static void startAndConnect(final Function<LinkManager, Void> onConnectionEstablished) {
 
-        String autoDetectedPort = PortDetector.autoDetectSerial().getSerialPort();
+        SerialAutoChecker.AutoDetectResult detectResult = PortDetector.autoDetectAndOpen();
+        String autoDetectedPort = detectResult.getSerialPort();
         if (autoDetectedPort == null) {
             System.err.println(RUS_EFI_NOT_DETECTED);
             return;
         }
         LinkManager linkManager = new LinkManager();
-        linkManager.startAndConnect(autoDetectedPort, new ConnectionStateListener() {
+        linkManager.startAndConnect(autoDetectedPort, detectResult.getStream(), new ConnectionStateListener() {
             @Override
             public void onConnectionEstablished() {
                 onConnectionEstablished.apply(linkManager);
@@ -192,34 +228,74 @@ public class ConsoleTools {
         return false;
     }
 
-    @Nullable
-    private static String autoDetectPort() {
-        String autoDetectedPort = PortDetector.autoDetectSerial().getSerialPort();
-        if (autoDetectedPort == null) {
-            System.err.println(RUS_EFI_NOT_DETECTED);
-            return null;
+    private static void convertBinaryToXml(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Binary or .msq file or folder input expected");
+            System.exit(-1);
+        }
+        File input = new File(args[1]);
+        IniFileModel model = IniFileModel.getInstance();
+        if (model.allIniFields.isEmpty())
+            throw new IllegalStateException("Not found " + IniFileModel.INI_FILE_PATH);
+        MsqConverter converter = new MsqConverter(model);
+        long start = System.currentTimeMillis();
+        if (input.isDirectory()) {
+            File outputFolder = args.length > 2 ? new File(args[2]) : input;
+            int threads = Integer.getInteger("msq_converter.threads", Runtime.getRuntime().availableProcessors());
+            int count = converter.convertFolder(input, outputFolder, 0, threads);
+            System.out.println("Converted " + count + " file(s) into " + outputFolder + " in " + (System.currentTimeMillis() - start) + "ms");
+        } else {
+            File outputFolder = args.length > 2 ? new File(args[2]) : input.getAbsoluteFile().getParentFile();
+            File output = converter.convert(input, outputFolder, 0);
+            if (output == null)
+                throw new IllegalStateException(".bin or .msq expected: " + input);
+            System.out.println("Converted " + input + " into " + output + " in " + (System.currentTimeMillis() - start) + "ms");
         }
-        return autoDetectedPort;
     }
 
-    private static void convertBinaryToXml(String[] args) throws IOException {
-        if (args.length < 2) {
-            System.err.println("Binary file input expected");
+    private static void compareTunes(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Base binary tune and binary tune or folder expected");
             System.exit(-1);
         }
-        String inputBinaryFileName = args[1];
-        ConfigurationImage image = ConfigurationImageFile.readFromFile(inputBinaryFileName);
-        System.out.println("Got " + image.getSize() + " of configuration from " + inputBinaryFileName);
+        ConfigurationImage base = ConfigurationImageFile.readFromFile(args[1]);
+        if (base == null)
+            throw new IllegalStateException("Not a tune binary: " + args[1]);
+        IniFileModel model = IniFileModel.getInstance();
+        if (model.allIniFields.isEmpty())
+            throw new IllegalStateException("Not found " + IniFileModel.INI_FILE_PATH);
+        TuneComparator comparator = new TuneComparator(model);
+        File other = new File(args[2]);
+        long start = System.currentTimeMillis();
+        Map<String, List<TuneComparator.Difference>> result;
+        if (other.isDirectory()) {
+            int threads = Integer.getInteger("tune_comparator.threads", Runtime.getRuntime().availableProcessors());
+            result = comparator.compareFolder(base, other, threads);
+        } else {
+            ConfigurationImage image = ConfigurationImageFile.readFromFile(other.getPath());
+            if (image == null)
+                throw new IllegalStateException("Not a tune binary: " + other);
+            result = Collections.singletonMap(other.getName(), comparator.compare(base, image));
+        }
+        int deviating = 0;
+        for (Map.Entry<String, List<TuneComparator.Difference>> e : result.entrySet()) {
+            if (e.getValue().isEmpty())
+                continue;
+            deviating++;
+            System.out.println(e.getKey() + ": " + e.getValue().size() + " difference(s)");
+            for (TuneComparator.Difference difference : e.getValue())
+                System.out.println("  " + difference);
+        }
+        System.out.println(deviating + " of " + result.size() + " tune(s) deviate from " + args[1] + ", compared in " + (System.currentTimeMillis() - start) + "ms");
     }
 
     static void detect(String[] strings) throws IOException {
-        SerialAutoChecker.AutoDetectResult detectResult = PortDetector.autoDetectSerial();
-        String autoDetectedPort = detectResult.getSerialPort();
-        if (autoDetectedPort == null) {
+        SerialAutoChecker.AutoDetectResult detectResult = PortDetector.autoDetectAndOpen();
+        IoStream stream = detectResult.getStream();
+        if (stream == null) {
             System.out.println(RUS_EFI_NOT_DETECTED);
             return;
         }
-        IoStream stream = LinkManager.open(autoDetectedPort);
         IncomingDataBuffer incomingData = stream.getDataBuffer();
         byte[] commandBytes = BinaryProtocol.getTextCommandBytes("hello");
         stream.sendPacket(commandBytes);
@@ -239,7 +315,7 @@ public class ConsoleTools {
 
         StringBuilder messages = new StringBuilder();
 
-        ResponseBuffer responseBuffer = new ResponseBuffer(unpack -> {
+        ResponseBuffer responseBuffer = new ResponseBuffer((String unpack) -> {
             Consumer<String> callback = (String value) -> {
                 if (value.startsWith(Fields.PROTOCOL_HELLO_PREFIX)) {
                     messages.append(value);
@@ -1,24 +1,30 @@
 package com.rusefi.trigger;
 
+import com.rusefi.NamedThreadFactory;
 import com.rusefi.StartupFrame;
 import com.rusefi.enums.trigger_type_e;
 import com.rusefi.ui.engine.UpDownImage;
-import com.rusefi.ui.FrameHelper;
-import com.rusefi.ui.util.UiUtils;
 import com.rusefi.waves.EngineReport;
 import org.jetbrains.annotations.NotNull;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.File;
-import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
-import java.util.Date;
+import java.io.IOException;
+import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This utility produces images of trigger signals supported by rusEFI
  * <p>
+ * Runs headless, each wheel is drawn straight into {@link BufferedImage} on a worker pool.
+ * <p>
  * 06/23/15
  * Andrey Belomutskiy, (c) 2013-2020
  */
@@ -29,14 +35,26 @@ public class TriggerImage {
     private static final int WHEEL_BORDER = 20;
     private static final int WHEEL_DIAMETER = 500;
     private static final int SMALL_DIAMETER = 420;
+    private static final int WHEEL_SIZE = WHEEL_DIAMETER + 2 * WHEEL_BORDER;
     private static final int _180 = 180;
     public static final int MIN_TIME = 720;
+    /**
+     * spacing between wheels and logo
+     */
+    private static final int GAP = 5;
+    private static final int LOGO_BORDER = 10;
+    private static final int MIN_IMAGE_WIDTH = 900;
+    private static final int CHART_HEIGHT = 200;
+    private static final Color BACKGROUND = new Color(238, 238, 238);
+    /**
+     * worker thread count, defaults to number of cores
+     */
+    private static final String THREADS_PROPERTY = "trigger_image.threads";
 
     /**
      * number of extra frames
      */
     public static final int EXTRA_COUNT = 1;
-    private static int sleepAtEnd;
     private static trigger_type_e onlyOneTrigger = null;
 
     /**
@@ -95,7 +113,10 @@ public class TriggerImage {
         return triggerName.getTriggerName();
     }
 
-    public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+    public static void main(String[] args) throws InterruptedException {
+        // no display needed, images are drawn straight into BufferedImage
+        System.setProperty("java.awt.headless", "true");
+
         final String workingFolder;
         if (args.length < 1) {
             workingFolder = TriggerWheelInfo.DEFAULT_WORK_FOLDER;
@@ -106,163 +127,165 @@ public class TriggerImage {
         if (args.length > 1)
             onlyOneTrigger = findByOrdinal(Integer.parseInt(args[1]));
 
-        if (args.length > 2)
-            sleepAtEnd = Integer.parseInt(args[2]);
-
-        FrameHelper f = new FrameHelper();
-
-        JPanel content = new JPanel(new BorderLayout());
-        final TriggerPanel triggerPanel = new TriggerPanel() {
-            @Override
-            public Dimension getPreferredSize() {
-                return new Dimension((1 + EXTRA_COUNT) * WIDTH, 480);
-            }
-        };
-
-        JPanel topPanel = new JPanel(new FlowLayout());
-
-        SwingUtilities.invokeAndWait(() -> {
-            content.add(topPanel, BorderLayout.NORTH);
-            content.add(triggerPanel, BorderLayout.CENTER);
-
-            f.showFrame(content);
-            f.getFrame().setSize(900, 700);
+        int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        renderAll(workingFolder, new File(OUTPUT_FOLDER), threads, new Date().toString());
+    }
 
-            UiUtils.trueRepaint(content);
+    /**
+     * Renders wheels in parallel, wheels with unchanged data and untouched PNG are skipped
+     *
+     * @param timestamp printed on each image, same for the whole run
+     * @return number of rendered images
+     */
+    static int renderAll(String workingFolder, File outputFolder, int threads, String timestamp) throws InterruptedException {
+        outputFolder.mkdirs();
+        TriggerImageCache cache = TriggerImageCache.load(outputFolder);
+        ImageIcon logo = StartupFrame.getBundleIcon();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new NamedThreadFactory("TriggerImage"));
+        List<Future<Boolean>> results = new ArrayList<>();
+        TriggerWheelInfo.readWheels(workingFolder, wheelInfo -> {
+            if (onlyOneTrigger != null && findByOrdinal(wheelInfo.getId()) != onlyOneTrigger)
+                return;
+            results.add(pool.submit(() -> renderIfChanged(wheelInfo, outputFolder, logo, cache, timestamp)));
         });
+        pool.shutdown();
 
-        SwingUtilities.invokeAndWait(() -> TriggerWheelInfo.readWheels(workingFolder, wheelInfo -> onWheel(triggerPanel, topPanel, content, wheelInfo)));
-        Thread.sleep(1000L * sleepAtEnd);
-        System.exit(-1);
+        int rendered = 0;
+        try {
+            for (Future<Boolean> result : results) {
+                if (result.get())
+                    rendered++;
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            cache.save();
+        }
+        System.out.println("Rendered " + rendered + ", unchanged " + (results.size() - rendered));
+        return rendered;
     }
 
-    private static void onWheel(TriggerPanel triggerPanel, JPanel topPanel, JPanel content, TriggerWheelInfo triggerWheelInfo) {
-        if (onlyOneTrigger != null && findByOrdinal(triggerWheelInfo.getId()) != onlyOneTrigger)
-            return;
-
-        topPanel.removeAll();
-
-        JPanel firstWheelControl = createWheelPanel(triggerWheelInfo.getFirstWheeTriggerSignals(), true,
-                triggerWheelInfo);
-
-        topPanel.add(firstWheelControl);
-        topPanel.add(StartupFrame.createLogoLabel());
+    /**
+     * @return false if existing image is up to date
+     */
+    private static boolean renderIfChanged(TriggerWheelInfo triggerWheelInfo, File outputFolder, ImageIcon logo, TriggerImageCache cache, String timestamp) throws IOException {
+        String name = getTriggerName(triggerWheelInfo);
+        File output = new File(outputFolder, "trigger_" + findByOrdinal(triggerWheelInfo.getId()) + ".png");
+        String inputHash = TriggerImageCache.hash(triggerWheelInfo, name);
+        if (cache.isUpToDate(output, inputHash))
+            return false;
+
+        BufferedImage image = renderWheel(triggerWheelInfo, name, logo, timestamp);
+        System.out.println("Saving " + output);
+        ImageIO.write(image, "png", output);
+        cache.update(output, inputHash);
+        return true;
+    }
 
+    /**
+     * Wheel drawings and logo on top, signal chart below
+     */
+    static BufferedImage renderWheel(TriggerWheelInfo triggerWheelInfo, String name, ImageIcon logo, String timestamp) {
         List<WaveState> waves = TriggerImage.convertSignalsToWaves(triggerWheelInfo.getSignals());
+        boolean isSingleSensor = waves.get(1).list.isEmpty();
 
-        if (!waves.get(1).list.isEmpty()) {
-            JPanel secondWheelControl = createWheelPanel(triggerWheelInfo.getSecondWheeTriggerSignals(), false,
-                    triggerWheelInfo);
-            topPanel.add(secondWheelControl);
-        }
-
-        UiUtils.trueLayout(topPanel);
-        UiUtils.trueLayout(content);
+        int topWidth = GAP + WHEEL_SIZE + GAP;
+        if (logo != null)
+            topWidth += logo.getIconWidth() + LOGO_BORDER + GAP;
+        if (!isSingleSensor)
+            topWidth += WHEEL_SIZE + GAP;
+        int width = Math.max(MIN_IMAGE_WIDTH, topWidth);
+        int topHeight = WHEEL_SIZE + 2 * GAP;
+
+        BufferedImage image = new BufferedImage(width, topHeight + CHART_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(BACKGROUND);
+            g.fillRect(0, 0, width, image.getHeight());
+
+            int x = GAP;
+            paintWheel(g.create(x, GAP, WHEEL_SIZE, WHEEL_SIZE), triggerWheelInfo.getFirstWheeTriggerSignals(), true, triggerWheelInfo);
+            x += WHEEL_SIZE + GAP;
+            if (logo != null) {
+                logo.paintIcon(null, g, x, GAP + (WHEEL_SIZE - logo.getIconHeight()) / 2);
+                x += logo.getIconWidth() + LOGO_BORDER + GAP;
+            }
+            if (!isSingleSensor)
+                paintWheel(g.create(x, GAP, WHEEL_SIZE, WHEEL_SIZE), triggerWheelInfo.getSecondWheeTriggerSignals(), false, triggerWheelInfo);
 
-        triggerPanel.tdcPosition = triggerWheelInfo.getTdcPosition();
-        triggerPanel.gaps = triggerWheelInfo.getGaps();
+            paintChart(g.create(0, topHeight, width, CHART_HEIGHT), width, triggerWheelInfo, name, waves, isSingleSensor, timestamp);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
 
+    private static void paintChart(Graphics g, int width, TriggerWheelInfo triggerWheelInfo, String name, List<WaveState> waves, boolean isSingleSensor,
+                                   String timestamp) {
         EngineReport re0 = new EngineReport(waves.get(0).list, MIN_TIME, 720 * (1 + EXTRA_COUNT));
-        System.out.println(re0);
         EngineReport re1 = new EngineReport(waves.get(1).list, MIN_TIME, 720 * (1 + EXTRA_COUNT));
 
-        triggerPanel.removeAll();
-        UpDownImage upDownImage0 = new UpDownImage(re0, "trigger");
-        upDownImage0.setRenderText(false);
-        triggerPanel.image = upDownImage0;
-
-        UpDownImage upDownImage1 = new UpDownImage(re1, "trigger");
-        upDownImage1.setRenderText(false);
-
-        boolean isSingleSensor = re1.getList().isEmpty();
-
-        int height;
-        if (isSingleSensor) {
-            height = 1;
-        } else {
-            height = 2;
+        // always render the first channel
+        List<EngineReport> rows = isSingleSensor ? Collections.singletonList(re0) : Arrays.asList(re0, re1);
+        int rowHeight = CHART_HEIGHT / rows.size();
+        for (int i = 0; i < rows.size(); i++) {
+            UpDownImage row = new UpDownImage(rows.get(i), "trigger");
+            row.setRenderText(false);
+            row.paintContent(g.create(0, i * rowHeight, width, rowHeight), new Dimension(width, rowHeight));
         }
 
-        triggerPanel.setLayout(new GridLayout(height, 1));
-
-        // always render the first channel
-        triggerPanel.add(upDownImage0);
+        paintTriggerInfo(g, width, CHART_HEIGHT, name, triggerWheelInfo.getTdcPosition(), triggerWheelInfo.getGaps(), re0, timestamp);
+    }
 
-        if (!isSingleSensor)
-            triggerPanel.add(upDownImage1);
+    private static void paintWheel(Graphics g, List<TriggerSignal> wheel, boolean showTdc, TriggerWheelInfo shape) {
+        int middle = WHEEL_BORDER + WHEEL_DIAMETER / 2;
+        if (showTdc) {
+            double tdcAngle = Math.toRadians(_180 + shape.getTdcPositionIn360());
 
-        triggerPanel.name = getTriggerName(triggerWheelInfo);
-//        triggerPanel.id = "#" + triggerWheelInfo.id;
+            int smallX = (int) (WHEEL_DIAMETER / 2 * Math.sin(tdcAngle));
+            int smallY = (int) (WHEEL_DIAMETER / 2 * Math.cos(tdcAngle));
 
-        UiUtils.trueLayout(triggerPanel);
-        UiUtils.trueRepaint(triggerPanel);
-        content.paintImmediately(content.getVisibleRect());
-        new File(OUTPUT_FOLDER).mkdir();
-        UiUtils.saveImage(OUTPUT_FOLDER + File.separator + "trigger_" + findByOrdinal(triggerWheelInfo.getId()) + ".png", content);
-    }
-
-    @NotNull
-    private static JPanel createWheelPanel(List<TriggerSignal> wheel, boolean showTdc,
-                                           TriggerWheelInfo shape) {
-        return new JPanel() {
-            @Override
-            public void paint(Graphics g) {
-                super.paint(g);
-
-                int middle = WHEEL_BORDER + WHEEL_DIAMETER / 2;
-                if (showTdc) {
-                    double tdcAngle = Math.toRadians(_180 + shape.getTdcPositionIn360());
-
-                    int smallX = (int) (WHEEL_DIAMETER / 2 * Math.sin(tdcAngle));
-                    int smallY = (int) (WHEEL_DIAMETER / 2 * Math.cos(tdcAngle));
-
-                    int tdcMarkRadius = 8;
-                    g.setColor(UpDownImage.ENGINE_CYCLE_COLOR);
-                    // draw TDC mark and text on the round wheel
-                    g.fillOval(middle + smallX - tdcMarkRadius, middle + smallY - tdcMarkRadius,
-                            2 * tdcMarkRadius,
-                            2 * tdcMarkRadius);
-
-                    g.drawString("TDC", middle + smallX + tdcMarkRadius * 2, middle + smallY);
-                }
-                g.setColor(Color.black);
-
-                for (int i = 0; i < wheel.size(); i++) {
-                    TriggerSignal current = wheel.get(i);
-
-                    drawRadialLine(g, current.getAngle());
-                    /**
-                     * java arc API is
-                     *      * Angles are interpreted such that 0&nbsp;degrees
-                     *      * is at the 3'clock position.
-                     *      * A positive value indicates a counter-clockwise rotation
-                     *      * while a negative value indicates a clockwise rotation.
-                     *
-                     * we want zero to be at 12'clock position and clockwise rotation
-                     */
-
-                    double nextAngle = i == wheel.size() - 1 ? 360 + wheel.get(0).getAngle() : wheel.get(i + 1).getAngle();
-                    int arcDuration = (int) (current.getAngle() - nextAngle);
-                    int arcStart = (int) arcToRusEFI(nextAngle);
-                    if (current.getState() == 1) {
-                        g.drawArc(WHEEL_BORDER, WHEEL_BORDER, WHEEL_DIAMETER, WHEEL_DIAMETER, arcStart, arcDuration);
-                    } else {
-                        int corner = WHEEL_BORDER + (WHEEL_DIAMETER - SMALL_DIAMETER) / 2;
-                        g.drawArc(corner, corner, SMALL_DIAMETER, SMALL_DIAMETER, arcStart, arcDuration);
-                    }
-                }
-
-                int dirArrow = 40;
-                g.drawArc(middle - dirArrow, middle - dirArrow, 2 * dirArrow, 2 * dirArrow, 0, 180);
-                g.drawLine(middle + dirArrow + 5, middle - 15, middle + dirArrow, middle);
+            int tdcMarkRadius = 8;
+            g.setColor(UpDownImage.ENGINE_CYCLE_COLOR);
+            // draw TDC mark and text on the round wheel
+            g.fillOval(middle + smallX - tdcMarkRadius, middle + smallY - tdcMarkRadius,
+                    2 * tdcMarkRadius,
+                    2 * tdcMarkRadius);
 
+            g.drawString("TDC", middle + smallX + tdcMarkRadius * 2, middle + smallY);
+        }
+        g.setColor(Color.black);
+
+        for (int i = 0; i < wheel.size(); i++) {
+            TriggerSignal current = wheel.get(i);
+
+            drawRadialLine(g, current.getAngle());
+            /**
+             * java arc API is
+             *      * Angles are interpreted such that 0&nbsp;degrees
+             *      * is at the 3'clock position.
+             *      * A positive value indicates a counter-clockwise rotation
+             *      * while a negative value indicates a clockwise rotation.
+             *
+             * we want zero to be at 12'clock position and clockwise rotation
+             */
+
+            double nextAngle = i == wheel.size() - 1 ? 360 + wheel.get(0).getAngle() : wheel.get(i + 1).getAngle();
+            int arcDuration = (int) (current.getAngle() - nextAngle);
+            int arcStart = (int) arcToRusEFI(nextAngle);
+            if (current.getState() == 1) {
+                g.drawArc(WHEEL_BORDER, WHEEL_BORDER, WHEEL_DIAMETER, WHEEL_DIAMETER, arcStart, arcDuration);
+            } else {
+                int corner = WHEEL_BORDER + (WHEEL_DIAMETER - SMALL_DIAMETER) / 2;
+                g.drawArc(corner, corner, SMALL_DIAMETER, SMALL_DIAMETER, arcStart, arcDuration);
             }
+        }
 
-            @Override
-            public Dimension getPreferredSize() {
-                return new Dimension(WHEEL_DIAMETER + 2 * WHEEL_BORDER, WHEEL_DIAMETER + 2 * WHEEL_BORDER);
-            }
-        };
+        int dirArrow = 40;
+        g.drawArc(middle - dirArrow, middle - dirArrow, 2 * dirArrow, 2 * dirArrow, 0, 180);
+        g.drawLine(middle + dirArrow + 5, middle - 15, middle + dirArrow, middle);
     }
 
     private static double arcToRusEFI(double angle) {
@@ -321,65 +344,51 @@ public class TriggerImage {
         throw new IllegalArgumentException("No type for " + id);
     }
 
-    private static class TriggerPanel extends JPanel {
-        public String name = "";
-        // angle
-        public double tdcPosition;
-        public UpDownImage image;
-        public TriggerWheelInfo.TriggerGaps gaps;
-
-        @Override
-        public void paint(Graphics g) {
-            super.paint(g);
-
-            g.setColor(Color.black);
-
-            int w = getWidth();
-
-            int off = g.getFontMetrics().stringWidth(TOP_MESSAGE);
-            g.drawString(TOP_MESSAGE, w - off, g.getFont().getSize());
-
-            String line = new Date().toString();
-            off = g.getFontMetrics().stringWidth(line);
-            g.drawString(line, w - off, 2 * g.getFont().getSize());
+    /**
+     * Trigger name, TDC position and sync gaps on top of signal chart
+     */
+    private static void paintTriggerInfo(Graphics g, int w, int h, String name, double tdcPosition,
+                                         TriggerWheelInfo.TriggerGaps gaps, EngineReport report, String timestamp) {
+        g.setColor(Color.black);
 
-            Font f = g.getFont();
-            g.setFont(new Font(f.getName(), Font.BOLD, f.getSize() * 3));
+        int off = g.getFontMetrics().stringWidth(TOP_MESSAGE);
+        g.drawString(TOP_MESSAGE, w - off, g.getFont().getSize());
 
-            int h = getHeight();
+        off = g.getFontMetrics().stringWidth(timestamp);
+        g.drawString(timestamp, w - off, 2 * g.getFont().getSize());
 
-            g.drawString(name, 50, (int) (h * 0.75));
+        Font f = g.getFont();
+        g.setFont(new Font(f.getName(), Font.BOLD, f.getSize() * 3));
 
-            g.setColor(UpDownImage.ENGINE_CYCLE_COLOR);
-            int tdcFontSize = (int) (f.getSize() * 1.5);
-            g.setFont(new Font(f.getName(), Font.BOLD, tdcFontSize));
-            String tdcMessage;
-            if (tdcPosition != 0) {
-                tdcMessage = "TDC " + formatTdcPosition() + " degree from synchronization point";
-            } else {
-                tdcMessage = "TDC at synchronization point";
-            }
-            g.drawString("     " + tdcMessage, 0, tdcFontSize);
-            g.setColor(Color.darkGray);
-            if (image == null)
-                return;
-            for (int i = 0; i < gaps.gapFrom.length; i++) {
-                String message = "Sync " + (i + 1) + ": From " + gaps.gapFrom[i] + " to " + gaps.gapTo[i];
-                g.drawString("            " + message, 0, tdcFontSize * (2 + i));
-            }
+        g.drawString(name, 50, (int) (h * 0.75));
 
-            int tdcX = image.engineReport.getTimeAxisTranslator().timeToScreen(MIN_TIME + tdcPosition, w);
-            g.drawLine(tdcX, 0, tdcX, h);
-            Graphics2D g2 = (Graphics2D) g;
-            g2.rotate(Math.PI / 2);
-            g2.drawString("TDC", 160, -tdcX - 3);
-            g2.rotate(-Math.PI / 2);
+        g.setColor(UpDownImage.ENGINE_CYCLE_COLOR);
+        int tdcFontSize = (int) (f.getSize() * 1.5);
+        g.setFont(new Font(f.getName(), Font.BOLD, tdcFontSize));
+        String tdcMessage;
+        if (tdcPosition != 0) {
+            tdcMessage = "TDC " + formatTdcPosition(tdcPosition) + " degree from synchronization point";
+        } else {
+            tdcMessage = "TDC at synchronization point";
         }
-
-        private String formatTdcPosition() {
-            if ((int) tdcPosition == tdcPosition)
-                return Integer.toString((int) tdcPosition);
-            return Double.toString(tdcPosition);
+        g.drawString("     " + tdcMessage, 0, tdcFontSize);
+        g.setColor(Color.darkGray);
+        for (int i = 0; gaps != null && i < gaps.gapFrom.length; i++) {
+            String message = "Sync " + (i + 1) + ": From " + gaps.gapFrom[i] + " to " + gaps.gapTo[i];
+            g.drawString("            " + message, 0, tdcFontSize * (2 + i));
         }
+
+        int tdcX = report.getTimeAxisTranslator().timeToScreen(MIN_TIME + tdcPosition, w);
+        g.drawLine(tdcX, 0, tdcX, h);
+        Graphics2D g2 = (Graphics2D) g;
+        g2.rotate(Math.PI / 2);
+        g2.drawString("TDC", 160, -tdcX - 3);
+        g2.rotate(-Math.PI / 2);
+    }
+
+    private static String formatTdcPosition(double tdcPosition) {
+        if ((int) tdcPosition == tdcPosition)
+            return Integer.toString((int) tdcPosition);
+        return Double.toString(tdcPosition);
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.rusefi.trigger;
+
+import java.io.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers hash of rendered wheel data together with checksum of produced PNG so that {@link TriggerImage} does not
+ * render a wheel again while both are unchanged
+ */
+class TriggerImageCache {
+    static final String FILE_NAME = "trigger_images.properties";
+    /**
+     * bump when rendering code changes to regenerate all images
+     */
+    private static final int RENDERER_VERSION = 1;
+
+    private final File file;
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+
+    private TriggerImageCache(File file) {
+        this.file = file;
+    }
+
+    static TriggerImageCache load(File folder) {
+        TriggerImageCache cache = new TriggerImageCache(new File(folder, FILE_NAME));
+        if (cache.file.exists()) {
+            Properties properties = new Properties();
+            try (InputStream is = new FileInputStream(cache.file)) {
+                properties.load(is);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            for (String key : properties.stringPropertyNames())
+                cache.entries.put(key, properties.getProperty(key));
+        }
+        return cache;
+    }
+
+    boolean isUpToDate(File image, String inputHash) {
+        String entry = entries.get(image.getName());
+        return entry != null && image.exists() && entry.equals(inputHash + ":" + checksum(image));
+    }
+
+    void update(File image, String inputHash) {
+        entries.put(image.getName(), inputHash + ":" + checksum(image));
+    }
+
+    void save() {
+        Properties properties = new Properties();
+        properties.putAll(entries);
+        try (OutputStream os = new FileOutputStream(file)) {
+            properties.store(os, "trigger image input hash:PNG checksum");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param name trigger name as shown on the image
+     */
+    static String hash(TriggerWheelInfo wheel, String name) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            try (DataOutputStream dos = new DataOutputStream(new DigestOutputStream(new ByteArrayOutputStream(), digest))) {
+                dos.writeInt(RENDERER_VERSION);
+                dos.writeInt(wheel.getId());
+                dos.writeUTF(name);
+                dos.writeDouble(wheel.getTdcPosition());
+                dos.writeDouble(wheel.getTdcPositionIn360());
+                writeSignals(dos, wheel.getSignals());
+                writeSignals(dos, wheel.getFirstWheeTriggerSignals());
+                writeSignals(dos, wheel.getSecondWheeTriggerSignals());
+                TriggerWheelInfo.TriggerGaps gaps = wheel.getGaps();
+                dos.writeInt(gaps == null ? -1 : gaps.gapFrom.length);
+                for (int i = 0; gaps != null && i < gaps.gapFrom.length; i++) {
+                    dos.writeDouble(gaps.gapFrom[i]);
+                    dos.writeDouble(gaps.gapTo[i]);
+                }
+            }
+            return toHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeSignals(DataOutputStream dos, List<TriggerSignal> signals) throws IOException {
+        dos.writeInt(signals.size());
+        for (TriggerSignal signal : signals) {
+            dos.writeInt(signal.getWaveIndex());
+            dos.writeInt(signal.getState());
+            dos.writeDouble(signal.getAngle());
+            dos.writeDouble(signal.getGap());
+        }
+    }
+
+    private static String checksum(File image) {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        try (InputStream is = new FileInputStream(image)) {
+            int length;
+            while ((length = is.read(buffer)) != -1)
+                crc.update(buffer, 0, length);
+        } catch (IOException e) {
+            return "";
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes)
+            sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+}
@@ -13,15 +13,16 @@ import com.rusefi.core.preferences.storage.Node;
 import com.rusefi.ui.util.URLLabel;
 import com.rusefi.ui.util.UiUtils;
 import com.rusefi.ui.widgets.AnyCommand;
+import com.rusefi.waves.ChannelEvents;
 import com.rusefi.waves.EngineChart;
 import com.rusefi.waves.EngineChartParser;
 import com.rusefi.waves.EngineReport;
+import com.rusefi.waves.RevolutionLog;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.util.*;
-import java.util.List;
 
 import static com.devexperts.logging.Logging.getLogging;
 
@@ -130,9 +131,10 @@ public class EngineSnifferPanel {
 
         resetImagePanel();
 
-        uiContext.getLinkManager().getEngineState().registerStringValueAction(EngineReport.ENGINE_CHART, value -> {
+        uiContext.getLinkManager().getEngineState().registerValueAction(EngineReport.ENGINE_CHART, value -> {
             if (isPaused)
                 return;
+            // decoded right away, chart text is not copied
             displayChart(value);
         });
 
@@ -165,15 +167,15 @@ public class EngineSnifferPanel {
         images.put(Fields.PROTOCOL_CRANK1, crank);
     }
 
-    public void displayChart(String value) {
-        EngineChart map = EngineChartParser.unpackToMap(value);
+    public void displayChart(CharSequence value) {
+        EngineChart chart = EngineChartParser.decode(value);
 
-        StringBuilder revolutions = map.get(Fields.TOP_DEAD_CENTER_MESSAGE);
+        RevolutionLog revolutions = chart.getRevolutionsLog();
 
         statusPanel.setRevolutions(revolutions);
 
         // Create images for any new keys
-        for (String imageName : map.getMap().keySet()) {
+        for (String imageName : chart.getChannelNames()) {
             createSecondaryImage(imageName);
         }
 
@@ -183,12 +185,10 @@ public class EngineSnifferPanel {
             if (image == null)
                 throw new IllegalStateException("image not found for " + imageName);
 
-            StringBuilder sb = map.getMap().get(imageName);
-            String report = sb == null ? "" : sb.toString();
+            ChannelEvents events = chart.getEvents(imageName);
+            EngineReport wr = new EngineReport(events == null ? new ChannelEvents(imageName) : events);
 
             image.setRevolutions(revolutions);
-            List<EngineReport.UpDown> list = EngineReport.parse(report);
-            EngineReport wr = new EngineReport(list);
             image.setWaveReport(wr, revolutions);
         }
 
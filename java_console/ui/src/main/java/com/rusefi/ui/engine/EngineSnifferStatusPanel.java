@@ -78,7 +78,7 @@ public class EngineSnifferStatusPanel {
         this.translator = translator;
     }
 
-    public void setRevolutions(StringBuilder revolutions) {
-        time2rpm = RevolutionLog.parseRevolutions(revolutions);
+    public void setRevolutions(RevolutionLog revolutions) {
+        time2rpm = revolutions;
     }
 }
@@ -35,7 +35,10 @@ public class UpDownImage extends JPanel {
             new float[]{21.0f, 7.0f}, 0.0f);
 
     public EngineReport engineReport;
-    private StringBuilder revolutions;
+    /**
+     * null unless TDC marks should be painted
+     */
+    private RevolutionLog revolutions;
     private final String name;
     private TimeAxisTranslator translator;
     private RevolutionLog time2rpm = RevolutionLog.parseRevolutions(null);
@@ -120,7 +123,7 @@ public class UpDownImage extends JPanel {
         return this._translator;
     }
 
-    public void setWaveReport(EngineReport wr, StringBuilder revolutions) {
+    public void setWaveReport(EngineReport wr, RevolutionLog revolutions) {
         this.engineReport = wr;
         propagateDwellIntoSensor(wr);
         this.revolutions = revolutions;
@@ -131,18 +134,23 @@ public class UpDownImage extends JPanel {
         if (sensor == null)
             return;
 
-        if (!wr.getList().isEmpty()) {
-            EngineReport.UpDown last = wr.getList().get(wr.getList().size() - 1);
-            SensorCentral.getInstance().setValue(last.getDuration(), sensor);
-        }
+        if (!wr.isEmpty())
+            SensorCentral.getInstance().setValue(wr.getDuration(wr.size() - 1), sensor);
     }
 
     @Override
     public void paint(Graphics g) {
         super.paint(g);
+        paintContent(g, getSize());
+    }
+
+    /**
+     * Also used without showing this component, see {@link com.rusefi.trigger.TriggerImage}
+     */
+    public void paintContent(Graphics g, Dimension size) {
         Graphics2D g2 = (Graphics2D) g;
 
-        Dimension d = getSize();
+        Dimension d = new Dimension(size);
         g.setColor(getBackground());
         g.fillRect(0, 0, d.width, d.height);
 
@@ -156,8 +164,16 @@ public class UpDownImage extends JPanel {
 
         AtomicInteger gapIndex = new AtomicInteger();
 
-        for (EngineReport.UpDown upDown : engineReport.getList())
-            paintUpDown(d, upDown, g, gapIndex);
+        EngineReport report = engineReport;
+        double[] upAngles = null;
+        double[] downAngles = null;
+        if (renderText && d.height >= 50) {
+            // one pass over revolutions for all events of this row
+            upAngles = report.getUpAngles(time2rpm);
+            downAngles = report.getDownAngles(time2rpm);
+        }
+        for (int i = 0; i < report.size(); i++)
+            paintUpDown(d, report, i, upAngles, downAngles, g, gapIndex);
 
         g2.setColor(Color.black);
 
@@ -178,21 +194,20 @@ public class UpDownImage extends JPanel {
 
         // When the row gets small, omit event count
         if (d.height > 40) {
-            g.drawString(engineReport.getList().size() + " events", 5, ++line * LINE_SIZE);
+            g.drawString(report.size() + " events", 5, ++line * LINE_SIZE);
         }
     }
 
     private void drawStartOfRevolution(Graphics2D g2, Dimension d) {
-        if (revolutions == null)
+        RevolutionLog time2rpm = revolutions;
+        if (time2rpm == null)
             return;
 
-        RevolutionLog time2rpm = RevolutionLog.parseRevolutions(revolutions);
-
         Stroke oldStroke = g2.getStroke();
 
         g2.setStroke(ENGINE_CYCLE_STROKE);
-        for (int time : time2rpm.keySet()) {
-            int x = translator.timeToScreen(time, d.width);
+        for (int i = 0; i < time2rpm.getSize(); i++) {
+            int x = translator.timeToScreen(time2rpm.getTime(i), d.width);
             g2.setColor(ENGINE_CYCLE_COLOR);
             g2.drawLine(x, 0, x, d.height);
 
@@ -240,9 +255,13 @@ public class UpDownImage extends JPanel {
         g2.setStroke(oldStroke);
     }
 
-    private void paintUpDown(Dimension d, EngineReport.UpDown upDown, Graphics g, AtomicInteger gapIndex) {
-        int x1 = translator.timeToScreen(upDown.upTime, d.width);
-        int x2 = translator.timeToScreen(upDown.downTime, d.width);
+    private void paintUpDown(Dimension d, EngineReport report, int i, double[] upAngles, double[] downAngles, Graphics g, AtomicInteger gapIndex) {
+        int upTime = report.getUpTime(i);
+        int downTime = report.getDownTime(i);
+        int upIndex = report.getUpIndex(i);
+        int downIndex = report.getDownIndex(i);
+        int x1 = translator.timeToScreen(upTime, d.width);
+        int x2 = translator.timeToScreen(downTime, d.width);
 
         // Draw the filled in rectangle body
         g.setColor(signalBody);
@@ -261,37 +280,39 @@ public class UpDownImage extends JPanel {
         }
 
         // '-1' actually means 'not first wheel' it's coming from
-        if (!Double.isNaN(upDown.prevGap)) {
+        double prevGap = report.getPrevGap(i);
+        if (!Double.isNaN(prevGap)) {
             gapIndex.set(gapIndex.incrementAndGet() % GAP_POSITIONS);
-            g.drawString(String.format("gap %.2f", upDown.prevGap), x1, d.height / 2 + gapIndex.get() * g.getFont().getSize());
+            g.drawString(String.format("gap %.2f", prevGap), x1, d.height / 2 + gapIndex.get() * g.getFont().getSize());
         }
-        if (!Double.isNaN(upDown.gap)) {
+        double gap = report.getGap(i);
+        if (!Double.isNaN(gap)) {
             gapIndex.set(gapIndex.incrementAndGet() % GAP_POSITIONS);
-            g.drawString(String.format("gap %.2f", upDown.gap), x2, d.height / 2 + gapIndex.get() * g.getFont().getSize());
+            g.drawString(String.format("gap %.2f", gap), x2, d.height / 2 + gapIndex.get() * g.getFont().getSize());
         }
 
         if (!this.renderText) {
             return;
         }
 
-        final int duration = upDown.getDuration();
+        final int duration = report.getDuration(i);
 
         // don't render duration for zero duration or for trigger
-        if (duration != 0 && upDown.upTriggerCycleIndex == -1) {
+        if (duration != 0 && upIndex == -1) {
             g.setColor(Color.red);
             String durationString = String.format(" %.2fms", duration / EngineReport.ENGINE_SNIFFER_TICKS_PER_MS);
             g.drawString(durationString, x1, 15);
         }
 
-        if (upDown.upTriggerCycleIndex != -1) {
+        if (upIndex != -1) {
             g.setColor(Color.darkGray);
-            g.drawString("" + upDown.upTriggerCycleIndex, x1, (int) (0.25 * d.height));
+            g.drawString("" + upIndex, x1, (int) (0.25 * d.height));
         }
 
         // Skip second index if invalid or equal to start index
-        if (upDown.downTriggerCycleIndex != -1 && upDown.upTriggerCycleIndex != upDown.downTriggerCycleIndex) {
+        if (downIndex != -1 && upIndex != downIndex) {
             g.setColor(Color.darkGray);
-            g.drawString("" + upDown.downTriggerCycleIndex, x2, (int) (0.25 * d.height));
+            g.drawString("" + downIndex, x2, (int) (0.25 * d.height));
         }
 
         // No angle text if shorter than 50px
@@ -302,17 +323,15 @@ public class UpDownImage extends JPanel {
         int offset = 3;
         g.setColor(Color.black);
 
-        double fromAngle = time2rpm.getCrankAngleByTime(upDown.upTime);
-        String fromAngleStr = RevolutionLog.angle2string(fromAngle);
+        String fromAngleStr = RevolutionLog.angle2string(upAngles[i]);
         g.drawString(fromAngleStr, x1 + offset, (int) (0.5 * d.height));
 
-        double toAngle = time2rpm.getCrankAngleByTime(upDown.downTime);
-        String toAngleStr = RevolutionLog.angle2string(toAngle);
+        String toAngleStr = RevolutionLog.angle2string(downAngles[i]);
         g.drawString(toAngleStr, x1 + offset, (int) (0.75 * d.height));
     }
 
-    public void setRevolutions(StringBuilder revolutions) {
-        time2rpm = RevolutionLog.parseRevolutions(revolutions);
+    public void setRevolutions(RevolutionLog revolutions) {
+        time2rpm = revolutions;
     }
 
     public void setPhysicalPin(String pin) {
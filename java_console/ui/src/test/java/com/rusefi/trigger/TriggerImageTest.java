@@ -0,0 +1,146 @@
+package com.rusefi.trigger;
+
+import com.rusefi.config.generated.Fields;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class TriggerImageTest {
+    private static final String TIMESTAMP = "Mon Jan 01 00:00:00 UTC 2024";
+    private static final String FORD_ASPIRE = "trigger_TT_FORD_ASPIRE.png";
+    private static final String ONE = "trigger_TT_ONE.png";
+
+    private static final String TRIGGERS = "TRIGGERTYPE 1 10 TT_FORD_ASPIRE 0.00\n" +
+            "knownOperationMode=true\n" +
+            "crankBased=false\n" +
+            "hasSecondChannel=true\n" +
+            "isSecondWheelCam=true\n" +
+            "cycleDuration=720\n" +
+            "gapsCount=1\n" +
+            "isSynchronizationNeeded=0\n" +
+            "gapFrom.0=1.500000\n" +
+            "gapTo.0=2.500000\n" +
+            "# end of meta section\n" +
+            "event 0 0 1 0.00 8.780488\n" +
+            "event 1 1 1 0.00 nan\n" +
+            "event 2 1 0 52.76 nan\n" +
+            "event 3 1 1 52.76 nan\n" +
+            "event 4 1 0 232.76 nan\n" +
+            "event 5 0 0 232.76 nan\n" +
+            "event 6 1 1 412.76 nan\n" +
+            "event 7 1 0 412.76 nan\n" +
+            "event 8 1 1 592.76 nan\n" +
+            "event 9 1 0 592.76 nan\n" +
+            "TRIGGERTYPE 18 2 TT_ONE %s\n" +
+            "knownOperationMode=false\n" +
+            "crankBased=false\n" +
+            "hasSecondChannel=false\n" +
+            "isSecondWheelCam=false\n" +
+            "cycleDuration=720\n" +
+            "gapsCount=1\n" +
+            "isSynchronizationNeeded=0\n" +
+            "gapFrom.0=0.750000\n" +
+            "gapTo.0=1.250000\n" +
+            "# end of meta section\n" +
+            "event 0 0 1 0.00 1.000000\n" +
+            "event 1 0 0 360.00 nan\n";
+
+    private Path root;
+    private File output;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("trigger_image");
+        output = root.resolve("triggers").toFile();
+        writeTriggers("0.00");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(file);
+        }
+    }
+
+    @Test
+    public void unchangedInputsAreSkipped() throws Exception {
+        assertEquals(2, render(output, 2));
+        byte[] fordAspire = read(FORD_ASPIRE);
+        byte[] one = read(ONE);
+
+        assertEquals(0, render(output, 2));
+        assertArrayEquals(fordAspire, read(FORD_ASPIRE));
+        assertArrayEquals(one, read(ONE));
+    }
+
+    @Test
+    public void changedInputInvalidatesOnlyItsImage() throws Exception {
+        assertEquals(2, render(output, 2));
+        byte[] fordAspire = read(FORD_ASPIRE);
+        byte[] one = read(ONE);
+
+        writeTriggers("90.00");
+        assertEquals(1, render(output, 2));
+        assertArrayEquals(fordAspire, read(FORD_ASPIRE));
+        assertFalse(Arrays.equals(one, read(ONE)));
+    }
+
+    @Test
+    public void changedImageInvalidatesOnlyItself() throws Exception {
+        assertEquals(2, render(output, 2));
+        byte[] fordAspire = read(FORD_ASPIRE);
+        byte[] one = read(ONE);
+
+        Files.write(new File(output, ONE).toPath(), new byte[]{1, 2, 3});
+        assertEquals(1, render(output, 2));
+        assertArrayEquals(fordAspire, read(FORD_ASPIRE));
+        assertArrayEquals(one, read(ONE));
+
+        assertTrue(new File(output, FORD_ASPIRE).delete());
+        assertEquals(1, render(output, 2));
+        assertArrayEquals(fordAspire, read(FORD_ASPIRE));
+    }
+
+    @Test
+    public void sameImagesWithAnyThreadCount() throws Exception {
+        File singleThreaded = root.resolve("single").toFile();
+        assertEquals(2, render(singleThreaded, 1));
+        assertEquals(2, render(output, 4));
+
+        for (String name : new String[]{FORD_ASPIRE, ONE})
+            assertArrayEquals(name, Files.readAllBytes(new File(singleThreaded, name).toPath()), read(name));
+        assertEquals(withoutComments(Files.readAllBytes(new File(singleThreaded, TriggerImageCache.FILE_NAME).toPath())),
+                withoutComments(read(TriggerImageCache.FILE_NAME)));
+    }
+
+    private int render(File folder, int threads) throws InterruptedException {
+        return TriggerImage.renderAll(root.toString(), folder, threads, TIMESTAMP);
+    }
+
+    private byte[] read(String name) throws IOException {
+        return Files.readAllBytes(new File(output, name).toPath());
+    }
+
+    private void writeTriggers(String tdcPosition) throws IOException {
+        Files.write(root.resolve(Fields.TRIGGERS_FILE_NAME), String.format(TRIGGERS, tdcPosition).getBytes());
+    }
+
+    /**
+     * properties file starts with its own timestamp
+     */
+    private static String withoutComments(byte[] content) {
+        return new String(content).replaceAll("(?m)^#.*\\R", "");
+    }
+}
@@ -38,16 +38,16 @@ public class ConfigDefinition {
      */
     public static boolean needZeroInit = true;
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         try {
             doJob(args, new ReaderStateImpl());
         } catch (Throwable e) {
             SystemOut.println(e);
             e.printStackTrace();
+            throw e;
+        } finally {
             SystemOut.close();
-            System.exit(-1);
         }
-        SystemOut.close();
     }
 
     public static void doJob(String[] args, ReaderStateImpl state) throws IOException {
@@ -62,6 +62,8 @@ public class ConfigDefinition {
         }
 
         SystemOut.println(ConfigDefinition.class + " Invoked with " + Arrays.toString(args));
+        // static so reset in case of several invocations within same JVM
+        needZeroInit = true;
 
         String tsTemplateFile = null;
         String destCDefinesFileName = null;
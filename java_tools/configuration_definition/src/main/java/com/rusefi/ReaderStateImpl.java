@@ -46,6 +46,19 @@ public class ReaderStateImpl implements ReaderState {
 
     private final EnumsReader enumsReader = new EnumsReader();
     private final VariableRegistry variableRegistry = new VariableRegistry();
+    private InputSource inputSource = FileInputStream::new;
+
+    /**
+     * Where prepend and definition file content comes from
+     * @see com.rusefi.ldmp.DefinitionFileCache
+     */
+    public interface InputSource {
+        InputStream open(String fileName) throws IOException;
+    }
+
+    public void setInputSource(InputSource inputSource) {
+        this.inputSource = inputSource;
+    }
 
     @Override
     public void setWithC_Defines(boolean withC_Defines) {
@@ -92,14 +105,14 @@ public class ReaderStateImpl implements ReaderState {
     @Override
     public void doJob() throws IOException {
         for (String prependFile : prependFiles)
-            variableRegistry.readPrependValues(prependFile);
+            variableRegistry.readPrependValues(new InputStreamReader(inputSource.open(prependFile)));
 
         /*
          * this is the most important invocation - here we read the primary input file and generated code into all
          * the destinations/writers
          */
         SystemOut.println("Reading definition from " + definitionInputFile);
-        BufferedReader definitionReader = new BufferedReader(new InputStreamReader(new FileInputStream(definitionInputFile), IoUtils.CHARSET));
+        BufferedReader definitionReader = new BufferedReader(new InputStreamReader(inputSource.open(definitionInputFile), IoUtils.CHARSET));
         readBufferedReader(definitionReader, destinations);
     }
 
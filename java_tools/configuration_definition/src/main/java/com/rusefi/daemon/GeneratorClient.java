@@ -0,0 +1,155 @@
+package com.rusefi.daemon;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thin client for {@link GeneratorDaemon}, usage mirrors plain java invocation:
+ * <pre>
+ * java -cp ConfigDefinition.jar com.rusefi.daemon.GeneratorClient -DSystemOut.name=logs/x com.rusefi.ConfigDefinition -definition ...
+ * </pre>
+ * If there is no daemon for this build, see firmware/gen_with_daemon.sh, or if anything goes wrong while talking to it,
+ * the generator is invoked right here so the client could be used unconditionally.
+ */
+public class GeneratorClient {
+    private static final String PROPERTY_PREFIX = "-D";
+
+    static class Request {
+        final String workingDirectory;
+        final Map<String, String> properties;
+        final String className;
+        final String[] args;
+
+        Request(String workingDirectory, Map<String, String> properties, String className, String[] args) {
+            this.workingDirectory = workingDirectory;
+            this.properties = properties;
+            this.className = className;
+            this.args = args;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeUTF(workingDirectory);
+            out.writeInt(properties.size());
+            for (Map.Entry<String, String> e : properties.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeUTF(e.getValue());
+            }
+            out.writeUTF(className);
+            out.writeInt(args.length);
+            for (String arg : args)
+                out.writeUTF(arg);
+            out.flush();
+        }
+
+        static Request read(DataInputStream in) throws IOException {
+            String workingDirectory = in.readUTF();
+            Map<String, String> properties = new LinkedHashMap<>();
+            int propertiesCount = in.readInt();
+            for (int i = 0; i < propertiesCount; i++)
+                properties.put(in.readUTF(), in.readUTF());
+            String className = in.readUTF();
+            String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++)
+                args[i] = in.readUTF();
+            return new Request(workingDirectory, properties, className, args);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> properties = new LinkedHashMap<>();
+        int index = 0;
+        while (index < args.length && args[index].startsWith(PROPERTY_PREFIX)) {
+            String property = args[index++].substring(PROPERTY_PREFIX.length());
+            int equals = property.indexOf('=');
+            if (equals == -1) {
+                properties.put(property, "");
+            } else {
+                properties.put(property.substring(0, equals), property.substring(equals + 1));
+            }
+        }
+        if (index == args.length) {
+            System.err.println("Usage: GeneratorClient [-Dname=value...] <generator class name> [arguments...]");
+            System.exit(-1);
+        }
+        String className = args[index];
+        String[] generatorArgs = Arrays.copyOfRange(args, index + 1, args.length);
+
+        String port = System.getenv(GeneratorDaemon.PORT_VARIABLE);
+        String token = System.getenv(GeneratorDaemon.TOKEN_VARIABLE);
+        if (port == null || token == null) {
+            invokeLocally(properties, className, generatorArgs);
+            return;
+        }
+
+        int exitCode;
+        try {
+            exitCode = invoke(Integer.parseInt(port), token, new File("").getAbsolutePath(), properties, className, generatorArgs, System.out);
+        } catch (IOException e) {
+            // daemon is gone, died in the middle of our request or did not answer in full: the generator is simply
+            // invoked once again
+            System.err.println("Generator daemon not available: " + e);
+            invokeLocally(properties, className, generatorArgs);
+            return;
+        }
+        if (exitCode == GeneratorDaemon.WRONG_DIRECTORY || exitCode == GeneratorDaemon.WRONG_TOKEN) {
+            // daemon of some other build
+            invokeLocally(properties, className, generatorArgs);
+            return;
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Console output is only written once whole response has been received
+     *
+     * @return generator exit code
+     * @throws IOException if daemon is not running or if connection breaks in the middle of request
+     */
+    public static int invoke(int port, String token, String workingDirectory, Map<String, String> properties, String className, String[] args, OutputStream console) throws IOException {
+        Request request = new Request(workingDirectory, properties, className, args);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(token);
+            request.write(out);
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            byte[] output = new byte[in.readInt()];
+            in.readFully(output);
+            int exitCode = in.readInt();
+            console.write(output);
+            console.flush();
+            return exitCode;
+        }
+    }
+
+    /**
+     * Asks daemon to exit
+     */
+    public static void stop(int port, String token) throws IOException {
+        invoke(port, token, new File("").getAbsolutePath(), new LinkedHashMap<>(), GeneratorDaemon.STOP, new String[0], new ByteArrayOutputStream());
+    }
+
+    static void writeResponse(DataOutputStream out, byte[] output, int exitCode) throws IOException {
+        out.writeInt(output.length);
+        out.write(output);
+        out.writeInt(exitCode);
+        out.flush();
+    }
+
+    private static void invokeLocally(Map<String, String> properties, String className, String[] args) throws Exception {
+        for (Map.Entry<String, String> e : properties.entrySet())
+            System.setProperty(e.getKey(), e.getValue());
+        try {
+            Class.forName(className).getMethod("main", String[].class).invoke(null, (Object) args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw (Error) e.getCause();
+        }
+    }
+}
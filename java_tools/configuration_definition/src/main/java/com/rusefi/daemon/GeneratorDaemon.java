@@ -0,0 +1,210 @@
+package com.rusefi.daemon;
+
+import com.rusefi.ConfigDefinition;
+import com.rusefi.EnumToString;
+import com.rusefi.InvokeReader;
+import com.rusefi.ReaderStateImpl;
+import com.rusefi.ToJavaEnum;
+import com.rusefi.ldmp.DefinitionFileCache;
+import com.rusefi.ldmp.LiveDataProcessor;
+import com.rusefi.pinout.PinoutLogic;
+import com.rusefi.util.SystemOut;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Long-running process which executes code generation requests sent by {@link GeneratorClient}, this way we pay for
+ * JVM startup, class loading and JIT warmup only once per build instead of once per generator invocation.
+ * <p>
+ * Each build starts its own daemon, see firmware/gen_with_daemon.sh: daemon listens on an ephemeral localhost port
+ * and only serves requests carrying the random token it was started with, both are handed to clients via
+ * {@link #PORT_VARIABLE} and {@link #TOKEN_VARIABLE} environment variables.
+ * <p>
+ * Requests are handled one by one since generators are not meant to run concurrently. Java cannot change working
+ * directory of a running process so all requests have to come from the directory the daemon was started in.
+ * <p>
+ * Output files are exactly the same as with one-shot invocations.
+ */
+public class GeneratorDaemon implements Closeable {
+    public static final String PORT_VARIABLE = "GENERATOR_DAEMON_PORT";
+    public static final String TOKEN_VARIABLE = "GENERATOR_DAEMON_TOKEN";
+    /**
+     * special request name which makes daemon exit
+     */
+    static final String STOP = "stop";
+
+    static final int OK = 0;
+    static final int FAILURE = 255;
+    static final int WRONG_DIRECTORY = 3;
+    static final int WRONG_TOKEN = 4;
+
+    private static final int READ_TIMEOUT_MS = Integer.getInteger("GeneratorDaemon.read_timeout", 10_000);
+
+    private final ServerSocket serverSocket;
+    private final byte[] token;
+    private final File workingDirectory = new File("").getAbsoluteFile();
+    /**
+     * parsed inputs stay hot between LiveDataProcessor invocations
+     */
+    private final DefinitionFileCache fileCache = new DefinitionFileCache();
+
+    /**
+     * @param port zero for ephemeral port, see {@link #getPort()}
+     */
+    public GeneratorDaemon(int port, String token) throws IOException {
+        if (token == null || token.isEmpty())
+            throw new IllegalStateException("Token expected");
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Usage: GeneratorDaemon [port file], token is taken from {@link #TOKEN_VARIABLE} environment variable
+     */
+    public static void main(String[] args) throws IOException {
+        try (GeneratorDaemon daemon = new GeneratorDaemon(0, System.getenv(TOKEN_VARIABLE))) {
+            System.out.println("Generator daemon listening on " + daemon.getPort() + " in " + daemon.workingDirectory);
+            if (args.length > 0)
+                writePortFile(Paths.get(args[0]), daemon.getPort());
+            daemon.run();
+        }
+    }
+
+    /**
+     * Written atomically so that whoever polls for the file never reads half of it
+     */
+    private static void writePortFile(Path portFile, int port) throws IOException {
+        Path temp = portFile.resolveSibling(portFile.getFileName() + ".tmp");
+        Files.write(temp, Integer.toString(port).getBytes());
+        Files.move(temp, portFile, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Blocks until {@link #STOP} request or {@link #close()}
+     */
+    public void run() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed())
+                    return;
+                throw e;
+            }
+            try (Socket s = socket) {
+                // stalled client should not block the whole build
+                s.setSoTimeout(READ_TIMEOUT_MS);
+                if (!handle(s))
+                    return;
+            } catch (IOException e) {
+                System.err.println("Request failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * @return false on stop request
+     */
+    private boolean handle(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        // token goes first so that nothing else is read from an unknown peer
+        byte[] requestToken = in.readUTF().getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(token, requestToken)) {
+            GeneratorClient.writeResponse(out, "Wrong token\n".getBytes(), WRONG_TOKEN);
+            return true;
+        }
+
+        GeneratorClient.Request request = GeneratorClient.Request.read(in);
+        if (STOP.equals(request.className)) {
+            GeneratorClient.writeResponse(out, new byte[0], OK);
+            return false;
+        }
+
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        int exitCode;
+        if (!new File(request.workingDirectory).getCanonicalFile().equals(workingDirectory.getCanonicalFile())) {
+            console.write(("Daemon runs in " + workingDirectory + " but request came from " + request.workingDirectory + "\n").getBytes());
+            exitCode = WRONG_DIRECTORY;
+        } else {
+            exitCode = execute(request, console);
+        }
+        GeneratorClient.writeResponse(out, console.toByteArray(), exitCode);
+        return true;
+    }
+
+    private int execute(GeneratorClient.Request request, ByteArrayOutputStream console) {
+        // generators could set properties on their own as well so we restore all of them
+        Properties previousProperties = new Properties();
+        previousProperties.putAll(System.getProperties());
+
+        PrintStream previousOut = System.out;
+        PrintStream previousErr = System.err;
+        PrintStream capture = new PrintStream(console, true);
+        System.setOut(capture);
+        System.setErr(capture);
+        try {
+            // same static state as in a fresh JVM
+            ConfigDefinition.needZeroInit = true;
+            for (Map.Entry<String, String> e : request.properties.entrySet())
+                System.setProperty(e.getKey(), e.getValue());
+            execute(request.className, request.args);
+            return OK;
+        } catch (Throwable e) {
+            SystemOut.println(e);
+            e.printStackTrace();
+            return FAILURE;
+        } finally {
+            // log file name could be different for next request
+            SystemOut.close();
+            capture.flush();
+            System.setOut(previousOut);
+            System.setErr(previousErr);
+            System.setProperties(previousProperties);
+        }
+    }
+
+    /**
+     * Generators report invalid arguments and failures with exceptions, none of them is allowed to terminate the JVM
+     */
+    private void execute(String className, String[] args) throws Exception {
+        if (className.equals(ConfigDefinition.class.getName())) {
+            ReaderStateImpl state = new ReaderStateImpl();
+            state.setInputSource(fileCache::open);
+            ConfigDefinition.doJob(args, state);
+        } else if (className.equals(LiveDataProcessor.class.getName())) {
+            LiveDataProcessor.doJob(LiveDataProcessor.getYamlFileName(args), fileCache);
+        } else if (className.equals(EnumToString.class.getName())) {
+            EnumToString.handleRequest(new InvokeReader(args).invoke());
+        } else if (className.equals(ToJavaEnum.class.getName())) {
+            ToJavaEnum.main(args);
+        } else if (className.equals(PinoutLogic.class.getName())) {
+            // parsed connector yaml stays hot between invocations
+            PinoutLogic.main(args);
+        } else {
+            throw new IllegalStateException("Not supported by daemon: " + className);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
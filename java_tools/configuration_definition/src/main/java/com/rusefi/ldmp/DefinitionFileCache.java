@@ -0,0 +1,67 @@
+package com.rusefi.ldmp;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Each input file referenced by LiveData.yaml, for instance shared prepend file, is read from disk only once.
+ * <p>
+ * A cache which outlives one invocation notices files modified on disk and reads them again. Modification time and
+ * size are only trusted once the file was older than {@link #MTIME_GRANULARITY_MS} when it was read, otherwise a
+ * rewrite with same size within file system timestamp granularity would go unnoticed. Such recent files are read
+ * again and compared byte by byte.
+ * <p>
+ * Safe to use from multiple threads.
+ *
+ * @see LiveDataProcessor
+ */
+public class DefinitionFileCache {
+    /**
+     * coarsest common file system timestamp resolution, FAT has two seconds
+     */
+    private static final long MTIME_GRANULARITY_MS = 2000;
+
+    private final Map<String, FileContent> content = new ConcurrentHashMap<>();
+
+    private static class FileContent {
+        private final FileTime lastModified;
+        private final long size;
+        private final byte[] bytes;
+        /**
+         * true if any later modification is guaranteed to change modification time
+         */
+        private final boolean isSettled;
+
+        private FileContent(FileTime lastModified, long size, byte[] bytes, long readTimeMs) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.bytes = bytes;
+            isSettled = readTimeMs - lastModified.toMillis() > MTIME_GRANULARITY_MS;
+        }
+    }
+
+    public InputStream open(String fileName) throws IOException {
+        return new ByteArrayInputStream(getContent(fileName));
+    }
+
+    private byte[] getContent(String fileName) throws IOException {
+        Path path = Paths.get(fileName);
+        FileTime lastModified = Files.getLastModifiedTime(path);
+        long size = Files.size(path);
+        FileContent cached = content.get(fileName);
+        boolean isSameStat = cached != null && cached.lastModified.equals(lastModified) && cached.size == size;
+        if (isSameStat && cached.isSettled)
+            return cached.bytes;
+        long readTimeMs = System.currentTimeMillis();
+        byte[] bytes = Files.readAllBytes(path);
+        content.put(fileName, new FileContent(lastModified, size, bytes, readTimeMs));
+        return bytes;
+    }
+}
@@ -3,6 +3,7 @@ package com.rusefi.ldmp;
 import com.devexperts.logging.Logging;
 import com.rusefi.EnumToString;
 import com.rusefi.InvokeReader;
+import com.rusefi.ReaderState;
 import com.rusefi.ReaderStateImpl;
 import com.rusefi.RusefiParseErrorStrategy;
 import com.rusefi.newparse.ParseState;
@@ -21,7 +22,12 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class LiveDataProcessor {
     private final static Logging log = Logging.getLogging(LiveDataProcessor.class);
@@ -47,47 +53,159 @@ public class LiveDataProcessor {
 
     private final String extraPrepend = System.getProperty("LiveDataProcessor.extra_prepend");
 
+    /**
+     * In cached inputs mode each input file is read once, each definition file is only parsed by
+     * {@link ReaderStateImpl} and independent outputs are written concurrently. C headers are produced from the same
+     * parse by {@link StructLayoutConsumer} instead of a second newparse pass. Output is identical to the default mode.
+     */
+    private final boolean cachedInputs = Boolean.getBoolean("LiveDataProcessor.cached_inputs");
+
+    private final DefinitionFileCache fileCache;
+
+    private final ExecutorService outputExecutor;
+
+    private final List<Future<?>> pendingOutputs = new ArrayList<>();
+
+    interface OutputTask {
+        void write() throws IOException;
+    }
+
+    public LiveDataProcessor() {
+        this(new DefinitionFileCache());
+    }
+
+    /**
+     * @param fileCache could be shared between invocations, see {@link com.rusefi.daemon.GeneratorDaemon}
+     */
+    public LiveDataProcessor(DefinitionFileCache fileCache) {
+        this.fileCache = fileCache;
+        outputExecutor = cachedInputs ? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "LiveDataProcessor output");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+    }
+
     public static void main(String[] args) throws IOException {
-        if (args.length != 1) {
-            System.err.println("One parameter expected: name of live data yaml input file");
-            System.exit(-1);
-        }
+        doJob(getYamlFileName(args), new DefinitionFileCache());
+    }
 
+    public static String getYamlFileName(String[] args) {
+        if (args.length != 1)
+            throw new IllegalStateException("One parameter expected: name of live data yaml input file");
+        return args[0];
+    }
+
+    public static void doJob(String yamlFileName, DefinitionFileCache fileCache) throws IOException {
         // ensure outputs directory exists - it's gitignored
         Files.createDirectories(Paths.get(tsOutputsDestination));
 
-        String yamlFileName = args[0];
         Yaml yaml = new Yaml();
-        Map<String, Object> data = yaml.load(new FileReader(yamlFileName));
+        Map<String, Object> data;
+        try (FileReader reader = new FileReader(yamlFileName)) {
+            data = yaml.load(reader);
+        }
 
-        LiveDataProcessor liveDataProcessor = new LiveDataProcessor();
+        LiveDataProcessor liveDataProcessor = new LiveDataProcessor(fileCache);
+        try {
+            liveDataProcessor.generate(data);
+        } finally {
+            // also on failure, pending writes are not needed anymore
+            if (liveDataProcessor.outputExecutor != null)
+                liveDataProcessor.outputExecutor.shutdownNow();
+        }
+    }
 
-        int sensorTsPosition = liveDataProcessor.handleYaml(data);
-        liveDataProcessor.writeFiles();
+    private void generate(Map<String, Object> data) throws IOException {
+        int sensorTsPosition = handleYaml(data);
+        output(this::writeFiles);
 
         log.info("TS_TOTAL_OUTPUT_SIZE=" + sensorTsPosition);
-        try (FileWriter fw = new FileWriter("generated/total_live_data_generated.h")) {
-            fw.write(header);
-            fw.write("#define TS_TOTAL_OUTPUT_SIZE " + sensorTsPosition);
+        output(() -> {
+            try (FileWriter fw = new FileWriter("generated/total_live_data_generated.h")) {
+                fw.write(header);
+                fw.write("#define TS_TOTAL_OUTPUT_SIZE " + sensorTsPosition);
+            }
+        });
+
+        output(() -> writeFile(tsOutputsDestination + "fancy_content.ini", fancyNewStuff.toString()));
+
+        output(() -> writeFile(tsOutputsDestination + "fancy_menu.ini", fancyNewMenu.toString()));
+
+        awaitOutputs();
+    }
+
+    private static void writeFile(String fileName, String content) throws IOException {
+        try (FileWriter fw = new FileWriter(fileName)) {
+            fw.write(content);
         }
+    }
 
-        try (FileWriter fw = new FileWriter(tsOutputsDestination + "fancy_content.ini")) {
-            fw.write(liveDataProcessor.fancyNewStuff.toString());
+    /**
+     * Writes right away in default mode, or schedules the write in cached inputs mode
+     */
+    private void output(OutputTask task) throws IOException {
+        if (outputExecutor == null) {
+            task.write();
+            return;
         }
+        pendingOutputs.add(outputExecutor.submit(() -> {
+            task.write();
+            return null;
+        }));
+    }
 
-        try (FileWriter fw = new FileWriter(tsOutputsDestination + "fancy_menu.ini")) {
-            fw.write(liveDataProcessor.fancyNewMenu.toString());
+    private void awaitOutputs() throws IOException {
+        if (outputExecutor == null)
+            return;
+        try {
+            for (Future<?> pending : pendingOutputs) {
+                pending.get();
+            }
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IllegalStateException(e.getCause());
         }
     }
 
+    /**
+     * In cached inputs mode the final write of a consumer is postponed so that it does not block the next entry
+     */
+    private ConfigurationConsumer outputOnEndFile(ConfigurationConsumer consumer) {
+        if (outputExecutor == null)
+            return consumer;
+        return new ConfigurationConsumer() {
+            @Override
+            public void startFile() {
+                consumer.startFile();
+            }
+
+            @Override
+            public void endFile() throws IOException {
+                output(consumer::endFile);
+            }
+
+            @Override
+            public void handleEndStruct(ReaderState readerState, ConfigStructure structure) throws IOException {
+                consumer.handleEndStruct(readerState, structure);
+            }
+        };
+    }
+
     interface EntryHandler {
         void onEntry(String name, String javaName, String folder, String prepend, boolean withCDefines, String[] outputNames, String constexpr, String conditional, Boolean isPtr) throws IOException;
     }
 
     private int handleYaml(Map<String, Object> data) throws IOException {
-        OutputsSectionConsumer outputsSections = new OutputsSectionConsumer(tsOutputsDestination + File.separator + "output_channels.ini");
+        String outputChannelsFileName = tsOutputsDestination + File.separator + "output_channels.ini";
+        String dataLogsFileName = tsOutputsDestination + File.separator + "data_logs.ini";
+        // in cached inputs mode these are written once at the end instead of on every struct
+        OutputsSectionConsumer outputsSections = new OutputsSectionConsumer(cachedInputs ? null : outputChannelsFileName);
 
-        ConfigurationConsumer dataLogConsumer = new DataLogConsumer(tsOutputsDestination + File.separator + "data_logs.ini");
+        DataLogConsumer dataLogConsumer = new DataLogConsumer(cachedInputs ? null : dataLogsFileName);
 
         SdCardFieldsContent sdCardFieldsConsumer = new SdCardFieldsContent();
 
@@ -107,6 +225,8 @@ public class LiveDataProcessor {
             baseAddressCHeader.append("#define " + name.toUpperCase() + "_BASE_ADDRESS " + startingPosition + "\n");
 
             ReaderStateImpl state = new ReaderStateImpl();
+            if (cachedInputs)
+                state.setInputSource(fileCache::open);
             state.setDefinitionInputFile(folder + File.separator + name + ".txt");
             state.setWithC_Defines(withCDefines);
 
@@ -125,7 +245,7 @@ public class LiveDataProcessor {
             int baseOffset = outputsSections.getBaseOffset();
 
            if (javaName != null) {
-               state.addDestination(new FileJavaFieldsConsumer(state, "../java_console/models/src/main/java/com/rusefi/config/generated/" + javaName, baseOffset));
+               state.addDestination(outputOnEndFile(new FileJavaFieldsConsumer(state, "../java_console/models/src/main/java/com/rusefi/config/generated/" + javaName, baseOffset)));
            }
 
             if (constexpr != null) {
@@ -140,7 +260,9 @@ public class LiveDataProcessor {
 
             }
 
-            {
+            if (cachedInputs) {
+                state.addDestination(outputOnEndFile(new StructLayoutConsumer(cHeaderDestination)));
+            } else {
                 ParseState parseState = new ParseState(state.getEnumsReader());
 
                 parseState.setDefinitionPolicy(Definition.OverwritePolicy.NotAllowed);
@@ -237,11 +359,18 @@ public class LiveDataProcessor {
         }
         enumContent.append("} live_data_e;\n");
 
-        LazyFile lazyFile = new LazyFile("generated/log_fields_generated.h");
-        SdCardFieldsConsumer.wrapContent(lazyFile, sdCardFieldsConsumer.getBody());
-        lazyFile.close();
+        if (cachedInputs) {
+            output(() -> writeFile(outputChannelsFileName, outputsSections.getContent()));
+            output(() -> writeFile(dataLogsFileName, dataLogConsumer.getContent()));
+        }
+
+        output(() -> {
+            LazyFile lazyFile = new LazyFile("generated/log_fields_generated.h");
+            SdCardFieldsConsumer.wrapContent(lazyFile, sdCardFieldsConsumer.getBody());
+            lazyFile.close();
+        });
 
-        outputValueConsumer.endFile();
+        output(outputValueConsumer::endFile);
         // sdLogWriter.endFile();
 
         // return outputChannelWriter.getSize();
@@ -9,15 +9,15 @@ import java.io.FileOutputStream;
 import java.io.PrintStream;
 
 public class CStructWriter {
+    public static final String HEADER = "#pragma once\n" +
+            "#include \"rusefi_types.h\"";
+
     public void writeCStructs(ParseState parser, String outputFile) throws FileNotFoundException {
         writeCStructs(parser, new PrintStreamAlwaysUnix(new FileOutputStream(outputFile)));
     }
 
     public void writeCStructs(ParseState parser, PrintStream ps) {
-        ps.println(
-                "#pragma once\n" +
-                "#include \"rusefi_types.h\""
-        );
+        ps.println(HEADER);
 
         for (Struct s : parser.getStructs()) {
             StructLayout sl = new StructLayout(0, "root", s);
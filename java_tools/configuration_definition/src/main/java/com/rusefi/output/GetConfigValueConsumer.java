@@ -10,13 +10,13 @@ import org.jetbrains.annotations.Nullable;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.rusefi.output.ConfigStructureImpl.ALIGNMENT_FILL_AT;
 import static com.rusefi.output.DataLogConsumer.UNUSED;
-import static com.rusefi.output.GetOutputValueConsumer.getHashConflicts;
+import static com.rusefi.output.GetOutputValueConsumer.getGetterSwitch;
+import static com.rusefi.output.GetOutputValueConsumer.getPerfectMultiplier;
+import static com.rusefi.output.GetOutputValueConsumer.getUniqueNames;
 import static com.rusefi.output.GetOutputValueConsumer.wrapSwitchStatement;
 
 /**
@@ -102,15 +102,20 @@ public class GetConfigValueConsumer implements ConfigurationConsumer {
     }
 
     @NotNull
-    private String getAssignment(String cast, String value) {
-        return "\t{\n" + "\t\t" + value + " = " + cast +
-                "value;\n" +
-                "\t\treturn;\n\t}\n";
+    private String getAssignment(String userName, String cast, String value) {
+        return "\t\t\tif (" + getCompareName(userName) + ") {\n" +
+                "\t\t\t\t" + value + " = " + cast + "value;\n" +
+                "\t\t\t\treturn;\n" +
+                "\t\t\t}\n" +
+                "\t\t\tbreak;\n";
     }
 
+    /**
+     * Hash is only unique among known names, any other name could still land on a known case
+     */
     @NotNull
     static String getCompareName(String userName) {
-        return "\tif (strEqualCaseInsensitive(name, \"" + userName + "\"))\n";
+        return "strEqualCaseInsensitive(name, \"" + userName + "\")";
     }
 
     public String getHeaderAndGetter() {
@@ -124,44 +129,27 @@ public class GetConfigValueConsumer implements ConfigurationConsumer {
 
     @NotNull
     public String getCompleteGetterBody() {
-        StringBuilder switchBody = new StringBuilder();
-
-        StringBuilder getterBody = GetOutputValueConsumer.getGetters(switchBody, variables);
-
-        String fullSwitch = wrapSwitchStatement(switchBody);
-
         return GET_METHOD_HEADER +
-                fullSwitch +
-                getterBody + GET_METHOD_FOOTER;
+                getGetterSwitch(variables) +
+                GET_METHOD_FOOTER;
     }
 
     public String getSetterBody() {
-        StringBuilder switchBody = new StringBuilder();
+        List<VariableRecord> uniqueVariables = getUniqueNames(variables);
+        int multiplier = getPerfectMultiplier(uniqueVariables);
 
-        StringBuilder setterBody = new StringBuilder();
-        HashMap<Integer, AtomicInteger> hashConflicts = getHashConflicts(variables);
-
-        for (VariableRecord pair : variables) {
+        StringBuilder switchBody = new StringBuilder();
+        for (VariableRecord pair : uniqueVariables) {
 
             String cast = TypesHelper.isFloat(pair.type) ? "" : "(int)";
 
 
-            int hash = HashUtil.hash(pair.getUserName());
-            String str = getAssignment(cast, pair.getFullName());
-            if (hashConflicts.get(hash).get() == 1) {
-                switchBody.append("\t\tcase " + hash + ":\n");
-                switchBody.append(str);
-
-            } else {
-
-                setterBody.append(getCompareName(pair.getUserName()));
-                setterBody.append(str);
-            }
+            int hash = HashUtil.djb2lowerCase(pair.getUserName(), multiplier);
+            switchBody.append("\t\tcase " + hash + ":\n");
+            switchBody.append(getAssignment(pair.getUserName(), cast, pair.getFullName()));
         }
 
-        String fullSwitch = wrapSwitchStatement(switchBody);
-
-        return fullSwitch + setterBody;
+        return wrapSwitchStatement(switchBody, multiplier);
     }
 
     public String getContent() {
@@ -8,9 +8,12 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.Set;
 
 import static com.rusefi.output.ConfigStructureImpl.ALIGNMENT_FILL_AT;
 import static com.rusefi.output.DataLogConsumer.UNUSED;
@@ -69,61 +72,98 @@ public class GetOutputValueConsumer implements ConfigurationConsumer {
     }
 
     public String getContent() {
-        StringBuilder switchBody = new StringBuilder();
-
-        StringBuilder getterBody = getGetters(switchBody, getterPairs);
-
-        String fullSwitch = wrapSwitchStatement(switchBody);
+        String fullSwitch = getGetterSwitch(getterPairs);
 
         return  "#if !EFI_UNIT_TEST\n" +
                 FILE_HEADER +
                 "float getOutputValueByName(const char *name) {\n" +
                 fullSwitch +
-                getterBody + GetConfigValueConsumer.GET_METHOD_FOOTER +
+                GetConfigValueConsumer.GET_METHOD_FOOTER +
                 "#endif\n";
     }
 
     @NotNull
-    static String wrapSwitchStatement(StringBuilder switchBody) {
+    static String wrapSwitchStatement(StringBuilder switchBody, int multiplier) {
+        String hashArguments = multiplier == HashUtil.DEFAULT_MULTIPLIER ? "name" : ("name, " + multiplier);
         return switchBody.length() == 0 ? "" :
-                ("\tint hash = djb2lowerCase(name);\n" +
+                ("\tint hash = djb2lowerCase(" + hashArguments + ");\n" +
 
                         "\tswitch(hash) {\n" + switchBody + "\t}\n");
     }
 
     @NotNull
-    static StringBuilder getGetters(StringBuilder switchBody, List<VariableRecord> getterPairs) {
-        HashMap<Integer, AtomicInteger> hashConflicts = getHashConflicts(getterPairs);
-
-        StringBuilder getterBody = new StringBuilder();
-        for (VariableRecord pair : getterPairs) {
-            String returnLine = "\t\treturn " + pair.getFullName() + ";\n";
-            String conditional = pair.getConditional();
+    static String getGetterSwitch(List<VariableRecord> getterPairs) {
+        List<VariableRecord> uniquePairs = getUniqueNames(getterPairs);
+        int multiplier = getPerfectMultiplier(uniquePairs);
 
-            String before = conditional == null ? "" : "#if " + conditional + "\n";
-            String after = conditional == null ? "" : "#endif\n";
+        // same name under different conditionals shares one case label, first enabled one wins
+        Map<String, List<VariableRecord>> byName = new LinkedHashMap<>();
+        for (VariableRecord pair : uniquePairs)
+            byName.computeIfAbsent(pair.getUserName().toLowerCase(), k -> new ArrayList<>()).add(pair);
 
-            int hash = HashUtil.hash(pair.getUserName());
-            if (hashConflicts.get(hash).get() == 1) {
-                switchBody.append(before);
+        StringBuilder switchBody = new StringBuilder();
+        for (List<VariableRecord> pairs : byName.values()) {
+            int hash = HashUtil.djb2lowerCase(pairs.get(0).getUserName(), multiplier);
+            if (pairs.size() == 1) {
+                VariableRecord pair = pairs.get(0);
+                switchBody.append(before(pair));
                 switchBody.append("\t\tcase " + hash + ":\n");
-                switchBody.append("\t" + returnLine);
-                switchBody.append(after);
+                switchBody.append(getReturnLine(pair));
+                switchBody.append("\t\t\tbreak;\n");
+                switchBody.append(after(pair));
             } else {
-                getterBody.append(getCompareName(pair.getUserName()));
-                getterBody.append(returnLine);
+                switchBody.append("\t\tcase " + hash + ":\n");
+                for (VariableRecord pair : pairs) {
+                    switchBody.append(before(pair));
+                    switchBody.append(getReturnLine(pair));
+                    switchBody.append(after(pair));
+                }
+                switchBody.append("\t\t\tbreak;\n");
             }
         }
-        return getterBody;
+        return wrapSwitchStatement(switchBody, multiplier);
     }
 
+    private static String getReturnLine(VariableRecord pair) {
+        return "\t\t\tif (" + getCompareName(pair.getUserName()) + ")\n" +
+                "\t\t\t\treturn " + pair.getFullName() + ";\n";
+    }
+
+    private static String before(VariableRecord pair) {
+        return pair.getConditional() == null ? "" : "#if " + pair.getConditional() + "\n";
+    }
+
+    private static String after(VariableRecord pair) {
+        return pair.getConditional() == null ? "" : "#endif\n";
+    }
+
+    /**
+     * Lookup is case-insensitive so of same-named variables only the first one is reachable under any given
+     * conditional. Same name under a different conditional is kept since that conditional might be the only one
+     * enabled, unless an unconditional variable of that name comes first.
+     */
     @NotNull
-    static HashMap<Integer, AtomicInteger> getHashConflicts(List<VariableRecord> getterPairs) {
-        HashMap<Integer, AtomicInteger> hashConflicts = new HashMap<>();
-        for (VariableRecord pair : getterPairs) {
-            hashConflicts.computeIfAbsent(HashUtil.hash(pair.getUserName()), integer -> new AtomicInteger(0)).incrementAndGet();
+    static List<VariableRecord> getUniqueNames(List<VariableRecord> pairs) {
+        Set<String> keys = new HashSet<>();
+        List<VariableRecord> result = new ArrayList<>();
+        for (VariableRecord pair : pairs) {
+            String name = pair.getUserName().toLowerCase();
+            if (keys.contains(name + "#" + null))
+                continue;
+            if (keys.add(name + "#" + pair.getConditional()))
+                result.add(pair);
         }
-        return hashConflicts;
+        return result;
     }
 
+    /**
+     * @return hash multiplier verified to have no collisions among known names so that each lookup is one switch plus
+     * one name compare
+     */
+    static int getPerfectMultiplier(List<VariableRecord> uniquePairs) {
+        Set<String> names = new LinkedHashSet<>();
+        for (VariableRecord pair : uniquePairs)
+            names.add(pair.getUserName().toLowerCase());
+        return HashUtil.findPerfectMultiplier(names);
+    }
 }
@@ -1,17 +1,59 @@
 package com.rusefi.output;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 public class HashUtil {
+    public static final int DEFAULT_MULTIPLIER = 33;
+    /**
+     * there is no point going on forever, in practice first few candidates are always enough
+     */
+    private static final int MAX_MULTIPLIER = 0xFFFF;
+
     public static int hash(String string) {
         return djb2lowerCase(string);
     }
 
     public static int djb2lowerCase(String string) {
+        return djb2lowerCase(string, DEFAULT_MULTIPLIER);
+    }
+
+    /**
+     * should match firmware efilib.cpp
+     */
+    public static int djb2lowerCase(String string, int multiplier) {
         int hash = 5381;
 
         for (int i = 0; i < string.length(); i++) {
             char c = Character.toLowerCase(string.charAt(i));
-            hash = ((hash << 5) + hash) + (byte) c/* hash * 33 + c */;
+            hash = hash * multiplier + (byte) c;
         }
         return hash;
     }
+
+    /**
+     * Plain seed change would not help: djb2 is linear so two same-length strings which collide with one initial
+     * value collide with any initial value. Changing the multiplier does reshuffle everything.
+     *
+     * @param names unique (case-insensitive) names
+     * @return smallest odd multiplier starting with {@link #DEFAULT_MULTIPLIER} which gives each name a unique hash
+     */
+    public static int findPerfectMultiplier(Collection<String> names) {
+        for (int multiplier = DEFAULT_MULTIPLIER; multiplier <= MAX_MULTIPLIER; multiplier += 2) {
+            if (isCollisionFree(names, multiplier))
+                return multiplier;
+        }
+        throw new IllegalStateException("No collision-free hash multiplier in [" + DEFAULT_MULTIPLIER + ", " + MAX_MULTIPLIER
+                + "] for " + names.size() + " names, are all names unique ignoring case?");
+    }
+
+    public static boolean isCollisionFree(Collection<String> names, int multiplier) {
+        Set<Integer> hashes = new HashSet<>();
+        for (String name : names) {
+            if (!hashes.add(djb2lowerCase(name, multiplier)))
+                return false;
+        }
+        return true;
+    }
 }
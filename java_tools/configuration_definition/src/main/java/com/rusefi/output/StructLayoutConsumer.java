@@ -0,0 +1,170 @@
+package com.rusefi.output;
+
+import com.rusefi.ConfigField;
+import com.rusefi.ReaderState;
+import com.rusefi.VariableRegistry;
+import com.rusefi.newparse.layout.StructLayout;
+import com.rusefi.newparse.outputs.CStructWriter;
+import com.rusefi.newparse.outputs.PrintStreamAlwaysUnix;
+import com.rusefi.newparse.parsing.*;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes same C header as {@link CStructWriter} but from structures which {@link com.rusefi.ReaderStateImpl} has
+ * already read, so that the definition file does not have to be parsed a second time by newparse.
+ * <p>
+ * Padding fields of the legacy model are dropped, {@link StructLayout} computes padding on its own.
+ * Only structures of the definition file are written: prepend files only contribute definitions.
+ *
+ * @see com.rusefi.ldmp.LiveDataProcessor
+ */
+public class StructLayoutConsumer implements ConfigurationConsumer {
+    private static final Pattern AT_SIGN_REPLACEMENT = Pattern.compile("@@([A-Za-z0-9_]+)@@");
+    private static final int BITS_PER_GROUP = 32;
+
+    private final String outputFileName;
+    private final Map<String, Struct> structs = new HashMap<>();
+    private final List<Struct> structList = new ArrayList<>();
+
+    public StructLayoutConsumer(String outputFileName) {
+        this.outputFileName = outputFileName;
+    }
+
+    @Override
+    public void handleEndStruct(ReaderState state, ConfigStructure structure) {
+        List<Field> fields = new ArrayList<>();
+        BitGroup bitGroup = null;
+        for (ConfigField cf : structure.getcFields()) {
+            if (isPadding(cf))
+                continue;
+            if (cf.isBit()) {
+                if (bitGroup == null || bitGroup.bitFields.size() == BITS_PER_GROUP) {
+                    bitGroup = new BitGroup();
+                    fields.add(bitGroup);
+                }
+                String comment = processComment(state.getVariableRegistry(), cf.getComment());
+                bitGroup.addBitField(new BitField(cf.getName(), comment == null || comment.isEmpty() ? null : comment,
+                        quote(cf.getTrueName()), quote(cf.getFalseName())));
+                continue;
+            }
+            bitGroup = null;
+            PrototypeField field = toField(state, cf);
+            if (cf.isArray()) {
+                fields.add(new ArrayField<>(field, cf.getArraySizes(), cf.isIterate()));
+            } else {
+                fields.add((Field) field);
+            }
+        }
+
+        Struct struct = new Struct(structure.getName(), fields, !structure.isWithPrefix(), structure.getComment());
+        structs.put(struct.name, struct);
+        structList.add(struct);
+    }
+
+    @Override
+    public void endFile() throws IOException {
+        try (PrintStream ps = new PrintStreamAlwaysUnix(new FileOutputStream(outputFileName))) {
+            ps.println(CStructWriter.HEADER);
+            for (Struct s : structList) {
+                StructLayout sl = new StructLayout(0, "root", s);
+                sl.writeCLayoutRoot(ps);
+            }
+        }
+    }
+
+    private static boolean isPadding(ConfigField cf) {
+        return cf.getName().startsWith(ConfigStructureImpl.ALIGNMENT_FILL_AT)
+                || cf.getName().startsWith(ConfigStructureImpl.UNUSED_BIT_PREFIX);
+    }
+
+    private PrototypeField toField(ReaderState state, ConfigField cf) {
+        String type = cf.getType();
+        String name = cf.getName();
+        VariableRegistry registry = state.getVariableRegistry();
+
+        Struct struct = structs.get(type);
+        if (struct != null)
+            return new StructField(struct, name);
+        if (state.getStructures().containsKey(type))
+            throw new IllegalStateException(name + ": structure " + type + " is not defined in the definition file");
+
+        String customLine = state.getTsCustomLine().get(type);
+        if (customLine != null) {
+            String[] tokens = customLine.split(",");
+            String kind = tokens[0].trim();
+            switch (kind) {
+                case "scalar": {
+                    FieldOptions options = new FieldOptions();
+                    options.units = tokens[3].trim();
+                    options.scale = Double.parseDouble(tokens[4].trim());
+                    applyFieldOptions(registry, cf, options);
+                    return new ScalarField(Type.findByTsType(tokens[1].trim()), name, options, cf.isHasAutoscale());
+                }
+                case "bits": {
+                    FieldOptions options = new FieldOptions();
+                    applyFieldOptions(registry, cf, options);
+                    return new EnumField(Type.findByTsType(tokens[1].trim()), type, name, 0, new String[0], options);
+                }
+                case "string": {
+                    FieldOptions options = new FieldOptions();
+                    applyFieldOptions(registry, cf, options);
+                    return new StringField(name, state.getTsCustomSize().get(type), options.comment);
+                }
+                default:
+                    throw new IllegalStateException(name + ": unsupported custom type " + type + " of kind " + kind);
+            }
+        }
+
+        Optional<Type> primitive = Type.findByCtype(type);
+        if (!primitive.isPresent())
+            throw new IllegalStateException("didn't understand type " + type + " for element " + name);
+        FieldOptions options = new FieldOptions();
+        applyFieldOptions(registry, cf, options);
+        return new ScalarField(primitive.get(), name, options, cf.isHasAutoscale());
+    }
+
+    /**
+     * Field's own options override the ones of custom type, same as newparse does
+     */
+    private static void applyFieldOptions(VariableRegistry registry, ConfigField cf, FieldOptions options) {
+        if (cf.getComment() != null)
+            options.comment = processComment(registry, cf.getComment());
+        if (cf.getTsInfo() == null)
+            return;
+        options.units = cf.getTsInfo().split(",")[0].trim();
+        if (cf.isHasAutoscale())
+            options.scale = cf.autoscaleSpecNumber();
+    }
+
+    /**
+     * Same as newparse: a comment which references a definition is replaced with definition value
+     */
+    private static String processComment(VariableRegistry registry, String comment) {
+        if (comment == null || comment.isEmpty())
+            return comment;
+        Matcher matcher = AT_SIGN_REPLACEMENT.matcher(comment);
+        if (matcher.find()) {
+            String value = registry.get(matcher.group(1));
+            if (value == null)
+                throw new IllegalStateException("Definition not found for " + matcher.group(1));
+            comment = value;
+        }
+        if (comment.startsWith("\"") && comment.endsWith("\""))
+            comment = comment.substring(1, comment.length() - 1);
+        return comment;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+}
@@ -94,20 +94,21 @@ public class TSProjectConsumer implements ConfigurationConsumer {
                 line = removeToken(line);
             }
 
-            line = state.getVariableRegistry().applyVariables(line);
-
             if (isBeforeStartTag) {
                 prefix.append(line);
                 prefix.append(ToolUtil.EOL);
             }
 
             if (isAfterEndTag) {
-                postfix.append(state.getVariableRegistry().applyVariables(line));
+                postfix.append(line);
                 postfix.append(ToolUtil.EOL);
             }
         }
         r.close();
-        return new TsFileContent(prefix.toString(), postfix.toString());
+        // whole template in one go is much faster than line by line
+        VariableRegistry variableRegistry = state.getVariableRegistry();
+        String postfixContent = variableRegistry.applyVariables(variableRegistry.applyVariables(postfix.toString()));
+        return new TsFileContent(variableRegistry.applyVariables(prefix.toString()), postfixContent);
     }
 
     public static String removeToken(String line) {
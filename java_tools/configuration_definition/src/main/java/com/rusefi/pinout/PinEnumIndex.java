@@ -0,0 +1,63 @@
+package com.rusefi.pinout;
+
+import com.rusefi.EnumsReader;
+import com.rusefi.PinType;
+import com.rusefi.enum_reader.Value;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash lookups both ways between pin enum constant name and its numeric value, built once per enum instead of walking
+ * enum entries for each pin
+ */
+class PinEnumIndex {
+    private final Map</*id*/String, Integer> ordinalById = new HashMap<>();
+    private final Map<Integer, /*id*/String> idByOrdinal = new HashMap<>();
+
+    PinEnumIndex(EnumsReader.EnumState enumList) {
+        for (Map.Entry<String, Value> kv : enumList.entrySet()) {
+            int ordinal;
+            try {
+                ordinal = kv.getValue().getIntValue();
+            } catch (NumberFormatException e) {
+                // not a pin, nothing to look up
+                continue;
+            }
+            ordinalById.put(kv.getKey(), ordinal);
+            // first in enum order wins same as with linear search
+            idByOrdinal.putIfAbsent(ordinal, kv.getKey());
+        }
+    }
+
+    /**
+     * @return indexes of pin classes with enum known to reader, pin classes sharing enum share index
+     */
+    static Map<PinType, PinEnumIndex> create(EnumsReader enumsReader) {
+        Map<String, PinEnumIndex> byEnum = new HashMap<>();
+        Map<PinType, PinEnumIndex> result = new EnumMap<>(PinType.class);
+        for (PinType pinType : PinType.values()) {
+            String enumName = pinType.getPinType();
+            EnumsReader.EnumState enumList = enumsReader.getEnums().get(enumName);
+            if (enumList == null)
+                continue;
+            result.put(pinType, byEnum.computeIfAbsent(enumName, name -> new PinEnumIndex(enumList)));
+        }
+        return result;
+    }
+
+    /**
+     * @return null if there is no such id
+     */
+    Integer getOrdinal(String id) {
+        return ordinalById.get(id);
+    }
+
+    /**
+     * @return empty string if no constant has such value
+     */
+    String getId(int ordinal) {
+        return idByOrdinal.getOrDefault(ordinal, "");
+    }
+}
@@ -2,7 +2,6 @@ package com.rusefi.pinout;
 
 import com.devexperts.logging.Logging;
 import com.rusefi.*;
-import com.rusefi.enum_reader.Value;
 import com.rusefi.newparse.DefinitionsState;
 import com.rusefi.newparse.parsing.Definition;
 import com.rusefi.util.SystemOut;
@@ -10,7 +9,11 @@ import org.jetbrains.annotations.NotNull;
 import org.yaml.snakeyaml.Yaml;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static com.devexperts.logging.Logging.getLogging;
 import static com.rusefi.VariableRegistry.FULL_JAVA_ENUM;
@@ -25,6 +28,22 @@ public class PinoutLogic {
     private static final String QUOTED_NONE = quote(NONE);
     public static final String QUOTED_INVALID = quote(VariableRegistry.INVALID);
 
+    /**
+     * least recently used entries are dropped above this size, a few times the number of connector files in the tree
+     */
+    private static final int MAX_CACHED_YAML = 128;
+    /**
+     * Parsed connector yaml by content hash. Boards sharing connectors, as well as repeated runs within one JVM (see
+     * {@link com.rusefi.daemon.GeneratorDaemon}), parse each distinct file only once. Every edit of a connector file
+     * adds an entry, so in a long-running daemon the cache is bounded.
+     */
+    private static final Map<String, List<PinState>> PINS_BY_YAML_HASH = Collections.synchronizedMap(new LinkedHashMap<String, List<PinState>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<PinState>> eldest) {
+            return size() > MAX_CACHED_YAML;
+        }
+    });
+
     private final ArrayList<PinState> globalList = new ArrayList<>();
     private final Map</*id*/String, /*tsName*/String> tsNameById = new TreeMap<>();
     private final StringBuilder header = new StringBuilder("//DO NOT EDIT MANUALLY, let automation work hard.\n\n");
@@ -34,19 +53,10 @@ public class PinoutLogic {
         this.boardInputs = boardInputs;
     }
 
-    private static Map.Entry<String, Value> find(EnumsReader.EnumState enumList, String id) {
-        for (Map.Entry<String, Value> kv : enumList.entrySet()) {
-            if (kv.getKey().equals(id)) {
-                return kv;
-            }
-        }
-        return null;
-    }
-
-    private static void registerPins(String boardName, ArrayList<PinState> listPins, VariableRegistry registry, DefinitionsState parseState, EnumsReader enumsReader) {
-        if (listPins == null || listPins.isEmpty()) {
-            return;
-        }
+    /**
+     * @return TS names of pins by pin class then by enum ordinal
+     */
+    private static Map<String, ArrayList<String>> resolvePins(String boardName, ArrayList<PinState> listPins, Map<PinType, PinEnumIndex> indexes) {
         Map<String, ArrayList<String>> names = new HashMap<>();
         names.put("outputs", new ArrayList<>());
         names.put("analog_inputs", new ArrayList<>());
@@ -60,28 +70,28 @@ public class PinoutLogic {
                 throw new IllegalStateException("Class not found:  " + className);
             }
             PinType listPinType = PinType.find(className);
-            String pinType = listPinType.getPinType();
-            EnumsReader.EnumState enumList = enumsReader.getEnums().get(pinType);
-            Objects.requireNonNull(enumList, "Enum for " + pinType);
-            Map.Entry<String, Value> kv = find(enumList, id);
-            if (kv == null) {
+            PinEnumIndex index = indexes.get(listPinType);
+            Objects.requireNonNull(index, "Enum for " + listPinType.getPinType());
+            Integer ordinal = index.getOrdinal(id);
+            if (ordinal == null) {
                 throw new IllegalStateException(boardName + ": Not found " + id + " in " + className);
             }
 
-                    int index = kv.getValue().getIntValue();
-                    classList.ensureCapacity(index + 1);
-                    for (int ii = classList.size(); ii <= index; ii++) {
-                        classList.add(null);
-                    }
-                    classList.set(index, listPin.getPinTsName());
+            classList.ensureCapacity(ordinal + 1);
+            for (int ii = classList.size(); ii <= ordinal; ii++) {
+                classList.add(null);
+            }
+            classList.set(ordinal, listPin.getPinTsName());
         }
+        return names;
+    }
+
+    private static void registerPins(Map<String, ArrayList<String>> names, VariableRegistry registry, DefinitionsState parseState, Map<PinType, PinEnumIndex> indexes) {
         for (Map.Entry<String, ArrayList<String>> kv : names.entrySet()) {
             PinType namePinType = PinType.find(kv.getKey());
             String outputEnumName = namePinType.getOutputEnumName();
-            String pinType = namePinType.getPinType();
             String nothingName = namePinType.getNothingName();
-            EnumsReader.EnumState enumList = enumsReader.getEnums().get(pinType);
-            EnumPair pair = enumToOptionsList(nothingName, enumList, kv.getValue());
+            EnumPair pair = enumToOptionsList(nothingName, indexes.get(namePinType), kv.getValue());
             if (pair.getSimpleForm().length() > 0) {
                 // we seem to be here if specific pin category like switch_inputs has no pins
                 parseState.addDefinition(registry, outputEnumName + ENUM_SUFFIX, pair.getShorterForm(), Definition.OverwritePolicy.IgnoreNew);
@@ -92,13 +102,21 @@ public class PinoutLogic {
 
     @NotNull
     public static EnumPair enumToOptionsList(String nothingName, EnumsReader.EnumState enumList, ArrayList<String> values) {
+        return enumToOptionsList(nothingName, values.isEmpty() ? null : new PinEnumIndex(enumList), values);
+    }
+
+    /**
+     * @param index could be null if there are no values
+     */
+    @NotNull
+    private static EnumPair enumToOptionsList(String nothingName, PinEnumIndex index, ArrayList<String> values) {
         StringBuilder simpleForm = new StringBuilder();
 
         Map<Integer, String> pinMap = new HashMap<>();
 
         for (int i = 0; i < values.size(); i++) {
             appendCommaIfNeeded(simpleForm);
-            String key = findKey(enumList, i);
+            String key = index.getId(i);
 
             String value = values.get(i);
             if (i == 0) {
@@ -124,32 +142,57 @@ public class PinoutLogic {
             sb.append(",");
     }
 
-    private static String findKey(EnumsReader.EnumState enumList, int i) {
-        String key = "";
-        for (Map.Entry<String, Value> entry : enumList.entrySet()) {
-            if (entry.getValue().getIntValue() == i) {
-                key = entry.getKey();
-                break;
-            }
+    private void readMetaInfo(String yamlName, Reader reader) throws IOException {
+        String content;
+        try (Reader r = reader) {
+            content = readFully(r);
+        }
+        String hash = hash(content);
+        List<PinState> pins = PINS_BY_YAML_HASH.get(hash);
+        if (pins == null) {
+            pins = parseYaml(yamlName, content);
+            PINS_BY_YAML_HASH.put(hash, pins);
+        }
+        for (PinState pin : pins)
+            addPinToList(pin);
+    }
+
+    private static String readFully(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[8192];
+        int count;
+        while ((count = reader.read(buffer)) != -1)
+            sb.append(buffer, 0, count);
+        return sb.toString();
+    }
+
+    private static String hash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest)
+                sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        return key;
     }
 
     @SuppressWarnings("unchecked")
-    private void readMetaInfo(String yamlName, Reader reader) {
+    private static List<PinState> parseYaml(String yamlName, String content) {
         Yaml yaml = new Yaml();
-        Map<String, Object> yamlData = yaml.load(reader);
+        Map<String, Object> yamlData = yaml.load(content);
         if (yamlData == null) {
             SystemOut.println("Null yaml for " + yamlName);
-            return;
+            return Collections.emptyList();
         }
         List<Map<String, Object>> data = (List<Map<String, Object>>) yamlData.get("pins");
         if (data == null) {
             SystemOut.println("Null yaml for " + yamlName);
-            return;
+            return Collections.emptyList();
         }
         log.info("Got from " + yamlName + ": " +  data);
-        Objects.requireNonNull(data, "data");
+        List<PinState> pins = new ArrayList<>();
         for (Map<String, Object> pin : data) {
             Object pinId = pin.get("id");
             Object pinClass = pin.get("class");
@@ -170,27 +213,28 @@ public class PinoutLogic {
                     throw new IllegalStateException(pinName + ": id array length should match class array length: " + pinId + " vs " + pinClassArray);
                 for (int i = 0; i < pinIds.size(); i++) {
                     String id = pinIds.get(i);
-                    addPinToList(id, (String) pinTsName, pinClassArray.get(i));
+                    pins.add(new PinState(id, (String) pinTsName, pinClassArray.get(i)));
                 }
             } else if (pinId instanceof String) {
                 String pinIdString = (String) pinId;
                 if (pinIdString.length() == 0) {
                     throw new IllegalStateException("Unexpected empty ID field");
                 }
-                addPinToList(pinIdString, (String) pinTsName, (String) pinClass);
+                pins.add(new PinState(pinIdString, (String) pinTsName, (String) pinClass));
             } else {
                 throw new IllegalStateException("Unexpected type of ID field: " + pinId.getClass().getSimpleName());
             }
         }
+        return Collections.unmodifiableList(pins);
     }
 
-    private void addPinToList(String id, String pinTsName, String pinClass) {
+    private void addPinToList(PinState pin) {
+        String id = pin.getId();
         String existingTsName = tsNameById.get(id);
-        if (existingTsName != null && !existingTsName.equals(pinTsName))
+        if (existingTsName != null && !existingTsName.equals(pin.getPinTsName()))
             throw new IllegalStateException("ID used multiple times with different ts_name: " + id);
-        tsNameById.put(id, pinTsName);
-        PinState thisPin = new PinState(id, pinTsName, pinClass);
-        globalList.add(thisPin);
+        tsNameById.put(id, pin.getPinTsName());
+        globalList.add(pin);
     }
 
     public static PinoutLogic create(String boardName) {
@@ -203,8 +247,26 @@ public class PinoutLogic {
             return;
         }
         readFiles();
-        registerPins(boardInputs.getName(), globalList, registry, parseState, enumsReader);
+        if (!globalList.isEmpty()) {
+            Map<PinType, PinEnumIndex> indexes = PinEnumIndex.create(enumsReader);
+            registerPins(resolvePins(boardInputs.getName(), globalList, indexes), registry, parseState, indexes);
+        }
+        writeTsNameById();
+    }
+
+    /**
+     * Same validation and same board-specific .cpp file as {@link #registerBoardSpecificPinNames} but without
+     * registering pin enums so that boards are independent of each other
+     */
+    private void processBoard(Map<PinType, PinEnumIndex> indexes) throws IOException {
+        if (boardInputs.getBoardYamlKeys().isEmpty())
+            return;
+        readFiles();
+        resolvePins(boardInputs.getName(), globalList, indexes);
+        writeTsNameById();
+    }
 
+    private void writeTsNameById() throws IOException {
         try (Writer getTsNameByIdFile = boardInputs.getWriter()) {
             getTsNameByIdFile.append(header);
 
@@ -226,6 +288,64 @@ public class PinoutLogic {
         }
     }
 
+    /**
+     * Processes pinouts of many boards concurrently within one JVM, enum indexes and parsed yaml are shared between
+     * boards
+     */
+    public static void processBoards(List<? extends BoardInputs> boards, EnumsReader enumsReader, int threads) throws IOException, InterruptedException {
+        Map<PinType, PinEnumIndex> indexes = PinEnumIndex.create(enumsReader);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "PinoutLogic");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (BoardInputs board : boards) {
+                futures.add(executor.submit(() -> {
+                    new PinoutLogic(board).processBoard(indexes);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException)
+                        throw (IOException) e.getCause();
+                    if (e.getCause() instanceof RuntimeException)
+                        throw (RuntimeException) e.getCause();
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Usage: PinoutLogic -enumInputFile rusefi_hw_enums.h [-enumInputFile ...] board_folder [board_folder...]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        EnumsReader enumsReader = new EnumsReader();
+        List<BoardInputs> boards = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(EnumToString.KEY_ENUM_INPUT_FILE)) {
+                try (Reader reader = new FileReader(args[++i])) {
+                    enumsReader.read(reader);
+                }
+            } else {
+                boards.add(new FileSystemBoardInputsImpl(args[i]));
+            }
+        }
+        if (boards.isEmpty())
+            throw new IllegalStateException("Usage: PinoutLogic " + EnumToString.KEY_ENUM_INPUT_FILE + " <file> [...] <board folder> [...]");
+        int threads = Integer.getInteger("PinoutLogic.threads", Runtime.getRuntime().availableProcessors());
+        long start = System.currentTimeMillis();
+        processBoards(boards, enumsReader, threads);
+        SystemOut.println("Processed " + boards.size() + " board(s) in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
     private void readFiles() throws IOException {
         for (Object yamlFile : boardInputs.getBoardYamlKeys()) {
             header.append("// auto-generated by PinoutLogic.java based on " + yamlFile + "\n");
@@ -0,0 +1,133 @@
+package com.rusefi.daemon;
+
+import com.rusefi.ConfigDefinition;
+import com.rusefi.EnumToString;
+import com.rusefi.ToJavaEnum;
+import com.rusefi.ldmp.LiveDataProcessor;
+import com.rusefi.pinout.PinoutLogic;
+import com.rusefi.test.GeneratorFixture;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeneratorDaemonTest {
+    private static final String TOKEN = "0123456789abcdef";
+
+    private static class Request {
+        final Map<String, String> properties;
+        final String className;
+        final String[] args;
+
+        Request(Map<String, String> properties, String className, String... args) {
+            this.properties = properties;
+            this.className = className;
+            this.args = args;
+        }
+    }
+
+    /**
+     * Same order as in the build: live data, enums, configuration
+     */
+    private static final List<Request> REQUESTS = Arrays.asList(
+            new Request(Collections.singletonMap("LiveDataProcessor.cached_inputs", "true"),
+                    LiveDataProcessor.class.getName(), GeneratorFixture.LIVE_DATA),
+            new Request(Collections.emptyMap(), ToJavaEnum.class.getName(),
+                    "-enumInputFile", GeneratorFixture.TEST_ENUMS,
+                    "-outputPath", "../java_console/io/src/main/java/com/rusefi/enums"),
+            new Request(Collections.emptyMap(), EnumToString.class.getName(),
+                    "-outputPath", "generated",
+                    "-generatedFile", "test",
+                    "-enumInputFile", GeneratorFixture.TEST_ENUMS),
+            new Request(Collections.emptyMap(), PinoutLogic.class.getName(),
+                    "-enumInputFile", GeneratorFixture.HW_ENUMS,
+                    GeneratorFixture.BOARD),
+            new Request(Collections.emptyMap(), ConfigDefinition.class.getName(),
+                    "-definition", GeneratorFixture.CONFIG,
+                    "-prepend", "integration/shared.txt",
+                    "-with_c_defines", "false",
+                    "-initialize_to_zero", "false",
+                    "-enumInputFile", GeneratorFixture.HW_ENUMS,
+                    "-board", GeneratorFixture.BOARD,
+                    "-field_lookup_file", "generated/value_lookup_generated.cpp", "generated/value_lookup_generated.md",
+                    "-java_destination", "../java_console/models/src/main/java/com/rusefi/config/generated/Fields.java",
+                    "-c_defines", "generated/rusefi_generated.h",
+                    "-c_destination", "generated/engine_configuration_generated_structures.h")
+    );
+
+    @Test
+    public void sameOutputAsOneShot() throws Exception {
+        Path root = Files.createTempDirectory("generator_daemon");
+        try {
+            sameOutputAsOneShot(root);
+        } finally {
+            GeneratorFixture.delete(root);
+        }
+    }
+
+    private static void sameOutputAsOneShot(Path root) throws Exception {
+        Path oneShot = GeneratorFixture.create(root.resolve("one_shot"));
+        Path viaDaemon = GeneratorFixture.create(root.resolve("daemon"));
+
+        for (Request request : REQUESTS)
+            GeneratorFixture.run(oneShot, request.properties, request.className, request.args);
+
+        File portFile = root.resolve("port").toFile();
+        Process process = GeneratorFixture.start(viaDaemon, Collections.singletonMap(GeneratorDaemon.TOKEN_VARIABLE, TOKEN),
+                Collections.emptyMap(), root.resolve("daemon.txt").toFile(), GeneratorDaemon.class.getName(), portFile.getPath());
+        try {
+            int port = waitForPort(portFile, process);
+            String workingDirectory = viaDaemon.toString();
+
+            // twice to make sure nothing is carried over between requests
+            for (int i = 0; i < 2; i++) {
+                for (Request request : REQUESTS) {
+                    ByteArrayOutputStream console = new ByteArrayOutputStream();
+                    int exitCode = GeneratorClient.invoke(port, TOKEN, workingDirectory, request.properties,
+                            request.className, request.args, console);
+                    assertEquals(request.className + ": " + console, GeneratorDaemon.OK, exitCode);
+                }
+                GeneratorFixture.assertSameFiles(oneShot.getParent(), viaDaemon.getParent());
+            }
+
+            assertEquals(GeneratorDaemon.WRONG_TOKEN, GeneratorClient.invoke(port, "wrong", workingDirectory,
+                    Collections.emptyMap(), EnumToString.class.getName(), new String[0], new ByteArrayOutputStream()));
+            assertEquals(GeneratorDaemon.WRONG_DIRECTORY, GeneratorClient.invoke(port, TOKEN, oneShot.toString(),
+                    Collections.emptyMap(), EnumToString.class.getName(), new String[0], new ByteArrayOutputStream()));
+            assertEquals(GeneratorDaemon.FAILURE, GeneratorClient.invoke(port, TOKEN, workingDirectory,
+                    Collections.emptyMap(), "com.rusefi.Unknown", new String[0], new ByteArrayOutputStream()));
+            // invalid arguments used to terminate the JVM
+            for (String className : new String[]{LiveDataProcessor.class.getName(), EnumToString.class.getName(),
+                    ToJavaEnum.class.getName(), PinoutLogic.class.getName()}) {
+                assertEquals(className, GeneratorDaemon.FAILURE, GeneratorClient.invoke(port, TOKEN, workingDirectory,
+                        Collections.emptyMap(), className, new String[0], new ByteArrayOutputStream()));
+            }
+            assertTrue(process.isAlive());
+
+            GeneratorClient.stop(port, TOKEN);
+            assertEquals(0, process.waitFor());
+        } finally {
+            process.destroy();
+        }
+    }
+
+    private static int waitForPort(File portFile, Process process) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        while (!portFile.exists()) {
+            if (!process.isAlive() || System.currentTimeMillis() - start > 30_000)
+                throw new IllegalStateException("Daemon did not start");
+            Thread.sleep(50);
+        }
+        return Integer.parseInt(new String(Files.readAllBytes(portFile.toPath())));
+    }
+}
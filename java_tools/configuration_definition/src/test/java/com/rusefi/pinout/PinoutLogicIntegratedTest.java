@@ -1,15 +1,17 @@
 package com.rusefi.pinout;
 
+import com.rusefi.EnumsReader;
 import com.rusefi.ReaderStateImpl;
 import com.rusefi.enum_reader.Value;
 import com.rusefi.newparse.ParseState;
 import org.junit.Test;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class PinoutLogicIntegratedTest {
     @Test
@@ -62,6 +64,76 @@ public class PinoutLogicIntegratedTest {
 
     }
 
+    @Test
+    public void testProcessBoards() throws Exception {
+        String yaml = "pins:\n" +
+                "  - pin: 1\n" +
+                "    id: E11\n" +
+                "    class: outputs\n" +
+                "    ts_name: Low Side 1\n";
+        EnumsReader enumsReader = new EnumsReader().read(new StringReader("enum class Gpio : uint16_t {\n" +
+                "Unassigned = 0,\n" +
+                "Invalid = 1,\n" +
+                "E11 = 0x0B,\n" +
+                "};"));
+
+        List<StringWriter> writers = new ArrayList<>();
+        List<BoardInputs> boards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            StringWriter writer = new StringWriter();
+            writers.add(writer);
+            boards.add(new TestBoardInputs("board" + i, yaml, writer));
+        }
+        PinoutLogic.processBoards(boards, enumsReader, 2);
+
+        for (StringWriter writer : writers)
+            assertTrue(writer.toString().contains("\t\tcase Gpio::E11: return \"Low Side 1\";\n"));
+
+        try {
+            PinoutLogic.processBoards(Collections.singletonList(new TestBoardInputs("broken", yaml.replace("E11", "E12"), new StringWriter())), enumsReader, 1);
+            fail("Unknown pin id");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static class TestBoardInputs implements BoardInputs {
+        private final String name;
+        private final String yaml;
+        private final Writer writer;
+
+        TestBoardInputs(String name, String yaml, Writer writer) {
+            this.name = name;
+            this.yaml = yaml;
+            this.writer = writer;
+        }
+
+        @Override
+        public List<?> getBoardYamlKeys() {
+            return Collections.singletonList("key");
+        }
+
+        @Override
+        public Reader getReader(Object yamlKey) {
+            return new StringReader(yaml);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public List<String> getInputFiles() {
+            // the one yaml of getBoardYamlKeys
+            return Collections.singletonList(name + PinoutLogic.CONNECTORS + File.separator + "key.yaml");
+        }
+
+        @Override
+        public Writer getWriter() {
+            return writer;
+        }
+    }
+
     private static void runPinoutTest(String inputYaml, String expected) throws IOException {
         StringWriter testWriter = new StringWriter();
 
@@ -0,0 +1,40 @@
+package com.rusefi.test;
+
+import com.rusefi.ldmp.DefinitionFileCache;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertEquals;
+
+public class DefinitionFileCacheTest {
+    private static String read(DefinitionFileCache cache, Path file) throws IOException {
+        try (InputStream stream = cache.open(file.toString())) {
+            byte[] bytes = new byte[stream.available()];
+            stream.read(bytes);
+            return new String(bytes);
+        }
+    }
+
+    @Test
+    public void sameSizeRewriteWithinTimestampGranularity() throws IOException {
+        Path file = Files.createTempFile("definition", ".txt");
+        try {
+            DefinitionFileCache cache = new DefinitionFileCache();
+            FileTime lastModified = FileTime.fromMillis(System.currentTimeMillis());
+            Files.write(file, "#define A 1".getBytes());
+            Files.setLastModifiedTime(file, lastModified);
+            assertEquals("#define A 1", read(cache, file));
+
+            Files.write(file, "#define A 2".getBytes());
+            Files.setLastModifiedTime(file, lastModified);
+            assertEquals("#define A 2", read(cache, file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.rusefi.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Small firmware-like folder tree for tests which run generators the way build scripts do: each invocation in its own
+ * JVM with firmware folder as working directory
+ */
+public class GeneratorFixture {
+    public static final String TEST_ENUMS = "test_enums.h";
+    public static final String HW_ENUMS = "hw_enums.h";
+    public static final String BOARD = "test_board";
+    public static final String CONFIG = "integration/test_config.txt";
+    public static final String LIVE_DATA = "integration/LiveData.yaml";
+
+    /**
+     * @return firmware folder
+     */
+    public static Path create(Path root) throws IOException {
+        Path firmware = root.resolve("firmware");
+        write(firmware, TEST_ENUMS, "typedef enum {\n" +
+                "\tFIRST = 0,\n" +
+                "\tSECOND = 1,\n" +
+                "} test_e;\n");
+        write(firmware, HW_ENUMS, "enum class Gpio : uint16_t {\n" +
+                "Unassigned = 0,\n" +
+                "Invalid = 1,\n" +
+                "E11 = 0x0B,\n" +
+                "E12 = 0x0C,\n" +
+                "};\n");
+        write(firmware, BOARD + "/connectors/main.yaml", "pins:\n" +
+                "  - pin: 1\n" +
+                "    id: E11\n" +
+                "    class: outputs\n" +
+                "    ts_name: Low Side 1\n" +
+                "  - pin: 2\n" +
+                "    id: E12\n" +
+                "    class: outputs\n" +
+                "    ts_name: Low Side 2\n");
+        write(firmware, "integration/shared.txt", "#define LIMIT 8000\n");
+        write(firmware, CONFIG, "struct_no_prefix engine_configuration_s\n" +
+                "int16_t rpmHardLimit;\"RPM hard limit\";\"rpm\", 1, 0, 0, @@LIMIT@@, 0\n" +
+                "bit isForcedInduction;\"Forced induction\"\n" +
+                "bit useCltBasedRpmLimit\n" +
+                "float vvtOffset;\"VVT offset\";\"deg\", 1, 0, -720, 720, 1\n" +
+                "end_struct\n");
+        write(firmware, "controllers/first_state.txt", "struct_no_prefix first_state_s\n" +
+                "\tuint16_t value0;\"First value\";\"value\", 1, 0, 0, @@LIMIT@@, 0\n" +
+                "\tbit isEnabled\n" +
+                "\tfloat errorRate;\"Error rate\";\"ratio\", 1, 0, 0, 3, 2\n" +
+                "end_struct\n");
+        write(firmware, "controllers/second_state.txt", "struct_no_prefix second_state_s\n" +
+                "\tint8_t[4 iterate] counters;\"Counter\";\"\", 1, 0, 0, 100, 0\n" +
+                "\tfloat target;\"Target\";\"kPa\", 1, 0, 0, 300, 1\n" +
+                "end_struct\n");
+        write(firmware, LIVE_DATA, "Usages:\n" +
+                "  - name: first_state\n" +
+                "    java: FirstState.java\n" +
+                "    folder: controllers\n" +
+                "    prepend: integration/shared.txt\n" +
+                "    constexpr: \"engine->firstState\"\n" +
+                "\n" +
+                "  - name: second_state\n" +
+                "    folder: controllers\n" +
+                "    prepend: integration/shared.txt\n" +
+                "    constexpr: \"engine->secondState\"\n" +
+                "    conditional_compilation: \"EFI_SECOND\"\n");
+        Files.createDirectories(firmware.resolve("generated"));
+        Files.createDirectories(root.resolve("java_console/io/src/main/java/com/rusefi/enums"));
+        Files.createDirectories(root.resolve("java_console/models/src/main/java/com/rusefi/config/generated"));
+        return firmware;
+    }
+
+    private static void write(Path folder, String name, String content) throws IOException {
+        Path file = folder.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes());
+    }
+
+    /**
+     * Starts a JVM with the same class path as ours
+     */
+    public static Process start(Path workingDirectory, Map<String, String> environment, Map<String, String> properties,
+                                File output, String className, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (Map.Entry<String, String> e : properties.entrySet())
+            command.add("-D" + e.getKey() + "=" + e.getValue());
+        command.add(className);
+        Collections.addAll(command, args);
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(workingDirectory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(output);
+        builder.environment().putAll(environment);
+        return builder.start();
+    }
+
+    /**
+     * Runs a generator the way it is invoked without daemon
+     */
+    public static void run(Path workingDirectory, Map<String, String> properties, String className, String... args) throws IOException, InterruptedException {
+        File output = File.createTempFile("generator", ".txt");
+        try {
+            int exitCode = start(workingDirectory, Collections.emptyMap(), properties, output, className, args).waitFor();
+            if (exitCode != 0)
+                throw new IllegalStateException(className + " failed with " + exitCode + ":\n" + new String(Files.readAllBytes(output.toPath())));
+        } finally {
+            output.delete();
+        }
+    }
+
+    /**
+     * Compares all files except logs
+     */
+    public static void assertSameFiles(Path expected, Path actual) throws IOException {
+        Set<String> expectedFiles = list(expected);
+        assertEquals(expectedFiles, list(actual));
+        for (String name : expectedFiles)
+            assertArrayEquals(name, Files.readAllBytes(expected.resolve(name)), Files.readAllBytes(actual.resolve(name)));
+    }
+
+    public static void delete(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(file);
+        }
+    }
+
+    private static Set<String> list(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.toString().endsWith(".log"))
+                    .map(file -> root.relativize(file).toString())
+                    .collect(Collectors.toCollection(TreeSet::new));
+        }
+    }
+}
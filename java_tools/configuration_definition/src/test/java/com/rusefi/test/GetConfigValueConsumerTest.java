@@ -48,15 +48,17 @@ public class GetConfigValueConsumerTest {
         assertEquals("\tint hash = djb2lowerCase(name);\n" +
                 "\tswitch(hash) {\n" +
                 "\t\tcase -672272162:\n" +
-                "\t{\n" +
-                "\t\tconfig->iat.config.tempC_1 = value;\n" +
-                "\t\treturn;\n" +
-                "\t}\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"iat.config.tempC_1\")) {\n" +
+                "\t\t\t\tconfig->iat.config.tempC_1 = value;\n" +
+                "\t\t\t\treturn;\n" +
+                "\t\t\t}\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -1237776078:\n" +
-                "\t{\n" +
-                "\t\tconfig->iat.adcChannel = (int)value;\n" +
-                "\t\treturn;\n" +
-                "\t}\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"iat.adcChannel\")) {\n" +
+                "\t\t\t\tconfig->iat.adcChannel = (int)value;\n" +
+                "\t\t\t\treturn;\n" +
+                "\t\t\t}\n" +
+                "\t\t\tbreak;\n" +
                 "\t}\n", getConfigValueConsumer.getSetterBody());
 
         assertEquals("#include \"pch.h\"\n" +
@@ -65,9 +67,13 @@ public class GetConfigValueConsumerTest {
                 "\tint hash = djb2lowerCase(name);\n" +
                 "\tswitch(hash) {\n" +
                 "\t\tcase -672272162:\n" +
-                "\t\t\treturn config->iat.config.tempC_1;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"iat.config.tempC_1\"))\n" +
+                "\t\t\t\treturn config->iat.config.tempC_1;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -1237776078:\n" +
-                "\t\t\treturn config->iat.adcChannel;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"iat.adcChannel\"))\n" +
+                "\t\t\t\treturn config->iat.adcChannel;\n" +
+                "\t\t\tbreak;\n" +
                 "\t}\n" +
                 "\treturn EFI_ERROR_CODE;\n" +
                 "}\n" +
@@ -75,15 +81,17 @@ public class GetConfigValueConsumerTest {
                 "\tint hash = djb2lowerCase(name);\n" +
                 "\tswitch(hash) {\n" +
                 "\t\tcase -672272162:\n" +
-                "\t{\n" +
-                "\t\tconfig->iat.config.tempC_1 = value;\n" +
-                "\t\treturn;\n" +
-                "\t}\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"iat.config.tempC_1\")) {\n" +
+                "\t\t\t\tconfig->iat.config.tempC_1 = value;\n" +
+                "\t\t\t\treturn;\n" +
+                "\t\t\t}\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -1237776078:\n" +
-                "\t{\n" +
-                "\t\tconfig->iat.adcChannel = (int)value;\n" +
-                "\t\treturn;\n" +
-                "\t}\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"iat.adcChannel\")) {\n" +
+                "\t\t\t\tconfig->iat.adcChannel = (int)value;\n" +
+                "\t\t\t\treturn;\n" +
+                "\t\t\t}\n" +
+                "\t\t\tbreak;\n" +
                 "\t}\n" +
                 "}\n", getConfigValueConsumer.getContent());
 
@@ -92,9 +100,13 @@ public class GetConfigValueConsumerTest {
                 "\tint hash = djb2lowerCase(name);\n" +
                 "\tswitch(hash) {\n" +
                 "\t\tcase -672272162:\n" +
-                "\t\t\treturn config->iat.config.tempC_1;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"iat.config.tempC_1\"))\n" +
+                "\t\t\t\treturn config->iat.config.tempC_1;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -1237776078:\n" +
-                "\t\t\treturn config->iat.adcChannel;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"iat.adcChannel\"))\n" +
+                "\t\t\t\treturn config->iat.adcChannel;\n" +
+                "\t\t\tbreak;\n" +
                 "\t}\n" +
                 "\treturn EFI_ERROR_CODE;\n" +
                 "}\n", getConfigValueConsumer.getCompleteGetterBody());
@@ -161,33 +173,61 @@ public class GetConfigValueConsumerTest {
                 "\tint hash = djb2lowerCase(name);\n" +
                 "\tswitch(hash) {\n" +
                 "\t\tcase -1832527325:\n" +
-                "\t\t\treturn config->clt.config.tempC_1;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"clt.config.tempC_1\"))\n" +
+                "\t\t\t\treturn config->clt.config.tempC_1;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase 1819278123:\n" +
-                "\t\t\treturn config->clt.config.map.sensor.highValue;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"clt.config.map.sensor.highValue\"))\n" +
+                "\t\t\t\treturn config->clt.config.map.sensor.highValue;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase 581685574:\n" +
-                "\t\t\treturn config->clt.config.map.sensor.hwChannel;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"clt.config.map.sensor.hwChannel\"))\n" +
+                "\t\t\t\treturn config->clt.config.map.sensor.hwChannel;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase 382574846:\n" +
-                "\t\t\treturn config->clt.config.injector.flow;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"clt.config.injector.flow\"))\n" +
+                "\t\t\t\treturn config->clt.config.injector.flow;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -653172717:\n" +
-                "\t\t\treturn config->clt.config.bias_resistor;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"clt.config.bias_resistor\"))\n" +
+                "\t\t\t\treturn config->clt.config.bias_resistor;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -1144186889:\n" +
-                "\t\t\treturn config->clt.adcChannel;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"clt.adcChannel\"))\n" +
+                "\t\t\t\treturn config->clt.adcChannel;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -1571463185:\n" +
-                "\t\t\treturn config->issue_294_31;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"issue_294_31\"))\n" +
+                "\t\t\t\treturn config->issue_294_31;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase 727098956:\n" +
-                "\t\t\treturn config->baseFuel;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"baseFuel\"))\n" +
+                "\t\t\t\treturn config->baseFuel;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -1120008897:\n" +
-                "\t\t\treturn config->afr_type;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"afr_type\"))\n" +
+                "\t\t\t\treturn config->afr_type;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -685727673:\n" +
-                "\t\t\treturn config->speedToRpmRatio;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"speedToRpmRatio\"))\n" +
+                "\t\t\t\treturn config->speedToRpmRatio;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase 1694412179:\n" +
-                "\t\t\treturn config->afr_typet;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"afr_typet\"))\n" +
+                "\t\t\t\treturn config->afr_typet;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -1925174695:\n" +
-                "\t\t\treturn config->vehicleSpeedKph;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"vehicleSpeedKph\"))\n" +
+                "\t\t\t\treturn config->vehicleSpeedKph;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -617915487:\n" +
-                "\t\t\treturn config->isForcedInduction;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"isForcedInduction\"))\n" +
+                "\t\t\t\treturn config->isForcedInduction;\n" +
+                "\t\t\tbreak;\n" +
                 "\t\tcase -298185774:\n" +
-                "\t\t\treturn config->enableFan1WithAc;\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"enableFan1WithAc\"))\n" +
+                "\t\t\t\treturn config->enableFan1WithAc;\n" +
+                "\t\t\tbreak;\n" +
                 "\t}\n" +
                 "\treturn EFI_ERROR_CODE;\n" +
                 "}\n", getConfigValueConsumer.getHeaderAndGetter());
@@ -237,6 +277,48 @@ public class GetConfigValueConsumerTest {
                 "\n", getConfigValueConsumer.getMdContent());
     }
 
+    @Test
+    public void generateWithHashCollision() {
+        ReaderStateImpl state = new ReaderStateImpl();
+        String test = "struct total\n" +
+                "float heliotropes;\n" +
+                "int neurospora;\n" +
+                "end_struct\n";
+        GetConfigValueConsumer getConfigValueConsumer = new GetConfigValueConsumer();
+        state.readBufferedReader(test, getConfigValueConsumer);
+
+        assertEquals("float getConfigValueByName(const char *name) {\n" +
+                "\tint hash = djb2lowerCase(name, 35);\n" +
+                "\tswitch(hash) {\n" +
+                "\t\tcase -1205407623:\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"heliotropes\"))\n" +
+                "\t\t\t\treturn config->heliotropes;\n" +
+                "\t\t\tbreak;\n" +
+                "\t\tcase 909727859:\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"neurospora\"))\n" +
+                "\t\t\t\treturn config->neurospora;\n" +
+                "\t\t\tbreak;\n" +
+                "\t}\n" +
+                "\treturn EFI_ERROR_CODE;\n" +
+                "}\n", getConfigValueConsumer.getCompleteGetterBody());
+
+        assertEquals("\tint hash = djb2lowerCase(name, 35);\n" +
+                "\tswitch(hash) {\n" +
+                "\t\tcase -1205407623:\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"heliotropes\")) {\n" +
+                "\t\t\t\tconfig->heliotropes = value;\n" +
+                "\t\t\t\treturn;\n" +
+                "\t\t\t}\n" +
+                "\t\t\tbreak;\n" +
+                "\t\tcase 909727859:\n" +
+                "\t\t\tif (strEqualCaseInsensitive(name, \"neurospora\")) {\n" +
+                "\t\t\t\tconfig->neurospora = (int)value;\n" +
+                "\t\t\t\treturn;\n" +
+                "\t\t\t}\n" +
+                "\t\t\tbreak;\n" +
+                "\t}\n", getConfigValueConsumer.getSetterBody());
+    }
+
     @Test(expected = MaybeSemicolorWasMissedException.class)
     public void generateSuspiciousTsInfo() {
         String test = "struct total\n" +
@@ -3,7 +3,10 @@ package com.rusefi.test;
 import com.rusefi.output.HashUtil;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 public class HashTest {
     @Test
@@ -11,6 +14,26 @@ public class HashTest {
         assertEquals(HashUtil.djb2lowerCase("Hello1"), 30950378);
         assertEquals(HashUtil.djb2lowerCase("Hello2"), 30950379);
         assertEquals(HashUtil.djb2lowerCase("HELLO2"), 30950379);
+        assertEquals(HashUtil.djb2lowerCase("Hello1", 37), 965667214);
+    }
+
+    @Test
+    public void testPerfectMultiplier() {
+        assertEquals(HashUtil.DEFAULT_MULTIPLIER, HashUtil.findPerfectMultiplier(Arrays.asList("Hello1", "Hello2")));
+        // these two collide with plain djb2
+        assertEquals(HashUtil.djb2lowerCase("heliotropes"), HashUtil.djb2lowerCase("neurospora"));
+        assertEquals(35, HashUtil.findPerfectMultiplier(Arrays.asList("heliotropes", "neurospora")));
     }
 
+    @Test
+    public void testNoPerfectMultiplier() {
+        try {
+            // same name ignoring case collides under any multiplier
+            HashUtil.findPerfectMultiplier(Arrays.asList("Hello1", "HELLO1"));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertEquals("No collision-free hash multiplier in [33, 65535] for 2 names, are all names unique ignoring case?",
+                    e.getMessage());
+        }
+    }
 }
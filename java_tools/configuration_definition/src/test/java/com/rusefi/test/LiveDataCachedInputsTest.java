@@ -0,0 +1,31 @@
+package com.rusefi.test;
+
+import com.rusefi.ldmp.LiveDataProcessor;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * Cached inputs mode is an optimization only: it has to produce exactly same files as the default mode
+ */
+public class LiveDataCachedInputsTest {
+    @Test
+    public void sameOutputAsDefaultMode() throws Exception {
+        Path root = Files.createTempDirectory("live_data");
+        try {
+            Path defaultMode = GeneratorFixture.create(root.resolve("default"));
+            Path cachedInputs = GeneratorFixture.create(root.resolve("cached"));
+
+            GeneratorFixture.run(defaultMode, Collections.emptyMap(),
+                    LiveDataProcessor.class.getName(), GeneratorFixture.LIVE_DATA);
+            GeneratorFixture.run(cachedInputs, Collections.singletonMap("LiveDataProcessor.cached_inputs", "true"),
+                    LiveDataProcessor.class.getName(), GeneratorFixture.LIVE_DATA);
+
+            GeneratorFixture.assertSameFiles(defaultMode.getParent(), cachedInputs.getParent());
+        } finally {
+            GeneratorFixture.delete(root);
+        }
+    }
+}
@@ -152,15 +152,73 @@ public class OutputsTest {
                         "\tswitch(hash) {\n" +
                         "#if EFI_BOOST_CONTROL\n" +
                         "\t\tcase -1571463185:\n" +
-                        "\t\t\treturn engine->outputChannels.issue_294_31;\n" +
+                        "\t\t\tif (strEqualCaseInsensitive(name, \"issue_294_31\"))\n" +
+                        "\t\t\t\treturn engine->outputChannels.issue_294_31;\n" +
+                        "\t\t\tbreak;\n" +
                         "#endif\n" +
                         "#if EFI_BOOST_CONTROL\n" +
                         "\t\tcase -298185774:\n" +
-                        "\t\t\treturn engine->outputChannels.enableFan1WithAc;\n" +
+                        "\t\t\tif (strEqualCaseInsensitive(name, \"enableFan1WithAc\"))\n" +
+                        "\t\t\t\treturn engine->outputChannels.enableFan1WithAc;\n" +
+                        "\t\t\tbreak;\n" +
                         "#endif\n" +
                         "#if EFI_BOOST_CONTROL\n" +
                         "\t\tcase -709106787:\n" +
-                        "\t\t\treturn engine->outputChannels.hwChannel;\n" +
+                        "\t\t\tif (strEqualCaseInsensitive(name, \"hwChannel\"))\n" +
+                        "\t\t\t\treturn engine->outputChannels.hwChannel;\n" +
+                        "\t\t\tbreak;\n" +
+                        "#endif\n" +
+                        "\t}\n" +
+                        "\treturn EFI_ERROR_CODE;\n" +
+                        "}\n" +
+                        "#endif\n", outputValueConsumer.getContent());
+    }
+
+    @Test
+    public void generateGetOutputsConditionalDuplicates() {
+        GetOutputValueConsumer outputValueConsumer = new GetOutputValueConsumer(null);
+
+        outputValueConsumer.currentSectionPrefix = "engine->boostController";
+        outputValueConsumer.conditional = "EFI_BOOST_CONTROL";
+        new ReaderStateImpl().readBufferedReader("struct_no_prefix boost_s\n" +
+                "float target\n" +
+                "float boostOnly\n" +
+                "end_struct\n", outputValueConsumer);
+
+        outputValueConsumer.currentSectionPrefix = "engine->launchController";
+        outputValueConsumer.conditional = "EFI_LAUNCH_CONTROL";
+        new ReaderStateImpl().readBufferedReader("struct_no_prefix launch_s\n" +
+                "float TARGET\n" +
+                "end_struct\n", outputValueConsumer);
+
+        // same conditional: second one is never reachable
+        outputValueConsumer.currentSectionPrefix = "engine->otherLaunch";
+        new ReaderStateImpl().readBufferedReader("struct_no_prefix other_launch_s\n" +
+                "float target\n" +
+                "end_struct\n", outputValueConsumer);
+
+        assertEquals(
+                "#if !EFI_UNIT_TEST\n" +
+                "#include \"pch.h\"\n" +
+                        "#include \"value_lookup.h\"\n" +
+                        "float getOutputValueByName(const char *name) {\n" +
+                        "\tint hash = djb2lowerCase(name);\n" +
+                        "\tswitch(hash) {\n" +
+                        "\t\tcase 496041324:\n" +
+                        "#if EFI_BOOST_CONTROL\n" +
+                        "\t\t\tif (strEqualCaseInsensitive(name, \"target\"))\n" +
+                        "\t\t\t\treturn engine->boostController.target;\n" +
+                        "#endif\n" +
+                        "#if EFI_LAUNCH_CONTROL\n" +
+                        "\t\t\tif (strEqualCaseInsensitive(name, \"TARGET\"))\n" +
+                        "\t\t\t\treturn engine->launchController.TARGET;\n" +
+                        "#endif\n" +
+                        "\t\t\tbreak;\n" +
+                        "#if EFI_BOOST_CONTROL\n" +
+                        "\t\tcase 1870564718:\n" +
+                        "\t\t\tif (strEqualCaseInsensitive(name, \"boostOnly\"))\n" +
+                        "\t\t\t\treturn engine->boostController.boostOnly;\n" +
+                        "\t\t\tbreak;\n" +
                         "#endif\n" +
                         "\t}\n" +
                         "\treturn EFI_ERROR_CODE;\n" +
@@ -0,0 +1,76 @@
+package com.rusefi.test;
+
+import com.rusefi.ReaderStateImpl;
+import com.rusefi.output.StructLayoutConsumer;
+import com.rusefi.test.newParse.NewParseHelper;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+public class StructLayoutConsumerTest {
+    private static void assertSameAsNewParse(String test) throws IOException {
+        File output = File.createTempFile("struct_layout", ".h");
+        try {
+            ReaderStateImpl state = new ReaderStateImpl();
+            state.readBufferedReader(test, new StructLayoutConsumer(output.getPath()));
+
+            assertEquals(NewParseHelper.parseToC(test), new String(Files.readAllBytes(output.toPath())));
+        } finally {
+            output.delete();
+        }
+    }
+
+    @Test
+    public void scalarsAndPadding() throws IOException {
+        assertSameAsNewParse("#define PACK_MULT 100\n" +
+                "#define GAUGE_NAME_RPM \"Engine speed\"\n" +
+                "struct_no_prefix output_channels_s\n" +
+                "uint8_t flags;Flags\n" +
+                "float afr;\"Air fuel ratio\";\"afr\", 1, 0, 0, 20, 2\n" +
+                "uint16_t rpm;@@GAUGE_NAME_RPM@@;\"RPM\", 1, 0, 0, 8000, 0\n" +
+                "int16_t autoscale ratio;\"Ratio\";\"value\", {1/@@PACK_MULT@@}, 0, 0, 0, 2\n" +
+                "int8_t small\n" +
+                "angle_t timing;Timing\\nmore;\"deg\", 1, 0, -720, 720, 1\n" +
+                "floatms_t duration;;\"ms\", 1, 0, 0, 100, 2\n" +
+                "int counter\n" +
+                "end_struct\n");
+    }
+
+    @Test
+    public void bits() throws IOException {
+        StringBuilder bits = new StringBuilder();
+        // one full group
+        for (int i = 0; i < 32; i++)
+            bits.append("bit flag").append(i).append(";Flag ").append(i).append("\n");
+        assertSameAsNewParse("struct_no_prefix output_channels_s\n" +
+                "bit isEnabled,\"yes\",\"no\";\"Is enabled\"\n" +
+                "bit noComment\n" +
+                "uint8_t between\n" +
+                bits +
+                "end_struct\n");
+    }
+
+    @Test
+    public void customTypesArraysAndStructs() throws IOException {
+        assertSameAsNewParse("custom percent_t 4 scalar, F32, @OFFSET@, \"%\", 1, 0, 0, 100, 2\n" +
+                "custom idle_state_e 4 bits, S32, @OFFSET@, [0:2], \"first\", \"second\"\n" +
+                "struct pid_status_s\n" +
+                "float output;;\"\", 1, 0, 0, 100, 2\n" +
+                "int16_t autoscale error;;\"\", 0.01, 0, -100, 100, 2\n" +
+                "end_struct\n" +
+                "struct_no_prefix idle_state_s\n" +
+                "idle_state_e idleState\n" +
+                "percent_t position\n" +
+                "percent_t target;Target;\"pct\", 1, 0, 0, 100, 1\n" +
+                "uint8_t[3] padded\n" +
+                "uint16_t[2 x 3] table;;\"\", 1, 0, 0, 100, 0\n" +
+                "int8_t[4 iterate] counters;Counter;\"\", 1, 0, 0, 100, 0\n" +
+                "pid_status_s pid\n" +
+                "pid_status_s[2 iterate] pids\n" +
+                "end_struct\n");
+    }
+}
@@ -78,4 +78,55 @@ public class VariableRegistryTest {
                 "#define DOUBLE \"R\""));
         assertEquals("hello L R 'L' \"R\"", registry.applyVariables("hello @#SINGLE#@ @#DOUBLE#@ @@SINGLE@@ @@DOUBLE@@"));
     }
+
+    @Test
+    public void testNestedAndMultiLine() {
+        VariableRegistry registry = new VariableRegistry();
+        registry.put("inner", "\"in\"");
+        registry.put("outer", "[@@inner@@]");
+        assertEquals("a [\"in\"]\nb in", registry.applyVariables("a @@outer@@\nb @#inner#@"));
+        // unmatched marker on one line does not pair with marker on the next line
+        assertEquals("@@x\n\"in\"", registry.applyVariables("@@x\n@@inner@@"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCircularReference() {
+        VariableRegistry registry = new VariableRegistry();
+        registry.put("a", "@@b@@");
+        registry.put("b", "@@a@@");
+        registry.applyVariables("@@a@@");
+    }
+
+    /**
+     * Inlined value is not scanned again together with surrounding text, this used to loop forever
+     */
+    @Test(timeout = 5000)
+    public void testValueWithMarkers() {
+        VariableRegistry registry = new VariableRegistry();
+        registry.put("x", "@@x");
+        registry.put("at", "@");
+        assertEquals("@@x@@", registry.applyVariables("@@x@@@@"));
+        assertEquals("@@", registry.applyVariables("@@at@@@@at@@"));
+    }
+
+    /**
+     * Every level is only expanded once even if referenced many times
+     */
+    @Test(timeout = 5000)
+    public void testNestedValues() {
+        VariableRegistry registry = new VariableRegistry();
+        registry.put("v" + VariableRegistry.MAX_NESTING, "x");
+        for (int i = VariableRegistry.MAX_NESTING - 1; i >= 0; i--)
+            registry.put("v" + i, "@@v" + (i + 1) + "@@@@v" + (i + 1) + "@@");
+        assertEquals(1 << 10, registry.applyVariables("@@v" + (VariableRegistry.MAX_NESTING - 10) + "@@").length());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTooDeeplyNested() {
+        VariableRegistry registry = new VariableRegistry();
+        registry.put("v" + (VariableRegistry.MAX_NESTING + 1), "x");
+        for (int i = VariableRegistry.MAX_NESTING; i >= 0; i--)
+            registry.put("v" + i, "[@@v" + (i + 1) + "@@]");
+        registry.applyVariables("@@v0@@");
+    }
 }
@@ -20,7 +20,7 @@ public class EnumToString {
     /**
      * same header for .cpp and .h
      */
-    private final static StringBuilder headerFileContent = new StringBuilder();
+    private final StringBuilder headerFileContent = new StringBuilder();
 
     public final static String KEY_ENUM_INPUT_FILE = "-enumInputFile";
 
@@ -39,13 +39,13 @@ public class EnumToString {
             state.consumeFile(enumsReader, invokeReader.getInputPath(), inputFile);
         }
 
-        headerFileContent.append("#pragma once\n");
+        state.headerFileContent.append("#pragma once\n");
 
         state.outputData(enumsReader);
 
 
         state.cppFileContent.insert(0, state.includesSection);
-        headerFileContent.insert(0, state.includesSection);
+        state.headerFileContent.insert(0, state.includesSection);
 
         SystemOut.println("includesSection:\n" + state.includesSection + "end of includesSection\n");
 
@@ -53,7 +53,7 @@ public class EnumToString {
 
         new File(outputPath).mkdirs();
         state.writeCppAndHeaderFiles(outputPath + File.separator + "auto_generated_" +
-                InvokeReader.fileSuffix);
+                invokeReader.getFileSuffix());
         SystemOut.close();
     }
 
@@ -73,7 +73,9 @@ public class EnumToString {
         SystemOut.println("Reading enums from " + headerInputFileName);
 
         includesSection.append("#include \"" + f.getName() + "\"\n");
-        enumsReader.read(new FileReader(f));
+        try (FileReader reader = new FileReader(f)) {
+            enumsReader.read(reader);
+        }
     }
 
     public EnumToString outputData(EnumsReader enumsReader) {
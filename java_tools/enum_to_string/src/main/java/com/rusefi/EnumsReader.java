@@ -5,7 +5,6 @@ import com.rusefi.enum_reader.Value;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
@@ -52,40 +51,102 @@ public class EnumsReader {
     }
 
     public static Map<String, EnumState> readStatic(Reader in) throws IOException {
-        boolean isInsideEnum = false;
-        BufferedReader reader = new BufferedReader(in);
-        String line;
-        String enumName = null;
-        boolean isEnumClass = false;
-        Map<String, Value> currentValues = new TreeMap<>();
-        Map<String, EnumState> enums = new TreeMap<>();
+        return new Scanner(readFully(in)).scan();
+    }
 
-        boolean withAutoValue = false;
+    private static char[] readFully(Reader in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[8192];
+        int count;
+        while ((count = in.read(buffer)) != -1)
+            sb.append(buffer, 0, count);
+        char[] result = new char[sb.length()];
+        sb.getChars(0, sb.length(), result, 0);
+        return result;
+    }
 
-        while ((line = reader.readLine()) != null) {
-            line = removeSpaces(line);
+    /**
+     * Walks the whole header once. Each line is compacted into a reused buffer without whitespace and comments
+     * and is then matched without any regular expressions.
+     */
+    private static class Scanner {
+        private final char[] content;
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private boolean isInsideBlockComment;
+
+        private final Map<String, Value> currentValues = new TreeMap<>();
+        private final Map<String, EnumState> enums = new TreeMap<>();
+        private boolean isInsideEnum;
+        private String enumName;
+        private boolean isEnumClass;
+        private boolean withAutoValue;
+
+        Scanner(char[] content) {
+            this.content = content;
+        }
 
-            line = line.replaceAll("//.+", "");
-            if (line.startsWith("typedefenum{") || line.startsWith("typedefenum__attribute__")) {
+        Map<String, EnumState> scan() {
+            while (nextLine())
+                handleLine();
+            return enums;
+        }
+
+        /**
+         * @return false if there are no more lines
+         */
+        private boolean nextLine() {
+            if (position >= content.length)
+                return false;
+            line.setLength(0);
+            while (position < content.length) {
+                char c = content[position];
+                if (c == '\n' || c == '\r') {
+                    position++;
+                    if (c == '\r' && position < content.length && content[position] == '\n')
+                        position++;
+                    break;
+                }
+                if (isInsideBlockComment) {
+                    if (c == '*' && isNext('/')) {
+                        isInsideBlockComment = false;
+                        position++;
+                    }
+                } else if (c == '/' && isNext('/')) {
+                    skipToEndOfLine();
+                } else if (c == '/' && isNext('*')) {
+                    isInsideBlockComment = true;
+                    position++;
+                } else if (!isSpace(c)) {
+                    line.append(c);
+                }
+                position++;
+            }
+            return true;
+        }
+
+        private boolean isNext(char c) {
+            return position + 1 < content.length && content[position + 1] == c;
+        }
+
+        private void skipToEndOfLine() {
+            while (position + 1 < content.length && content[position + 1] != '\n' && content[position + 1] != '\r')
+                position++;
+        }
+
+        private void handleLine() {
+            if (startsWith("typedefenum{") || startsWith("typedefenum__attribute__")) {
                 if (log.debugEnabled())
                     log.debug("  EnumsReader: Entering legacy enum");
-                currentValues.clear();
-                withAutoValue = false;
-                isInsideEnum = true;
-                enumName = null;
-                isEnumClass = false;
-            } else if (line.startsWith(ENUMCLASS_PREFIX)) {
+                startEnum(null, false);
+            } else if (startsWith(ENUMCLASS_PREFIX)) {
                 if (log.debugEnabled())
                     log.debug("  EnumsReader: Entering fancy enum class");
-                currentValues.clear();
-                withAutoValue = false;
-                isInsideEnum = true;
-                isEnumClass = true;
                 int colonIndex = line.indexOf(":");
                 if (colonIndex == -1)
                     throw new IllegalStateException("color and Type not located in " + line);
-                enumName = line.substring(ENUMCLASS_PREFIX.length(), colonIndex);
-            } else if (line.startsWith("}") && line.endsWith(";")) {
+                startEnum(line.substring(ENUMCLASS_PREFIX.length(), colonIndex), true);
+            } else if (startsWith("}") && line.charAt(line.length() - 1) == ';') {
                 isInsideEnum = false;
                 if (enumName == null)
                     enumName = line.substring(1, line.length() - 1);
@@ -95,30 +156,58 @@ public class EnumsReader {
                     validateValues(currentValues);
 
                 enums.put(enumName, new EnumState(currentValues, enumName, isEnumClass));
+            } else if (isInsideEnum) {
+                handleValueLine();
+            }
+        }
+
+        private void startEnum(String enumName, boolean isEnumClass) {
+            currentValues.clear();
+            withAutoValue = false;
+            isInsideEnum = true;
+            this.enumName = enumName;
+            this.isEnumClass = isEnumClass;
+        }
+
+        private void handleValueLine() {
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == ',')
+                length--;
+            int nameEnd = getKeyValueNameEnd(line, length);
+            if (nameEnd == -1) {
+                if (log.debugEnabled())
+                    log.debug("    EnumsReader: Skipping Line " + line);
+                return;
+            }
+            String name = line.substring(0, nameEnd);
+            String value;
+            if (nameEnd < length) {
+                value = line.substring(nameEnd + 1, length);
             } else {
-                if (isInsideEnum) {
-                    if (isKeyValueLine(line)) {
-                        line = line.replace(",", "");
-                        String value;
-                        int index = line.indexOf('=');
-                        if (index != -1) {
-                            value = line.substring(index + 1);
-                            line = line.substring(0, index);
-                        } else {
-                            value = Integer.toString(currentValues.size());
-                            withAutoValue = true;
-                        }
-                        if (log.debugEnabled())
-                            log.debug("    EnumsReader: Line " + line);
-                        currentValues.put(line, new Value(line, value));
-                    } else {
-                        if (log.debugEnabled())
-                            log.debug("    EnumsReader: Skipping Line " + line);
-                    }
-                }
+                value = Integer.toString(currentValues.size());
+                withAutoValue = true;
             }
+            if (log.debugEnabled())
+                log.debug("    EnumsReader: Line " + name);
+            currentValues.put(name, new Value(name, value));
         }
-        return enums;
+
+        private boolean startsWith(String prefix) {
+            if (line.length() < prefix.length())
+                return false;
+            for (int i = 0; i < prefix.length(); i++) {
+                if (line.charAt(i) != prefix.charAt(i))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Same as {@code \s} in regular expressions
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
     }
 
     private static void validateValues(Map<String, Value> currentValues) {
@@ -130,11 +219,57 @@ public class EnumsReader {
     }
 
     private static String removeSpaces(String line) {
-        return line.replaceAll("\\s+", "");
+        StringBuilder sb = new StringBuilder(line.length());
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (!isSpace(c))
+                sb.append(c);
+        }
+        return sb.toString();
     }
 
     static boolean isKeyValueLine(String line) {
-        return removeSpaces(line).matches("[a-zA-Z_$][a-zA-Z\\d_$]*(=(0x[0-9a-fA-F]+|(-)?[0-9]+|([-a-zA-Z\\d_])*))*,?");
+        line = removeSpaces(line);
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == ',')
+            length--;
+        return getKeyValueNameEnd(line, length) != -1;
+    }
+
+    /**
+     * Hand-written equivalent of [a-zA-Z_$][a-zA-Z\d_$]*(=(0x[0-9a-fA-F]+|(-)?[0-9]+|([-a-zA-Z\d_])*))*
+     * where everything after '=' is the value
+     *
+     * @param length line length without optional trailing comma
+     * @return length of the name, or -1 if this is not a key-value line
+     */
+    private static int getKeyValueNameEnd(CharSequence line, int length) {
+        if (length == 0 || !isNameStart(line.charAt(0)))
+            return -1;
+        int index = 1;
+        while (index < length && isNamePart(line.charAt(index)))
+            index++;
+        int nameEnd = index;
+        if (index < length && line.charAt(index) != '=')
+            return -1;
+        for (; index < length; index++) {
+            char c = line.charAt(index);
+            if (c != '=' && c != '-' && !isLetterOrDigit(c) && c != '_')
+                return -1;
+        }
+        return nameEnd;
+    }
+
+    private static boolean isNameStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+    }
+
+    private static boolean isNamePart(char c) {
+        return isNameStart(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
     }
 
     public static class EnumState {
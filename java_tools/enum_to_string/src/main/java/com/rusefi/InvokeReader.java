@@ -1,7 +1,5 @@
 package com.rusefi;
 
-import com.rusefi.util.SystemOut;
-
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -11,7 +9,7 @@ public class InvokeReader {
     private final static String KEY_OUTPUT = "-outputPath";
     private final static String KEY_OUTPUT_FILE = "-generatedFile";
     private static final String KEY_DEFINITION = "-definition";
-    public static String fileSuffix = "enums";
+    private String fileSuffix = "enums";
 
     private String[] args;
     private String outputPath;
@@ -21,11 +19,10 @@ public class InvokeReader {
 
     public InvokeReader(String... args) {
         if (args.length < 4) {
-            SystemOut.println("Please specify at least\n\n" +
+            throw new IllegalStateException("Please specify at least\n\n" +
                     EnumToString.KEY_ENUM_INPUT_FILE + "XXX\n" +
                     KEY_OUTPUT + "XXX\n"
             );
-            System.exit(-1);
         }
 
         this.args = args;
@@ -48,6 +45,10 @@ public class InvokeReader {
         return outputPath;
     }
 
+    public String getFileSuffix() {
+        return fileSuffix;
+    }
+
     public List<String> getInputFiles() {
         return inputFiles;
     }
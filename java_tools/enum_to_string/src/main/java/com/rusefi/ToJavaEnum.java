@@ -29,7 +29,9 @@ public class ToJavaEnum {
             SystemOut.println("Reading enums from " + f);
             sb.append("// based on ").append(f).append("\n");
 
-            enumsReader.read(new FileReader(f));
+            try (FileReader reader = new FileReader(f)) {
+                enumsReader.read(reader);
+            }
         }
 
         for (Map.Entry<String /*enum name*/, EnumsReader.EnumState> e : enumsReader.getEnums().entrySet()) {
@@ -10,10 +10,11 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.function.Function;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static com.devexperts.logging.Logging.getLogging;
@@ -38,8 +39,23 @@ public class VariableRegistry {
 
     // todo: smarter regex! See TsWriter.VAR which is a bit better but still not perfect
     // todo: https://github.com/rusefi/rusefi/issues/3053 ?
-    private final Pattern VAR = Pattern.compile("(@@(.*?)@@)");
-    private final Pattern VAR_REMOVE_QUOTE = Pattern.compile("(@#(.*?)#@)");
+    private static final Pattern VAR = Pattern.compile("(@@(.*?)@@)");
+    private static final Pattern VAR_REMOVE_QUOTE = Pattern.compile("(@#(.*?)#@)");
+    private static final String VAR_START = "@@";
+    private static final String VAR_END = "@@";
+    private static final String VAR_REMOVE_QUOTE_START = "@#";
+    private static final String VAR_REMOVE_QUOTE_END = "#@";
+
+    /**
+     * Fully expanded replacement for each referenced variable, reset whenever a variable is registered
+     */
+    private final Map<String, String> expandedValues = new HashMap<>();
+    private final Map<String, String> expandedUnquotedValues = new HashMap<>();
+    private final Set<String> expandingNow = new HashSet<>();
+    /**
+     * a value may reference other variables, this is how deep such chain may go
+     */
+    public static final int MAX_NESTING = 32;
 
     public final Map<String, Integer> intValues = new HashMap<>();
 
@@ -170,36 +186,136 @@ public class VariableRegistry {
     /**
      * This method replaces variables references like @@var@@ with actual values
      * An exception is thrown if we do not have such variable
+     * <p>
+     * Works for multi-line templates as well, see {@link #applyVariables(CharSequence, StringBuilder)}
      *
      * @return string with variable values inlined
      */
     public String applyVariables(String line) {
         if (line == null)
             return null;
-        line = process(line, VAR, key -> {
-            if (!data.containsKey(key))
-                throw new IllegalStateException("No such variable: [" + key + "]");
-            return data.get(key);
-        });
-        line = process(line, VAR_REMOVE_QUOTE, key -> {
-            if (!data.containsKey(key))
-                throw new IllegalStateException("No such variable: [" + key + "]");
-            String unquotedDouble = unquote(data.get(key));
-            return unquote(unquotedDouble, '\'');
-        });
-        return line;
+        if (line.indexOf('@') == -1)
+            return line;
+        StringBuilder result = new StringBuilder(line.length());
+        applyVariables(line, result);
+        return result.toString();
+    }
+
+    /**
+     * Bulk version of {@link #applyVariables(String)}: whole template is processed with one linear scan per
+     * reference kind, each variable is looked up and expanded only once.
+     * <p>
+     * References within a value are expanded within that value only, up to {@link #MAX_NESTING} levels deep. An
+     * inlined value is never scanned again together with surrounding text.
+     */
+    public void applyVariables(CharSequence template, StringBuilder result) {
+        String afterVar = substitute(template, VAR_START, VAR_END, this::getExpandedValue);
+        if (afterVar.contains(VAR_REMOVE_QUOTE_START))
+            afterVar = substitute(afterVar, VAR_REMOVE_QUOTE_START, VAR_REMOVE_QUOTE_END, this::getExpandedUnquotedValue);
+        result.append(afterVar);
+    }
+
+    /**
+     * Single left-to-right scan, each reference is replaced with fully expanded value of the variable
+     */
+    private static String substitute(CharSequence text, String start, String end, Function<String, String> expandedValue) {
+        String s = text.toString();
+        int tokenStart = s.indexOf(start);
+        if (tokenStart == -1)
+            return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        int copiedUpTo = 0;
+        while (tokenStart != -1) {
+            int tokenEnd = findTokenEnd(s, tokenStart + start.length(), end);
+            if (tokenEnd == -1) {
+                // same as regex - no match at this position, let's try next one
+                tokenStart = s.indexOf(start, tokenStart + 1);
+                continue;
+            }
+            String key = s.substring(tokenStart + start.length(), tokenEnd);
+            String value = expandedValue.apply(key);
+            int afterToken = tokenEnd + end.length();
+            sb.append(s, copiedUpTo, tokenStart);
+            sb.append(value);
+            copiedUpTo = afterToken;
+            tokenStart = s.indexOf(start, afterToken);
+        }
+        sb.append(s, copiedUpTo, s.length());
+        return sb.toString();
+    }
+
+    /**
+     * @return index of closing marker on the same line, -1 if none
+     */
+    private static int findTokenEnd(String s, int from, String end) {
+        int index = s.indexOf(end, from);
+        if (index == -1)
+            return -1;
+        for (int i = from; i < index; i++) {
+            if (isLineTerminator(s.charAt(i)))
+                return -1;
+        }
+        return index;
+    }
+
+    /**
+     * Same set of characters as regex '.' does not match
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private String getReplacement(String key) {
+        if (!data.containsKey(key))
+            throw new IllegalStateException("No such variable: [" + key + "]");
+        return data.get(key);
+    }
+
+    private String getUnquotedReplacement(String key) {
+        String unquotedDouble = unquote(getReplacement(key));
+        return unquote(unquotedDouble, '\'');
+    }
+
+    private String getExpandedValue(String key) {
+        return getExpanded(key, expandedValues, VAR_START, VAR_END, VAR, getReplacement(key));
+    }
+
+    private String getExpandedUnquotedValue(String key) {
+        return getExpanded(key, expandedUnquotedValues, VAR_REMOVE_QUOTE_START, VAR_REMOVE_QUOTE_END, VAR_REMOVE_QUOTE, getUnquotedReplacement(key));
     }
 
     @NotNull
-    private String process(String line, Pattern pattern, Function<String, String> function) {
-        Matcher m;
-        while ((m = pattern.matcher(line)).find()) {
-            if (m.groupCount() < 2)
-                throw new IllegalStateException("Something broken in: [" + line + "]");
-            String key = m.group(2);
-            line = m.replaceFirst(function.apply(key));
+    private String getExpanded(String key, Map<String, String> cache, String start, String end, Pattern pattern, String replacement) {
+        String expanded = cache.get(key);
+        if (expanded != null)
+            return expanded;
+        if (replacement.indexOf('\\') != -1 || replacement.indexOf('$') != -1) {
+            // replacement string semantics of Matcher are part of the contract, for instance for _16_hex values
+            replacement = pattern.matcher(start + key + end).replaceFirst(replacement);
         }
-        return line;
+        if (!replacement.contains(start)) {
+            expanded = replacement;
+        } else {
+            String expandingKey = start + key;
+            if (!expandingNow.add(expandingKey))
+                throw new IllegalStateException("Circular reference to variable: [" + key + "]");
+            try {
+                if (expandingNow.size() > MAX_NESTING)
+                    throw new IllegalStateException("Variable [" + key + "] nested deeper than " + MAX_NESTING + " levels");
+                expanded = substitute(replacement, start, end, pattern == VAR ? this::getExpandedValue : this::getExpandedUnquotedValue);
+            } finally {
+                expandingNow.remove(expandingKey);
+            }
+        }
+        cache.put(key, expanded);
+        return expanded;
+    }
+
+    private void onDataChanged() {
+        if (!expandedValues.isEmpty())
+            expandedValues.clear();
+        if (!expandedUnquotedValues.isEmpty())
+            expandedUnquotedValues.clear();
     }
 
     public void register(String var, String param) {
@@ -231,6 +347,7 @@ public class VariableRegistry {
         if (log.debugEnabled())
             log.debug("Registering " + var + " as " + value);
         data.put(var, value);
+        onDataChanged();
 
         if (!value.contains("\n")) {
             // multi-lines are not supported in C headers
@@ -333,6 +450,7 @@ public class VariableRegistry {
 
     public void put(String key, String value) {
         data.put(key, value);
+        onDataChanged();
     }
 
     @Nullable
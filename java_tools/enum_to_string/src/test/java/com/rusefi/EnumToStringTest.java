@@ -85,6 +85,28 @@ public class EnumToStringTest {
                 "}\n", enumToString.getCppFileContent());
     }
 
+    @Test
+    public void parseEnumWithBlockComments() throws IOException {
+        final StringReader reader = new StringReader(
+                "typedef enum {\r\n" +
+                        "\tRES_OK = 0,\t\t/* 0: Successful */\r\n" +
+                        "\t/* RES_SKIPPED = 1,\r\n" +
+                        "\t   still a comment, */\r\n" +
+                        "\tRES_ERROR = 0x1\t// 1: R/W Error\r\n" +
+                        "} DRESULT;\r\n");
+        EnumsReader enumsReader = new EnumsReader().read(reader);
+        EnumToString enumToString = process(enumsReader);
+        assertEquals("const char *getDRESULT(DRESULT value){\n" +
+                "switch(value) {\n" +
+                "case RES_ERROR:\n" +
+                "  return \"RES_ERROR\";\n" +
+                "case RES_OK:\n" +
+                "  return \"RES_OK\";\n" +
+                "  }\n" +
+                " return NULL;\n" +
+                "}\n", enumToString.getCppFileContent());
+    }
+
     @Test
     public void parsePackedFancyEnum() throws IOException {
         final StringReader reader = new StringReader(
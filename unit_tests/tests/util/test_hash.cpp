@@ -5,4 +5,5 @@ TEST(util, hash) {
 	ASSERT_EQ(djb2lowerCase("Hello1"), 30950378);
 	ASSERT_EQ(djb2lowerCase("Hello2"), 30950379);
 	ASSERT_EQ(djb2lowerCase("HELLO2"), 30950379);
+	ASSERT_EQ(djb2lowerCase("Hello1", 37), 965667214);
 }